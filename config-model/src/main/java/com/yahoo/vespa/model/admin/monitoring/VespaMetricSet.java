@@ -84,6 +84,7 @@ public class VespaMetricSet {
 
         metrics.add(new Metric("configserver.requests.count"));
         metrics.add(new Metric("configserver.failedRequests.count"));
+        metrics.add(new Metric("configserver.coalescedRequests.count"));
         metrics.add(new Metric("configserver.latency.max"));
         metrics.add(new Metric("configserver.latency.sum"));
         metrics.add(new Metric("configserver.latency.count"));
@@ -220,6 +221,9 @@ public class VespaMetricSet {
         addMetric(metrics, "jdisc.http.filtering.response.handled", List.of("rate"));
         addMetric(metrics, "jdisc.http.filtering.response.unhandled", List.of("rate"));
 
+        addMetric(metrics, "jdisc.http.access_log.dropped_entries", List.of("rate"));
+        addMetric(metrics, "jdisc.http.access_log.queued_entries", List.of("max", "last"));
+
         addMetric(metrics, "jdisc.application.failed_component_graphs", List.of("rate"));
 
         return metrics;
@@ -41,6 +41,7 @@ public class ContainerThreadpool extends SimpleComponent implements ContainerThr
             builder.maxThreads(userOptions.maxThreads);
             builder.minThreads(userOptions.minThreads);
             builder.queueSize(userOptions.queueSize);
+            builder.virtualThreads(userOptions.virtualThreads);
         }
     }
 
@@ -51,11 +52,13 @@ public class ContainerThreadpool extends SimpleComponent implements ContainerThr
         private final int maxThreads;
         private final int minThreads;
         private final int queueSize;
+        private final boolean virtualThreads;
 
-        private UserOptions(int maxThreads, int minThreads, int queueSize) {
+        private UserOptions(int maxThreads, int minThreads, int queueSize, boolean virtualThreads) {
             this.maxThreads = maxThreads;
             this.minThreads = minThreads;
             this.queueSize = queueSize;
+            this.virtualThreads = virtualThreads;
         }
 
         public static Optional<UserOptions> fromXml(Element xml) {
@@ -64,11 +67,17 @@ public class ContainerThreadpool extends SimpleComponent implements ContainerThr
             return Optional.of(new UserOptions(
                     intOption(element, "max-threads"),
                     intOption(element, "min-threads"),
-                    intOption(element, "queue-size")));
+                    intOption(element, "queue-size"),
+                    booleanOption(element, "virtual-threads")));
         }
 
         private static int intOption(Element element, String name) {
             return Integer.parseInt(XML.getChild(element, name).getTextContent());
         }
+
+        private static boolean booleanOption(Element element, String name) {
+            Element child = XML.getChild(element, name);
+            return child != null && Boolean.parseBoolean(child.getTextContent().trim());
+        }
     }
 }
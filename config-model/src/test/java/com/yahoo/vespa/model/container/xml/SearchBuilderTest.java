@@ -245,6 +245,7 @@ public class SearchBuilderTest extends ContainerModelBuilderTestBase {
         assertEquals(500, config.maxThreads());
         assertEquals(500, config.minThreads());
         assertEquals(0, config.queueSize());
+        assertFalse(config.virtualThreads());
     }
 
     @Test
@@ -256,6 +257,7 @@ public class SearchBuilderTest extends ContainerModelBuilderTestBase {
                 "      <max-threads>100</max-threads>",
                 "      <min-threads>80</min-threads>",
                 "      <queue-size>10</queue-size>",
+                "      <virtual-threads>true</virtual-threads>",
                 "    </threadpool>",
                 "  </search>",
                 nodesXml,
@@ -266,6 +268,7 @@ public class SearchBuilderTest extends ContainerModelBuilderTestBase {
         assertEquals(100, config.maxThreads());
         assertEquals(80, config.minThreads());
         assertEquals(10, config.queueSize());
+        assertTrue(config.virtualThreads());
     }
 
     private VespaModel getVespaModelWithMusic(String hosts, String services) {
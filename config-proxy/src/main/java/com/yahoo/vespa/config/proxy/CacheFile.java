@@ -0,0 +1,175 @@
+// Copyright Verizon Media. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.vespa.config.proxy;
+
+import com.yahoo.text.Utf8Array;
+import com.yahoo.vespa.config.ConfigKey;
+import com.yahoo.vespa.config.RawConfig;
+import com.yahoo.vespa.config.protocol.CompressionInfo;
+import com.yahoo.vespa.config.protocol.CompressionType;
+import com.yahoo.vespa.config.protocol.Payload;
+import com.yahoo.vespa.config.protocol.VespaVersion;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+/**
+ * A binary file with the configs of a {@link MemoryCache}, which lets the proxy serve configs immediately after
+ * a restart. The file is a header, followed by one length prefixed and checksummed record per config. The file is
+ * memory mapped when read, and reading stops at the first record which is truncated or fails its checksum, so a
+ * damaged file costs at most the configs after the damage.
+ *
+ * @author agent
+ */
+class CacheFile {
+
+    private static final Logger log = Logger.getLogger(CacheFile.class.getName());
+
+    private static final int magic = 0x56435046; // "VCPF"
+    private static final int version = 1;
+
+    private CacheFile() { }
+
+    /** Writes the given configs to the given file, atomically replacing any existing file. */
+    static void write(Collection<RawConfig> configs, Path file) throws IOException {
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+            out.writeInt(magic);
+            out.writeInt(version);
+            out.writeInt(configs.size());
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+            CRC32 crc = new CRC32();
+            for (RawConfig config : configs) {
+                buffer.reset();
+                writeRecord(config, new DataOutputStream(buffer));
+                crc.reset();
+                crc.update(buffer.toByteArray());
+                out.writeInt(buffer.size());
+                buffer.writeTo(out);
+                out.writeLong(crc.getValue());
+            }
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /** Returns the configs in the given file, or an empty list if it does not exist or is not a valid cache file. */
+    static List<RawConfig> read(Path file) throws IOException {
+        List<RawConfig> configs = new ArrayList<>();
+        if ( ! Files.exists(file)) return configs;
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.remaining() < 12 || buffer.getInt() != magic || buffer.getInt() != version) {
+                log.log(Level.WARNING, "Ignoring '" + file + "', which is not a config cache file of version " + version);
+                return configs;
+            }
+            int count = buffer.getInt();
+            CRC32 crc = new CRC32();
+            for (int i = 0; i < count; i++) {
+                try {
+                    int length = buffer.getInt();
+                    ByteBuffer record = buffer.slice();
+                    record.limit(length);
+                    buffer.position(buffer.position() + length);
+                    crc.reset();
+                    crc.update(record.duplicate());
+                    if (crc.getValue() != buffer.getLong())
+                        throw new IllegalArgumentException("checksum mismatch");
+
+                    configs.add(readRecord(record));
+                }
+                catch (RuntimeException e) { // Buffer under- or overflow, bad checksum, or bad content
+                    log.log(Level.WARNING, "Stopped reading '" + file + "' at config " + i + " of " + count + ": " + e);
+                    break;
+                }
+            }
+        }
+        return configs;
+    }
+
+    private static void writeRecord(RawConfig config, DataOutputStream out) throws IOException {
+        writeString(config.getName(), out);
+        writeString(config.getNamespace(), out);
+        writeString(config.getConfigId(), out);
+        writeString(config.getDefMd5(), out);
+        writeString(config.getConfigMd5(), out);
+        out.writeLong(config.getGeneration());
+        out.writeBoolean(config.applyOnRestart());
+        writeString(config.getVespaVersion().map(VespaVersion::toString).orElse(""), out);
+        List<String> defContent = config.getDefContent() == null ? List.of() : config.getDefContent();
+        out.writeInt(defContent.size());
+        for (String line : defContent)
+            writeString(line, out);
+
+        CompressionInfo compression = config.getPayload().getCompressionInfo();
+        writeString(compression.getCompressionType().name(), out);
+        out.writeInt(compression.getUncompressedSize());
+        ByteBuffer data = config.getPayload().getData().wrap();
+        out.writeInt(data.remaining());
+        out.write(data.array(), data.position(), data.remaining());
+    }
+
+    private static RawConfig readRecord(ByteBuffer in) {
+        String name = readString(in);
+        String namespace = readString(in);
+        String configId = readString(in);
+        String defMd5 = readString(in);
+        String configMd5 = readString(in);
+        long generation = in.getLong();
+        boolean applyOnRestart = in.get() != 0;
+        String vespaVersion = readString(in);
+        int lines = in.getInt();
+        List<String> defContent = new ArrayList<>(lines);
+        for (int i = 0; i < lines; i++)
+            defContent.add(readString(in));
+
+        CompressionType compressionType = CompressionType.valueOf(readString(in));
+        int uncompressedSize = in.getInt();
+        Payload payload = Payload.from(new Utf8Array(readBytes(in)), CompressionInfo.create(compressionType, uncompressedSize));
+        if (in.hasRemaining())
+            throw new IllegalArgumentException("unexpected data after config " + configId);
+
+        return new RawConfig(new ConfigKey<>(name, configId, namespace), defMd5, payload, configMd5, generation,
+                             applyOnRestart, defContent,
+                             vespaVersion.isEmpty() ? Optional.empty() : Optional.of(VespaVersion.fromString(vespaVersion)));
+    }
+
+    private static void writeString(String value, DataOutputStream out) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer in) {
+        return new String(readBytes(in), StandardCharsets.UTF_8);
+    }
+
+    private static byte[] readBytes(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0 || length > in.remaining())
+            throw new BufferUnderflowException();
+
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return bytes;
+    }
+
+}
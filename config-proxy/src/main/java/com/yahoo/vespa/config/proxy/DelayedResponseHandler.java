@@ -46,7 +46,8 @@ public class DelayedResponseHandler implements Runnable {
                 JRTServerConfigRequest request = response.getRequest();
                 ConfigCacheKey cacheKey = new ConfigCacheKey(request.getConfigKey(), request.getConfigKey().getMd5());
                 RawConfig config = memoryCache.get(cacheKey);
-                if (config != null) {
+                // Stale configs, loaded from file, may be older than what the client has
+                if (config != null && ( ! memoryCache.isStale(cacheKey) || ProxyServer.staleConfigIsNewer(config, request))) {
                     rpcServer.returnOkResponse(request, config);
                     i.incrementAndGet();
                 } else {
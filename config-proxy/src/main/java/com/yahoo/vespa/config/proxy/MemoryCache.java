@@ -9,16 +9,25 @@ import com.yahoo.vespa.config.RawConfig;
 import com.yahoo.vespa.config.protocol.CompressionType;
 import com.yahoo.vespa.config.protocol.Payload;
 import com.yahoo.vespa.defaults.Defaults;
+import com.yahoo.yolean.Exceptions;
 
 import java.io.File;
 import java.io.IOException;
 import java.io.Writer;
 import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Logger;
 
 /**
+ * Cache of configs in the proxy. The content may be persisted to, and loaded from, a {@link CacheFile}, to serve
+ * configs immediately after a restart. Configs which are loaded this way are stale until they are updated from
+ * the config source, and the proxy must keep subscribing to those.
+ *
  * @author hmusum
  */
 public class MemoryCache {
@@ -30,6 +39,9 @@ public class MemoryCache {
     private static final String DEFAULT_DUMP_DIR = Defaults.getDefaults().underVespaHome("var/vespa/cache/config");
 
     private final ConcurrentHashMap<ConfigCacheKey, RawConfig> cache = new ConcurrentHashMap<>(500, 0.75f);
+    private final Set<ConfigCacheKey> stale = ConcurrentHashMap.newKeySet();
+    private final AtomicLong changes = new AtomicLong();
+    private long persistedChanges = -1;
 
     public RawConfig get(ConfigCacheKey key) {
         return cache.get(key);
@@ -46,12 +58,51 @@ public class MemoryCache {
 
         // Do not cache empty configs (which have generation 0), remove everything in cache
         if (config.getGeneration() == 0) {
-            cache.clear();
+            clear();
             return;
         }
 
         log.log(Level.FINE, () -> "Putting '" + config + "' into memory cache");
-        cache.put(new ConfigCacheKey(config.getKey(), config.getDefMd5()), config);
+        ConfigCacheKey key = new ConfigCacheKey(config.getKey(), config.getDefMd5());
+        cache.put(key, config);
+        stale.remove(key);
+        changes.incrementAndGet();
+    }
+
+    /** Returns whether the config with the given key was loaded from a file, and is not yet updated from the config source */
+    boolean isStale(ConfigCacheKey key) {
+        return stale.contains(key);
+    }
+
+    /** Writes the configs in this to the given file, unless nothing has changed since the last time this was done. */
+    synchronized void persist(Path file) {
+        long changesToPersist = changes.get();
+        if (changesToPersist == persistedChanges) return;
+
+        try {
+            CacheFile.write(new ArrayList<>(cache.values()), file);
+            persistedChanges = changesToPersist;
+            log.log(Level.FINE, () -> "Wrote " + cache.size() + " configs to '" + file + "'");
+        } catch (IOException e) {
+            log.log(Level.WARNING, "Failed writing config cache to '" + file + "': " + Exceptions.toMessageString(e));
+        }
+    }
+
+    /** Loads configs from the given file, as stale configs, unless this already has configs for their keys. */
+    void load(Path file) {
+        try {
+            int loaded = 0;
+            for (RawConfig config : CacheFile.read(file)) {
+                ConfigCacheKey key = new ConfigCacheKey(config.getKey(), config.getDefMd5());
+                if (config.getGeneration() > 0 && cache.putIfAbsent(key, config) == null) {
+                    stale.add(key);
+                    ++loaded;
+                }
+            }
+            log.log(Level.INFO, "Loaded " + loaded + " configs from '" + file + "'");
+        } catch (IOException e) {
+            log.log(Level.WARNING, "Failed reading config cache from '" + file + "': " + Exceptions.toMessageString(e));
+        }
     }
 
     boolean containsKey(ConfigCacheKey key) {
@@ -68,6 +119,8 @@ public class MemoryCache {
 
     public void clear() {
         cache.clear();
+        stale.clear();
+        changes.incrementAndGet();
     }
 
     @Override
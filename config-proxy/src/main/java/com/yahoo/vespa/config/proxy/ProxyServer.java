@@ -8,17 +8,24 @@ import com.yahoo.jrt.Transport;
 import java.util.logging.Level;
 import com.yahoo.log.LogSetup;
 import com.yahoo.log.event.Event;
+import com.yahoo.net.HostName;
 import com.yahoo.concurrent.DaemonThreadFactory;
 import com.yahoo.vespa.config.RawConfig;
 import com.yahoo.vespa.config.protocol.JRTServerConfigRequest;
 import com.yahoo.vespa.config.proxy.filedistribution.FileDistributionAndUrlDownload;
+import com.yahoo.vespa.defaults.Defaults;
 import com.yahoo.yolean.system.CatchSignals;
 
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
 import java.util.List;
+import java.util.Optional;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -39,6 +46,8 @@ public class ProxyServer implements Runnable {
     private static final int DEFAULT_RPC_PORT = 19090;
     private static final int JRT_TRANSPORT_THREADS = 4;
     static final String DEFAULT_PROXY_CONFIG_SOURCES = "tcp/localhost:19070";
+    static final String DEFAULT_CACHE_FILE = Defaults.getDefaults().underVespaHome("var/vespa/cache/config/proxy-cache");
+    private static final Duration CACHE_PERSIST_INTERVAL = Duration.ofMinutes(1);
 
     private final static Logger log = Logger.getLogger(ProxyServer.class.getName());
     private final AtomicBoolean signalCaught = new AtomicBoolean(false);
@@ -53,6 +62,8 @@ public class ProxyServer implements Runnable {
     private final FileDistributionAndUrlDownload fileDistributionAndUrlDownload;
 
     private volatile Mode mode = new Mode(DEFAULT);
+    private volatile Optional<ScheduledExecutorService> cachePersister = Optional.empty();
+    private volatile Optional<Path> cacheFile = Optional.empty();
 
     ProxyServer(Spec spec, ConfigSourceSet source, MemoryCache memoryCache, ConfigSourceClient configClient) {
         this.configSource = source;
@@ -60,7 +71,8 @@ public class ProxyServer implements Runnable {
         this.memoryCache = memoryCache;
         this.rpcServer = createRpcServer(spec);
         this.configClient = (configClient == null) ? createRpcClient(rpcServer, source, memoryCache) : configClient;
-        this.fileDistributionAndUrlDownload = new FileDistributionAndUrlDownload(supervisor, source);
+        this.fileDistributionAndUrlDownload = new FileDistributionAndUrlDownload(supervisor, source,
+                                                                                 Optional.ofNullable(spec).map(ProxyServer::peerSpec));
     }
 
     @Override
@@ -84,6 +96,14 @@ public class ProxyServer implements Runnable {
         return (config != null && ( ! config.hasEqualConfig(request) || config.hasNewerGeneration(request)));
     }
 
+    /**
+     * Returns whether a stale config, loaded from file, may be returned for the given request. This is only when it is
+     * newer than the config the client has, or the client has none, as clients may have newer configs than the file.
+     */
+    static boolean staleConfigIsNewer(RawConfig config, JRTServerConfigRequest request) {
+        return config != null && (request.getRequestGeneration() == 0 || config.hasNewerGeneration(request));
+    }
+
     Mode getMode() {
         return mode;
     }
@@ -110,6 +130,24 @@ public class ProxyServer implements Runnable {
         log.log(Level.INFO, "Switched from '" + oldMode.name().toLowerCase() + "' mode to '" + getMode().name().toLowerCase() + "' mode");
     }
 
+    /**
+     * Loads the memory cache from the given file, and then writes the memory cache back to it periodically,
+     * and when stopping, so a restarted proxy can serve configs before it has contact with the config source.
+     */
+    void persistCache(Path file, Duration interval) {
+        memoryCache.load(file);
+        ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(threadFactory);
+        executor.scheduleWithFixedDelay(() -> memoryCache.persist(file),
+                                        interval.toMillis(), interval.toMillis(), TimeUnit.MILLISECONDS);
+        cacheFile = Optional.of(file);
+        cachePersister = Optional.of(executor);
+    }
+
+    /** Returns the address of this host, and the port of the given spec, which peers can reach this at. */
+    private static Spec peerSpec(Spec spec) {
+        return new Spec(HostName.getLocalhost(), spec.port());
+    }
+
     private ConfigProxyRpcServer createRpcServer(Spec spec) {
         return  (spec == null) ? null : new ConfigProxyRpcServer(this, supervisor, spec); // TODO: Try to avoid first argument being 'this'
     }
@@ -159,6 +197,7 @@ public class ProxyServer implements Runnable {
 
         ConfigSourceSet configSources = new ConfigSourceSet(properties.configSources);
         ProxyServer proxyServer = new ProxyServer(new Spec(null, port), configSources, new MemoryCache(), null);
+        proxyServer.persistCache(Paths.get(properties.cacheFile), CACHE_PERSIST_INTERVAL);
         // catch termination and interrupt signal
         proxyServer.setupSignalHandler();
         Thread proxyserverThread = threadFactory.newThread(proxyServer);
@@ -169,14 +208,16 @@ public class ProxyServer implements Runnable {
 
     static Properties getSystemProperties() {
         final String[] inputConfigSources = System.getProperty("proxyconfigsources", DEFAULT_PROXY_CONFIG_SOURCES).split(",");
-        return new Properties(inputConfigSources);
+        return new Properties(inputConfigSources, System.getProperty("proxycachefile", DEFAULT_CACHE_FILE));
     }
 
     static class Properties {
         final String[] configSources;
+        final String cacheFile;
 
-        Properties(String[] configSources) {
+        Properties(String[] configSources, String cacheFile) {
             this.configSources = configSources;
+            this.cacheFile = cacheFile;
         }
     }
 
@@ -192,6 +233,9 @@ public class ProxyServer implements Runnable {
         if (rpcServer != null) rpcServer.shutdown();
         Event.stopping("configproxy", "cancel configClient");
         if (configClient != null) configClient.cancel();
+        Event.stopping("configproxy", "persist cache");
+        cachePersister.ifPresent(ExecutorService::shutdownNow);
+        cacheFile.ifPresent(memoryCache::persist);
         Event.stopping("configproxy", "flush");
         flush();
         Event.stopping("configproxy", "close fileDistribution");
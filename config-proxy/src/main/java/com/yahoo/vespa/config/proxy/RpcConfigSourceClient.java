@@ -136,14 +136,18 @@ class RpcConfigSourceClient implements ConfigSourceClient, Runnable {
             log.log(Level.FINE, () -> "Found config " + configCacheKey + " in cache, generation=" + cachedConfig.getGeneration() +
                     ",configmd5=" + cachedConfig.getConfigMd5());
             log.log(Level.FINEST, () -> "input config=" + input + ",cached config=" + cachedConfig);
-            if (ProxyServer.configOrGenerationHasChanged(cachedConfig, request)) {
+            // Configs loaded from file at startup are served only if newer than what the client has, and
+            // must still be fetched from the config source; otherwise the request waits for that
+            boolean stale = memoryCache.isStale(configCacheKey);
+            if (stale ? ProxyServer.staleConfigIsNewer(cachedConfig, request)
+                      : ProxyServer.configOrGenerationHasChanged(cachedConfig, request)) {
                 log.log(Level.FINEST, () -> "Cached config is not equal to requested, will return it");
                 if (delayedResponses.remove(delayedResponse)) {
                     // unless another thread already did it
                     ret = cachedConfig;
                 }
             }
-            if (!cachedConfig.isError() && cachedConfig.getGeneration() > 0) {
+            if (!cachedConfig.isError() && cachedConfig.getGeneration() > 0 && ! stale) {
                 needToGetConfig = false;
             }
         }
@@ -8,9 +8,15 @@ import com.yahoo.vespa.config.ConfigPayload;
 import com.yahoo.vespa.config.RawConfig;
 import com.yahoo.vespa.config.protocol.Payload;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Optional;
 
 import static org.hamcrest.CoreMatchers.is;
@@ -46,6 +52,9 @@ public class MemoryCacheTest {
     private Payload payload2;
     private Payload payloadDifferentMd5;
 
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
     @Before
     public void setup() {
         ArrayList<String> defContent = new ArrayList<>();
@@ -121,4 +130,63 @@ public class MemoryCacheTest {
         cache.clear();
         assertThat(cache.size(), is(0));
     }
+
+    @Test
+    public void testPersistAndLoad() throws IOException {
+        Path file = temporaryFolder.newFolder().toPath().resolve("cache");
+        MemoryCache cache = new MemoryCache();
+        cache.load(file);
+        assertThat(cache.size(), is(0));
+
+        cache.update(config);
+        cache.update(config2);
+        cache.persist(file);
+
+        MemoryCache loaded = new MemoryCache();
+        loaded.update(configDifferentMd5);
+        loaded.load(file);
+        assertThat(loaded.size(), is(3));
+        assertTrue(loaded.isStale(cacheKey));
+        assertTrue(loaded.isStale(cacheKey2));
+        assertFalse(loaded.isStale(cacheKeyDifferentMd5));
+
+        RawConfig response = loaded.get(cacheKey2);
+        assertThat(response.getKey(), is(configKey2));
+        assertThat(response.getDefMd5(), is(defMd52));
+        assertThat(response.getConfigMd5(), is(configMd5));
+        assertThat(response.getGeneration(), is(generation));
+        assertThat(response.getDefContent(), is(config2.getDefContent()));
+        assertThat(response.getPayload(), is(payload2));
+
+        loaded.update(config);
+        assertFalse(loaded.isStale(cacheKey));
+        assertTrue(loaded.isStale(cacheKey2));
+    }
+
+    @Test
+    public void testLoadingDamagedFile() throws IOException {
+        Path file = temporaryFolder.newFolder().toPath().resolve("cache");
+        MemoryCache cache = new MemoryCache();
+        cache.update(config);
+        cache.update(config2);
+        cache.persist(file);
+
+        // Damage the payload of the last config
+        byte[] content = Files.readAllBytes(file);
+        content[content.length - 10] ^= 1;
+        Files.write(file, content);
+        MemoryCache loaded = new MemoryCache();
+        loaded.load(file);
+        assertThat(loaded.size(), is(1));
+
+        // Truncate the file in the first config
+        Files.write(file, Arrays.copyOf(content, 40));
+        loaded = new MemoryCache();
+        loaded.load(file);
+        assertThat(loaded.size(), is(0));
+
+        Files.write(file, "not a cache file".getBytes());
+        loaded.load(file);
+        assertThat(loaded.size(), is(0));
+    }
 }
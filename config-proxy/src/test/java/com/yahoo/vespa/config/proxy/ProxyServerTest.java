@@ -11,6 +11,9 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.Optional;
 
 import static org.hamcrest.CoreMatchers.is;
@@ -215,6 +218,28 @@ public class ProxyServerTest {
         assertTrue(ProxyServer.configOrGenerationHasChanged(res2, newRequestBasedOnResponse));
     }
 
+    @Test
+    public void testCacheIsPersistedWhenStoppingAndLoadedWhenStarting() throws IOException {
+        Path file = temporaryFolder.newFolder().toPath().resolve("cache");
+        MemoryCache cache = new MemoryCache();
+        ProxyServer proxy = createTestServer(source, new MockConfigSourceClient(source, cache), cache);
+        proxy.persistCache(file, Duration.ofHours(1));
+        RawConfig res = proxy.resolveConfig(new ConfigTester().createRequest(fooConfig));
+        assertNotNull(res);
+        proxy.stop();
+        assertEquals(0, cache.size());
+
+        MemoryCache restartedCache = new MemoryCache();
+        ProxyServer restarted = createTestServer(source, new MockConfigSourceClient(source, restartedCache), restartedCache);
+        restarted.persistCache(file, Duration.ofHours(1));
+        ConfigCacheKey key = new ConfigCacheKey(fooConfig.getKey(), fooConfig.getDefMd5());
+        assertEquals(1, restartedCache.size());
+        assertTrue(restartedCache.isStale(key));
+        assertThat(restartedCache.get(key).getPayload().toString(), is(res.getPayload().toString()));
+        assertEquals(res.getGeneration(), restartedCache.get(key).getGeneration());
+        restarted.stop();
+    }
+
     @Test
     public void testReadingSystemProperties() {
         ProxyServer.Properties properties = ProxyServer.getSystemProperties();
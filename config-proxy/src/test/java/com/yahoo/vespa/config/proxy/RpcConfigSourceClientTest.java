@@ -4,13 +4,20 @@ package com.yahoo.vespa.config.proxy;
 import com.yahoo.vespa.config.ConfigKey;
 import com.yahoo.vespa.config.RawConfig;
 import com.yahoo.vespa.config.protocol.JRTConfigRequestFactory;
+import com.yahoo.vespa.config.protocol.JRTServerConfigRequest;
 import com.yahoo.vespa.config.protocol.JRTServerConfigRequestV3;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 
 /**
  * @author hmusum
@@ -89,6 +96,24 @@ public class RpcConfigSourceClientTest {
         assertSentResponses(2);
     }
 
+    @Test
+    public void it_only_returns_stale_config_from_file_when_newer_than_what_the_client_has() throws IOException {
+        RawConfig fromFile = createConfigWithNextConfigGeneration(ProxyServerTest.fooConfig, 2);
+        Path file = tempFolder.newFile().toPath();
+        CacheFile.write(List.of(fromFile), file);
+        MemoryCache memoryCache = new MemoryCache();
+        memoryCache.load(file);
+        rpcConfigSourceClient.cancel();
+        rpcConfigSourceClient = new RpcConfigSourceClient(rpcServer, new MockConfigSource(), memoryCache);
+
+        // The client has a newer config than the file, with a different md5, so it must wait for the config source
+        assertNull(simulateClientGettingConfig(configWithOtherMd5(fromFile, 3)));
+        assertEquals(1, rpcConfigSourceClient.delayedResponses().size());
+
+        assertEquals(fromFile, simulateClientGettingConfig(configWithOtherMd5(fromFile, 1)));
+        assertEquals(fromFile, simulateClientGettingConfig(configWithOtherMd5(fromFile, 0)));
+    }
+
     private void assertSentResponses(int expected) {
         assertEquals(expected, rpcServer.responses);
     }
@@ -97,6 +122,11 @@ public class RpcConfigSourceClientTest {
         rpcConfigSourceClient.delayedResponses().add(new DelayedResponse(JRTServerConfigRequestV3.createFromRequest(JRTConfigRequestFactory.createFromRaw(config, -10L).getRequest())));
     }
 
+    private RawConfig simulateClientGettingConfig(RawConfig config) {
+        JRTServerConfigRequest request = JRTServerConfigRequestV3.createFromRequest(JRTConfigRequestFactory.createFromRaw(config, 60_000L).getRequest());
+        return rpcConfigSourceClient.getConfig(RawConfig.createFromServerRequest(request), request);
+    }
+
     private void configUpdatedSendResponse(RawConfig config) {
         rpcConfigSourceClient.updateSubscribers(config);
     }
@@ -110,4 +140,9 @@ public class RpcConfigSourceClientTest {
         return ProxyServerTest.createConfigWithNextConfigGeneration(config, errorCode, ProxyServerTest.fooConfig.getPayload(), newConfigGeneration);
     }
 
+    private static RawConfig configWithOtherMd5(RawConfig config, long generation) {
+        return new RawConfig(config.getKey(), config.getDefMd5(), config.getPayload(), "other-md5",
+                             generation, false, 0, config.getDefContent(), Optional.empty());
+    }
+
 }
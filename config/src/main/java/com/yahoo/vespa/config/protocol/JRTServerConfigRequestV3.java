@@ -71,7 +71,8 @@ public class JRTServerConfigRequestV3 implements JRTServerConfigRequest {
         this.applyOnRestart = applyOnRestart;
         boolean changedConfig = !configMd5.equals(getRequestConfigMd5());
         boolean changedConfigAndNewGeneration = changedConfig && ConfigUtils.isGenerationNewer(generation, getRequestGeneration());
-        Payload responsePayload = payload.withCompression(getCompressionType());
+        // Only convert the payload to the requested compression if it is to be sent, as this may compress the whole of it
+        Payload responsePayload = changedConfigAndNewGeneration ? payload.withCompression(getCompressionType()) : null;
         ByteArrayOutputStream byteArrayOutputStream = new NoCopyByteArrayOutputStream(4096);
         try {
             JsonGenerator jsonGenerator = createJsonGenerator(byteArrayOutputStream);
@@ -81,14 +82,12 @@ public class JRTServerConfigRequestV3 implements JRTServerConfigRequest {
             setResponseField(jsonGenerator, SlimeResponseData.RESPONSE_CONFIG_GENERATION, generation);
             setResponseField(jsonGenerator, SlimeResponseData.RESPONSE_APPLY_ON_RESTART, applyOnRestart);
             jsonGenerator.writeObjectFieldStart(SlimeResponseData.RESPONSE_COMPRESSION_INFO);
-            if (responsePayload == null) {
+            if (payload == null) {
                 throw new RuntimeException("Payload is null for ' " + this + ", not able to create response");
             }
-            CompressionInfo compressionInfo = responsePayload.getCompressionInfo();
             // If payload is not being sent, we must adjust compression info to avoid client confusion.
-            if (!changedConfigAndNewGeneration) {
-                compressionInfo = CompressionInfo.create(compressionInfo.getCompressionType(), 0);
-            }
+            CompressionInfo compressionInfo = changedConfigAndNewGeneration ? responsePayload.getCompressionInfo()
+                                                                            : CompressionInfo.create(getCompressionType(), 0);
             compressionInfo.serialize(jsonGenerator);
             jsonGenerator.writeEndObject();
 
@@ -14,6 +14,7 @@ import com.yahoo.slime.Inspector;
 import com.yahoo.slime.Slime;
 import com.yahoo.slime.SlimeUtils;
 import com.yahoo.test.ManualClock;
+import com.yahoo.text.Utf8Array;
 import com.yahoo.vespa.config.ConfigKey;
 import com.yahoo.vespa.config.ConfigPayload;
 import com.yahoo.vespa.config.ErrorCode;
@@ -148,6 +149,17 @@ public class JRTConfigRequestV3Test {
         assertFalse(clientReq.hasUpdatedGeneration());
     }
 
+    @Test
+    public void payload_is_not_converted_when_not_sent() {
+        // Data which is not valid LZ4, so conversion to the requested compression would fail
+        Payload payload = Payload.from(new Utf8Array(new byte[] { 1, 2, 3 }), CompressionInfo.create(CompressionType.LZ4, 1 << 20));
+        serverReq.addOkResponse(payload, 4L, false, configMd5);
+        assertTrue(clientReq.errorMessage(), clientReq.validateResponse());
+        assertFalse(clientReq.hasUpdatedConfig());
+        assertTrue(clientReq.hasUpdatedGeneration());
+        assertThat(clientReq.getNewPayload().getCompressionInfo().getUncompressedSize(), is(0));
+    }
+
     @Test
     public void payload_is_empty() {
         Payload payload = Payload.from(ConfigPayload.empty());
@@ -28,8 +28,17 @@ import com.yahoo.vespa.config.server.tenant.TenantRepository;
 import com.yahoo.vespa.config.util.ConfigUtils;
 import com.yahoo.yolean.Exceptions;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 /**
  * A Vespa application for a specific version of Vespa. It holds data and metadata associated with
@@ -49,6 +58,8 @@ public class Application implements ModelResult {
     private final ServerCache cache;
     private final MetricUpdater metricUpdater;
     private final ApplicationId app;
+    /** Resolutions of configs in progress, which identical, concurrent requests wait for, instead of resolving again. */
+    private final Map<ConfigCacheKey, CompletableFuture<ConfigResponse>> resolutions = new ConcurrentHashMap<>();
 
     public Application(Model model, ServerCache cache, long applicationGeneration,
                        Version vespaVersion, MetricUpdater metricUpdater, ApplicationId app) {
@@ -100,7 +111,6 @@ public class Application implements ModelResult {
     /**
      * Gets a config from ZK. Returns null if not found.
      */
-    @SuppressWarnings("deprecation")
     public ConfigResponse resolveConfig(GetConfigRequest req, ConfigResponseFactory responseFactory) {
         long start = System.currentTimeMillis();
         metricUpdater.incrementRequests();
@@ -134,6 +144,97 @@ public class Application implements ModelResult {
             debug("Resolving " + configKey + " with config definition " + def);
         }
 
+        ConfigResponse configResponse = useCache(req) ? resolveOnce(cacheKey, configKey, def, responseFactory)
+                                                      : resolve(configKey, def, responseFactory);
+        metricUpdater.incrementProcTime(System.currentTimeMillis() - start);
+        return configResponse;
+    }
+
+    /**
+     * Resolves the given config and puts it in the cache, unless an identical resolution is already in progress,
+     * in which case this waits for, and returns, the response of that instead. This saves the work of resolving and
+     * compressing the same config for each of the many clients which ask for it right after a new generation is activated.
+     */
+    private ConfigResponse resolveOnce(ConfigCacheKey cacheKey, ConfigKey<?> configKey, ConfigDefinition def,
+                                       ConfigResponseFactory responseFactory) {
+        CompletableFuture<ConfigResponse> resolution = new CompletableFuture<>();
+        CompletableFuture<ConfigResponse> inProgress = resolutions.putIfAbsent(cacheKey, resolution);
+        if (inProgress != null) {
+            metricUpdater.incrementCoalescedRequests();
+            try {
+                return inProgress.join();
+            }
+            catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+            }
+        }
+
+        try {
+            // An identical resolution may have completed since this last checked the cache
+            ConfigResponse configResponse = cache.get(cacheKey);
+            if (configResponse == null) {
+                configResponse = resolve(configKey, def, responseFactory);
+                cache.put(cacheKey, configResponse, configResponse.getConfigMd5());
+                metricUpdater.setCacheConfigElems(cache.configElems());
+                metricUpdater.setCacheChecksumElems(cache.checkSumElems());
+            }
+            resolution.complete(configResponse);
+            return configResponse;
+        }
+        catch (RuntimeException e) {
+            resolution.completeExceptionally(e);
+            throw e;
+        }
+        finally {
+            resolutions.remove(cacheKey, resolution);
+        }
+    }
+
+    /**
+     * Resolves all configs produced by the model, using the config definitions known to this server, and puts them
+     * in the cache, so requests from clients with the same config definitions are served without resolving them again.
+     * Configs are resolved in parallel by the given executor, and this returns when all are done.
+     *
+     * @return the number of configs which were resolved and put in the cache
+     */
+    public int preResolveConfigs(ExecutorService executor, ConfigResponseFactory responseFactory) {
+        List<Future<Boolean>> results = new ArrayList<>();
+        for (ConfigKey<?> configKey : allConfigsProduced()) {
+            ConfigDefinition def = cache.getDef(new ConfigDefinitionKey(configKey.getName(), configKey.getNamespace()));
+            if (def == null || def.getCNode() == null) continue;
+
+            ConfigCacheKey cacheKey = new ConfigCacheKey(configKey, def.getCNode().getMd5());
+            results.add(executor.submit(() -> {
+                if (cache.get(cacheKey) != null) return false;
+
+                ConfigResponse configResponse = resolve(configKey, def, responseFactory);
+                cache.put(cacheKey, configResponse, configResponse.getConfigMd5());
+                return true;
+            }));
+        }
+
+        int resolved = 0;
+        for (Future<Boolean> result : results) {
+            try {
+                if (result.get()) ++resolved;
+            }
+            catch (ExecutionException e) {
+                // Clients asking for this config will get the same error when it is resolved on request
+                log.log(Level.FINE, TenantRepository.logPre(getId()) + "Failed pre-resolving config: " +
+                                    Exceptions.toMessageString(e.getCause()));
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Interrupted while pre-resolving configs for " + app, e);
+            }
+        }
+        metricUpdater.setCacheConfigElems(cache.configElems());
+        metricUpdater.setCacheChecksumElems(cache.checkSumElems());
+        return resolved;
+    }
+
+    @SuppressWarnings("deprecation")
+    private ConfigResponse resolve(ConfigKey<?> configKey, ConfigDefinition def, ConfigResponseFactory responseFactory) {
         ConfigInstance.Builder builder;
         ConfigPayload payload;
         boolean applyOnRestart = false;
@@ -167,16 +268,7 @@ public class Application implements ModelResult {
             throw new ConfigurationRuntimeException("Unable to get config for " + app, e);
         }
 
-        ConfigResponse configResponse = responseFactory.createResponse(payload,
-                                                                       applicationGeneration,
-                                                                       applyOnRestart);
-        metricUpdater.incrementProcTime(System.currentTimeMillis() - start);
-        if (useCache(req)) {
-            cache.put(cacheKey, configResponse, configResponse.getConfigMd5());
-            metricUpdater.setCacheConfigElems(cache.configElems());
-            metricUpdater.setCacheChecksumElems(cache.checkSumElems());
-        }
-        return configResponse;
+        return responseFactory.createResponse(payload, applicationGeneration, applyOnRestart);
     }
 
     private boolean useCache(GetConfigRequest request) {
@@ -22,6 +22,7 @@ import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.Optional;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.logging.Level;
@@ -105,6 +106,17 @@ public class FileServer {
         return false;
     }
 
+    /** Returns the file of the given file reference, if this has it, and it is a plain file, and not a directory. */
+    public Optional<File> plainFile(FileReference reference) {
+        try {
+            File file = root.getFile(reference);
+            return file.isFile() ? Optional.of(file) : Optional.empty();
+        } catch (IllegalArgumentException e) {
+            log.log(Level.FINE, "Failed locating file reference '" + reference + "' with error " + e.toString());
+            return Optional.empty();
+        }
+    }
+
     void startFileServing(String fileName, Receiver target) {
         FileReference reference = new FileReference(fileName);
         File file = root.getFile(reference);
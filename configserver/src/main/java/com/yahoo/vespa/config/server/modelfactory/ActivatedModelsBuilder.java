@@ -3,6 +3,7 @@ package com.yahoo.vespa.config.server.modelfactory;
 
 import com.google.common.collect.ImmutableSet;
 import com.yahoo.component.Version;
+import com.yahoo.concurrent.DaemonThreadFactory;
 import com.yahoo.config.application.api.ApplicationPackage;
 import com.yahoo.config.model.api.ConfigDefinitionRepo;
 import com.yahoo.config.model.api.Model;
@@ -25,6 +26,7 @@ import com.yahoo.vespa.config.server.deploy.ModelContextImpl;
 import com.yahoo.vespa.config.server.monitoring.MetricUpdater;
 import com.yahoo.vespa.config.server.monitoring.Metrics;
 import com.yahoo.vespa.config.server.provision.HostProvisionerProvider;
+import com.yahoo.vespa.config.server.rpc.ConfigResponseFactory;
 import com.yahoo.vespa.config.server.session.SessionZooKeeperClient;
 import com.yahoo.vespa.config.server.session.SilentDeployLogger;
 import com.yahoo.vespa.config.server.tenant.ApplicationRolesStore;
@@ -38,6 +40,8 @@ import com.yahoo.vespa.flags.FlagSource;
 import java.util.Comparator;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -113,12 +117,31 @@ public class ActivatedModelsBuilder extends ModelsBuilder<Application> {
                 wantedNodeVespaVersion);
         MetricUpdater applicationMetricUpdater = metrics.getOrCreateMetricUpdater(Metrics.createDimensions(applicationId));
         ServerCache serverCache = new ServerCache(configDefinitionRepo, zkClient.getUserConfigDefinitions());
-        return new Application(modelFactory.createModel(modelContext),
-                               serverCache,
-                               applicationGeneration,
-                               modelFactory.version(),
-                               applicationMetricUpdater,
-                               applicationId);
+        Application application = new Application(modelFactory.createModel(modelContext),
+                                                  serverCache,
+                                                  applicationGeneration,
+                                                  modelFactory.version(),
+                                                  applicationMetricUpdater,
+                                                  applicationId);
+        preResolveConfigs(application);
+        return application;
+    }
+
+    /** Resolves all configs of the given application up front, if configured to, so they are ready when requested. */
+    private void preResolveConfigs(Application application) {
+        int threads = configserverConfig.numConfigPreResolveThreads();
+        if (threads <= 0) return;
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads, new DaemonThreadFactory("pre-resolve configs"));
+        try {
+            long start = System.currentTimeMillis();
+            int resolved = application.preResolveConfigs(executor, ConfigResponseFactory.create(configserverConfig));
+            log.log(Level.FINE, String.format("Pre-resolved %d configs for %s in %d ms",
+                                              resolved, application, System.currentTimeMillis() - start));
+        }
+        finally {
+            executor.shutdown();
+        }
     }
 
     private Optional<Model> modelOf(Version version) {
@@ -14,6 +14,7 @@ import static com.yahoo.vespa.config.server.monitoring.Metrics.getMetricName;
  */
 // TODO javadoc, thread non-safeness maybe
 public class MetricUpdater {
+    private static final String METRIC_COALESCED_REQUESTS = getMetricName("coalescedRequests");
     private static final String METRIC_UNKNOWN_HOSTS = getMetricName("unknownHostRequests");
     private static final String METRIC_SESSION_CHANGE_ERRORS = getMetricName("sessionChangeErrors");
     private static final String METRIC_NEW_SESSIONS = getMetricName("newSessions");
@@ -54,6 +55,13 @@ public class MetricUpdater {
         metrics.incrementFailedRequests(metricContext);
     }
 
+    /**
+     * Increment the number of requests which were served by waiting for an identical request, rather than resolving config.
+     */
+    public void incrementCoalescedRequests() {
+        metrics.increment(METRIC_COALESCED_REQUESTS, metricContext);
+    }
+
     public void incrementProcTime(long increment) {
         metrics.incrementProcTime(increment, metricContext);
     }
@@ -42,6 +42,7 @@ import com.yahoo.vespa.config.server.rpc.security.RpcAuthorizer;
 import com.yahoo.vespa.config.server.tenant.Tenant;
 import com.yahoo.vespa.config.server.tenant.TenantListener;
 import com.yahoo.vespa.config.server.tenant.TenantRepository;
+import com.yahoo.vespa.filedistribution.FileChunkServer;
 import com.yahoo.vespa.filedistribution.FileDownloader;
 import com.yahoo.vespa.filedistribution.FileReceiver;
 import com.yahoo.vespa.filedistribution.FileReferenceData;
@@ -59,9 +60,11 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorCompletionService;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.logging.Logger;
 import java.util.stream.Stream;
 
@@ -100,6 +103,7 @@ public class RpcServer implements Runnable, ReloadListener, TenantListener {
     private final MetricUpdaterFactory metricUpdaterFactory;
     private final HostLivenessTracker hostLivenessTracker;
     private final FileServer fileServer;
+    private final FileChunkServer fileChunkServer;
     private final RpcAuthorizer rpcAuthorizer;
 
     private final ThreadPoolExecutor executorService;
@@ -143,6 +147,8 @@ public class RpcServer implements Runnable, ReloadListener, TenantListener {
         this.fileServer = fileServer;
         this.rpcAuthorizer = rpcAuthorizer;
         downloader = fileServer.downloader();
+        // Config servers seed chunks of files to downloaders, but do not download from peers themselves
+        fileChunkServer = new FileChunkServer(supervisor, fileServer::plainFile, Optional.empty(), rpcAuthorizer::authorizeFileRequest);
         handlerProvider.setInstance(this);
         setUpHandlers();
     }
@@ -203,6 +209,7 @@ public class RpcServer implements Runnable, ReloadListener, TenantListener {
         }
         delayedConfigResponses.stop();
         fileServer.close();
+        fileChunkServer.close();
         supervisor.transport().shutdown().join();
         isRunning = false;
     }
@@ -460,6 +467,10 @@ public class RpcServer implements Runnable, ReloadListener, TenantListener {
     }
 
     static class ChunkedFileReceiver implements FileServer.Receiver {
+
+        private static final int partSize = 0x100000;
+        private static final int maxPartsInFlight = 4;
+
         final Target target;
         ChunkedFileReceiver(Target target) {
             this.target = target;
@@ -476,18 +487,25 @@ public class RpcServer implements Runnable, ReloadListener, TenantListener {
             sendParts(session, fileData);
             sendEof(session, fileData, status);
         }
+
+        /**
+         * Sends parts asynchronously, with a bounded number in flight, and waits for all of them to complete.
+         * The receiver handles the parts of a connection in order, so they need not be sent one round-trip apart.
+         */
         private void sendParts(int session, FileReferenceData fileData) {
-            ByteBuffer bb = ByteBuffer.allocate(0x100000);
-            for (int partId = 0, read = fileData.nextContent(bb); read >= 0; partId++, read = fileData.nextContent(bb)) {
-                byte [] buf = bb.array();
-                if (buf.length != bb.position()) {
-                    buf = new byte [bb.position()];
-                    bb.flip();
-                    bb.get(buf);
+            Semaphore inFlight = new Semaphore(maxPartsInFlight);
+            AtomicReference<RuntimeException> failure = new AtomicReference<>();
+            try {
+                Optional<ByteBuffer> part;
+                for (int partId = 0; failure.get() == null && (part = fileData.nextPart(partSize)).isPresent(); partId++) {
+                    inFlight.acquireUninterruptibly();
+                    sendPart(session, fileData.fileReference(), partId, part.get(), inFlight, failure);
                 }
-                sendPart(session, fileData.fileReference(), partId, buf);
-                bb.clear();
             }
+            finally {
+                inFlight.acquireUninterruptibly(maxPartsInFlight);
+            }
+            if (failure.get() != null) throw failure.get();
         }
         private int sendMeta(FileReferenceData fileData) {
             Request request = new Request(FileReceiver.RECEIVE_META_METHOD);
@@ -507,21 +525,28 @@ public class RpcServer implements Runnable, ReloadListener, TenantListener {
                 return request.returnValues().get(1).asInt32();
             }
         }
-        private void sendPart(int session, FileReference ref, int partId, byte [] buf) {
+        private void sendPart(int session, FileReference ref, int partId, ByteBuffer part,
+                              Semaphore inFlight, AtomicReference<RuntimeException> failure) {
             Request request = new Request(FileReceiver.RECEIVE_PART_METHOD);
             request.parameters().add(new StringValue(ref.value()));
             request.parameters().add(new Int32Value(session));
             request.parameters().add(new Int32Value(partId));
-            request.parameters().add(new DataValue(buf));
-            invokeRpcIfValidConnection(request);
-            if (request.isError()) {
-                throw new IllegalArgumentException("Failed delivering reference '" + ref.value() + "' to " +
-                                                           target.toString() + " with error: '" + request.errorMessage() + "'.");
-            } else {
-                if (request.returnValues().get(0).asInt32() != 0) {
-                    throw new IllegalArgumentException("Unknown error from target '" + target.toString() + "' during rpc call " + request.methodName());
-                }
+            request.parameters().add(DataValue.wrap(part));
+            if ( ! target.isValid()) {
+                inFlight.release();
+                throw new RuntimeException("Connection to " + target + " is invalid", target.getConnectionLostReason());
             }
+            target.invokeAsync(request, 600, done -> {
+                if (done.isError()) {
+                    failure.compareAndSet(null, new IllegalArgumentException("Failed delivering reference '" + ref.value() + "' to " +
+                                                                             target.toString() + " with error: '" + done.errorMessage() + "'."));
+                } else {
+                    if (done.returnValues().get(0).asInt32() != 0) {
+                        failure.compareAndSet(null, new IllegalArgumentException("Unknown error from target '" + target.toString() + "' during rpc call " + done.methodName()));
+                    }
+                }
+                inFlight.release();
+            });
         }
         private void sendEof(int session, FileReferenceData fileData, FileServer.ReplayStatus status) {
             Request request = new Request(FileReceiver.RECEIVE_EOF_METHOD);
@@ -5,6 +5,7 @@ import com.yahoo.cloud.config.ModelConfig;
 import com.yahoo.cloud.config.SlobroksConfig;
 import com.yahoo.cloud.config.log.LogdConfig;
 import com.yahoo.component.Version;
+import com.yahoo.config.ConfigInstance;
 import com.yahoo.config.SimpletypesConfig;
 import com.yahoo.config.model.application.provider.FilesApplicationPackage;
 import com.yahoo.config.provision.ApplicationId;
@@ -13,9 +14,11 @@ import com.yahoo.config.provision.InstanceName;
 import com.yahoo.config.provision.TenantName;
 import com.yahoo.jrt.Request;
 import com.yahoo.text.Utf8;
+import com.yahoo.vespa.config.ConfigCacheKey;
 import com.yahoo.vespa.config.ConfigDefinitionKey;
 import com.yahoo.vespa.config.ConfigKey;
 import com.yahoo.vespa.config.GetConfigRequest;
+import com.yahoo.vespa.config.buildergen.ConfigDefinition;
 import com.yahoo.vespa.config.protocol.CompressionType;
 import com.yahoo.vespa.config.protocol.ConfigResponse;
 import com.yahoo.vespa.config.protocol.DefContent;
@@ -29,6 +32,7 @@ import com.yahoo.vespa.config.server.UnknownConfigDefinitionException;
 import com.yahoo.vespa.config.server.UserConfigDefinitionRepo;
 import com.yahoo.vespa.config.server.monitoring.MetricUpdater;
 import com.yahoo.vespa.config.server.monitoring.Metrics;
+import com.yahoo.vespa.config.server.rpc.UncompressedConfigResponseFactory;
 import com.yahoo.vespa.model.VespaModel;
 import org.junit.Before;
 import org.junit.Test;
@@ -38,7 +42,13 @@ import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.hamcrest.CoreMatchers.is;
 import static org.junit.Assert.assertEquals;
@@ -146,9 +156,85 @@ public class ApplicationTest {
         assertTrue(response == cached_response);
     }
 
+    @Test
+    public void require_that_configs_can_be_pre_resolved() {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            int resolved = handler.preResolveConfigs(executor, new UncompressedConfigResponseFactory());
+            assertTrue(resolved > 0);
+            assertEquals(0, handler.preResolveConfigs(executor, new UncompressedConfigResponseFactory()));
+        }
+        finally {
+            executor.shutdown();
+        }
+
+        ConfigKey<?> slobroksKey = handler.allConfigsProduced().stream()
+                                          .filter(key -> key.getName().equals(SlobroksConfig.CONFIG_DEF_NAME))
+                                          .findFirst().get();
+        ConfigResponse cached = handler.getCache().get(new ConfigCacheKey(slobroksKey, SlobroksConfig.CONFIG_DEF_MD5));
+        assertNotNull(cached);
+        assertTrue(cached == handler.resolveConfig(createRequest(SlobroksConfig.CONFIG_DEF_NAME, slobroksKey.getConfigId(),
+                                                                 SlobroksConfig.CONFIG_DEF_NAMESPACE, SlobroksConfig.CONFIG_DEF_MD5,
+                                                                 emptySchema)));
+    }
+
+    @Test
+    public void require_that_concurrent_identical_requests_are_resolved_once() throws InterruptedException {
+        CountDownLatch resolving = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger resolutions = new AtomicInteger();
+        ModelStub model = new ModelStub() {
+            @Override
+            public ConfigInstance.Builder getConfigInstance(ConfigKey<?> configKey, ConfigDefinition targetDef) {
+                resolutions.incrementAndGet();
+                resolving.countDown();
+                try {
+                    release.await();
+                }
+                catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+                return new SimpletypesConfig.Builder().intval(1337);
+            }
+        };
+        Application application = new Application(model, createCacheAndAddContent(), 1L, new Version(1, 2, 3),
+                                                  MetricUpdater.createTestUpdater(), ApplicationId.defaultId());
+
+        int clients = 8;
+        ConfigResponse[] responses = new ConfigResponse[clients];
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < clients; i++) {
+            int client = i;
+            threads.add(new Thread(() -> responses[client] = application.resolveConfig(createSimpleConfigRequest())));
+        }
+        threads.get(0).start();
+        resolving.await();
+        for (Thread thread : threads.subList(1, clients))
+            thread.start();
+
+        // Let all clients block, either on the ongoing resolution, or in the model, before the resolution completes
+        for (Thread thread : threads)
+            while (thread.getState() != Thread.State.WAITING)
+                Thread.sleep(1);
+
+        release.countDown();
+        for (Thread thread : threads)
+            thread.join();
+
+        assertEquals(1, resolutions.get());
+        for (ConfigResponse response : responses)
+            assertTrue(response == responses[0]);
+        assertTrue(responses[0] == application.resolveConfig(createSimpleConfigRequest()));
+        assertEquals(1, resolutions.get());
+    }
+
     private static GetConfigRequest createRequest(String name, String namespace, String defMd5, String[] schema) {
+        return createRequest(name, "admin/model", namespace, defMd5, schema);
+    }
+
+    private static GetConfigRequest createRequest(String name, String configId, String namespace, String defMd5, String[] schema) {
         Request request = JRTClientConfigRequestV3.
-                createWithParams(new ConfigKey<>(name, "admin/model", namespace, defMd5, null), DefContent.fromArray(schema),
+                createWithParams(new ConfigKey<>(name, configId, namespace, defMd5, null), DefContent.fromArray(schema),
                                  "fromHost", "", 0, 100, Trace.createDummy(), CompressionType.UNCOMPRESSED,
                                  Optional.empty()).getRequest();
         return JRTServerConfigRequestV3.createFromRequest(request);
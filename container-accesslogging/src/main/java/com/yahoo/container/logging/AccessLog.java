@@ -29,4 +29,14 @@ public class AccessLog {
         }
     }
 
+    /** Returns the number of entries dropped so far by all the access logs. */
+    public long droppedEntries() {
+        return implementers.allComponents().stream().mapToLong(AccessLogInterface::droppedEntries).sum();
+    }
+
+    /** Returns the number of entries which are logged, but not yet written, by all the access logs. */
+    public long queuedEntries() {
+        return implementers.allComponents().stream().mapToLong(AccessLogInterface::queuedEntries).sum();
+    }
+
 }
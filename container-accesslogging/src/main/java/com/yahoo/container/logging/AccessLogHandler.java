@@ -3,46 +3,51 @@ package com.yahoo.container.logging;
 
 import com.yahoo.container.core.AccessLogConfig;
 
-import java.util.logging.Logger;
-
 /**
  * @author Bjorn Borud
  */
 class AccessLogHandler {
 
-    public Logger access = Logger.getAnonymousLogger();
-    private LogFileHandler logFileHandler;
-
-    public AccessLogHandler(AccessLogConfig.FileHandler config) {
-        access.setUseParentHandlers(false);
+    private final LogFileHandler<AccessLogEntry> logFileHandler;
 
-        logFileHandler = new LogFileHandler(config.compressOnRotation());
+    public AccessLogHandler(AccessLogConfig.FileHandler config, LogWriter<AccessLogEntry> logWriter) {
+        logFileHandler = new LogFileHandler<>(config.compressOnRotation(),
+                                              config.queueSize(),
+                                              config.queueFullPolicy() == AccessLogConfig.FileHandler.QueueFullPolicy.DROP,
+                                              logWriter);
 
         logFileHandler.setFilePattern(config.pattern());
         logFileHandler.setRotationTimes(config.rotation());
 
         createSymlink(config, logFileHandler);
-
-        LogFormatter lf = new LogFormatter();
-        lf.messageOnly(true);
-        this.logFileHandler.setFormatter(lf);
-        access.addHandler(this.logFileHandler);
     }
 
-    private void createSymlink(AccessLogConfig.FileHandler config, LogFileHandler handler) {
+    private void createSymlink(AccessLogConfig.FileHandler config, LogFileHandler<AccessLogEntry> handler) {
         if (!config.symlink().isEmpty())
             handler.setSymlinkName(config.symlink());
     }
 
-    public void shutdown() {
-        logFileHandler.close();
-        access.removeHandler(logFileHandler);
+    /** Queues the given entry, which is formatted and written by the writer thread of this. */
+    void log(AccessLogEntry entry) {
+        logFileHandler.publish(entry);
+    }
 
-        if (logFileHandler!=null)
-            logFileHandler.shutdown();
+    public void shutdown() {
+        logFileHandler.shutdown();
     }
 
     void rotateNow() {
         logFileHandler.rotateNow();
     }
+
+    /** Returns the number of entries dropped so far because the queue was full. */
+    long dropped() {
+        return logFileHandler.dropped();
+    }
+
+    /** Returns the number of entries which are queued, but not yet written. */
+    long queued() {
+        return logFileHandler.queued();
+    }
+
 }
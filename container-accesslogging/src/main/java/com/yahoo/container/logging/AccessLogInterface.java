@@ -5,5 +5,13 @@ package com.yahoo.container.logging;
  * @author Tony Vaagenes
  */
 public interface AccessLogInterface {
+
     void log(AccessLogEntry accessLogEntry);
+
+    /** Returns the number of entries dropped so far, because they could not be written as fast as they were logged. */
+    default long droppedEntries() { return 0; }
+
+    /** Returns the number of entries which are logged, but not yet written. */
+    default long queuedEntries() { return 0; }
+
 }
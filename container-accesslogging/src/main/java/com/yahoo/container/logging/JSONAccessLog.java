@@ -3,7 +3,8 @@ package com.yahoo.container.logging;
 
 import com.yahoo.container.core.AccessLogConfig;
 
-import java.util.logging.Level;
+import java.io.IOException;
+import java.io.OutputStream;
 
 /**
  * Log a message in Vespa JSON access log format.
@@ -16,12 +17,27 @@ public final class JSONAccessLog implements  AccessLogInterface {
     private final AccessLogHandler logHandler;
 
     public JSONAccessLog(AccessLogConfig config) {
-        logHandler = new AccessLogHandler(config.fileHandler());
+        logHandler = new AccessLogHandler(config.fileHandler(), JSONAccessLog::write);
     }
 
     @Override
     public void log(AccessLogEntry logEntry) {
-        logHandler.access.log(Level.INFO, new JSONFormatter(logEntry).format() + '\n');
+        logHandler.log(logEntry);
+    }
+
+    @Override
+    public long droppedEntries() {
+        return logHandler.dropped();
+    }
+
+    @Override
+    public long queuedEntries() {
+        return logHandler.queued();
+    }
+
+    private static void write(AccessLogEntry logEntry, OutputStream out) throws IOException {
+        new JSONFormatter(logEntry).write(out);
+        out.write('\n');
     }
 
     // TODO: This is never called. We should have a DI provider and call this method from its deconstruct.
@@ -9,6 +9,7 @@ import com.yahoo.yolean.trace.TraceNode;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.security.Principal;
@@ -33,15 +34,16 @@ public class JSONFormatter {
     private static final String COVERAGE_DEGRADE_ADAPTIVE_TIMEOUT = "adaptive-timeout";
     private static final String COVERAGE_DEGRADED_NON_IDEAL_STATE = "non-ideal-state";
 
+    /** Thread-safe once configured, and costly to create, so shared by all formatters. */
+    private static final JsonFactory generatorFactory = new JsonFactory(new ObjectMapper())
+            .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+
     private AccessLogEntry accessLogEntry;
-    private final JsonFactory generatorFactory;
 
     private static Logger logger = Logger.getLogger(JSONFormatter.class.getName());
 
     public JSONFormatter(final AccessLogEntry entry) {
         accessLogEntry = entry;
-        generatorFactory = new JsonFactory();
-        generatorFactory.setCodec(new ObjectMapper());
     }
 
     /**
@@ -52,113 +54,120 @@ public class JSONFormatter {
     public String format() {
         ByteArrayOutputStream logLine = new ByteArrayOutputStream();
         try {
-            JsonGenerator generator = generatorFactory.createGenerator(logLine, JsonEncoding.UTF8);
-            generator.writeStartObject();
-            generator.writeStringField("ip", accessLogEntry.getIpV4Address());
-            generator.writeNumberField("time", toTimestampInSeconds(accessLogEntry.getTimeStampMillis()));
-            generator.writeNumberField("duration", durationAsSeconds(accessLogEntry.getDurationBetweenRequestResponseMillis()));
-            generator.writeNumberField("responsesize", accessLogEntry.getReturnedContentSize());
-            generator.writeNumberField("code", accessLogEntry.getStatusCode());
-            generator.writeStringField("method", accessLogEntry.getHttpMethod());
-            generator.writeStringField("uri", getNormalizedURI(accessLogEntry.getRawPath(), accessLogEntry.getRawQuery().orElse(null)));
-            generator.writeStringField("version", accessLogEntry.getHttpVersion());
-            generator.writeStringField("agent", accessLogEntry.getUserAgent());
-            generator.writeStringField("host", accessLogEntry.getHostString());
-            generator.writeStringField("scheme", accessLogEntry.getScheme());
-            generator.writeNumberField("localport", accessLogEntry.getLocalPort());
-
-            Principal principal = accessLogEntry.getUserPrincipal();
-            if (principal != null) {
-                generator.writeStringField("user-principal", principal.getName());
-            }
+            write(logLine);
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Unable to generate JSON access log entry: " + e.getMessage());
+        }
 
-            Principal sslPrincipal = accessLogEntry.getSslPrincipal();
-            if (sslPrincipal != null) {
-                generator.writeStringField("ssl-principal", sslPrincipal.getName());
-            }
+        return logLine.toString();
+    }
 
-            // Only add remote address/port fields if relevant
-            if (remoteAddressDiffers(accessLogEntry.getIpV4Address(), accessLogEntry.getRemoteAddress())) {
-                generator.writeStringField("remoteaddr", accessLogEntry.getRemoteAddress());
-                if (accessLogEntry.getRemotePort() > 0) {
-                    generator.writeNumberField("remoteport", accessLogEntry.getRemotePort());
-                }
+    /**
+     * Writes the associated {@link AccessLogEntry} in the Vespa JSON access log format, without trailing newline,
+     * to the given stream, which is not closed.
+     */
+    void write(OutputStream out) throws IOException {
+        JsonGenerator generator = generatorFactory.createGenerator(out, JsonEncoding.UTF8);
+        generator.writeStartObject();
+        generator.writeStringField("ip", accessLogEntry.getIpV4Address());
+        generator.writeNumberField("time", toTimestampInSeconds(accessLogEntry.getTimeStampMillis()));
+        generator.writeNumberField("duration", durationAsSeconds(accessLogEntry.getDurationBetweenRequestResponseMillis()));
+        generator.writeNumberField("responsesize", accessLogEntry.getReturnedContentSize());
+        generator.writeNumberField("code", accessLogEntry.getStatusCode());
+        generator.writeStringField("method", accessLogEntry.getHttpMethod());
+        generator.writeStringField("uri", getNormalizedURI(accessLogEntry.getRawPath(), accessLogEntry.getRawQuery().orElse(null)));
+        generator.writeStringField("version", accessLogEntry.getHttpVersion());
+        generator.writeStringField("agent", accessLogEntry.getUserAgent());
+        generator.writeStringField("host", accessLogEntry.getHostString());
+        generator.writeStringField("scheme", accessLogEntry.getScheme());
+        generator.writeNumberField("localport", accessLogEntry.getLocalPort());
+
+        Principal principal = accessLogEntry.getUserPrincipal();
+        if (principal != null) {
+            generator.writeStringField("user-principal", principal.getName());
+        }
+
+        Principal sslPrincipal = accessLogEntry.getSslPrincipal();
+        if (sslPrincipal != null) {
+            generator.writeStringField("ssl-principal", sslPrincipal.getName());
+        }
+
+        // Only add remote address/port fields if relevant
+        if (remoteAddressDiffers(accessLogEntry.getIpV4Address(), accessLogEntry.getRemoteAddress())) {
+            generator.writeStringField("remoteaddr", accessLogEntry.getRemoteAddress());
+            if (accessLogEntry.getRemotePort() > 0) {
+                generator.writeNumberField("remoteport", accessLogEntry.getRemotePort());
             }
+        }
 
-            // Only add peer address/port fields if relevant
-            if (accessLogEntry.getPeerAddress() != null) {
-                generator.writeStringField("peeraddr", accessLogEntry.getPeerAddress());
+        // Only add peer address/port fields if relevant
+        if (accessLogEntry.getPeerAddress() != null) {
+            generator.writeStringField("peeraddr", accessLogEntry.getPeerAddress());
 
-                int peerPort = accessLogEntry.getPeerPort();
-                if (peerPort > 0 && peerPort != accessLogEntry.getRemotePort()) {
-                    generator.writeNumberField("peerport", peerPort);
-                }
+            int peerPort = accessLogEntry.getPeerPort();
+            if (peerPort > 0 && peerPort != accessLogEntry.getRemotePort()) {
+                generator.writeNumberField("peerport", peerPort);
             }
+        }
 
-            TraceNode trace = accessLogEntry.getTrace();
-            if (trace != null) {
-                long timestamp = trace.timestamp();
-                if (timestamp == 0L) {
-                    timestamp = accessLogEntry.getTimeStampMillis();
-                }
-                trace.accept(new TraceRenderer(generator, timestamp));
+        TraceNode trace = accessLogEntry.getTrace();
+        if (trace != null) {
+            long timestamp = trace.timestamp();
+            if (timestamp == 0L) {
+                timestamp = accessLogEntry.getTimeStampMillis();
             }
+            trace.accept(new TraceRenderer(generator, timestamp));
+        }
 
-            // Only add search sub block of this is a search request
-            if (isSearchRequest(accessLogEntry)) {
-                generator.writeObjectFieldStart("search");
-                generator.writeNumberField("totalhits", getTotalHitCount(accessLogEntry.getHitCounts()));
-                generator.writeNumberField("hits", getRetrievedHitCount(accessLogEntry.getHitCounts()));
-                Coverage c = accessLogEntry.getHitCounts().getCoverage();
-                if (c != null) {
-                    generator.writeObjectFieldStart(COVERAGE);
-                    generator.writeNumberField(COVERAGE_COVERAGE, c.getResultPercentage());
-                    generator.writeNumberField(COVERAGE_DOCUMENTS, c.getDocs());
-                    if (c.isDegraded()) {
-                        generator.writeObjectFieldStart(COVERAGE_DEGRADE);
-                        if (c.isDegradedByMatchPhase())
-                            generator.writeBooleanField(COVERAGE_DEGRADE_MATCHPHASE, c.isDegradedByMatchPhase());
-                        if (c.isDegradedByTimeout())
-                            generator.writeBooleanField(COVERAGE_DEGRADE_TIMEOUT, c.isDegradedByTimeout());
-                        if (c.isDegradedByAdapativeTimeout())
-                            generator.writeBooleanField(COVERAGE_DEGRADE_ADAPTIVE_TIMEOUT, c.isDegradedByAdapativeTimeout());
-                        if (c.isDegradedByNonIdealState())
-                            generator.writeBooleanField(COVERAGE_DEGRADED_NON_IDEAL_STATE, c.isDegradedByNonIdealState());
-                        generator.writeEndObject();
-                    }
+        // Only add search sub block of this is a search request
+        if (isSearchRequest(accessLogEntry)) {
+            generator.writeObjectFieldStart("search");
+            generator.writeNumberField("totalhits", getTotalHitCount(accessLogEntry.getHitCounts()));
+            generator.writeNumberField("hits", getRetrievedHitCount(accessLogEntry.getHitCounts()));
+            Coverage c = accessLogEntry.getHitCounts().getCoverage();
+            if (c != null) {
+                generator.writeObjectFieldStart(COVERAGE);
+                generator.writeNumberField(COVERAGE_COVERAGE, c.getResultPercentage());
+                generator.writeNumberField(COVERAGE_DOCUMENTS, c.getDocs());
+                if (c.isDegraded()) {
+                    generator.writeObjectFieldStart(COVERAGE_DEGRADE);
+                    if (c.isDegradedByMatchPhase())
+                        generator.writeBooleanField(COVERAGE_DEGRADE_MATCHPHASE, c.isDegradedByMatchPhase());
+                    if (c.isDegradedByTimeout())
+                        generator.writeBooleanField(COVERAGE_DEGRADE_TIMEOUT, c.isDegradedByTimeout());
+                    if (c.isDegradedByAdapativeTimeout())
+                        generator.writeBooleanField(COVERAGE_DEGRADE_ADAPTIVE_TIMEOUT, c.isDegradedByAdapativeTimeout());
+                    if (c.isDegradedByNonIdealState())
+                        generator.writeBooleanField(COVERAGE_DEGRADED_NON_IDEAL_STATE, c.isDegradedByNonIdealState());
                     generator.writeEndObject();
                 }
                 generator.writeEndObject();
             }
+            generator.writeEndObject();
+        }
 
-            // Add key/value access log entries. Keys with single values are written as single
-            // string value fields while keys with multiple values are written as string arrays
-            Map<String,List<String>> keyValues = accessLogEntry.getKeyValues();
-            if (keyValues != null && !keyValues.isEmpty()) {
-                generator.writeObjectFieldStart("attributes");
-                for (Map.Entry<String,List<String>> entry : keyValues.entrySet()) {
-                    if (entry.getValue().size() == 1) {
-                        generator.writeStringField(entry.getKey(), entry.getValue().get(0));
-                    } else {
-                        generator.writeFieldName(entry.getKey());
-                        generator.writeStartArray();
-                        for (String s : entry.getValue()) {
-                            generator.writeString(s);
-                        }
-                        generator.writeEndArray();
+        // Add key/value access log entries. Keys with single values are written as single
+        // string value fields while keys with multiple values are written as string arrays
+        Map<String,List<String>> keyValues = accessLogEntry.getKeyValues();
+        if (keyValues != null && !keyValues.isEmpty()) {
+            generator.writeObjectFieldStart("attributes");
+            for (Map.Entry<String,List<String>> entry : keyValues.entrySet()) {
+                if (entry.getValue().size() == 1) {
+                    generator.writeStringField(entry.getKey(), entry.getValue().get(0));
+                } else {
+                    generator.writeFieldName(entry.getKey());
+                    generator.writeStartArray();
+                    for (String s : entry.getValue()) {
+                        generator.writeString(s);
                     }
+                    generator.writeEndArray();
                 }
-                generator.writeEndObject();
             }
-
             generator.writeEndObject();
-            generator.close();
-
-        } catch (IOException e) {
-            logger.log(Level.WARNING, "Unable to generate JSON access log entry: " + e.getMessage());
         }
 
-        return logLine.toString();
+        generator.writeEndObject();
+        generator.close();
     }
 
 
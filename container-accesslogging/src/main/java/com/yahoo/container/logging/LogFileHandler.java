@@ -7,51 +7,73 @@ import com.yahoo.log.LogFileDb;
 import com.yahoo.system.ProcessExecuter;
 import com.yahoo.yolean.Exceptions;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.concurrent.ArrayBlockingQueue;
+import java.util.List;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
 import java.util.logging.Level;
-import java.util.logging.LogRecord;
 import java.util.logging.Logger;
-import java.util.logging.StreamHandler;
 import java.util.zip.GZIPOutputStream;
 
 /**
  * <p>Implements log file naming/rotating logic for container logs.</p>
  *
- * <p>Overridden methods: publish</p>
+ * <p>Entries are published to a lock-free ring buffer, from which a single writer thread takes them in batches.
+ * The writer thread formats each batch with the given {@link LogWriter}, and writes it to the current file with a
+ * single write to its channel. When the buffer is full, publishing threads either wait for room, or drop the entry,
+ * and the number of dropped entries is logged.</p>
  *
  * <p>Added methods: setFilePattern, setRotationTimes, rotateNow (+ few others)</p>
  *
  * @author Bob Travis
  */
-public class LogFileHandler extends StreamHandler {
+public class LogFileHandler<LOGTYPE> {
 
     private final static Logger logger = Logger.getLogger(LogFileHandler.class.getName());
+    private static final Object rotateCmd = new Object();
+    private static final int maxBatchSize = 1024;
+    private static final int maxBatchBytes = 1 << 20;
+    private static final long dropReportIntervalMillis = 60_000;
+
+    static final int defaultQueueSize = 100000;
+
     private final boolean compressOnRotation;
+    private final boolean dropWhenFull;
+    private final LogWriter<LOGTYPE> logWriter;
     private long[] rotationTimes = {0}; //default to one log per day, at midnight
     private String filePattern = "./log.%T";  // default to current directory, ms time stamp
     private long nextRotationTime = 0;
     private FileOutputStream currentOutputStream = null;
     private volatile String fileName;
     private String symlinkName = null;
-    private ArrayBlockingQueue<LogRecord> logQueue = new ArrayBlockingQueue<>(100000);
-    private LogRecord rotateCmd = new LogRecord(Level.SEVERE, "rotateNow");
+    private final RingBuffer<Object> logQueue;
+    private final List<Object> batch = new ArrayList<>(maxBatchSize);
+    private final BatchBuffer batchBuffer = new BatchBuffer();
+    private final AtomicLong dropped = new AtomicLong();
+    private long droppedReported = 0;
+    private long lastDropReport = 0;
+    private volatile long written = 0;
+    private volatile boolean writerParked = false;
+    private volatile boolean shuttingDown = false;
     private ExecutorService executor = Executors.newCachedThreadPool(ThreadFactoryFactory.getDaemonThreadFactory("logfilehandler.compression"));
     private final NativeIO nativeIO = new NativeIO();
     private long lastDropPosition = 0;
 
     static private class LogThread extends Thread {
-        LogFileHandler logFileHandler;
+        LogFileHandler<?> logFileHandler;
         long lastFlush = 0;
-        LogThread(LogFileHandler logFile) {
+        LogThread(LogFileHandler<?> logFile) {
             super("Logger");
             setDaemon(true);
             logFileHandler = logFile;
@@ -60,26 +82,21 @@ public class LogFileHandler extends StreamHandler {
         public void run() {
             try {
                 storeLogRecords();
-            } catch (InterruptedException e) {
+                // Write what was published before we were shut down
+                while (logFileHandler.writeBatch() > 0) { }
             } catch (Exception e) {
                 com.yahoo.protect.Process.logAndDie("Failed storing log records", e);
             }
 
-            logFileHandler.flush();
+            logFileHandler.closeFile();
         }
 
-        private void storeLogRecords() throws InterruptedException {
-            while (!isInterrupted()) {
-                LogRecord r = logFileHandler.logQueue.poll(100, TimeUnit.MILLISECONDS);
-                if (r != null) {
-                    if (r == logFileHandler.rotateCmd) {
-                        logFileHandler.internalRotateNow();
-                        lastFlush = System.nanoTime();
-                    } else {
-                        logFileHandler.internalPublish(r);
-                    }
+        private void storeLogRecords() {
+            while (!logFileHandler.shuttingDown) {
+                if (logFileHandler.writeBatch() > 0) {
                     flushIfOld(3, TimeUnit.SECONDS);
                 } else {
+                    logFileHandler.awaitRecords(100, TimeUnit.MILLISECONDS);
                     flushIfOld(100, TimeUnit.MILLISECONDS);
                 }
             }
@@ -95,33 +112,71 @@ public class LogFileHandler extends StreamHandler {
     }
     private final LogThread logThread;
 
-    LogFileHandler() {
-        this(false);
+    LogFileHandler(LogWriter<LOGTYPE> logWriter) {
+        this(false, logWriter);
     }
 
-    LogFileHandler(boolean compressOnRotation)
-    {
-        super();
+    LogFileHandler(boolean compressOnRotation, LogWriter<LOGTYPE> logWriter) {
+        this(compressOnRotation, defaultQueueSize, false, logWriter);
+    }
+
+    /**
+     * Creates a new handler, and starts its writer thread.
+     *
+     * @param compressOnRotation whether to compress files after they are rotated
+     * @param queueSize the number of entries which may be waiting for the writer thread
+     * @param dropWhenFull whether to drop entries when the queue is full, rather than waiting for room
+     * @param logWriter formats the entries published to this
+     */
+    LogFileHandler(boolean compressOnRotation, int queueSize, boolean dropWhenFull, LogWriter<LOGTYPE> logWriter) {
         this.compressOnRotation = compressOnRotation;
+        this.dropWhenFull = dropWhenFull;
+        this.logWriter = logWriter;
+        this.logQueue = new RingBuffer<>(queueSize);
         logThread = new LogThread(this);
         logThread.start();
     }
 
     /**
-     * Sends logrecord to file, first rotating file if needed.
+     * Queues the given entry for writing to file, first rotating file if needed.
      *
-     * @param r logrecord to publish
+     * @param r entry to publish
      */
-    public void publish(LogRecord r) {
-        try {
-            logQueue.put(r);
-        } catch (InterruptedException e) {
+    public void publish(LOGTYPE r) {
+        enqueue(r, dropWhenFull);
+    }
+
+    /** Returns the number of entries dropped so far because the queue was full. */
+    long dropped() {
+        return dropped.get();
+    }
+
+    /** Returns the number of entries which are published, but not yet written. */
+    long queued() {
+        return logQueue.added() - written;
+    }
+
+    private void enqueue(Object item, boolean mayDrop) {
+        while ( ! logQueue.offer(item)) {
+            if (mayDrop || ! logThread.isAlive()) {
+                dropped.incrementAndGet();
+                return;
+            }
+            LockSupport.unpark(logThread);
+            LockSupport.parkNanos(100_000);
         }
+        if (writerParked)
+            LockSupport.unpark(logThread);
+    }
+
+    private void awaitRecords(long timeout, TimeUnit unit) {
+        writerParked = true;
+        if (logQueue.isEmpty())
+            LockSupport.parkNanos(unit.toNanos(timeout));
+        writerParked = false;
     }
 
-    @Override
     public synchronized void flush() {
-        super.flush();
         try {
             if (currentOutputStream != null) {
                 long newPos = currentOutputStream.getChannel().position();
@@ -135,18 +190,73 @@ public class LogFileHandler extends StreamHandler {
         }
     }
 
-    private void internalPublish(LogRecord r) {
-        // first check to see if new file needed.
-        // if so, use this.internalRotateNow() to do it
+    /** Formats and writes a batch of queued entries, rotating file when needed, and returns the number of entries taken. */
+    @SuppressWarnings("unchecked")
+    private synchronized int writeBatch() {
+        batch.clear();
+        int count = logQueue.drainTo(batch, maxBatchSize);
+        if (count == 0) return 0;
 
         long now = System.currentTimeMillis();
-        if (nextRotationTime <= 0) {
-            nextRotationTime = getNextRotationTime(now); // lazy initialization
+        for (Object item : batch) {
+            if (item == rotateCmd) {
+                writeBuffer();
+                internalRotateNow();
+                continue;
+            }
+            // first check to see if new file needed.
+            // if so, use this.internalRotateNow() to do it
+            if (nextRotationTime <= 0) {
+                nextRotationTime = getNextRotationTime(now); // lazy initialization
+            }
+            if (now > nextRotationTime || currentOutputStream == null) {
+                writeBuffer();
+                internalRotateNow();
+            }
+            int size = batchBuffer.size();
+            try {
+                logWriter.write((LOGTYPE) item, batchBuffer);
+            }
+            catch (IOException | RuntimeException e) {
+                batchBuffer.truncate(size); // drop whatever part of the failed entry was written
+                logger.log(Level.WARNING, "Failed formatting log entry: " + Exceptions.toMessageString(e));
+            }
+            if (batchBuffer.size() >= maxBatchBytes) writeBuffer();
         }
-        if (now > nextRotationTime || currentOutputStream == null) {
-            internalRotateNow();
+        writeBuffer();
+        batch.clear();
+        written += count;
+        reportDropped(now);
+        return count;
+    }
+
+    /** Writes the formatted entries to the current file, in a single write unless the channel writes only part of them. */
+    private void writeBuffer() {
+        if (batchBuffer.size() == 0) return;
+        try {
+            if (currentOutputStream != null) {
+                FileChannel channel = currentOutputStream.getChannel();
+                ByteBuffer bytes = batchBuffer.bytes();
+                while (bytes.hasRemaining())
+                    channel.write(bytes);
+            }
+        }
+        catch (IOException e) {
+            logger.log(Level.WARNING, "Failed writing log entries to '" + fileName + "': " + Exceptions.toMessageString(e));
+        }
+        finally {
+            batchBuffer.reset();
         }
-        super.publish(r);
+    }
+
+    private void reportDropped(long now) {
+        long total = dropped.get();
+        if (total == droppedReported || now - lastDropReport < dropReportIntervalMillis) return;
+
+        logger.log(Level.WARNING, "Dropped " + (total - droppedReported) + " log entries for '" + filePattern +
+                                  "', as the queue of " + logQueue.capacity() + " entries was full");
+        droppedReported = total;
+        lastDropReport = now;
     }
 
     /**
@@ -202,7 +312,8 @@ public class LogFileHandler extends StreamHandler {
     }
 
     void waitDrained() {
-        while(! logQueue.isEmpty()) {
+        long published = logQueue.added();
+        while (written < published) {
             try {
                 Thread.sleep(1);
             } catch (InterruptedException e) {
@@ -226,26 +337,23 @@ public class LogFileHandler extends StreamHandler {
      * Force file rotation now, independent of schedule.
      */
     void rotateNow () {
-        publish(rotateCmd);
+        enqueue(rotateCmd, false);
     }
 
     // Throw InterruptedException upwards rather than relying on isInterrupted to stop the thread as
     // isInterrupted() returns false after interruption in p.waitFor
     private void internalRotateNow() {
         // figure out new file name, then
-        // use super.setOutputStream to switch to a new file
+        // close the current file and switch to a new one
 
         String oldFileName = fileName;
         long now = System.currentTimeMillis();
         fileName = LogFormatter.insertDate(filePattern, now);
-        flush();
-        super.close();
+        closeFile();
 
         try {
             checkAndCreateDir(fileName);
-            FileOutputStream os = new FileOutputStream(fileName, true); // append mode, for safety
-            super.setOutputStream(os);
-            currentOutputStream = os;
+            currentOutputStream = new FileOutputStream(fileName, true); // append mode, for safety
             lastDropPosition = 0;
             LogFileDb.nowLoggingTo(fileName);
         }
@@ -268,6 +376,17 @@ public class LogFileHandler extends StreamHandler {
         }
     }
 
+    private synchronized void closeFile() {
+        if (currentOutputStream == null) return;
+        flush();
+        try {
+            currentOutputStream.close();
+        }
+        catch (IOException e) {
+            logger.warning("Failed closing '" + fileName + "': " + Exceptions.toMessageString(e));
+        }
+        currentOutputStream = null;
+    }
 
     static void runCompression(File oldFile) {
         File gzippedFile = new File(oldFile.getPath() + ".gz");
@@ -372,12 +491,25 @@ public class LogFileHandler extends StreamHandler {
         this.symlinkName = symlinkName;
     }
 
+    /** A byte array stream whose content can be written to a channel without copying. */
+    private static class BatchBuffer extends ByteArrayOutputStream {
+
+        BatchBuffer() { super(0x10000); }
+
+        ByteBuffer bytes() { return ByteBuffer.wrap(buf, 0, count); }
+
+        /** Discards all bytes after the given number of bytes. */
+        void truncate(int size) { count = Math.min(count, size); }
+
+    }
+
     /**
-     * Flushes all queued messages, interrupts the log thread in this and
+     * Writes all queued messages, stops the log thread in this and
      * waits for it to end before returning
      */
     public void shutdown() {
-        logThread.interrupt();
+        shuttingDown = true;
+        LockSupport.unpark(logThread);
         try {
             logThread.join();
             executor.shutdown();
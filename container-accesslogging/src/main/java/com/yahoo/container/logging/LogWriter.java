@@ -0,0 +1,18 @@
+// Copyright Verizon Media. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.container.logging;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Formats log entries of some type to an output stream. This is used by the single writer thread
+ * of a {@link LogFileHandler}, so the threads which log entries need not format them.
+ *
+ * @author agent
+ */
+interface LogWriter<LOGTYPE> {
+
+    /** Writes the given entry, including any trailing newline, to the given stream. */
+    void write(LOGTYPE entry, OutputStream out) throws IOException;
+
+}
@@ -0,0 +1,77 @@
+// Copyright Verizon Media. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.container.logging;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A bounded, lock-free queue for many producers and a single consumer.
+ *
+ * Producers claim a slot by moving the tail, and then fill it, while the consumer empties
+ * filled slots from the head, in order. Neither allocates, and producers never wait for each other.
+ *
+ * @author agent
+ */
+class RingBuffer<T> {
+
+    private final AtomicReferenceArray<T> slots;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    private volatile long head = 0; // Written only by the consumer
+
+    /** Creates a new buffer with room for at least the given number of items. */
+    RingBuffer(int capacity) {
+        if (capacity <= 0 || capacity > 1 << 30)
+            throw new IllegalArgumentException("Capacity must be in [1, 2^30], but was " + capacity);
+
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) size <<= 1;
+        this.slots = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+    }
+
+    /** Adds the given item to this, and returns true, or returns false if this is full. */
+    boolean offer(T item) {
+        if (item == null) throw new NullPointerException("Item must be non-null");
+        while (true) {
+            long claimed = tail.get();
+            if (claimed - head > mask) return false;
+            if (tail.compareAndSet(claimed, claimed + 1)) {
+                slots.lazySet((int) claimed & mask, item);
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Moves up to the given number of items from this to the given list, in the order they were added,
+     * and returns the number of items moved. Must only be called by the single consumer.
+     */
+    int drainTo(List<? super T> items, int max) {
+        long first = head;
+        long next = first;
+        for (T item; next - first < max && (item = slots.get((int) next & mask)) != null; next++) {
+            items.add(item);
+            slots.lazySet((int) next & mask, null);
+            head = next + 1;
+        }
+        return (int) (next - first);
+    }
+
+    /** Returns whether there are no items in this, including those which are just being added. */
+    boolean isEmpty() {
+        return tail.get() == head;
+    }
+
+    /** Returns the number of items ever added to this. */
+    long added() {
+        return tail.get();
+    }
+
+    /** Returns the number of items this can hold. */
+    int capacity() {
+        return mask + 1;
+    }
+
+}
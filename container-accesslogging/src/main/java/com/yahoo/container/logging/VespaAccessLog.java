@@ -3,10 +3,13 @@ package com.yahoo.container.logging;
 
 import com.yahoo.container.core.AccessLogConfig;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.TimeZone;
-import java.util.logging.Level;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
 
 /**
  * @author Bjorn Borud
@@ -19,7 +22,7 @@ public final class VespaAccessLog implements AccessLogInterface {
     private final AccessLogHandler logHandler;
 
     public VespaAccessLog(AccessLogConfig config) {
-        logHandler = new AccessLogHandler(config.fileHandler());
+        logHandler = new AccessLogHandler(config.fileHandler(), VespaAccessLog::write);
     }
 
     private static SimpleDateFormat createDateFormat() {
@@ -28,20 +31,21 @@ public final class VespaAccessLog implements AccessLogInterface {
         return format;
     }
 
-    private static String getDate() {
-        return dateFormat.get().format(new Date());
+    private static String getDate(long timeMillis) {
+        return dateFormat.get().format(new Date(timeMillis));
     }
 
-    private String getRequest(final String httpMethod, final String rawPath, final String rawQuery, final String httpVersion) {
+    private static String getRequest(final String httpMethod, final String rawPath, final String rawQuery, final String httpVersion) {
         return httpMethod + " " + (rawQuery != null ? rawPath + "?" + rawQuery : rawPath) + " " + httpVersion;
     }
 
-    private String getUser(String user) {
+    private static String getUser(String user) {
         return (user == null) ? "-" : user;
     }
 
-    private void writeLog(String ipAddr, String user, String request, String referer, String agent,
-                          long durationMillis, long byteCount, HitCounts hitcounts, int returnCode)
+    private static void writeLog(OutputStream out, String ipAddr, String user, String request, String referer, String agent,
+                                 long timeMillis, long durationMillis, long byteCount, HitCounts hitcounts, int returnCode)
+            throws IOException
     {
         long ms = Math.max(0L, durationMillis);
         StringBuilder sb = new StringBuilder()
@@ -49,7 +53,7 @@ public final class VespaAccessLog implements AccessLogInterface {
                 .append(" - ")
                 .append(getUser(user))
                 .append(' ')
-                .append(getDate())
+                .append(getDate(timeMillis))
                 .append(" \"")
                 .append(request)
                 .append("\" ")
@@ -69,10 +73,10 @@ public final class VespaAccessLog implements AccessLogInterface {
                 .append(" 0.0 ")
                 .append((hitcounts == null) ? 0 : hitcounts.getSummaryCount())
                 .append('\n');
-        logHandler.access.log(Level.INFO, sb.toString());
+        out.write(sb.toString().getBytes(UTF_8));
     }
 
-    private void decimalsOfSecondsFromMilliseconds(long ms, StringBuilder sb) {
+    private static void decimalsOfSecondsFromMilliseconds(long ms, StringBuilder sb) {
         long dec = ms % 1000;
         String numbers = String.valueOf(dec);
         if (dec <= 9) {
@@ -93,7 +97,25 @@ public final class VespaAccessLog implements AccessLogInterface {
 
     @Override
     public void log(final AccessLogEntry accessLogEntry) {
+        logHandler.log(accessLogEntry);
+    }
+
+    @Override
+    public long droppedEntries() {
+        return logHandler.dropped();
+    }
+
+    @Override
+    public long queuedEntries() {
+        return logHandler.queued();
+    }
+
+    /** Writes the given entry, on the writer thread, with the time at which the response completed. */
+    private static void write(AccessLogEntry accessLogEntry, OutputStream out) throws IOException {
+        long startMillis = accessLogEntry.getTimeStampMillis();
+        long durationMillis = accessLogEntry.getDurationBetweenRequestResponseMillis();
         writeLog(
+                out,
                 accessLogEntry.getIpV4Address(),
                 accessLogEntry.getUser(),
                 getRequest(
@@ -103,7 +125,8 @@ public final class VespaAccessLog implements AccessLogInterface {
                         accessLogEntry.getHttpVersion()),
                 accessLogEntry.getReferer(),
                 accessLogEntry.getUserAgent(),
-                accessLogEntry.getDurationBetweenRequestResponseMillis(),
+                startMillis > 0 ? startMillis + Math.max(0L, durationMillis) : System.currentTimeMillis(),
+                durationMillis,
                 accessLogEntry.getReturnedContentSize(),
                 accessLogEntry.getHitCounts(),
                 accessLogEntry.getStatusCode());
@@ -10,11 +10,14 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
 import java.util.Date;
+import java.util.concurrent.CountDownLatch;
 import java.util.logging.Formatter;
 import java.util.logging.Level;
 import java.util.logging.LogRecord;
@@ -36,15 +39,8 @@ public class LogFileHandlerTestCase {
     public void testIt() throws IOException {
         File root = temporaryFolder.newFolder("logfilehandlertest");
 
-        LogFileHandler h = new LogFileHandler();
+        LogFileHandler<LogRecord> h = new LogFileHandler<>(new TimestampedWriter());
         h.setFilePattern(root.getAbsolutePath() + "/logfilehandlertest.%Y%m%d%H%M%S");
-        h.setFormatter(new Formatter() {
-                public String format(LogRecord r) {
-                    DateFormat df = new SimpleDateFormat("yyyy.MM.dd:HH:mm:ss.SSS");
-                    String timeStamp = df.format(new Date(r.getMillis()));
-                    return ("["+timeStamp+"]" + " " + formatMessage(r) + "\n");
-                }
-            } );
         long now = System.currentTimeMillis();
         long millisPerDay = 60*60*24*1000;
         long tomorrowDays = (now / millisPerDay) +1;
@@ -68,9 +64,8 @@ public class LogFileHandlerTestCase {
         File logFile = temporaryFolder.newFile("testLogFileG1.txt");
 
       //create logfilehandler
-      LogFileHandler h = new LogFileHandler();
+      LogFileHandler<LogRecord> h = new LogFileHandler<>(new FormatterWriter(new SimpleFormatter()));
       h.setFilePattern(logFile.getAbsolutePath());
-      h.setFormatter(new SimpleFormatter());
       h.setRotationTimes("0 5 ...");
 
       //write log
@@ -85,9 +80,8 @@ public class LogFileHandlerTestCase {
       File logFile = temporaryFolder.newFile("testLogFileG2.txt");
 
       //create logfilehandler
-      LogFileHandler h = new LogFileHandler();
+      LogFileHandler<LogRecord> h = new LogFileHandler<>(new FormatterWriter(new SimpleFormatter()));
       h.setFilePattern(logFile.getAbsolutePath());
-      h.setFormatter(new SimpleFormatter());
       h.setRotationTimes("0 5 ...");
 
       //write log
@@ -108,15 +102,8 @@ public class LogFileHandlerTestCase {
     @Test(timeout = /*5 minutes*/300_000)
     public void testSymlink() throws IOException, InterruptedException {
         File root = temporaryFolder.newFolder("testlogforsymlinkchecking");
-        LogFileHandler handler = new LogFileHandler();
+        LogFileHandler<LogRecord> handler = new LogFileHandler<>(new TimestampedWriter());
         handler.setFilePattern(root.getAbsolutePath() + "/logfilehandlertest.%Y%m%d%H%M%S%s");
-        handler.setFormatter(new Formatter() {
-            public String format(LogRecord r) {
-                DateFormat df = new SimpleDateFormat("yyyy.MM.dd:HH:mm:ss.SSS");
-                String timeStamp = df.format(new Date(r.getMillis()));
-                return ("["+timeStamp+"]" + " " + formatMessage(r) + "\n");
-            }
-        } );
         handler.setSymlinkName("symlink");
 
         handler.publish(new LogRecord(Level.INFO, "test"));
@@ -151,15 +138,8 @@ public class LogFileHandlerTestCase {
     public void testcompression() throws InterruptedException, IOException {
         File root = temporaryFolder.newFolder("testcompression");
 
-        LogFileHandler h = new LogFileHandler(true);
+        LogFileHandler<LogRecord> h = new LogFileHandler<>(true, new TimestampedWriter());
         h.setFilePattern(root.getAbsolutePath() + "/logfilehandlertest.%Y%m%d%H%M%S%s");
-        h.setFormatter(new Formatter() {
-            public String format(LogRecord r) {
-                DateFormat df = new SimpleDateFormat("yyyy.MM.dd:HH:mm:ss.SSS");
-                String timeStamp = df.format(new Date(r.getMillis()));
-                return ("["+timeStamp+"]" + " " + formatMessage(r) + "\n");
-            }
-        } );
         int logEntries = 10000;
         for (int i = 0; i < logEntries; i++) {
             LogRecord lr = new LogRecord(Level.INFO, "test");
@@ -184,4 +164,77 @@ public class LogFileHandlerTestCase {
         h.shutdown();
     }
 
+    @Test
+    public void testEntriesAreDroppedWhenQueueIsFull() throws IOException, InterruptedException {
+        File logFile = temporaryFolder.newFile("testLogFileDrop.txt");
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch proceed = new CountDownLatch(1);
+        LogFileHandler<String> h = new LogFileHandler<>(false, 4, true, (entry, out) -> {
+            if (entry.equals("first")) {
+                writing.countDown();
+                try { proceed.await(); } catch (InterruptedException e) { throw new IllegalStateException(e); }
+            }
+            out.write((entry + "\n").getBytes(StandardCharsets.UTF_8));
+        });
+        h.setFilePattern(logFile.getAbsolutePath());
+
+        h.publish("first");
+        writing.await();
+        for (int i = 0; i < 6; i++)
+            h.publish("entry " + i);
+
+        assertThat(h.dropped()).isEqualTo(2);
+        assertThat(h.queued()).isEqualTo(5);
+        proceed.countDown();
+        h.waitDrained();
+        assertThat(h.queued()).isEqualTo(0);
+        assertThat(Files.readAllLines(logFile.toPath())).containsExactly("first", "entry 0", "entry 1", "entry 2", "entry 3");
+        h.shutdown();
+    }
+
+    @Test
+    public void testPartiallyWrittenEntriesAreDiscardedWhenWriterFails() throws IOException, InterruptedException {
+        File logFile = temporaryFolder.newFile("testLogFilePartial.txt");
+        LogFileHandler<String> h = new LogFileHandler<>(false, 16, true, (entry, out) -> {
+            out.write((entry + "\n").getBytes(StandardCharsets.UTF_8), 0, entry.length() / 2);
+            if (entry.equals("broken")) throw new IOException("failed formatting");
+            out.write((entry + "\n").getBytes(StandardCharsets.UTF_8), entry.length() / 2, entry.length() + 1 - entry.length() / 2);
+        });
+        h.setFilePattern(logFile.getAbsolutePath());
+
+        h.publish("first");
+        h.publish("broken");
+        h.publish("last");
+        h.waitDrained();
+        assertThat(Files.readAllLines(logFile.toPath())).containsExactly("first", "last");
+        h.shutdown();
+    }
+
+    private static class FormatterWriter implements LogWriter<LogRecord> {
+
+        private final Formatter formatter;
+
+        FormatterWriter(Formatter formatter) { this.formatter = formatter; }
+
+        @Override
+        public void write(LogRecord record, OutputStream out) throws IOException {
+            out.write(formatter.format(record).getBytes(StandardCharsets.UTF_8));
+        }
+
+    }
+
+    private static class TimestampedWriter extends FormatterWriter {
+
+        TimestampedWriter() {
+            super(new Formatter() {
+                public String format(LogRecord r) {
+                    DateFormat df = new SimpleDateFormat("yyyy.MM.dd:HH:mm:ss.SSS");
+                    String timeStamp = df.format(new Date(r.getMillis()));
+                    return ("["+timeStamp+"]" + " " + formatMessage(r) + "\n");
+                }
+            });
+        }
+
+    }
+
 }
@@ -7,11 +7,15 @@ import com.yahoo.concurrent.ThreadFactoryFactory;
 import com.yahoo.container.protect.ProcessTerminator;
 import com.yahoo.jdisc.Metric;
 
+import java.util.Optional;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.Executor;
 import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 /**
  * Default implementation of {@link DefaultContainerThreadpool}.
@@ -23,6 +27,8 @@ import java.util.concurrent.TimeUnit;
  */
 public class DefaultContainerThreadpool extends AbstractComponent implements AutoCloseable, ContainerThreadPool {
 
+    private static final Logger log = Logger.getLogger(DefaultContainerThreadpool.class.getName());
+
     private final ExecutorServiceWrapper threadpool;
 
     @Inject
@@ -33,17 +39,36 @@ public class DefaultContainerThreadpool extends AbstractComponent implements Aut
     public DefaultContainerThreadpool(ContainerThreadpoolConfig config, Metric metric, ProcessTerminator processTerminator) {
         ThreadPoolMetric threadPoolMetric = new ThreadPoolMetric(metric, config.name());
         int maxNumThreads = computeMaximumThreadPoolSize(config.maxThreads());
-        int coreNumThreads = computeCoreThreadPoolSize(config.minThreads(), maxNumThreads);
-        WorkerCompletionTimingThreadPoolExecutor executor =
-                new WorkerCompletionTimingThreadPoolExecutor(coreNumThreads, maxNumThreads,
-                        (int)config.keepAliveTime() * 1000, TimeUnit.MILLISECONDS,
-                        createQ(config.queueSize(), maxNumThreads),
-                        ThreadFactoryFactory.getThreadFactory(config.name()),
-                        threadPoolMetric);
-        // Prestart needed, if not all threads will be created by the fist N tasks and hence they might also
-        // get the dreaded thread locals initialized even if they will never run.
-        // That counters what we we want to achieve with the Q that will prefer thread locality.
-        executor.prestartAllCoreThreads();
+        Optional<ThreadFactory> virtualThreadFactory = config.virtualThreads() ? virtualThreadFactory(config.name()) : Optional.empty();
+        if (config.virtualThreads() && virtualThreadFactory.isEmpty()) {
+            // maxThreads is set high for virtual threads, so keep the usual limit for OS threads
+            maxNumThreads = Math.min(maxNumThreads, computeMaximumThreadPoolSize(0));
+            log.log(Level.WARNING, "Virtual threads are not supported by this JVM; using at most " + maxNumThreads +
+                                   " OS threads for '" + config.name() + "', rather than maxThreads " + config.maxThreads());
+        }
+        WorkerCompletionTimingThreadPoolExecutor executor;
+        if (virtualThreadFactory.isPresent()) {
+            // Workers are created as needed, and end when idle, so the pool size is just a limit on concurrent tasks,
+            // and queued tasks still start as soon as this limit allows. Metrics, rejection and termination are as usual.
+            executor = new WorkerCompletionTimingThreadPoolExecutor(maxNumThreads, maxNumThreads,
+                                                                    Math.max(1, (long) (config.keepAliveTime() * 1000)), TimeUnit.MILLISECONDS,
+                                                                    createQ(config.queueSize(), maxNumThreads),
+                                                                    virtualThreadFactory.get(),
+                                                                    threadPoolMetric);
+            executor.allowCoreThreadTimeOut(true);
+        }
+        else {
+            int coreNumThreads = computeCoreThreadPoolSize(config.minThreads(), maxNumThreads);
+            executor = new WorkerCompletionTimingThreadPoolExecutor(coreNumThreads, maxNumThreads,
+                            (int)config.keepAliveTime() * 1000, TimeUnit.MILLISECONDS,
+                            createQ(config.queueSize(), maxNumThreads),
+                            ThreadFactoryFactory.getThreadFactory(config.name()),
+                            threadPoolMetric);
+            // Prestart needed, if not all threads will be created by the fist N tasks and hence they might also
+            // get the dreaded thread locals initialized even if they will never run.
+            // That counters what we we want to achieve with the Q that will prefer thread locality.
+            executor.prestartAllCoreThreads();
+        }
         threadpool = new ExecutorServiceWrapper(
                 executor, threadPoolMetric, processTerminator, config.maxThreadExecutionTimeSeconds() * 1000L,
                 config.name(), config.queueSize());
@@ -74,6 +99,19 @@ public class DefaultContainerThreadpool extends AbstractComponent implements Aut
         }
     }
 
+    /** Returns a factory of virtual threads, if this JVM has them, which it does from Java 21. */
+    static Optional<ThreadFactory> virtualThreadFactory(String name) {
+        try {
+            Class<?> builder = Class.forName("java.lang.Thread$Builder");
+            Object virtual = Thread.class.getMethod("ofVirtual").invoke(null);
+            virtual = builder.getMethod("name", String.class, long.class).invoke(virtual, name + "-virtual-", 0L);
+            return Optional.of((ThreadFactory) builder.getMethod("factory").invoke(virtual));
+        }
+        catch (ReflectiveOperationException e) {
+            return Optional.empty();
+        }
+    }
+
     private static BlockingQueue<Runnable> createQ(int queueSize, int maxThreads) {
         return (queueSize == 0)
                 ? new SynchronousQueue<>(false)
@@ -9,12 +9,17 @@ import org.junit.Ignore;
 import org.junit.Test;
 import org.mockito.Mockito;
 
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Executor;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ThreadPoolExecutor;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
+import static org.junit.Assume.assumeFalse;
+import static org.junit.Assume.assumeTrue;
 
 /**
  * @author Steinar Knutsen
@@ -87,6 +92,51 @@ public class DefaultContainerThreadPoolTest {
         assertEquals(executor.getMaximumPoolSize()*4, executor.getQueue().remainingCapacity());
     }
 
+    @Test
+    public void testThatVirtualThreadPoolStartsThreadsOnDemandAndLimitsConcurrency() throws InterruptedException {
+        assumeTrue(DefaultContainerThreadpool.virtualThreadFactory("test").isPresent());
+        ContainerThreadpoolConfig config = new ContainerThreadpoolConfig(new ContainerThreadpoolConfig.Builder().maxThreads(2).minThreads(1).virtualThreads(true));
+        ContainerThreadPool threadPool = new DefaultContainerThreadpool(config, Mockito.mock(Metric.class));
+        ExecutorServiceWrapper wrapper = (ExecutorServiceWrapper) threadPool.executor();
+        WorkerCompletionTimingThreadPoolExecutor executor = (WorkerCompletionTimingThreadPoolExecutor) wrapper.delegate();
+        assertEquals(2, executor.getMaximumPoolSize());
+        assertEquals(0, executor.getPoolSize());
+        assertTrue(executor.allowsCoreThreadTimeOut());
+
+        CountDownLatch release = new CountDownLatch(1);
+        Runnable blocked = () -> { try { release.await(); } catch (InterruptedException e) { } };
+        threadPool.executor().execute(blocked);
+        threadPool.executor().execute(blocked);
+        assertEquals(2, executor.getPoolSize());
+        assertRejected(threadPool, blocked);
+
+        release.countDown();
+        FlipIt command = new FlipIt();
+        for (boolean done = false; !done;) {
+            try {
+                threadPool.executor().execute(command);
+                done = true;
+            } catch (RejectedExecutionException e) {
+                // wait for the blocked tasks to complete
+            }
+        }
+        assertEquals(Receiver.MessageState.VALID, command.didItRun.get(5 * 60 * 1000).first);
+        threadPool.close();
+    }
+
+    @Test
+    public void testThatVirtualThreadPoolFallsBackToUsualOsThreadPoolWhenUnsupported() {
+        assumeFalse(DefaultContainerThreadpool.virtualThreadFactory("test").isPresent());
+        ContainerThreadpoolConfig config = new ContainerThreadpoolConfig(new ContainerThreadpoolConfig.Builder().maxThreads(100000).virtualThreads(true));
+        ContainerThreadPool threadPool = new DefaultContainerThreadpool(config, Mockito.mock(Metric.class));
+        ExecutorServiceWrapper wrapper = (ExecutorServiceWrapper) threadPool.executor();
+        WorkerCompletionTimingThreadPoolExecutor executor = (WorkerCompletionTimingThreadPoolExecutor) wrapper.delegate();
+        assertEquals(Runtime.getRuntime().availableProcessors() * 4, executor.getMaximumPoolSize());
+        assertEquals(Runtime.getRuntime().availableProcessors() * 2, executor.getPoolSize());
+        assertFalse(executor.allowsCoreThreadTimeOut());
+        threadPool.close();
+    }
+
     private class FlipIt implements Runnable {
         public final Receiver<Boolean> didItRun = new Receiver<>();
 
@@ -0,0 +1,126 @@
+// Copyright Verizon Media. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.vespa.filedistribution;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.BitSet;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A file which is being assembled from its {@link FileChunks}, in any order. Each chunk is verified against its
+ * digest before it is written, and chunks already in the file when it is opened are kept, so an interrupted download
+ * resumes where it stopped. Chunks which are written can be read, and served to others, before the file is complete.
+ *
+ * @author agent
+ */
+class ChunkedFile implements AutoCloseable {
+
+    private static final Logger log = Logger.getLogger(ChunkedFile.class.getName());
+
+    private final File file;
+    private final FileChunks chunks;
+    private final FileChannel channel;
+    private final BitSet present;
+
+    private ChunkedFile(File file, FileChunks chunks, FileChannel channel, BitSet present) {
+        this.file = file;
+        this.chunks = chunks;
+        this.channel = channel;
+        this.present = present;
+    }
+
+    /** Opens the given file for assembling the given chunks, keeping those which are already in it. */
+    static ChunkedFile open(File file, FileChunks chunks) throws IOException {
+        FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            if (channel.size() > chunks.size())
+                channel.truncate(chunks.size());
+
+            BitSet present = new BitSet(chunks.count());
+            ByteBuffer buffer = ByteBuffer.allocate(chunks.chunkSize());
+            for (int i = 0; i < chunks.count() && chunks.offset(i) + chunks.length(i) <= channel.size(); i++) {
+                buffer.clear().limit(chunks.length(i));
+                FileChunks.readFully(channel, buffer, chunks.offset(i));
+                if (chunks.matches(i, buffer.array(), buffer.limit()))
+                    present.set(i);
+            }
+            if (present.cardinality() > 0)
+                log.log(Level.FINE, () -> "Resuming download of " + chunks + ", with " + present.cardinality() + " chunks present");
+
+            return new ChunkedFile(file, chunks, channel, present);
+        }
+        catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    FileChunks chunks() { return chunks; }
+
+    /** Returns whether the chunk with the given index is in this file. */
+    synchronized boolean has(int index) {
+        return present.get(index);
+    }
+
+    /** Returns the number of chunks in this file. */
+    synchronized int present() {
+        return present.cardinality();
+    }
+
+    /** Returns whether all chunks are in this file. */
+    synchronized boolean isComplete() {
+        return present.cardinality() == chunks.count();
+    }
+
+    /** Writes the given data as the chunk with the given index, if it matches its digest, and returns whether it did. */
+    boolean write(int index, byte[] data) {
+        if ( ! chunks.matches(index, data, data.length)) return false;
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(data);
+            while (buffer.hasRemaining())
+                channel.write(buffer, chunks.offset(index) + buffer.position());
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException("Failed writing chunk " + index + " of " + chunks + " to " + file, e);
+        }
+        synchronized (this) {
+            present.set(index);
+        }
+        return true;
+    }
+
+    /** Returns the content of the chunk with the given index, which must be present. */
+    byte[] read(int index) throws IOException {
+        if ( ! has(index))
+            throw new IllegalArgumentException("Chunk " + index + " of " + chunks + " is not present");
+
+        ByteBuffer buffer = ByteBuffer.allocate(chunks.length(index));
+        FileChunks.readFully(channel, buffer, chunks.offset(index));
+        return buffer.array();
+    }
+
+    /** Closes this, and moves the complete file to the given destination, which is returned. */
+    File moveTo(File destination) throws IOException {
+        if ( ! isComplete())
+            throw new IllegalStateException("Only " + present() + " of " + chunks.count() + " chunks of " + chunks + " are present");
+
+        channel.force(false);
+        close();
+        Files.createDirectories(destination.toPath().getParent());
+        Files.move(file.toPath(), destination.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        return destination;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+}
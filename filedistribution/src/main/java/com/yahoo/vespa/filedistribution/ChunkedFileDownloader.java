@@ -0,0 +1,240 @@
+// Copyright Verizon Media. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.vespa.filedistribution;
+
+import com.yahoo.config.FileReference;
+import com.yahoo.jrt.Int32Value;
+import com.yahoo.jrt.Request;
+import com.yahoo.jrt.Spec;
+import com.yahoo.jrt.StringValue;
+import com.yahoo.jrt.Target;
+import com.yahoo.vespa.config.Connection;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Downloads plain files as {@link FileChunks}, served by {@link FileChunkServer}s. The chunks of a file are listed by
+ * a config server, which also tells about peers which have recently downloaded the same file. Chunks are then fetched
+ * from these peers, in random order, with several requests in flight, spread over the peers, so each peer soon has
+ * chunks the others need; a chunk is fetched from the config server only when no peer has it. Chunks are verified
+ * against their digests as they arrive, written to a temporary file where they are kept if the download fails, and
+ * served to other peers while the download is in progress.
+ *
+ * @author agent
+ */
+class ChunkedFileDownloader {
+
+    private static final Logger log = Logger.getLogger(ChunkedFileDownloader.class.getName());
+    private static final Duration rpcTimeout = Duration.ofSeconds(10);
+    private static final int maxRequestsInFlight = 8;
+
+    private final FileChunkServer server;
+    private final File downloadDirectory;
+    private final File tmpDirectory;
+
+    ChunkedFileDownloader(FileChunkServer server, File downloadDirectory, File tmpDirectory) {
+        this.server = server;
+        this.downloadDirectory = downloadDirectory;
+        this.tmpDirectory = tmpDirectory;
+    }
+
+    /**
+     * Downloads the given file reference, with the given config server as seed.
+     *
+     * @param progress called with the fraction of the file which is downloaded, as the download progresses
+     * @return the downloaded file, or empty if the config server does not serve it as chunks
+     * @throws UncheckedIOException if the download fails, in which case it may be resumed by trying again
+     */
+    Optional<File> download(FileReference reference, Connection seed, Consumer<Double> progress) {
+        Request listing = new Request(FileChunkServer.GET_CHUNKS_METHOD);
+        listing.parameters().add(new StringValue(reference.value()));
+        listing.parameters().add(new StringValue(server.spec().map(Spec::toString).orElse("")));
+        seed.invokeSync(listing, rpcTimeout.toSeconds());
+        if (   listing.isError()
+            || ! listing.checkReturnTypes("islixS")
+            || listing.returnValues().get(0).asInt32() != FileChunkServer.OK) {
+            log.log(Level.FINE, () -> "Chunks of '" + reference.value() + "' not available at " + seed.getAddress() +
+                                      (listing.isError() ? ": " + listing.errorMessage() : ""));
+            return Optional.empty();
+        }
+
+        FileChunks chunks = new FileChunks(listing.returnValues().get(1).asString(),
+                                           listing.returnValues().get(2).asInt64(),
+                                           listing.returnValues().get(3).asInt32(),
+                                           listing.returnValues().get(4).asData());
+        List<String> peers = new ArrayList<>(List.of(listing.returnValues().get(5).asStringArray()));
+        server.spec().ifPresent(own -> peers.remove(own.toString()));
+        log.log(Level.FINE, () -> "Downloading " + chunks + " of '" + reference.value() + "', with peers " + peers);
+
+        File inProgress = new File(tmpDirectory, reference.value() + ".chunks.inprogress");
+        try (ChunkedFile file = ChunkedFile.open(inProgress, chunks)) {
+            server.downloading(reference, file);
+            File downloaded;
+            try (Fetch fetch = new Fetch(reference, file, seed, peers, progress)) {
+                fetch.run();
+                downloaded = file.moveTo(new File(new File(downloadDirectory, reference.value()), chunks.filename()));
+            }
+            catch (IOException | RuntimeException e) {
+                server.abandoned(reference);
+                throw e;
+            }
+            server.downloaded(reference);
+            return Optional.of(downloaded);
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+
+    /**
+     * Fetches the missing chunks of a file, in random order, keeping up to {@link #maxRequestsInFlight} requests in
+     * flight. Each chunk is asked for from the peers which have not failed, in turn, and from the seed when no peer has
+     * it. Peers which fail, or serve a chunk which does not match its digest, are not asked again.
+     */
+    private class Fetch implements AutoCloseable {
+
+        private final FileReference reference;
+        private final ChunkedFile file;
+        private final Connection seed;
+        private final List<String> peers;
+        private final Consumer<Double> progress;
+        private final Deque<Integer> missing = new ArrayDeque<>();
+        private final Map<Integer, Set<String>> asked = new HashMap<>();
+        private final Map<String, Target> targets = new HashMap<>();
+        private final CompletableFuture<Void> done = new CompletableFuture<>();
+        private int inFlight = 0;
+        private int nextPeer = 0;
+
+        Fetch(FileReference reference, ChunkedFile file, Connection seed, List<String> peers, Consumer<Double> progress) {
+            this.reference = reference;
+            this.file = file;
+            this.seed = seed;
+            this.peers = new ArrayList<>(peers);
+            this.progress = progress;
+            List<Integer> indices = new ArrayList<>();
+            for (int i = 0; i < file.chunks().count(); i++)
+                if ( ! file.has(i)) indices.add(i);
+
+            Collections.shuffle(indices);
+            missing.addAll(indices);
+            Collections.shuffle(this.peers);
+        }
+
+        /** Fetches all missing chunks, and returns when they are written to the file. */
+        void run() throws IOException {
+            dispatch();
+            try {
+                done.join();
+            }
+            catch (CompletionException e) {
+                if (e.getCause() instanceof IOException) throw (IOException) e.getCause();
+                throw e;
+            }
+        }
+
+        /** Sends requests for missing chunks until enough are in flight, or completes this if all chunks are present. */
+        private void dispatch() {
+            List<Runnable> requests = new ArrayList<>();
+            synchronized (this) {
+                while ( ! done.isDone() && inFlight < maxRequestsInFlight && ! missing.isEmpty()) {
+                    int index = missing.poll();
+                    Optional<String> peer = nextPeerFor(index);
+                    Request request = chunkRequest(index);
+                    inFlight++;
+                    if (peer.isPresent()) {
+                        Target target = targets.computeIfAbsent(peer.get(), spec -> server.supervisor().connect(new Spec(spec)));
+                        requests.add(() -> target.invokeAsync(request, rpcTimeout.toSeconds(), response -> received(index, peer, response)));
+                    }
+                    else
+                        requests.add(() -> seed.invokeAsync(request, rpcTimeout.toSeconds(), response -> received(index, peer, response)));
+                }
+                if (inFlight == 0 && missing.isEmpty())
+                    done.complete(null);
+            }
+            // Requests are sent outside the lock, as failing requests may be completed by the calling thread
+            requests.forEach(Runnable::run);
+        }
+
+        /** Returns the next peer in turn which has not failed, and has not yet been asked for the given chunk. */
+        private Optional<String> nextPeerFor(int index) {
+            Set<String> askedForChunk = asked.computeIfAbsent(index, __ -> new HashSet<>());
+            for (int i = 0; i < peers.size(); i++) {
+                nextPeer = (nextPeer + 1) % peers.size();
+                String peer = peers.get(nextPeer);
+                if (askedForChunk.add(peer)) return Optional.of(peer);
+            }
+            return Optional.empty();
+        }
+
+        private void received(int index, Optional<String> peer, Request request) {
+            boolean failed = request.isError() || ! request.checkReturnTypes("ix");
+            boolean found = ! failed && request.returnValues().get(0).asInt32() == FileChunkServer.OK;
+            boolean written;
+            try {
+                written = found && file.write(index, request.returnValues().get(1).asData());
+            }
+            catch (RuntimeException e) {
+                synchronized (this) {
+                    inFlight--;
+                    done.completeExceptionally(e);
+                }
+                return;
+            }
+            if (written)
+                progress.accept((double) file.present() / file.chunks().count());
+
+            synchronized (this) {
+                inFlight--;
+                if ( ! written) {
+                    if (peer.isEmpty())
+                        done.completeExceptionally(new IOException("Failed fetching chunk " + index + " of " + file.chunks() + " of '" +
+                                                                   reference.value() + "' from peers and " + seed.getAddress() +
+                                                                   (failed ? ": " + request.errorMessage() : "")));
+                    else if (failed && peers.remove(peer.get()))
+                        log.log(Level.FINE, () -> "Not asking " + peer.get() + " for more chunks of '" + reference.value() + "': " +
+                                                  request.errorMessage());
+                    else if (found && peers.remove(peer.get()))
+                        log.log(Level.WARNING, "Chunk " + index + " of '" + reference.value() + "' from " + peer.get() +
+                                               " did not match its digest; not asking it for more chunks");
+
+                    missing.addFirst(index);
+                }
+            }
+            dispatch();
+        }
+
+        private Request chunkRequest(int index) {
+            Request request = new Request(FileChunkServer.GET_CHUNK_METHOD);
+            request.parameters().add(new StringValue(reference.value()));
+            request.parameters().add(new Int32Value(file.chunks().chunkSize()));
+            request.parameters().add(new Int32Value(index));
+            return request;
+        }
+
+        @Override
+        public synchronized void close() {
+            done.complete(null);
+            targets.values().forEach(Target::close);
+        }
+
+    }
+
+}
@@ -0,0 +1,335 @@
+// Copyright Verizon Media. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.vespa.filedistribution;
+
+import com.yahoo.concurrent.DaemonThreadFactory;
+import com.yahoo.config.FileReference;
+import com.yahoo.jrt.DataValue;
+import com.yahoo.jrt.Int32Value;
+import com.yahoo.jrt.Int64Value;
+import com.yahoo.jrt.Method;
+import com.yahoo.jrt.Request;
+import com.yahoo.jrt.Spec;
+import com.yahoo.jrt.StringArray;
+import com.yahoo.jrt.StringValue;
+import com.yahoo.jrt.Supervisor;
+import com.yahoo.security.tls.MixedMode;
+import com.yahoo.security.tls.TransportSecurityUtils;
+import com.yahoo.yolean.Exceptions;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Serves the {@link FileChunks} of file references, and the chunks themselves, to downloaders which fetch them with a
+ * {@link ChunkedFileDownloader}. Chunks are served both from complete files, and from downloads in progress, so nodes
+ * which download a file can serve the chunks they have to their peers, and the config servers only need to seed it.
+ *
+ * This also keeps track of the peers which recently asked for each file reference, and tells each new downloader
+ * about some of them, so downloaders find each other. Only plain files are served this way; for compressed
+ * directories, downloaders fall back to the config servers' {@link FileReceiver} protocol.
+ *
+ * @author agent
+ */
+public class FileChunkServer {
+
+    private static final Logger log = Logger.getLogger(FileChunkServer.class.getName());
+
+    public static final String GET_CHUNKS_METHOD = "filedistribution.getFileChunks";
+    public static final String GET_CHUNK_METHOD = "filedistribution.getFileChunk";
+
+    static final int OK = 0;
+    static final int NOT_FOUND = 1;
+    private static final int UNAUTHORIZED = 0x20001; // Same as for requests rejected by the config server authorizer
+
+    private static final int maxTrackedFiles = 1000;
+    private static final int maxMappedFiles = 64;
+    private static final int maxPeersPerFile = 64;
+    private static final int maxPeersInResponse = 16;
+
+    private final Supervisor supervisor;
+    private final Function<FileReference, Optional<File>> files;
+    private final Optional<Spec> spec;
+    private final Function<Request, CompletableFuture<Void>> authorizer;
+    private final int chunkSize;
+    private final Map<FileReference, CompletableFuture<FileChunks>> chunks = leastRecentlyUsed(maxTrackedFiles);
+    private final Map<File, MappedFile> mappedFiles = leastRecentlyUsed(maxMappedFiles);
+    private final Map<FileReference, ChunkedFile> downloading = new ConcurrentHashMap<>();
+    private final Map<FileReference, Deque<String>> peers = leastRecentlyUsed(maxTrackedFiles);
+    private final ExecutorService executor = Executors.newFixedThreadPool(Math.max(8, Runtime.getRuntime().availableProcessors()),
+                                                                          new DaemonThreadFactory("file chunk server"));
+
+    /**
+     * Creates a new chunk server, and registers its methods with the given supervisor.
+     *
+     * @param supervisor the supervisor which listens for requests from downloaders
+     * @param files a function which returns the complete file of a file reference, if present, and a plain file
+     * @param spec the address peers can reach this at, if it should be advertised to peers when downloading files
+     * @param authorizer authorizes each request before it is served, and fails it if it is not authorized
+     */
+    public FileChunkServer(Supervisor supervisor, Function<FileReference, Optional<File>> files, Optional<Spec> spec,
+                           Function<Request, CompletableFuture<Void>> authorizer) {
+        this(supervisor, files, spec, authorizer, FileChunks.defaultChunkSize);
+    }
+
+    FileChunkServer(Supervisor supervisor, Function<FileReference, Optional<File>> files, Optional<Spec> spec,
+                    Function<Request, CompletableFuture<Void>> authorizer, int chunkSize) {
+        this.supervisor = supervisor;
+        this.files = files;
+        this.spec = spec;
+        this.authorizer = authorizer;
+        this.chunkSize = chunkSize;
+        registerMethods();
+    }
+
+    /** Returns an authorizer which accepts all requests. */
+    public static Function<Request, CompletableFuture<Void>> noAuthorization() {
+        return __ -> CompletableFuture.completedFuture(null);
+    }
+
+    /**
+     * Returns an authorizer which accepts only requests from peers which authenticated with a certificate, over TLS.
+     * Nodes which are not config servers cannot tell which applications may have which files, so this is what peers
+     * are authorized by; rejected requests are failed, and are not served.
+     */
+    public static Function<Request, CompletableFuture<Void>> requireAuthenticatedPeer() {
+        return request -> {
+            boolean authenticated = request.target().getSecurityContext()
+                                           .map(context -> ! context.peerCertificateChain().isEmpty())
+                                           .orElse(false);
+            if (authenticated) return CompletableFuture.completedFuture(null);
+
+            String message = "Chunks are served only to peers which authenticate over TLS, but " + request.target() + " did not";
+            log.log(Level.FINE, message);
+            request.setError(UNAUTHORIZED, message);
+            request.returnRequest();
+            return CompletableFuture.failedFuture(new SecurityException(message)); // Fails subsequent stages, so the request is not served.
+        };
+    }
+
+    /** Returns whether TLS is required for all connections, so requests from peers can be authorized. */
+    public static boolean peersCanBeAuthorized() {
+        return    TransportSecurityUtils.isTransportSecurityEnabled()
+               && TransportSecurityUtils.getInsecureMixedMode() == MixedMode.DISABLED;
+    }
+
+    /** Returns a function which finds the plain files in the given directory of downloaded file references. */
+    public static Function<FileReference, Optional<File>> downloadedFiles(File downloadDirectory) {
+        return reference -> {
+            File[] files = new File(downloadDirectory, reference.value()).listFiles();
+            return files != null && files.length == 1 && files[0].isFile() ? Optional.of(files[0]) : Optional.empty();
+        };
+    }
+
+    /** Returns the address peers can reach this at, if it should be advertised to them. */
+    public Optional<Spec> spec() { return spec; }
+
+    Supervisor supervisor() { return supervisor; }
+
+    /** Serves the chunks present in the given file, until {@link #downloaded(FileReference)} is called. */
+    void downloading(FileReference reference, ChunkedFile file) {
+        downloading.put(reference, file);
+    }
+
+    /** Serves the chunks of the given file reference from the complete file, instead of the download in progress. */
+    void downloaded(FileReference reference) {
+        downloading.remove(reference);
+    }
+
+    /** Stops serving chunks from the download in progress for the given file reference, as it failed. */
+    void abandoned(FileReference reference) {
+        downloading.remove(reference);
+    }
+
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    private void registerMethods() {
+        supervisor.addMethod(new Method(GET_CHUNKS_METHOD, "ss", "islixS", this::getFileChunks)
+                                     .methodDesc("get the chunks of a file reference, and peers which may have them")
+                                     .paramDesc(0, "filereference", "file reference to get chunks for")
+                                     .paramDesc(1, "spec", "where the caller serves chunks to peers, or empty if it does not")
+                                     .returnDesc(0, "ret", "0 if success, 1 if not found")
+                                     .returnDesc(1, "filename", "name of the file")
+                                     .returnDesc(2, "filelength", "length in bytes of the file")
+                                     .returnDesc(3, "chunksize", "length in bytes of each chunk, except the last")
+                                     .returnDesc(4, "digests", "SHA-256 digest of each chunk, concatenated")
+                                     .returnDesc(5, "peers", "specs of peers which may have chunks of the file"));
+        supervisor.addMethod(new Method(GET_CHUNK_METHOD, "sii", "ix", this::getFileChunk)
+                                     .methodDesc("get a chunk of a file reference")
+                                     .paramDesc(0, "filereference", "file reference to get a chunk of")
+                                     .paramDesc(1, "chunksize", "length in bytes of each chunk, except the last")
+                                     .paramDesc(2, "index", "index of the chunk")
+                                     .returnDesc(0, "ret", "0 if success, 1 if not found")
+                                     .returnDesc(1, "data", "the content of the chunk"));
+    }
+
+    private void getFileChunks(Request request) {
+        request.detach();
+        authorizer.apply(request).thenRunAsync(() -> {
+            FileReference reference = new FileReference(request.parameters().get(0).asString());
+            String peer = request.parameters().get(1).asString();
+            Optional<FileChunks> found = Optional.empty();
+            try {
+                found = chunksOf(reference);
+            }
+            catch (IOException | RuntimeException e) {
+                log.log(Level.WARNING, "Failed computing chunks of '" + reference.value() + "': " + Exceptions.toMessageString(e));
+            }
+            request.returnValues()
+                   .add(new Int32Value(found.isPresent() ? OK : NOT_FOUND))
+                   .add(new StringValue(found.map(FileChunks::filename).orElse("")))
+                   .add(new Int64Value(found.map(FileChunks::size).orElse(0L)))
+                   .add(new Int32Value(found.map(FileChunks::chunkSize).orElse(0)))
+                   .add(new DataValue(found.map(FileChunks::digests).orElse(new byte[0])))
+                   .add(new StringArray(peersOf(reference, peer).toArray(new String[0])));
+            request.returnRequest();
+        }, executor);
+    }
+
+    private void getFileChunk(Request request) {
+        request.detach();
+        authorizer.apply(request).thenRunAsync(() -> {
+            FileReference reference = new FileReference(request.parameters().get(0).asString());
+            int chunkSize = request.parameters().get(1).asInt32();
+            int index = request.parameters().get(2).asInt32();
+            Optional<ByteBuffer> data = Optional.empty();
+            try {
+                data = chunkOf(reference, chunkSize, index);
+            }
+            catch (IOException | RuntimeException e) {
+                log.log(Level.FINE, () -> "Failed reading chunk " + index + " of '" + reference.value() + "': " + Exceptions.toMessageString(e));
+            }
+            request.returnValues()
+                   .add(new Int32Value(data.isPresent() ? OK : NOT_FOUND))
+                   .add(data.map(DataValue::wrap).orElse(new DataValue(new byte[0])));
+            request.returnRequest();
+        }, executor);
+    }
+
+    private Optional<FileChunks> chunksOf(FileReference reference) throws IOException {
+        ChunkedFile inProgress = downloading.get(reference);
+        if (inProgress != null) return Optional.of(inProgress.chunks());
+
+        CompletableFuture<FileChunks> cached;
+        synchronized (chunks) {
+            cached = chunks.get(reference);
+        }
+        if (cached != null) return Optional.of(await(cached));
+
+        Optional<File> file = files.apply(reference);
+        if (file.isEmpty()) return Optional.empty();
+
+        // File references are immutable, so chunks are computed once, by the first request, and cached while recently used
+        CompletableFuture<FileChunks> computed = new CompletableFuture<>();
+        synchronized (chunks) {
+            cached = chunks.putIfAbsent(reference, computed);
+        }
+        if (cached != null) return Optional.of(await(cached));
+
+        try {
+            computed.complete(FileChunks.of(file.get(), chunkSize));
+        }
+        catch (IOException | RuntimeException e) {
+            synchronized (chunks) {
+                chunks.remove(reference, computed);
+            }
+            computed.completeExceptionally(e);
+            throw e;
+        }
+        return Optional.of(computed.join());
+    }
+
+    /** Waits for chunks computed by another request, and rethrows any failure to compute them. */
+    private static FileChunks await(CompletableFuture<FileChunks> computed) throws IOException {
+        try {
+            return computed.join();
+        }
+        catch (CompletionException e) {
+            if (e.getCause() instanceof IOException) throw new IOException(e.getCause().getMessage(), e.getCause());
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the given chunk; from a complete file, this is a slice of a memory mapping, which is not copied to the heap.
+     * Only chunks of the size this serves are returned, as those are what it lists, and to bound what a request can read.
+     */
+    private Optional<ByteBuffer> chunkOf(FileReference reference, int chunkSize, int index) throws IOException {
+        if (chunkSize <= 0 || index < 0) return Optional.empty();
+
+        ChunkedFile inProgress = downloading.get(reference);
+        if (inProgress != null)
+            return    inProgress.chunks().chunkSize() == chunkSize
+                   && index < inProgress.chunks().count()
+                   && inProgress.has(index) ? Optional.of(ByteBuffer.wrap(inProgress.read(index))) : Optional.empty();
+
+        if (chunkSize != this.chunkSize) return Optional.empty();
+
+        Optional<File> file = files.apply(reference);
+        if (file.isEmpty()) return Optional.empty();
+
+        MappedFile mapped = mapped(file.get());
+        long offset = (long) index * chunkSize;
+        if (offset >= mapped.size()) return Optional.empty();
+
+        return Optional.of(mapped.slice(offset, (int) Math.min(chunkSize, mapped.size() - offset)));
+    }
+
+    /** Returns the given file, mapped once, and kept mapped while it is among those most recently served. */
+    private MappedFile mapped(File file) throws IOException {
+        synchronized (mappedFiles) {
+            MappedFile mapped = mappedFiles.get(file);
+            if (mapped == null) {
+                mapped = MappedFile.open(file);
+                mappedFiles.put(file, mapped);
+            }
+            return mapped;
+        }
+    }
+
+    /** Returns some peers which recently asked for the given file reference, and adds the given one, if any. */
+    private List<String> peersOf(FileReference reference, String peer) {
+        Deque<String> recent;
+        synchronized (peers) {
+            recent = peers.computeIfAbsent(reference, __ -> new ArrayDeque<>());
+        }
+        List<String> others;
+        synchronized (recent) {
+            recent.remove(peer);
+            others = new ArrayList<>(recent);
+            if ( ! peer.isEmpty()) {
+                recent.addFirst(peer);
+                if (recent.size() > maxPeersPerFile) recent.removeLast();
+            }
+        }
+        Collections.shuffle(others);
+        return others.subList(0, Math.min(maxPeersInResponse, others.size()));
+    }
+
+    /** Returns a map which holds the given number of entries, and evicts the least recently used; access must be synchronized. */
+    private static <K, V> Map<K, V> leastRecentlyUsed(int maxSize) {
+        return new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, V> eldest) { return size() > maxSize; }
+        };
+    }
+
+}
@@ -0,0 +1,133 @@
+// Copyright Verizon Media. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.vespa.filedistribution;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * The chunks of a file: its name and size, and the SHA-256 digest of each chunk of the content, in order.
+ * The digests identify the content, so any chunk can be fetched from any source, also untrusted peers, and verified
+ * on arrival; a cryptographic digest is needed for this, as a peer could otherwise craft content which passes.
+ *
+ * @author agent
+ */
+public class FileChunks {
+
+    /** Same as the size of the parts sent with {@link FileReceiver#RECEIVE_PART_METHOD}. */
+    public static final int defaultChunkSize = 1 << 20;
+
+    /** Length in bytes of the digest of each chunk. */
+    public static final int digestLength = 32;
+
+    private final String filename;
+    private final long size;
+    private final int chunkSize;
+    private final byte[] digests;
+
+    /** Creates new file chunks, where the given digests are those of all the chunks, concatenated, in order. */
+    public FileChunks(String filename, long size, int chunkSize, byte[] digests) {
+        if (chunkSize <= 0)
+            throw new IllegalArgumentException("Chunk size must be positive, but was " + chunkSize);
+        if (size < 0 || digests.length != (size + chunkSize - 1) / chunkSize * digestLength)
+            throw new IllegalArgumentException("Expected " + (size + chunkSize - 1) / chunkSize + " chunk digests for " + size +
+                                               " bytes in chunks of " + chunkSize + ", but got " + digests.length + " bytes of digests");
+        this.filename = Objects.requireNonNull(filename);
+        this.size = size;
+        this.chunkSize = chunkSize;
+        this.digests = digests;
+    }
+
+    /** Returns the chunks of the given file, which is read in full to compute them. */
+    public static FileChunks of(File file, int chunkSize) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            int count = (int) ((size + chunkSize - 1) / chunkSize);
+            byte[] digests = new byte[count * digestLength];
+            ByteBuffer buffer = ByteBuffer.allocate(chunkSize);
+            MessageDigest digester = sha256();
+            for (int i = 0; i < count; i++) {
+                buffer.clear().limit((int) Math.min(chunkSize, size - (long) i * chunkSize));
+                readFully(channel, buffer, (long) i * chunkSize);
+                digester.update(buffer.array(), 0, buffer.limit());
+                System.arraycopy(digester.digest(), 0, digests, i * digestLength, digestLength);
+            }
+            return new FileChunks(file.getName(), size, chunkSize, digests);
+        }
+    }
+
+    public String filename() { return filename; }
+
+    public long size() { return size; }
+
+    public int chunkSize() { return chunkSize; }
+
+    /** Returns the number of chunks. */
+    public int count() { return digests.length / digestLength; }
+
+    /** Returns a copy of the digests of all the chunks, concatenated, in order. */
+    public byte[] digests() { return digests.clone(); }
+
+    /** Returns the offset in the file of the chunk with the given index. */
+    public long offset(int index) {
+        return (long) Objects.checkIndex(index, count()) * chunkSize;
+    }
+
+    /** Returns the length of the chunk with the given index. */
+    public int length(int index) {
+        return (int) Math.min(chunkSize, size - offset(index));
+    }
+
+    /** Returns whether the given data is the content of the chunk with the given index. */
+    public boolean matches(int index, byte[] data, int length) {
+        if (length != length(index)) return false;
+
+        MessageDigest digester = sha256();
+        digester.update(data, 0, length);
+        byte[] digest = digester.digest();
+        return Arrays.equals(digest, 0, digestLength, digests, index * digestLength, (index + 1) * digestLength);
+    }
+
+    static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining())
+            if (channel.read(buffer, position + buffer.position()) < 0)
+                throw new IOException("Unexpected end of file at " + (position + buffer.position()));
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        }
+        catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is required to be supported by all JVMs", e);
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        FileChunks that = (FileChunks) o;
+        return size == that.size &&
+               chunkSize == that.chunkSize &&
+               filename.equals(that.filename) &&
+               Arrays.equals(digests, that.digests);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(filename, size, chunkSize, Arrays.hashCode(digests));
+    }
+
+    @Override
+    public String toString() {
+        return "'" + filename + "' of " + size + " bytes, in " + count() + " chunks";
+    }
+
+}
@@ -2,6 +2,8 @@
 package com.yahoo.vespa.filedistribution;
 
 import com.yahoo.config.FileReference;
+import com.yahoo.jrt.Spec;
+import com.yahoo.jrt.Supervisor;
 import java.util.logging.Level;
 import com.yahoo.vespa.config.ConnectionPool;
 import com.yahoo.vespa.defaults.Defaults;
@@ -33,6 +35,7 @@ public class FileDownloader implements AutoCloseable {
     private final File downloadDirectory;
     private final Duration timeout;
     private final FileReferenceDownloader fileReferenceDownloader;
+    private final Optional<FileChunkServer> chunkServer;
 
     public FileDownloader(ConnectionPool connectionPool) {
         this(connectionPool, defaultDownloadDirectory );
@@ -43,9 +46,29 @@ public class FileDownloader implements AutoCloseable {
     }
 
     public FileDownloader(ConnectionPool connectionPool, File downloadDirectory, File tmpDirectory, Duration timeout, Duration sleepBetweenRetries) {
+        this(connectionPool, downloadDirectory, tmpDirectory, timeout, sleepBetweenRetries, Optional.empty());
+    }
+
+    /**
+     * Creates a file downloader which downloads plain files as chunks, from peers as well as config servers, when
+     * possible, and serves the chunks it has to its peers through the given supervisor. Chunks are served only to
+     * peers which authenticate over TLS, and this is advertised to peers only when TLS is required for all connections.
+     */
+    public FileDownloader(ConnectionPool connectionPool, File downloadDirectory, Supervisor peerSupervisor, Optional<Spec> peerSpec) {
+        this(connectionPool, downloadDirectory, downloadDirectory, Duration.ofMinutes(15), Duration.ofSeconds(10),
+             Optional.of(new FileChunkServer(peerSupervisor,
+                                             FileChunkServer.downloadedFiles(downloadDirectory),
+                                             peerSpec.filter(__ -> FileChunkServer.peersCanBeAuthorized()),
+                                             FileChunkServer.requireAuthenticatedPeer())));
+    }
+
+    FileDownloader(ConnectionPool connectionPool, File downloadDirectory, File tmpDirectory, Duration timeout,
+                   Duration sleepBetweenRetries, Optional<FileChunkServer> chunkServer) {
         this.downloadDirectory = downloadDirectory;
         this.timeout = timeout;
-        this.fileReferenceDownloader = new FileReferenceDownloader(downloadDirectory, tmpDirectory, connectionPool, timeout, sleepBetweenRetries);
+        this.chunkServer = chunkServer;
+        this.fileReferenceDownloader = new FileReferenceDownloader(downloadDirectory, tmpDirectory, connectionPool,
+                                                                   timeout, sleepBetweenRetries, chunkServer);
     }
 
     public Optional<File> getFile(FileReference fileReference) {
@@ -130,5 +153,6 @@ public class FileDownloader implements AutoCloseable {
 
     public void close() {
         fileReferenceDownloader.close();
+        chunkServer.ifPresent(FileChunkServer::close);
     }
 }
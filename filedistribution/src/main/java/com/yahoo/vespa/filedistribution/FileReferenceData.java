@@ -4,6 +4,7 @@ package com.yahoo.vespa.filedistribution;
 import com.yahoo.config.FileReference;
 
 import java.nio.ByteBuffer;
+import java.util.Optional;
 
 
 /**
@@ -52,6 +53,19 @@ public abstract class FileReferenceData {
      */
     public abstract int nextContent(ByteBuffer bb);
 
+    /**
+     * Will provide the next part of the content, as a buffer which must not be modified.
+     * Subclasses may return views of the underlying storage, rather than copies of it.
+     *
+     * @param maxSize the maximum size of the part
+     * @return the next part of the content, or empty if all content has been provided
+     */
+    public Optional<ByteBuffer> nextPart(int maxSize) {
+        ByteBuffer bb = ByteBuffer.allocate(maxSize);
+        while (bb.hasRemaining() && nextContent(bb) >= 0) { }
+        return bb.position() == 0 ? Optional.empty() : Optional.of(bb.flip());
+    }
+
     /**
      * Only guaranteed to be valid after all content has been consumed.
      * @return xx64hash of content
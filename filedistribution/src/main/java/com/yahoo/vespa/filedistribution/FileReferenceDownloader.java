@@ -8,6 +8,7 @@ import com.yahoo.jrt.Request;
 import com.yahoo.jrt.StringValue;
 import com.yahoo.vespa.config.Connection;
 import com.yahoo.vespa.config.ConnectionPool;
+import com.yahoo.yolean.Exceptions;
 
 import java.io.File;
 import java.time.Duration;
@@ -47,11 +48,14 @@ public class FileReferenceDownloader {
     private final DownloadStatuses downloadStatuses = new DownloadStatuses();
     private final Duration downloadTimeout;
     private final Duration sleepBetweenRetries;
+    private final Optional<ChunkedFileDownloader> chunkedFileDownloader;
 
-    FileReferenceDownloader(File downloadDirectory, File tmpDirectory, ConnectionPool connectionPool, Duration timeout, Duration sleepBetweenRetries) {
+    FileReferenceDownloader(File downloadDirectory, File tmpDirectory, ConnectionPool connectionPool, Duration timeout,
+                            Duration sleepBetweenRetries, Optional<FileChunkServer> chunkServer) {
         this.connectionPool = connectionPool;
         this.downloadTimeout = timeout;
         this.sleepBetweenRetries = sleepBetweenRetries;
+        this.chunkedFileDownloader = chunkServer.map(server -> new ChunkedFileDownloader(server, downloadDirectory, tmpDirectory));
         // Needed to receive RPC calls receiveFile* from server after asking for files
         new FileReceiver(connectionPool.getSupervisor(), this, downloadDirectory, tmpDirectory);
     }
@@ -63,7 +67,7 @@ public class FileReferenceDownloader {
         int retryCount = 0;
         do {
             try {
-                if (startDownloadRpc(fileReferenceDownload, retryCount)) {
+                if (downloadChunks(fileReferenceDownload) || startDownloadRpc(fileReferenceDownload, retryCount)) {
                     downloadStarted = true;
                 } else {
                     retryCount++;
@@ -107,6 +111,25 @@ public class FileReferenceDownloader {
         downloads.remove(fileReference);
     }
 
+    /** Downloads the given file as chunks, if possible, and returns whether this completed the download. */
+    private boolean downloadChunks(FileReferenceDownload fileReferenceDownload) {
+        if (chunkedFileDownloader.isEmpty()) return false;
+
+        FileReference fileReference = fileReferenceDownload.fileReference();
+        Connection connection = connectionPool.getCurrent();
+        try {
+            Optional<File> file = chunkedFileDownloader.get().download(fileReference, connection,
+                                                                       progress -> setDownloadStatus(fileReference, progress));
+            file.ifPresent(downloaded -> completedDownloading(fileReference, downloaded));
+            return file.isPresent();
+        }
+        catch (RuntimeException e) {
+            log.log(Level.INFO, "Failed downloading chunks of '" + fileReference.value() + "' from " + connection.getAddress() +
+                                ", falling back to downloading the whole file: " + Exceptions.toMessageString(e));
+            return false;
+        }
+    }
+
     private boolean startDownloadRpc(FileReferenceDownload fileReferenceDownload, int retryCount) {
         Connection connection = connectionPool.getCurrent();
         Request request = new Request("filedistribution.serveFile");
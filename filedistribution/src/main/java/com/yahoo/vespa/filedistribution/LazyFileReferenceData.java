@@ -7,20 +7,25 @@ import net.jpountz.xxhash.XXHashFactory;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.ByteBuffer;
-import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Optional;
 
 public class LazyFileReferenceData extends FileReferenceData {
 
     protected final File file;
-    private final ReadableByteChannel channel;
+    private final FileChannel channel;
     private final StreamingXXHash64 hasher;
+    private byte[] scratch;
+    private MappedFile mapped;
 
     public LazyFileReferenceData(FileReference fileReference, String filename, Type type, File file) throws IOException {
         super(fileReference, filename, type);
         this.file = file;
-        channel = Files.newByteChannel(file.toPath());
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
         this.hasher = XXHashFactory.fastestInstance().newStreamingHash64(0);
     }
 
@@ -39,6 +44,37 @@ public class LazyFileReferenceData extends FileReferenceData {
         return read;
     }
 
+    /**
+     * Returns the next part of the file as a read-only slice of a memory mapping, so it is never copied to the heap.
+     * The file is mapped once, for all its parts, as mappings are released only when garbage collected.
+     */
+    @Override
+    public Optional<ByteBuffer> nextPart(int maxSize) {
+        try {
+            if (mapped == null) mapped = MappedFile.open(file);
+            long position = channel.position();
+            int length = (int) Math.min(maxSize, mapped.size() - position);
+            if (length <= 0) return Optional.empty();
+
+            ByteBuffer part = mapped.slice(position, length);
+            channel.position(position + length);
+            update(part.duplicate());
+            return Optional.of(part);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed reading " + file, e);
+        }
+    }
+
+    /** Feeds the given buffer to the hasher, through a small array which is reused for all parts. */
+    private void update(ByteBuffer bb) {
+        if (scratch == null) scratch = new byte[1 << 16];
+        while (bb.hasRemaining()) {
+            int length = Math.min(scratch.length, bb.remaining());
+            bb.get(scratch, 0, length);
+            hasher.update(scratch, 0, length);
+        }
+    }
+
     @Override
     public long xxhash() {
         return hasher.getValue();
@@ -0,0 +1,85 @@
+// Copyright Verizon Media. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.vespa.filedistribution;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A file which is memory mapped read-only, once, and read as slices of the mapping. Mappings are released only when
+ * they are garbage collected, so mapping each part of a file separately may use up the mappings a process is allowed
+ * to have. Files larger than a mapping can be are mapped in regions of {@link #defaultRegionSize} bytes, and the
+ * rare slice which spans two regions is read into the heap instead.
+ *
+ * @author agent
+ */
+class MappedFile {
+
+    static final long defaultRegionSize = 1L << 30;
+
+    private final File file;
+    private final long size;
+    private final long regionSize;
+    private final MappedByteBuffer[] regions;
+
+    private MappedFile(File file, long size, long regionSize) {
+        this.file = file;
+        this.size = size;
+        this.regionSize = regionSize;
+        this.regions = new MappedByteBuffer[(int) ((size + regionSize - 1) / regionSize)];
+    }
+
+    /** Opens the given file, which must not be modified while it is mapped. */
+    static MappedFile open(File file) throws IOException {
+        return open(file, defaultRegionSize);
+    }
+
+    static MappedFile open(File file, long regionSize) throws IOException {
+        if (regionSize <= 0 || regionSize > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("Region size must be positive, and at most " + Integer.MAX_VALUE + ", but was " + regionSize);
+
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            return new MappedFile(file, channel.size(), regionSize);
+        }
+    }
+
+    File file() { return file; }
+
+    long size() { return size; }
+
+    /** Returns a read-only buffer with the given bytes of this file, which must all be in the file. */
+    ByteBuffer slice(long offset, int length) throws IOException {
+        if (offset < 0 || length < 0 || offset + length > size)
+            throw new IndexOutOfBoundsException("Range [" + offset + ", " + (offset + length) + ") is not within " + size + " bytes of " + file);
+        if (length == 0)
+            return ByteBuffer.allocate(0).asReadOnlyBuffer();
+
+        int index = (int) (offset / regionSize);
+        int start = (int) (offset - index * regionSize);
+        if (start + (long) length <= regionSize) {
+            ByteBuffer slice = region(index).duplicate();
+            slice.position(start).limit(start + length);
+            return slice.slice();
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            FileChunks.readFully(channel, buffer, offset);
+        }
+        return buffer.flip().asReadOnlyBuffer();
+    }
+
+    private synchronized MappedByteBuffer region(int index) throws IOException {
+        if (regions[index] == null)
+            try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+                long position = index * regionSize;
+                regions[index] = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(regionSize, size - position));
+            }
+
+        return regions[index];
+    }
+
+}
@@ -0,0 +1,178 @@
+// Copyright Verizon Media. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.vespa.filedistribution;
+
+import com.yahoo.config.FileReference;
+import com.yahoo.jrt.Int32Value;
+import com.yahoo.jrt.ListenFailedException;
+import com.yahoo.jrt.Request;
+import com.yahoo.jrt.Spec;
+import com.yahoo.jrt.StringValue;
+import com.yahoo.jrt.Supervisor;
+import com.yahoo.jrt.Transport;
+import com.yahoo.vespa.config.JRTConnection;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author agent
+ */
+public class ChunkedFileDownloaderTest {
+
+    private static final FileReference reference = new FileReference("reference");
+    private static final int chunkSize = 64;
+    private static final byte[] content = new byte[1000];
+    static { new Random(1).nextBytes(content); }
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    private final List<Supervisor> supervisors = new ArrayList<>();
+    private final AtomicInteger seedReads = new AtomicInteger();
+    private Spec seedSpec;
+
+    @Before
+    public void setup() throws IOException, ListenFailedException {
+        File seedFile = write(tmp.newFolder("seed"), content);
+        Supervisor seed = supervisor();
+        seedSpec = new Spec("localhost", seed.listen(new Spec(0)).port());
+        new FileChunkServer(seed,
+                            reference -> { seedReads.incrementAndGet(); return Optional.of(seedFile); },
+                            Optional.empty(),
+                            FileChunkServer.noAuthorization(),
+                            chunkSize);
+    }
+
+    @After
+    public void shutdown() {
+        supervisors.forEach(supervisor -> supervisor.transport().shutdown().join());
+    }
+
+    @Test
+    public void testDownloadFromSeedAndPeers() throws IOException, ListenFailedException {
+        Peer first = new Peer();
+        assertArrayEquals(content, Files.readAllBytes(first.download().get().toPath()));
+        assertEquals("Seed lists and serves all chunks", 1 + 16, seedReads.get());
+
+        Peer second = new Peer();
+        assertArrayEquals(content, Files.readAllBytes(second.download().get().toPath()));
+        assertEquals("Chunks are served by the first peer", 1 + 16, seedReads.get());
+    }
+
+    @Test
+    public void testDownloadIsResumed() throws IOException, ListenFailedException {
+        Peer peer = new Peer();
+        byte[] partial = Arrays.copyOf(content, 640);
+        Arrays.fill(partial, 320, 330, (byte) 0);
+        Files.write(new File(peer.tmpDirectory, reference.value() + ".chunks.inprogress").toPath(), partial);
+
+        assertArrayEquals(content, Files.readAllBytes(peer.download().get().toPath()));
+        assertEquals("Seed serves only the 6 missing chunks, and the one which was damaged", 1 + 7, seedReads.get());
+    }
+
+    @Test
+    public void testChunksFromPeersAreVerified() throws IOException, ListenFailedException {
+        Peer liar = new Peer();
+        byte[] wrong = content.clone();
+        for (int i = 0; i < wrong.length; i++) wrong[i]++;
+        write(liar.downloadDirectory, wrong);
+        Request listing = new Request(FileChunkServer.GET_CHUNKS_METHOD);
+        listing.parameters().add(new StringValue(reference.value()));
+        listing.parameters().add(new StringValue(liar.spec.toString()));
+        new JRTConnection(seedSpec.toString(), liar.supervisor).invokeSync(listing, 10);
+        assertEquals(FileChunkServer.OK, listing.returnValues().get(0).asInt32());
+
+        Peer peer = new Peer();
+        assertArrayEquals(content, Files.readAllBytes(peer.download().get().toPath()));
+        assertEquals("Seed serves all chunks after the first one from the liar is wrong", 1 + 16, seedReads.get());
+    }
+
+    @Test
+    public void testSeedWithoutChunksIsNotUsed() throws IOException, ListenFailedException {
+        Supervisor legacy = supervisor();
+        seedSpec = new Spec("localhost", legacy.listen(new Spec(0)).port());
+        Peer peer = new Peer();
+        assertFalse(peer.download().isPresent());
+        assertFalse(new File(peer.downloadDirectory, reference.value()).exists());
+    }
+
+    @Test
+    public void testPeersWhichDoNotAuthenticateAreNotServed() throws IOException, ListenFailedException {
+        Supervisor server = supervisor();
+        Spec serverSpec = new Spec("localhost", server.listen(new Spec(0)).port());
+        new FileChunkServer(server,
+                            reference -> { seedReads.incrementAndGet(); return Optional.of(new File("model.bin")); },
+                            Optional.empty(),
+                            FileChunkServer.requireAuthenticatedPeer());
+        Request listing = new Request(FileChunkServer.GET_CHUNKS_METHOD);
+        listing.parameters().add(new StringValue(reference.value()));
+        listing.parameters().add(new StringValue(""));
+        new JRTConnection(serverSpec.toString(), supervisor()).invokeSync(listing, 10);
+        assertTrue(listing.isError());
+        assertEquals(0, seedReads.get());
+    }
+
+    @Test
+    public void testChunksOfOtherSizesAreNotServed() {
+        Request chunk = new Request(FileChunkServer.GET_CHUNK_METHOD);
+        chunk.parameters().add(new StringValue(reference.value()));
+        chunk.parameters().add(new Int32Value(Integer.MAX_VALUE));
+        chunk.parameters().add(new Int32Value(0));
+        new JRTConnection(seedSpec.toString(), supervisor()).invokeSync(chunk, 10);
+        assertEquals(FileChunkServer.NOT_FOUND, chunk.returnValues().get(0).asInt32());
+        assertEquals(0, chunk.returnValues().get(1).asData().length);
+    }
+
+    private Supervisor supervisor() {
+        Supervisor supervisor = new Supervisor(new Transport());
+        supervisors.add(supervisor);
+        return supervisor;
+    }
+
+    private static File write(File directory, byte[] data) throws IOException {
+        File file = new File(new File(directory, reference.value()), "model.bin");
+        Files.createDirectories(file.getParentFile().toPath());
+        Files.write(file.toPath(), data);
+        return file;
+    }
+
+    private class Peer {
+
+        private final File downloadDirectory = tmp.newFolder();
+        private final File tmpDirectory = tmp.newFolder();
+        private final Supervisor supervisor = supervisor();
+        private final Spec spec = new Spec("localhost", supervisor.listen(new Spec(0)).port());
+        private final ChunkedFileDownloader downloader = new ChunkedFileDownloader(new FileChunkServer(supervisor,
+                                                                                                       FileChunkServer.downloadedFiles(downloadDirectory),
+                                                                                                       Optional.of(spec),
+                                                                                                       FileChunkServer.noAuthorization(),
+                                                                                                       chunkSize),
+                                                                                   downloadDirectory,
+                                                                                   tmpDirectory);
+
+        Peer() throws IOException, ListenFailedException { }
+
+        Optional<File> download() {
+            return downloader.download(reference, new JRTConnection(seedSpec.toString(), supervisor), __ -> { });
+        }
+
+    }
+
+}
@@ -4,6 +4,7 @@ package com.yahoo.vespa.filedistribution;
 import com.yahoo.config.FileReference;
 import com.yahoo.io.IOUtils;
 import com.yahoo.text.Utf8;
+import net.jpountz.xxhash.XXHashFactory;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
@@ -59,6 +60,23 @@ public class FileReferenceDataTest {
         assertTrue(file.exists()); // file should not be removed
     }
 
+    @Test
+    public void testFileReferenceDataParts() throws IOException {
+        String content = "blobbblubbblabb";
+        File file = writeTempFile(content);
+        FileReferenceData fileReferenceData =
+                new LazyFileReferenceData(new FileReference("ref"), "foo", FileReferenceData.Type.compressed, file);
+        assertEquals(content.substring(0, 10), Utf8.toString(fileReferenceData.nextPart(10).get()));
+        assertEquals(content.substring(10, 15), Utf8.toString(fileReferenceData.nextPart(10).get()));
+        assertFalse(fileReferenceData.nextPart(10).isPresent());
+        assertEquals(XXHashFactory.fastestInstance().hash64().hash(Utf8.toBytes(content), 0, content.length(), 0),
+                     fileReferenceData.xxhash());
+        fileReferenceData.close();
+
+        FileReferenceData empty = EmptyFileReferenceData.empty(new FileReference("ref"), "foo");
+        assertFalse(empty.nextPart(10).isPresent());
+    }
+
     private File writeTempFile(String content) throws IOException {
         File file = temporaryFolder.newFile();
         IOUtils.writeFile(file, Utf8.toBytes(content));
@@ -0,0 +1,59 @@
+// Copyright Verizon Media. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.vespa.filedistribution;
+
+import com.yahoo.text.Utf8;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * @author agent
+ */
+public class MappedFileTest {
+
+    private static final String content = "0123456789abcdefghij";
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    @Test
+    public void testSlicesAreMappedWithinRegions() throws IOException {
+        File file = tmp.newFile();
+        Files.write(file.toPath(), Utf8.toBytes(content));
+        MappedFile mapped = MappedFile.open(file, 8);
+        assertEquals(20, mapped.size());
+
+        assertSlice("01234567", mapped.slice(0, 8), true);
+        assertSlice("89ab", mapped.slice(8, 4), true);
+        assertSlice("ghij", mapped.slice(16, 4), true);
+        assertSlice("6789ab", mapped.slice(6, 6), false);
+    }
+
+    @Test
+    public void testSlicesMustBeWithinFile() throws IOException {
+        File file = tmp.newFile();
+        Files.write(file.toPath(), Utf8.toBytes(content));
+        MappedFile mapped = MappedFile.open(file);
+        try {
+            mapped.slice(16, 5);
+            fail("Expected exception");
+        }
+        catch (IndexOutOfBoundsException expected) { }
+    }
+
+    private static void assertSlice(String expected, ByteBuffer slice, boolean direct) {
+        assertTrue(slice.isReadOnly());
+        assertEquals(direct, slice.isDirect());
+        assertEquals(expected, Utf8.toString(slice));
+    }
+
+}
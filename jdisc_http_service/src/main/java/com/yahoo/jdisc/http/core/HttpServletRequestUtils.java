@@ -1,6 +1,9 @@
 // Copyright 2017 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
 package com.yahoo.jdisc.http.core;
 
+import org.eclipse.jetty.io.Connection;
+import org.eclipse.jetty.server.Connector;
+import org.eclipse.jetty.server.HttpChannel;
 import org.eclipse.jetty.server.HttpConnection;
 import org.eclipse.jetty.server.ServerConnector;
 
@@ -12,16 +15,34 @@ import javax.servlet.http.HttpServletRequest;
 public class HttpServletRequestUtils {
     private HttpServletRequestUtils() {}
 
-    public static HttpConnection getConnection(HttpServletRequest request) {
+    /** Returns the HTTP/1 connection or HTTP/2 session which the given request was received on. */
+    public static Connection getConnection(HttpServletRequest request) {
+        HttpConnection http1Connection = getHttp1Connection(request);
+        if (http1Connection != null) return http1Connection;
+        return getHttpChannel(request).getEndPoint().getConnection();
+    }
+
+    public static Connector getConnector(HttpServletRequest request) {
+        HttpConnection http1Connection = getHttp1Connection(request);
+        if (http1Connection != null) return http1Connection.getConnector();
+        return getHttpChannel(request).getConnector();
+    }
+
+    /** Returns the connection the given request was received on, or null if it is not an HTTP/1 connection. */
+    private static HttpConnection getHttp1Connection(HttpServletRequest request) {
         return (HttpConnection)request.getAttribute("org.eclipse.jetty.server.HttpConnection");
     }
 
+    private static HttpChannel getHttpChannel(HttpServletRequest request) {
+        return (HttpChannel)request.getAttribute("org.eclipse.jetty.server.HttpChannel");
+    }
+
     /**
      * Note: {@link HttpServletRequest#getLocalPort()} may return the local port of the load balancer / reverse proxy if proxy-protocol is enabled.
      * @return the actual local port of the underlying Jetty connector
      */
     public static int getConnectorLocalPort(HttpServletRequest request) {
-        ServerConnector jettyConnector = (ServerConnector) getConnection(request).getConnector();
+        ServerConnector jettyConnector = (ServerConnector) getConnector(request);
         return jettyConnector.getLocalPort();
     }
 
@@ -0,0 +1,60 @@
+// Copyright Verizon Media. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.jdisc.http.server.jetty;
+
+import com.yahoo.jdisc.Request.RequestType;
+import org.eclipse.jetty.http.HttpStatus;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.handler.HandlerWrapper;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Responds with 503 to requests which an {@link AdmissionController} rejects, before any other work is done for them.
+ * Each request is judged by the time since it arrived, i.e., since its headers were parsed, as this is measured per
+ * request, also when it is handled by a reserved thread, or by the thread which parsed it.
+ *
+ * @author agent
+ */
+class AdmissionControlHandler extends HandlerWrapper {
+
+    private final AdmissionController admissionController;
+    private final List<String> monitoringHandlerPaths;
+    private final List<String> searchHandlerPaths;
+
+    AdmissionControlHandler(AdmissionController admissionController,
+                            List<String> monitoringHandlerPaths, List<String> searchHandlerPaths) {
+        this.admissionController = admissionController;
+        this.monitoringHandlerPaths = monitoringHandlerPaths;
+        this.searchHandlerPaths = searchHandlerPaths;
+    }
+
+    @Override
+    public void handle(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response)
+            throws IOException, ServletException {
+        RequestType type = HttpResponseStatisticsCollector.deduceRequestType(baseRequest, monitoringHandlerPaths, searchHandlerPaths);
+        long delayNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, System.currentTimeMillis() - baseRequest.getTimeStamp()));
+        if (admissionController.admit(type, delayNanos)) {
+            super.handle(target, baseRequest, request, response);
+        }
+        else {
+            baseRequest.setHandled(true);
+            response.sendError(HttpStatus.SERVICE_UNAVAILABLE_503, "Server is overloaded");
+        }
+    }
+
+    boolean isOverloaded() {
+        return admissionController.isOverloaded();
+    }
+
+    /** Returns the number of rejected requests per type since the last call to this, and resets these. */
+    Map<RequestType, Long> takeRejected() {
+        return admissionController.takeRejected();
+    }
+
+}
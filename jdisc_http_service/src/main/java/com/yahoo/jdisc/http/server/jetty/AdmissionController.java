@@ -0,0 +1,88 @@
+// Copyright Verizon Media. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.jdisc.http.server.jetty;
+
+import com.yahoo.jdisc.Request.RequestType;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Decides whether to admit requests, using CoDel on how long jobs are queued in the Jetty thread pool:
+ * if even the shortest queueing delay seen during an interval exceeds the target delay, there is a standing queue,
+ * and the server is considered overloaded until an interval where some job was started within the target delay.
+ * <p>
+ * While overloaded, feed requests are rejected when they waited for longer than the target delay since they arrived,
+ * search requests when they waited for longer than the interval, and monitoring requests are always admitted. Rejecting early, with a cheap
+ * 503, drains the queue, so the requests which are admitted are served while their clients are still waiting.
+ *
+ * @author agent
+ */
+class AdmissionController {
+
+    private final long targetDelayNanos;
+    private final long intervalNanos;
+    private final AtomicLong intervalEndNanos;
+    private final AtomicLong minDelayNanos = new AtomicLong(Long.MAX_VALUE);
+    private final Map<RequestType, LongAdder> rejected = new EnumMap<>(RequestType.class);
+    private volatile boolean overloaded = false;
+
+    AdmissionController(Duration targetDelay, Duration interval) {
+        this(targetDelay, interval, System.nanoTime());
+    }
+
+    AdmissionController(Duration targetDelay, Duration interval, long nowNanos) {
+        if (targetDelay.isNegative() || interval.isNegative() || interval.isZero())
+            throw new IllegalArgumentException("Target delay must be non-negative, and interval positive, but got " +
+                                               targetDelay + " and " + interval);
+
+        this.targetDelayNanos = targetDelay.toNanos();
+        this.intervalNanos = interval.toNanos();
+        this.intervalEndNanos = new AtomicLong(nowNanos + intervalNanos);
+        for (RequestType type : RequestType.values())
+            rejected.put(type, new LongAdder());
+    }
+
+    /** Records that a job started after being queued for the given time, and ends the current interval if due. */
+    void recordQueueDelay(long delayNanos, long nowNanos) {
+        long end = intervalEndNanos.get();
+        if (nowNanos - end >= 0 && intervalEndNanos.compareAndSet(end, nowNanos + intervalNanos)) {
+            long minDelay = minDelayNanos.getAndSet(delayNanos);
+            // A gap with no jobs at all means there was no queue.
+            overloaded = minDelay > targetDelayNanos && nowNanos - end < intervalNanos;
+            return;
+        }
+        if (delayNanos < minDelayNanos.get())
+            minDelayNanos.accumulateAndGet(delayNanos, Math::min);
+    }
+
+    /** Returns whether a request of the given type, which waited for the given time since it arrived, should be processed. */
+    boolean admit(RequestType type, long delayNanos) {
+        if ( ! overloaded) return true;
+
+        boolean admit;
+        switch (type) {
+            case MONITORING: admit = true; break;
+            case READ: admit = delayNanos <= intervalNanos; break;
+            default: admit = delayNanos <= targetDelayNanos;
+        }
+        if ( ! admit)
+            rejected.get(type).increment();
+
+        return admit;
+    }
+
+    boolean isOverloaded() {
+        return overloaded;
+    }
+
+    /** Returns the number of rejected requests per type since the last call to this, and resets these. */
+    Map<RequestType, Long> takeRejected() {
+        Map<RequestType, Long> taken = new EnumMap<>(RequestType.class);
+        rejected.forEach((type, count) -> taken.put(type, count.sumThenReset()));
+        return taken;
+    }
+
+}
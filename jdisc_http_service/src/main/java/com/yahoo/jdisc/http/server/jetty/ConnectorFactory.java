@@ -7,6 +7,11 @@ import com.yahoo.jdisc.http.ConnectorConfig;
 import com.yahoo.jdisc.http.ssl.SslContextFactoryProvider;
 import com.yahoo.security.tls.MixedMode;
 import com.yahoo.security.tls.TransportSecurityUtils;
+import org.eclipse.jetty.alpn.java.server.JDK9ServerALPNProcessor;
+import org.eclipse.jetty.alpn.server.ALPNServerConnectionFactory;
+import org.eclipse.jetty.http2.server.AbstractHTTP2ServerConnectionFactory;
+import org.eclipse.jetty.http2.server.HTTP2CServerConnectionFactory;
+import org.eclipse.jetty.http2.server.HTTP2ServerConnectionFactory;
 import org.eclipse.jetty.server.ConnectionFactory;
 import org.eclipse.jetty.server.DetectorConnectionFactory;
 import org.eclipse.jetty.server.HttpConfiguration;
@@ -18,6 +23,7 @@ import org.eclipse.jetty.server.ServerConnector;
 import org.eclipse.jetty.server.SslConnectionFactory;
 import org.eclipse.jetty.util.ssl.SslContextFactory;
 
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -78,35 +84,82 @@ public class ConnectorFactory {
     private List<ConnectionFactory> createConnectionFactories(Metric metric) {
         HttpConnectionFactory httpFactory = newHttpConnectionFactory();
         if (!isSslEffectivelyEnabled(connectorConfig)) {
-            return List.of(httpFactory);
+            return cleartextConnectionFactories(httpFactory);
         } else if (connectorConfig.ssl().enabled()) {
             return connectionFactoriesForHttps(metric, httpFactory);
         } else if (TransportSecurityUtils.isTransportSecurityEnabled()) {
             switch (TransportSecurityUtils.getInsecureMixedMode()) {
                 case TLS_CLIENT_MIXED_SERVER:
                 case PLAINTEXT_CLIENT_MIXED_SERVER:
-                    return List.of(new DetectorConnectionFactory(newSslConnectionFactory(metric, httpFactory)), httpFactory);
+                    List<ConnectionFactory> factories = new ArrayList<>();
+                    factories.add(new DetectorConnectionFactory(newSslConnectionFactory(metric, httpFactory)));
+                    factories.addAll(cleartextConnectionFactories(httpFactory));
+                    if (connectorConfig.http2().enabled()) {
+                        factories.add(newAlpnConnectionFactory(httpFactory));
+                        factories.add(newHttp2ConnectionFactory(httpFactory));
+                    }
+                    return factories;
                 case DISABLED:
                     return connectionFactoriesForHttps(metric, httpFactory);
                 default:
                     throw new IllegalStateException();
             }
         } else {
-            return List.of(httpFactory);
+            return cleartextConnectionFactories(httpFactory);
         }
     }
 
     private List<ConnectionFactory> connectionFactoriesForHttps(Metric metric, HttpConnectionFactory httpFactory) {
         ConnectorConfig.ProxyProtocol proxyProtocolConfig = connectorConfig.proxyProtocol();
         SslConnectionFactory sslFactory = newSslConnectionFactory(metric, httpFactory);
+        List<ConnectionFactory> factories = new ArrayList<>();
         if (proxyProtocolConfig.enabled()) {
             if (proxyProtocolConfig.mixedMode()) {
-                return List.of(new DetectorConnectionFactory(sslFactory, new ProxyConnectionFactory(sslFactory.getProtocol())), sslFactory, httpFactory);
+                factories.add(new DetectorConnectionFactory(sslFactory, new ProxyConnectionFactory(sslFactory.getProtocol())));
             } else {
-                return List.of(new ProxyConnectionFactory(sslFactory.getProtocol()), sslFactory, httpFactory);
+                factories.add(new ProxyConnectionFactory(sslFactory.getProtocol()));
             }
-        } else {
-            return List.of(sslFactory, httpFactory);
+        }
+        factories.add(sslFactory);
+        if (connectorConfig.http2().enabled()) {
+            factories.add(newAlpnConnectionFactory(httpFactory));
+            factories.add(newHttp2ConnectionFactory(httpFactory));
+        }
+        factories.add(httpFactory);
+        return factories;
+    }
+
+    /** HTTP/1.1 connections are upgraded to h2c when a client sends the HTTP/2 preface, or asks for an upgrade. */
+    private List<ConnectionFactory> cleartextConnectionFactories(HttpConnectionFactory httpFactory) {
+        if ( ! connectorConfig.http2().enabled()) return List.of(httpFactory);
+
+        HTTP2CServerConnectionFactory http2Factory = new HTTP2CServerConnectionFactory(httpFactory.getHttpConfiguration());
+        configureHttp2(http2Factory);
+        return List.of(httpFactory, http2Factory);
+    }
+
+    private HTTP2ServerConnectionFactory newHttp2ConnectionFactory(HttpConnectionFactory httpFactory) {
+        HTTP2ServerConnectionFactory http2Factory = new HTTP2ServerConnectionFactory(httpFactory.getHttpConfiguration());
+        configureHttp2(http2Factory);
+        return http2Factory;
+    }
+
+    private void configureHttp2(AbstractHTTP2ServerConnectionFactory http2Factory) {
+        http2Factory.setMaxConcurrentStreams(connectorConfig.http2().maxConcurrentStreams());
+    }
+
+    private static ALPNServerConnectionFactory newAlpnConnectionFactory(HttpConnectionFactory httpFactory) {
+        // The ALPN processor is found with a service loader, which must see the bundle which provides it.
+        Thread thread = Thread.currentThread();
+        ClassLoader contextClassLoader = thread.getContextClassLoader();
+        try {
+            thread.setContextClassLoader(JDK9ServerALPNProcessor.class.getClassLoader());
+            ALPNServerConnectionFactory alpnFactory = new ALPNServerConnectionFactory("h2", httpFactory.getProtocol());
+            alpnFactory.setDefaultProtocol(httpFactory.getProtocol());
+            return alpnFactory;
+        }
+        finally {
+            thread.setContextClassLoader(contextClassLoader);
         }
     }
 
@@ -127,7 +180,8 @@ public class ConnectorFactory {
 
     private SslConnectionFactory newSslConnectionFactory(Metric metric, HttpConnectionFactory httpFactory) {
         SslContextFactory ctxFactory = sslContextFactoryProvider.getInstance(connectorConfig.name(), connectorConfig.listenPort());
-        SslConnectionFactory connectionFactory = new SslConnectionFactory(ctxFactory, httpFactory.getProtocol());
+        String nextProtocol = connectorConfig.http2().enabled() ? "alpn" : httpFactory.getProtocol();
+        SslConnectionFactory connectionFactory = new SslConnectionFactory(ctxFactory, nextProtocol);
         connectionFactory.addBean(new SslHandshakeFailedListener(metric, connectorConfig.name(), connectorConfig.listenPort()));
         return connectionFactory;
     }
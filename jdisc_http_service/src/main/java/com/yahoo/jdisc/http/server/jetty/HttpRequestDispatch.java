@@ -13,16 +13,25 @@ import com.yahoo.jdisc.handler.RequestHandler;
 import com.yahoo.jdisc.http.ConnectorConfig;
 import com.yahoo.jdisc.http.HttpHeaders;
 import com.yahoo.jdisc.http.HttpRequest;
+import org.eclipse.jetty.http2.ErrorCode;
+import org.eclipse.jetty.http2.api.Session;
+import org.eclipse.jetty.http2.api.Stream;
+import org.eclipse.jetty.http2.server.HTTP2ServerConnection;
+import org.eclipse.jetty.io.Connection;
 import org.eclipse.jetty.io.EofException;
 import org.eclipse.jetty.server.HttpConnection;
 import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.util.Callback;
 
 import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
 import javax.servlet.ServletInputStream;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.time.Instant;
 import java.util.Arrays;
 import java.util.concurrent.CompletableFuture;
@@ -71,10 +80,19 @@ class HttpRequestDispatch {
                                                                        servletResponse,
                                                                        jDiscContext.janitor,
                                                                        metricReporter,
-                                                                       jDiscContext.developerMode());
+                                                                       jDiscContext.developerMode(),
+                                                                       getConnector(servletRequest).getScheduler(),
+                                                                       responseFlushDelay(servletRequest));
         markConnectionAsNonPersistentIfThresholdReached(servletRequest);
         this.async = servletRequest.startAsync();
         async.setTimeout(0);
+        if (getConnection(servletRequest) instanceof HTTP2ServerConnection)
+            async.addListener(new AsyncListener() {
+                @Override public void onComplete(AsyncEvent event) { closeHttp2ConnectionIfThresholdReached(servletRequest); }
+                @Override public void onTimeout(AsyncEvent event) { }
+                @Override public void onError(AsyncEvent event) { }
+                @Override public void onStartAsync(AsyncEvent event) { }
+            });
         metricReporter.uriLength(jettyRequest.getOriginalURI().length());
     }
 
@@ -139,23 +157,47 @@ class HttpRequestDispatch {
         };
     }
 
+    private static Duration responseFlushDelay(HttpServletRequest request) {
+        return Duration.ofNanos((long) (getConnector(request).connectorConfig().responseFlushDelay() * 1e9));
+    }
+
     private static void markConnectionAsNonPersistentIfThresholdReached(HttpServletRequest request) {
-        ConnectorConfig connectorConfig = getConnector(request).connectorConfig();
+        // HTTP/2 connections have many requests in flight, and are instead closed when a response is complete; see below.
+        if ( ! (getConnection(request) instanceof HttpConnection)) return;
+
+        HttpConnection connection = (HttpConnection) getConnection(request);
+        if (connectionThresholdReached(connection, getConnector(request).connectorConfig())) {
+            connection.getGenerator().setPersistent(false);
+        }
+    }
+
+    /**
+     * Sends a GOAWAY on the HTTP/2 connection of the given, completed request, if the connection has reached its
+     * maximum number of requests or its maximum life. Clients then send further requests on a new connection.
+     * Jetty stops writing to a connection once the GOAWAY is sent, so this is done only when no other streams are open.
+     */
+    private static void closeHttp2ConnectionIfThresholdReached(HttpServletRequest request) {
+        HTTP2ServerConnection connection = (HTTP2ServerConnection) getConnection(request);
+        if ( ! connectionThresholdReached(connection, getConnector(request).connectorConfig())) return;
+
+        Session session = connection.getSession();
+        if (session.getStreams().stream().allMatch(Stream::isClosed)) {
+            log.log(Level.FINE, () -> "Closing HTTP/2 connection which reached its maximum number of requests or life: " + connection);
+            session.close(ErrorCode.NO_ERROR.code, "max_requests_or_life", Callback.NOOP);
+        }
+    }
+
+    private static boolean connectionThresholdReached(Connection connection, ConnectorConfig connectorConfig) {
         int maxRequestsPerConnection = connectorConfig.maxRequestsPerConnection();
-        if (maxRequestsPerConnection > 0) {
-            HttpConnection connection = getConnection(request);
-            if (connection.getMessagesIn() >= maxRequestsPerConnection) {
-                connection.getGenerator().setPersistent(false);
-            }
+        if (maxRequestsPerConnection > 0 && connection.getMessagesIn() >= maxRequestsPerConnection) {
+            return true;
         }
         double maxConnectionLifeInSeconds = connectorConfig.maxConnectionLife();
         if (maxConnectionLifeInSeconds > 0) {
-            HttpConnection connection = getConnection(request);
             Instant expireAt = Instant.ofEpochMilli((long)(connection.getCreatedTimeStamp() + maxConnectionLifeInSeconds * 1000));
-            if (Instant.now().isAfter(expireAt)) {
-                connection.getGenerator().setPersistent(false);
-            }
+            return Instant.now().isAfter(expireAt);
         }
+        return false;
     }
 
     @SafeVarargs
@@ -204,7 +204,11 @@ public class HttpResponseStatisticsCollector extends HandlerWrapper implements G
         HttpRequest.RequestType requestType = (HttpRequest.RequestType)request.getAttribute(requestTypeAttribute);
         if (requestType != null) return requestType;
 
-        // Deduce from path and method:
+        return deduceRequestType(request, monitoringHandlerPaths, searchHandlerPaths);
+    }
+
+    /** Deduces the type of the given request from its path and method. */
+    static HttpRequest.RequestType deduceRequestType(Request request, List<String> monitoringHandlerPaths, List<String> searchHandlerPaths) {
         String path = request.getRequestURI();
         for (String monitoringHandlerPath : monitoringHandlerPaths) {
             if (path.startsWith(monitoringHandlerPath)) return HttpRequest.RequestType.MONITORING;
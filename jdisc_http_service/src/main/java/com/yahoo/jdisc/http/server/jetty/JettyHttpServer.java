@@ -37,6 +37,7 @@ import java.io.IOException;
 import java.lang.management.ManagementFactory;
 import java.net.BindException;
 import java.net.MalformedURLException;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.EnumSet;
@@ -79,7 +80,8 @@ public class JettyHttpServer extends AbstractServerProvider {
 
         initializeJettyLogging();
 
-        server = new Server();
+        AdmissionController admissionController = newAdmissionController(serverConfig);
+        server = admissionController == null ? new Server() : new Server(new QueueDelayMeasuringThreadPool(admissionController));
         server.setStopTimeout((long)(serverConfig.stopTimeout() * 1000.0));
         server.setRequestLog(new AccessLogRequestLog(accessLog, serverConfig.accessLog()));
         setupJmx(server, serverConfig);
@@ -111,8 +113,9 @@ public class JettyHttpServer extends AbstractServerProvider {
                                                connectors,
                                                jdiscServlet,
                                                servletHolders,
-                                               jDiscFilterInvokerFilter));
-        this.metricsReporter = new ServerMetricReporter(metric, server);
+                                               jDiscFilterInvokerFilter,
+                                               admissionController));
+        this.metricsReporter = new ServerMetricReporter(metric, server, accessLog);
     }
 
     private static void initializeJettyLogging() {
@@ -139,6 +142,12 @@ public class JettyHttpServer extends AbstractServerProvider {
         pool.setMinThreads(config.minWorkerThreads());
     }
 
+    private static AdmissionController newAdmissionController(ServerConfig config) {
+        if ( ! config.overloadControl().enabled()) return null;
+        return new AdmissionController(Duration.ofNanos((long) (config.overloadControl().targetDelay() * 1e9)),
+                                       Duration.ofNanos((long) (config.overloadControl().interval() * 1e9)));
+    }
+
     private static JMXServiceURL createJmxLoopbackOnlyServiceUrl(int port) {
         try {
             return new JMXServiceURL("rmi", "localhost", port, "/jndi/rmi://localhost:" + port + "/jmxrmi");
@@ -152,7 +161,8 @@ public class JettyHttpServer extends AbstractServerProvider {
                                                    List<JDiscServerConnector> connectors,
                                                    ServletHolder jdiscServlet,
                                                    ComponentRegistry<ServletHolder> servletHolders,
-                                                   FilterHolder jDiscFilterInvokerFilter) {
+                                                   FilterHolder jDiscFilterInvokerFilter,
+                                                   AdmissionController admissionController) {
         ServletContextHandler servletContextHandler = createServletContextHandler();
 
         servletHolders.allComponentsById().forEach((id, servlet) -> {
@@ -179,7 +189,17 @@ public class JettyHttpServer extends AbstractServerProvider {
         HttpResponseStatisticsCollector statisticsCollector =
                 new HttpResponseStatisticsCollector(serverConfig.metric().monitoringHandlerPaths(),
                                                     serverConfig.metric().searchHandlerPaths());
-        statisticsCollector.setHandler(gzipHandler);
+        if (admissionController != null) {
+            // Rejected requests are counted by the statistics collector, but skip all other handlers.
+            var admissionControlHandler = new AdmissionControlHandler(admissionController,
+                                                                      serverConfig.metric().monitoringHandlerPaths(),
+                                                                      serverConfig.metric().searchHandlerPaths());
+            admissionControlHandler.setHandler(gzipHandler);
+            statisticsCollector.setHandler(admissionControlHandler);
+        }
+        else {
+            statisticsCollector.setHandler(gzipHandler);
+        }
 
         StatisticsHandler statisticsHandler = newStatisticsHandler();
         statisticsHandler.setHandler(statisticsCollector);
@@ -70,6 +70,12 @@ class MetricDefinitions {
     static final String JETTY_THREADPOOL_TOTAL_THREADS = "jdisc.http.jetty.threadpool.thread.total";
     static final String JETTY_THREADPOOL_QUEUE_SIZE = "jdisc.http.jetty.threadpool.queue.size";
 
+    static final String OVERLOAD_REJECTED_REQUESTS = "jdisc.http.overload.rejected_requests";
+    static final String OVERLOADED = "jdisc.http.overload.overloaded";
+
+    static final String ACCESS_LOG_DROPPED_ENTRIES = "jdisc.http.access_log.dropped_entries";
+    static final String ACCESS_LOG_QUEUED_ENTRIES = "jdisc.http.access_log.queued_entries";
+
     static final String FILTERING_REQUEST_HANDLED = "jdisc.http.filtering.request.handled";
     static final String FILTERING_REQUEST_UNHANDLED = "jdisc.http.filtering.request.unhandled";
     static final String FILTERING_RESPONSE_HANDLED = "jdisc.http.filtering.response.handled";
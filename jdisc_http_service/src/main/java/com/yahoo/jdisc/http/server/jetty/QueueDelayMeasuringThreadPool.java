@@ -0,0 +1,48 @@
+// Copyright Verizon Media. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.jdisc.http.server.jetty;
+
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+
+/**
+ * A {@link QueuedThreadPool} which measures how long each job waits in the queue, and reports this to an
+ * {@link AdmissionController}, which uses it to detect a standing queue.
+ *
+ * @author agent
+ */
+class QueueDelayMeasuringThreadPool extends QueuedThreadPool {
+
+    private final AdmissionController admissionController;
+
+    QueueDelayMeasuringThreadPool(AdmissionController admissionController) {
+        this.admissionController = admissionController;
+    }
+
+    @Override
+    public void execute(Runnable job) {
+        super.execute(new TimedJob(job));
+    }
+
+    private class TimedJob implements Runnable {
+
+        private final Runnable job;
+        private final long queuedNanos = System.nanoTime();
+
+        private TimedJob(Runnable job) {
+            this.job = job;
+        }
+
+        @Override
+        public void run() {
+            long nowNanos = System.nanoTime();
+            admissionController.recordQueueDelay(nowNanos - queuedNanos, nowNanos);
+            job.run();
+        }
+
+        @Override
+        public String toString() {
+            return job.toString();
+        }
+
+    }
+
+}
@@ -2,6 +2,7 @@
 package com.yahoo.jdisc.http.server.jetty;
 
 import com.yahoo.concurrent.DaemonThreadFactory;
+import com.yahoo.container.logging.AccessLog;
 import com.yahoo.jdisc.Metric;
 import org.eclipse.jetty.io.ConnectionStatistics;
 import org.eclipse.jetty.server.Connector;
@@ -28,10 +29,12 @@ class ServerMetricReporter {
             Executors.newScheduledThreadPool(1, new DaemonThreadFactory("jdisc-jetty-metric-reporter-"));
     private final Metric metric;
     private final Server jetty;
+    private final AccessLog accessLog;
 
-    ServerMetricReporter(Metric metric, Server jetty) {
+    ServerMetricReporter(Metric metric, Server jetty, AccessLog accessLog) {
         this.metric = metric;
         this.jetty = jetty;
+        this.accessLog = accessLog;
     }
 
     void start() {
@@ -50,6 +53,7 @@ class ServerMetricReporter {
     private class ReporterTask implements Runnable {
 
         private final Instant timeStarted = Instant.now();
+        private long accessLogDroppedEntries = 0;
 
         @Override
         public void run() {
@@ -71,6 +75,14 @@ class ServerMetricReporter {
             }
 
             setJettyThreadpoolMetrics();
+
+            AdmissionControlHandler admissionControlHandler = ((AbstractHandlerContainer) jetty.getHandler())
+                    .getChildHandlerByClass(AdmissionControlHandler.class);
+            if (admissionControlHandler != null) {
+                setAdmissionControlMetrics(admissionControlHandler);
+            }
+
+            setAccessLogMetrics();
         }
 
         private void setServerMetrics(HttpResponseStatisticsCollector statisticsCollector) {
@@ -101,6 +113,22 @@ class ServerMetricReporter {
             metric.set(MetricDefinitions.JETTY_THREADPOOL_QUEUE_SIZE, threadpool.getQueueSize(), null);
         }
 
+        private void setAdmissionControlMetrics(AdmissionControlHandler admissionControlHandler) {
+            metric.set(MetricDefinitions.OVERLOADED, admissionControlHandler.isOverloaded() ? 1 : 0, null);
+            admissionControlHandler.takeRejected().forEach((type, count) -> {
+                if (count == 0) return;
+                Map<String, Object> dimensions = Map.of(MetricDefinitions.REQUEST_TYPE_DIMENSION, type.name().toLowerCase());
+                metric.add(MetricDefinitions.OVERLOAD_REJECTED_REQUESTS, count, metric.createContext(dimensions));
+            });
+        }
+
+        private void setAccessLogMetrics() {
+            long dropped = accessLog.droppedEntries();
+            metric.add(MetricDefinitions.ACCESS_LOG_DROPPED_ENTRIES, dropped - accessLogDroppedEntries, null);
+            accessLogDroppedEntries = dropped;
+            metric.set(MetricDefinitions.ACCESS_LOG_QUEUED_ENTRIES, accessLog.queuedEntries(), null);
+        }
+
         private void setConnectorMetrics(JDiscServerConnector connector) {
             ConnectionStatistics statistics = connector.getStatistics();
             metric.set(MetricDefinitions.NUM_CONNECTIONS, statistics.getConnectionsTotal(), connector.getConnectorMetricContext());
@@ -2,17 +2,20 @@
 package com.yahoo.jdisc.http.server.jetty;
 
 import com.yahoo.jdisc.handler.CompletionHandler;
+import org.eclipse.jetty.util.thread.Scheduler;
 
 import javax.servlet.ServletOutputStream;
 import javax.servlet.WriteListener;
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.time.Duration;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Deque;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -20,6 +23,11 @@ import java.util.logging.Logger;
 import static com.yahoo.jdisc.http.server.jetty.CompletionHandlerUtils.NOOP_COMPLETION_HANDLER;
 
 /**
+ * Writes response content to a servlet output stream, which aggregates it into its buffer. This buffer is flushed
+ * to the network when it is full, when the response is closed, or when there is no more content to write. In the
+ * last case, a positive flush delay lets content written shortly after be sent with the same flush, e.g., when a
+ * response is rendered in many small chunks, at the cost of up to that delay for content which is not followed by more.
+ *
  * @author Tony Vaagenes
  * @author bjorncs
  */
@@ -60,6 +68,14 @@ public class ServletOutputStreamWriter {
     private final Deque<ResponseContentPart> responseContentQueue = new ArrayDeque<>();
 
     private final RequestMetricReporter metricReporter;
+    private final Scheduler scheduler;
+    private final long flushDelayNanos;
+
+    // GuardedBy("monitor")
+    private boolean flushScheduled = false;
+
+    // GuardedBy("monitor")
+    private boolean flushDue = false;
 
     /**
      * When this future completes there will be no more calls against the servlet output stream or servlet response.
@@ -71,9 +87,19 @@ public class ServletOutputStreamWriter {
 
 
     public ServletOutputStreamWriter(ServletOutputStream outputStream, Executor executor, RequestMetricReporter metricReporter) {
+        this(outputStream, executor, metricReporter, null, Duration.ZERO);
+    }
+
+    public ServletOutputStreamWriter(ServletOutputStream outputStream, Executor executor, RequestMetricReporter metricReporter,
+                                     Scheduler scheduler, Duration flushDelay) {
+        if (flushDelay.isNegative() || ( ! flushDelay.isZero() && scheduler == null))
+            throw new IllegalArgumentException("Flush delay must be non-negative, and requires a scheduler if positive");
+
         this.outputStream = outputStream;
         this.executor = executor;
         this.metricReporter = metricReporter;
+        this.scheduler = scheduler;
+        this.flushDelayNanos = flushDelay.toNanos();
     }
 
     public void sendErrorContentAndCloseAsync(ByteBuffer errorContent) {
@@ -149,7 +175,7 @@ public class ServletOutputStreamWriter {
 
                 contentPart = responseContentQueue.pollFirst();
 
-                if (contentPart == null && lastOperationWasFlush) {
+                if (contentPart == null && (lastOperationWasFlush || shouldDelayFlush_holdingLock())) {
                     state = State.WAITING_FOR_BUFFER;
                     return;
                 }
@@ -178,6 +204,43 @@ public class ServletOutputStreamWriter {
         }
     }
 
+    /** Returns whether to wait with flushing, in case more content arrives, and schedules the flush if so. */
+    private boolean shouldDelayFlush_holdingLock() {
+        assert Thread.holdsLock(monitor);
+
+        if (flushDelayNanos == 0) return false;
+        if (flushDue) {
+            flushDue = false;
+            return false;
+        }
+        if ( ! flushScheduled) {
+            flushScheduled = true;
+            // Completion handlers may be called by the writing thread, so don't write from the scheduler thread.
+            scheduler.schedule(() -> executor.execute(this::flushDelayedContent), flushDelayNanos, TimeUnit.NANOSECONDS);
+        }
+        return true;
+    }
+
+    private void flushDelayedContent() {
+        boolean thisThreadShouldWrite = false;
+
+        synchronized (monitor) {
+            flushScheduled = false;
+            if (state != State.FINISHED_OR_ERROR) {
+                // Whoever writes next flushes when the queue is empty.
+                flushDue = true;
+            }
+            if (state == State.WAITING_FOR_BUFFER) {
+                thisThreadShouldWrite = true;
+                state = State.WRITING_BUFFERS;
+            }
+        }
+
+        if (thisThreadShouldWrite) {
+            writeBuffersInQueueToOutputStream();
+        }
+    }
+
     private void setFinished(Optional<Throwable> e) {
         synchronized (monitor) {
             state = State.FINISHED_OR_ERROR;
@@ -21,6 +21,14 @@ import java.util.logging.Logger;
  *
  * Stops reading when a failure has happened.
  *
+ * Reading is non-blocking, and driven by the servlet container calling {@link #onDataAvailable()}.
+ * Completion of the writes to the request content channel is used as the demand signal from the handler:
+ * when more than {@link #MAX_PENDING_BYTES} are written but not yet completed, reading is paused, leaving
+ * the remaining data with the container (and, eventually, the TCP window), until the handler has completed
+ * enough of the outstanding writes; reading is then resumed in the executor.
+ * Read buffers are sized to what the container has available, as ownership of each buffer passes to the
+ * handler with the write, which means they cannot be recycled here.
+ *
  * The reason for not waiting for pending completions in error situations
  * is that if the error is reported through the finishedFuture,
  * error reporting might be async.
@@ -36,6 +44,8 @@ class ServletRequestReader implements ReadListener {
     private static final Logger log = Logger.getLogger(ServletRequestReader.class.getName());
 
     private static final int BUFFER_SIZE_BYTES = 8 * 1024;
+    private static final int MAX_BUFFER_SIZE_BYTES = 64 * 1024;
+    static final int MAX_PENDING_BYTES = 1 << 20;
 
     private final Object monitor = new Object();
 
@@ -44,9 +54,18 @@ class ServletRequestReader implements ReadListener {
 
     private final Executor executor;
     private final RequestMetricReporter metricReporter;
+    private final int maxPendingBytes;
 
     private int bytesRead;
 
+    /** Number of bytes written to the request content channel, for which the completion handler is not yet called. */
+    // GuardedBy("monitor")
+    private long bytesPending = 0;
+
+    /** Whether reading stopped due to too many pending bytes, while the servlet input stream was still ready. */
+    // GuardedBy("monitor")
+    private boolean paused = false;
+
     /**
      * Rules:
      * 1. If state != State.READING,  then numberOfOutstandingUserCalls must not increase
@@ -95,6 +114,15 @@ class ServletRequestReader implements ReadListener {
             ContentChannel requestContentChannel,
             Executor executor,
             RequestMetricReporter metricReporter) {
+        this(servletInputStream, requestContentChannel, executor, metricReporter, MAX_PENDING_BYTES);
+    }
+
+    ServletRequestReader(
+            ServletInputStream servletInputStream,
+            ContentChannel requestContentChannel,
+            Executor executor,
+            RequestMetricReporter metricReporter,
+            int maxPendingBytes) {
 
         Preconditions.checkNotNull(servletInputStream);
         Preconditions.checkNotNull(requestContentChannel);
@@ -105,12 +133,20 @@ class ServletRequestReader implements ReadListener {
         this.requestContentChannel = requestContentChannel;
         this.executor = executor;
         this.metricReporter = metricReporter;
+        this.maxPendingBytes = maxPendingBytes;
     }
 
     @Override
     public void onDataAvailable() throws IOException {
         while (servletInputStream.isReady()) {
-            final byte[] buffer = new byte[BUFFER_SIZE_BYTES];
+            synchronized (monitor) {
+                if (bytesPending >= maxPendingBytes) {
+                    // The container won't call us again while the input stream is ready; a write completion will.
+                    paused = true;
+                    return;
+                }
+            }
+            final byte[] buffer = new byte[nextBufferSize()];
             int numBytesRead;
 
             synchronized (monitor) {
@@ -129,10 +165,11 @@ class ServletRequestReader implements ReadListener {
                 //  - the write completion handler to be called
                 numberOfOutstandingUserCalls += 2;
                 bytesRead += numBytesRead;
+                bytesPending += numBytesRead;
             }
 
             try {
-                requestContentChannel.write(ByteBuffer.wrap(buffer, 0, numBytesRead), writeCompletionHandler);
+                requestContentChannel.write(ByteBuffer.wrap(buffer, 0, numBytesRead), new WriteCompletionHandler(numBytesRead));
                 metricReporter.successfulRead(numBytesRead);
             }
             catch (Throwable t) {
@@ -145,6 +182,38 @@ class ServletRequestReader implements ReadListener {
         }
     }
 
+    /** Returns a buffer size which fits what can be read without blocking, to avoid wasting memory on small requests. */
+    private int nextBufferSize() throws IOException {
+        int available = servletInputStream.available();
+        return available > 0 ? Math.min(available, MAX_BUFFER_SIZE_BYTES) : BUFFER_SIZE_BYTES;
+    }
+
+    /** Resumes reading if it was paused, and the handler has now completed enough of the pending writes. */
+    private void releasePendingBytes(int numBytes) {
+        boolean shouldResume;
+        synchronized (monitor) {
+            bytesPending -= numBytes;
+            shouldResume = paused && bytesPending <= maxPendingBytes / 2 && state == State.READING && ! finishedFuture.isDone();
+            if (shouldResume) {
+                paused = false;
+            }
+        }
+
+        if (shouldResume) {
+            // Completions may come from a user thread, which we must not read from.
+            executor.execute(this::resumeReading);
+        }
+    }
+
+    private void resumeReading() {
+        try {
+            onDataAvailable();
+        }
+        catch (Throwable t) {
+            onError(t);
+        }
+    }
+
     private void decreaseOutstandingUserCallsAndCloseRequestContentChannelConditionally() {
         boolean shouldCloseRequestContentChannel;
 
@@ -255,16 +324,27 @@ class ServletRequestReader implements ReadListener {
         doneReading();
     }
 
-    private final CompletionHandler writeCompletionHandler = new CompletionHandler() {
+    private class WriteCompletionHandler implements CompletionHandler {
+
+        private final int numBytes;
+
+        private WriteCompletionHandler(int numBytes) {
+            this.numBytes = numBytes;
+        }
+
         @Override
         public void completed() {
+            releasePendingBytes(numBytes);
             decreaseOutstandingUserCallsAndCloseRequestContentChannelConditionally();
         }
 
         @Override
         public void failed(final Throwable t) {
             finishedFuture.completeExceptionally(t);
+            releasePendingBytes(numBytes);
             decreaseOutstandingUserCallsAndCloseRequestContentChannelConditionally();
         }
-    };
+
+    }
+
 }
@@ -10,6 +10,7 @@ import com.yahoo.jdisc.http.HttpHeaders;
 import com.yahoo.jdisc.http.HttpResponse;
 import com.yahoo.jdisc.service.BindingSetNotFoundException;
 import org.eclipse.jetty.http.MimeTypes;
+import org.eclipse.jetty.util.thread.Scheduler;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
@@ -17,6 +18,7 @@ import java.io.IOException;
 import java.io.PrintWriter;
 import java.io.StringWriter;
 import java.nio.ByteBuffer;
+import java.time.Duration;
 import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
@@ -59,13 +61,15 @@ public class ServletResponseController {
             HttpServletResponse servletResponse,
             Executor executor,
             RequestMetricReporter metricReporter,
-            boolean developerMode) throws IOException {
+            boolean developerMode,
+            Scheduler scheduler,
+            Duration flushDelay) throws IOException {
 
         this.servletRequest = servletRequest;
         this.servletResponse = servletResponse;
         this.developerMode = developerMode;
         this.servletOutputStreamWriter =
-                new ServletOutputStreamWriter(servletResponse.getOutputStream(), executor, metricReporter);
+                new ServletOutputStreamWriter(servletResponse.getOutputStream(), executor, metricReporter, scheduler, flushDelay);
     }
 
 
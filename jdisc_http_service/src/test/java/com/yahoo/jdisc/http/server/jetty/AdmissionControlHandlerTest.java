@@ -0,0 +1,102 @@
+// Copyright Verizon Media. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.jdisc.http.server.jetty;
+
+import com.yahoo.jdisc.Request.RequestType;
+import org.eclipse.jetty.http.HttpStatus;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.handler.AbstractHandler;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+import org.eclipse.jetty.util.thread.ReservedThreadExecutor;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * @author agent
+ */
+public class AdmissionControlHandlerTest {
+
+    private static final long ms = 1_000_000;
+
+    private final QueuedThreadPool pool = new QueuedThreadPool();
+    private final ReservedThreadExecutor reserved = new ReservedThreadExecutor(pool, 1);
+    private AdmissionControlHandler handler;
+
+    @Before
+    public void setup() throws Exception {
+        AdmissionController controller = new AdmissionController(Duration.ofMillis(5), Duration.ofMillis(100), 0);
+        controller.recordQueueDelay(10 * ms, 150 * ms);
+        controller.recordQueueDelay(10 * ms, 200 * ms);
+        assertTrue(controller.isOverloaded());
+
+        handler = new AdmissionControlHandler(controller, List.of("/status.html"), List.of("/search"));
+        handler.setHandler(new AbstractHandler() {
+            @Override
+            public void handle(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response) {
+                baseRequest.setHandled(true);
+            }
+        });
+        pool.start();
+        reserved.start();
+    }
+
+    @After
+    public void shutdown() throws Exception {
+        reserved.stop();
+        pool.stop();
+    }
+
+    @Test
+    public void requests_on_reserved_threads_are_judged_by_their_own_delay() throws Exception {
+        // Reserved threads run many tasks, without these being queued in the thread pool, so the delay is per request.
+        HttpServletResponse stale = handleOnReservedThread(System.currentTimeMillis() - 1000);
+        verify(stale).sendError(eq(HttpStatus.SERVICE_UNAVAILABLE_503), anyString());
+
+        HttpServletResponse fresh = handleOnReservedThread(System.currentTimeMillis());
+        verify(fresh, never()).sendError(eq(HttpStatus.SERVICE_UNAVAILABLE_503), anyString());
+
+        assertEquals(1L, (long) handler.takeRejected().get(RequestType.READ));
+    }
+
+    /** Handles a search request which arrived at the given time, on a thread reserved by the thread pool. */
+    private HttpServletResponse handleOnReservedThread(long arrivedMillis) throws Exception {
+        Request request = mock(Request.class);
+        when(request.getRequestURI()).thenReturn("/search/");
+        when(request.getMethod()).thenReturn("GET");
+        when(request.getTimeStamp()).thenReturn(arrivedMillis);
+        HttpServletResponse response = mock(HttpServletResponse.class);
+        CompletableFuture<Void> handled = new CompletableFuture<>();
+        Runnable task = () -> {
+            try {
+                handler.handle("/search/", request, request, response);
+                handled.complete(null);
+            }
+            catch (Throwable t) {
+                handled.completeExceptionally(t);
+            }
+        };
+        // Failing to use a reserved thread starts one, for the next attempt.
+        while ( ! reserved.tryExecute(task))
+            Thread.sleep(10);
+
+        handled.get(10, TimeUnit.SECONDS);
+        return response;
+    }
+
+}
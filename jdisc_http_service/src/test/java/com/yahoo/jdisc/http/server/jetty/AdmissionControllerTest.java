@@ -0,0 +1,60 @@
+// Copyright Verizon Media. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.jdisc.http.server.jetty;
+
+import com.yahoo.jdisc.Request.RequestType;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author agent
+ */
+public class AdmissionControllerTest {
+
+    private static final long ms = 1_000_000;
+
+    @Test
+    public void standing_queue_causes_overload_until_an_interval_with_short_delay() {
+        AdmissionController controller = new AdmissionController(Duration.ofMillis(5), Duration.ofMillis(100), 0);
+
+        // Long delays are fine, as long as some job in each interval is started quickly.
+        controller.recordQueueDelay(50 * ms, 10 * ms);
+        controller.recordQueueDelay(1 * ms, 20 * ms);
+        controller.recordQueueDelay(50 * ms, 100 * ms);
+        assertFalse(controller.isOverloaded());
+        assertTrue(controller.admit(RequestType.WRITE, 50 * ms));
+
+        // Standing queue during the whole interval.
+        controller.recordQueueDelay(6 * ms, 150 * ms);
+        controller.recordQueueDelay(20 * ms, 200 * ms);
+        assertTrue(controller.isOverloaded());
+
+        assertTrue(controller.admit(RequestType.MONITORING, 1000 * ms));
+        assertTrue(controller.admit(RequestType.READ, 100 * ms));
+        assertFalse(controller.admit(RequestType.READ, 101 * ms));
+        assertTrue(controller.admit(RequestType.WRITE, 5 * ms));
+        assertFalse(controller.admit(RequestType.WRITE, 6 * ms));
+        assertFalse(controller.admit(RequestType.WRITE, 50 * ms));
+        assertEquals(Map.of(RequestType.READ, 1L, RequestType.WRITE, 2L, RequestType.MONITORING, 0L), controller.takeRejected());
+        assertEquals(Map.of(RequestType.READ, 0L, RequestType.WRITE, 0L, RequestType.MONITORING, 0L), controller.takeRejected());
+
+        // Queue drains.
+        controller.recordQueueDelay(2 * ms, 250 * ms);
+        controller.recordQueueDelay(20 * ms, 300 * ms);
+        assertFalse(controller.isOverloaded());
+        assertTrue(controller.admit(RequestType.WRITE, 50 * ms));
+
+        // Overloaded again, but then no jobs for a while, so there is no queue.
+        controller.recordQueueDelay(10 * ms, 350 * ms);
+        controller.recordQueueDelay(10 * ms, 400 * ms);
+        assertTrue(controller.isOverloaded());
+        controller.recordQueueDelay(10 * ms, 900 * ms);
+        assertFalse(controller.isOverloaded());
+    }
+
+}
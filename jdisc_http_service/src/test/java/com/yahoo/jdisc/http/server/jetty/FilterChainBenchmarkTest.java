@@ -0,0 +1,149 @@
+// Copyright Verizon Media. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.jdisc.http.server.jetty;
+
+import com.google.inject.AbstractModule;
+import com.google.inject.util.Modules;
+import com.yahoo.jdisc.AbstractResource;
+import com.yahoo.jdisc.Request;
+import com.yahoo.jdisc.Response;
+import com.yahoo.jdisc.handler.AbstractRequestHandler;
+import com.yahoo.jdisc.handler.ContentChannel;
+import com.yahoo.jdisc.handler.FastContentWriter;
+import com.yahoo.jdisc.handler.ResponseDispatch;
+import com.yahoo.jdisc.handler.ResponseHandler;
+import com.yahoo.jdisc.http.ConnectorConfig;
+import com.yahoo.jdisc.http.HttpRequest;
+import com.yahoo.jdisc.http.ServerConfig;
+import com.yahoo.jdisc.http.ServletPathsConfig;
+import com.yahoo.jdisc.http.filter.RequestFilter;
+import com.yahoo.jdisc.http.filter.ResponseFilter;
+import com.yahoo.jdisc.http.filter.chain.RequestFilterChain;
+import com.yahoo.jdisc.http.filter.chain.ResponseFilterChain;
+import com.yahoo.jdisc.http.guiceModules.ConnectorFactoryRegistryModule;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Measures the per-request cost of request and response filter chains, by running requests through
+ * an in-process server with chains of different lengths bound, and comparing time and allocations
+ * per request to those without any filters.
+ *
+ * @author agent
+ */
+public class FilterChainBenchmarkTest {
+
+    private static final int NUM_WARMUP_REQUESTS = 1000;
+    private static final int NUM_REQUESTS = 2000;
+
+    private static final com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    @Test
+    public void runFilterChainMeasurements() throws Exception {
+        System.err.format("%10s%15s%15s\n", "Filters", "micros/req", "bytes/req");
+        for (int numFilters : List.of(0, 3, 10)) {
+            TestDriver driver = newDriver(numFilters);
+            runRequests(driver, numFilters, NUM_WARMUP_REQUESTS);
+
+            long allocatedBefore = allocatedBytes();
+            long before = System.nanoTime();
+            runRequests(driver, numFilters, NUM_REQUESTS);
+            long nanos = System.nanoTime() - before;
+            long allocated = allocatedBytes() - allocatedBefore;
+
+            System.err.format("%10d%15.1f%15d\n",
+                              numFilters,
+                              nanos / 1e3 / NUM_REQUESTS,
+                              allocated / NUM_REQUESTS);
+            assertTrue(driver.close());
+        }
+    }
+
+    private static void runRequests(TestDriver driver, int numFilters, int numRequests) throws Exception {
+        for (int i = 0; i < numRequests; i++)
+            driver.client().get("/status.html")
+                  .expectStatusCode(is(Response.Status.OK))
+                  .expectHeader("X-Request-Filters", is(Integer.toString(numFilters)))
+                  .expectHeader("X-Response-Filters", is(Integer.toString(numFilters)));
+    }
+
+    /** Returns the total number of bytes allocated by all live threads, which includes those of the server and client. */
+    private static long allocatedBytes() {
+        long sum = 0;
+        for (long allocated : threads.getThreadAllocatedBytes(threads.getAllThreadIds()))
+            if (allocated > 0) sum += allocated;
+
+        return sum;
+    }
+
+    private static TestDriver newDriver(int numFilters) {
+        FilterBindings.Builder bindings = new FilterBindings.Builder();
+        if (numFilters > 0) {
+            List<RequestFilter> requestFilters = new ArrayList<>();
+            List<ResponseFilter> responseFilters = new ArrayList<>();
+            for (int i = 0; i < numFilters; i++) {
+                requestFilters.add(new CountingRequestFilter());
+                responseFilters.add(new CountingResponseFilter());
+            }
+            bindings.addRequestFilter("request-chain", RequestFilterChain.newInstance(requestFilters))
+                    .addRequestFilterBinding("request-chain", "http://*/*")
+                    .addResponseFilter("response-chain", ResponseFilterChain.newInstance(responseFilters))
+                    .addResponseFilterBinding("response-chain", "http://*/*");
+        }
+        return TestDriver.newInstance(JettyHttpServer.class, new FilterCountingRequestHandler(), newFilterModule(bindings.build()));
+    }
+
+    private static com.google.inject.Module newFilterModule(FilterBindings filterBindings) {
+        return Modules.combine(
+                new AbstractModule() {
+                    @Override
+                    protected void configure() {
+                        bind(FilterBindings.class).toInstance(filterBindings);
+                        bind(ServerConfig.class).toInstance(new ServerConfig(new ServerConfig.Builder()));
+                        bind(ConnectorConfig.class).toInstance(new ConnectorConfig(new ConnectorConfig.Builder()));
+                        bind(ServletPathsConfig.class).toInstance(new ServletPathsConfig(new ServletPathsConfig.Builder()));
+                    }
+                },
+                new ConnectorFactoryRegistryModule(),
+                new MetricConsumerMock().asGuiceModule());
+    }
+
+    /** Counts request filters in a request header, like a typical security or tracing filter would add one. */
+    private static class CountingRequestFilter extends AbstractResource implements RequestFilter {
+        @Override
+        public void filter(HttpRequest request, ResponseHandler handler) {
+            String count = request.headers().getFirst("X-Request-Filters");
+            request.headers().put("X-Request-Filters", Integer.toString(count == null ? 1 : Integer.parseInt(count) + 1));
+        }
+    }
+
+    private static class CountingResponseFilter extends AbstractResource implements ResponseFilter {
+        @Override
+        public void filter(Response response, Request request) {
+            String count = response.headers().getFirst("X-Response-Filters");
+            response.headers().put("X-Response-Filters", Integer.toString(count == null ? 1 : Integer.parseInt(count) + 1));
+        }
+    }
+
+    /** Responds with the number of request filters which were run, and a response filter count to be incremented. */
+    private static class FilterCountingRequestHandler extends AbstractRequestHandler {
+        @Override
+        public ContentChannel handleRequest(Request request, ResponseHandler handler) {
+            String count = request.headers().getFirst("X-Request-Filters");
+            Response response = new Response(Response.Status.OK);
+            response.headers().put("X-Request-Filters", count == null ? "0" : count);
+            response.headers().put("X-Response-Filters", "0");
+            try (FastContentWriter writer = ResponseDispatch.newInstance(response).connectFastWriter(handler)) {
+                writer.write("OK");
+            }
+            return null;
+        }
+    }
+
+}
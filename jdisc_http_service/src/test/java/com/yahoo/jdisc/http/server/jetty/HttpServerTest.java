@@ -173,6 +173,92 @@ public class HttpServerTest {
         assertTrue(driver.close());
     }
 
+    @Test
+    public void requireThatHttp2CanBeEnabled() throws Exception {
+        final TestDriver driver = TestDrivers.newConfiguredInstance(
+                new EchoRequestHandler(),
+                new ServerConfig.Builder(),
+                new ConnectorConfig.Builder()
+                        .http2(new ConnectorConfig.Http2.Builder().enabled(true)));
+        java.net.http.HttpClient client = java.net.http.HttpClient.newBuilder()
+                                                                  .version(java.net.http.HttpClient.Version.HTTP_2)
+                                                                  .build();
+        URI uri = URI.create("http://localhost:" + driver.server().getListenPort() + "/status.html");
+        // The first request upgrades the connection to h2c, and the second is sent over that.
+        for (int i = 0; i < 2; i++) {
+            java.net.http.HttpResponse<String> response = client.send(java.net.http.HttpRequest.newBuilder(uri).build(),
+                                                                       java.net.http.HttpResponse.BodyHandlers.ofString());
+            assertEquals(OK, response.statusCode());
+            assertEquals(java.net.http.HttpClient.Version.HTTP_2, response.version());
+        }
+        assertTrue(driver.close());
+    }
+
+    @Test
+    public void requireThatAllContentIsWrittenWithDelayedFlushing() throws Exception {
+        final String content = "some content which is echoed back";
+        final TestDriver driver = TestDrivers.newConfiguredInstance(
+                new EchoRequestHandler(),
+                new ServerConfig.Builder(),
+                new ConnectorConfig.Builder().responseFlushDelay(0.01));
+        driver.client().newPost("/status.html")
+                .setMultipartContent(newFileBody("", "content.txt", content))
+                .execute()
+                .expectStatusCode(is(OK))
+                .expectContent(containsString(content));
+        assertTrue(driver.close());
+    }
+
+    @Test
+    public void requireThatHttp2IsNegotiatedWithAlpnOverTls() throws Exception {
+        Path privateKeyFile = tmpFolder.newFile().toPath();
+        Path certificateFile = tmpFolder.newFile().toPath();
+        generatePrivateKeyAndCertificate(privateKeyFile, certificateFile);
+        final TestDriver driver = TestDrivers.newConfiguredInstance(
+                new EchoRequestHandler(),
+                new ServerConfig.Builder(),
+                new ConnectorConfig.Builder()
+                        .http2(new ConnectorConfig.Http2.Builder().enabled(true))
+                        .ssl(new ConnectorConfig.Ssl.Builder()
+                                     .enabled(true)
+                                     .privateKeyFile(privateKeyFile.toString())
+                                     .certificateFile(certificateFile.toString())
+                                     .caCertificateFile(certificateFile.toString())));
+        java.net.http.HttpClient client = java.net.http.HttpClient.newBuilder()
+                                                                  .version(java.net.http.HttpClient.Version.HTTP_2)
+                                                                  .sslContext(new SslContextBuilder().withTrustStore(certificateFile).build())
+                                                                  .build();
+        URI uri = URI.create("https://localhost:" + driver.server().getListenPort() + "/status.html");
+        java.net.http.HttpResponse<String> response = client.send(java.net.http.HttpRequest.newBuilder(uri).build(),
+                                                                   java.net.http.HttpResponse.BodyHandlers.ofString());
+        assertEquals(OK, response.statusCode());
+        assertEquals(java.net.http.HttpClient.Version.HTTP_2, response.version());
+        assertTrue(driver.close());
+    }
+
+    @Test
+    public void requireThatAllContentIsWrittenWithDelayedFlushingOverHttp2() throws Exception {
+        final TestDriver driver = TestDrivers.newConfiguredInstance(
+                new ChunkWritingRequestHandler(100),
+                new ServerConfig.Builder(),
+                new ConnectorConfig.Builder()
+                        .http2(new ConnectorConfig.Http2.Builder().enabled(true))
+                        .responseFlushDelay(0.01));
+        java.net.http.HttpClient client = java.net.http.HttpClient.newBuilder()
+                                                                  .version(java.net.http.HttpClient.Version.HTTP_2)
+                                                                  .build();
+        URI uri = URI.create("http://localhost:" + driver.server().getListenPort() + "/status.html");
+        // The first request upgrades the connection to h2c, and the second is sent as a stream over that.
+        for (int i = 0; i < 2; i++) {
+            java.net.http.HttpResponse<String> response = client.send(java.net.http.HttpRequest.newBuilder(uri).build(),
+                                                                       java.net.http.HttpResponse.BodyHandlers.ofString());
+            assertEquals(OK, response.statusCode());
+            assertEquals(java.net.http.HttpClient.Version.HTTP_2, response.version());
+            assertEquals(ChunkWritingRequestHandler.expectedContent(100), response.body());
+        }
+        assertTrue(driver.close());
+    }
+
     @Test
     public void requireThatAccessLogIsCalledForRequestRejectedByJetty() throws Exception {
         AccessLogMock accessLogMock = new AccessLogMock();
@@ -500,6 +586,31 @@ public class HttpServerTest {
         assertTrue(driver.close());
     }
 
+    @Test
+    public void requireThatHttp2ConnectionIsClosedAfterXRequests() throws Exception {
+        final TestDriver driver = TestDrivers.newConfiguredInstance(
+                new EchoRequestHandler(),
+                new ServerConfig.Builder(),
+                new ConnectorConfig.Builder()
+                        .maxRequestsPerConnection(2)
+                        .http2(new ConnectorConfig.Http2.Builder().enabled(true)));
+        java.net.http.HttpClient client = java.net.http.HttpClient.newBuilder()
+                                                                  .version(java.net.http.HttpClient.Version.HTTP_2)
+                                                                  .build();
+        URI uri = URI.create("http://localhost:" + driver.server().getListenPort() + "/status.html");
+        for (int i = 0; i < 6; i++) {
+            java.net.http.HttpResponse<String> response = client.send(java.net.http.HttpRequest.newBuilder(uri).build(),
+                                                                       java.net.http.HttpResponse.BodyHandlers.ofString());
+            assertEquals(OK, response.statusCode());
+            assertEquals(java.net.http.HttpClient.Version.HTTP_2, response.version());
+        }
+        // Each network connection is first an HTTP/1 connection, and then upgraded to an HTTP/2 connection.
+        JDiscServerConnector connector = (JDiscServerConnector) driver.server().server().getConnectors()[0];
+        assertTrue("The client was sent a GOAWAY, and opened a new connection",
+                   connector.getStatistics().getConnectionsTotal() > 2);
+        assertTrue(driver.close());
+    }
+
     @Test
     public void requireThatServerCanRespondToSslRequest() throws Exception {
         Path privateKeyFile = tmpFolder.newFile().toPath();
@@ -1073,6 +1184,32 @@ public class HttpServerTest {
         }
     }
 
+    /** Writes the response in many small chunks, which delayed flushing may send together. */
+    private static class ChunkWritingRequestHandler extends AbstractRequestHandler {
+
+        private final int chunks;
+
+        ChunkWritingRequestHandler(int chunks) {
+            this.chunks = chunks;
+        }
+
+        static String expectedContent(int chunks) {
+            StringBuilder content = new StringBuilder();
+            for (int i = 0; i < chunks; i++)
+                content.append("chunk ").append(i).append('\n');
+            return content.toString();
+        }
+
+        @Override
+        public ContentChannel handleRequest(final Request request, final ResponseHandler handler) {
+            final ContentChannel out = ResponseDispatch.newInstance(OK).connect(handler);
+            for (int i = 0; i < chunks; i++)
+                out.write(StandardCharsets.UTF_8.encode("chunk " + i + "\n"), null);
+            out.close(null);
+            return null;
+        }
+    }
+
     private static class EchoWithHeaderRequestHandler extends AbstractRequestHandler {
 
         final String headerName;
@@ -0,0 +1,64 @@
+// Copyright Verizon Media. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.jdisc.http.server.jetty;
+
+import com.yahoo.jdisc.handler.CompletionHandler;
+import org.eclipse.jetty.util.thread.Scheduler;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * @author agent
+ */
+public class ServletOutputStreamWriterTest {
+
+    @Test
+    public void small_writes_are_flushed_once_after_the_flush_delay() throws Exception {
+        ServletOutputStream out = mock(ServletOutputStream.class);
+        when(out.isReady()).thenReturn(true);
+        Scheduler scheduler = mock(Scheduler.class);
+        ServletOutputStreamWriter writer = new ServletOutputStreamWriter(out, Runnable::run, mock(RequestMetricReporter.class),
+                                                                         scheduler, Duration.ofMillis(10));
+
+        writer.writeBuffer(ByteBuffer.wrap("foo".getBytes(UTF_8)), mock(CompletionHandler.class));
+        ArgumentCaptor<WriteListener> listener = ArgumentCaptor.forClass(WriteListener.class);
+        verify(out).setWriteListener(listener.capture());
+        listener.getValue().onWritePossible();
+        writer.writeBuffer(ByteBuffer.wrap("bar".getBytes(UTF_8)), mock(CompletionHandler.class));
+        writer.writeBuffer(ByteBuffer.wrap("baz".getBytes(UTF_8)), mock(CompletionHandler.class));
+
+        verify(out, times(3)).write(any(byte[].class), anyInt(), eq(3));
+        verify(out, never()).flush();
+        ArgumentCaptor<Runnable> flush = ArgumentCaptor.forClass(Runnable.class);
+        verify(scheduler).schedule(flush.capture(), eq(TimeUnit.MILLISECONDS.toNanos(10)), eq(TimeUnit.NANOSECONDS));
+
+        flush.getValue().run();
+        verify(out, times(1)).flush();
+
+        writer.close();
+        InOrder order = inOrder(out);
+        order.verify(out, times(3)).write(any(byte[].class), anyInt(), eq(3));
+        order.verify(out).flush();
+        order.verify(out).close();
+        verify(scheduler, times(1)).schedule(any(), anyLong(), any());
+    }
+
+}
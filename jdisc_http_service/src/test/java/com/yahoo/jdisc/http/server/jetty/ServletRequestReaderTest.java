@@ -0,0 +1,107 @@
+// Copyright Verizon Media. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.jdisc.http.server.jetty;
+
+import com.yahoo.jdisc.handler.CompletionHandler;
+import com.yahoo.jdisc.handler.ContentChannel;
+import org.junit.Test;
+
+import javax.servlet.ReadListener;
+import javax.servlet.ServletInputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+/**
+ * @author agent
+ */
+public class ServletRequestReaderTest {
+
+    @Test
+    public void reading_pauses_until_handler_completes_pending_writes() throws Exception {
+        ChunkedInputStream in = new ChunkedInputStream(10, 100);
+        RecordingContentChannel channel = new RecordingContentChannel();
+        Queue<Runnable> executor = new ArrayDeque<>();
+        ServletRequestReader reader = new ServletRequestReader(in, channel, executor::add, mock(RequestMetricReporter.class), 300);
+
+        reader.onDataAvailable();
+        assertEquals("Stops reading when pending bytes reach the limit", 3, channel.buffers.size());
+        assertEquals(100, channel.buffers.get(0).remaining());
+        assertTrue(in.isReady());
+
+        channel.completeNext();
+        assertTrue("Resumes only when below the low watermark", executor.isEmpty());
+        channel.completeNext();
+        assertEquals(1, executor.size());
+        executor.remove().run();
+        assertEquals(5, channel.buffers.size());
+
+        while ( ! channel.handlers.isEmpty()) {
+            channel.completeNext();
+            while ( ! executor.isEmpty()) executor.remove().run();
+        }
+        assertEquals(10, channel.buffers.size());
+        assertFalse(in.isReady());
+
+        reader.onAllDataRead();
+        assertTrue(channel.closed);
+        assertTrue(reader.finishedFuture.isDone());
+        assertFalse(reader.finishedFuture.isCompletedExceptionally());
+    }
+
+    private static class ChunkedInputStream extends ServletInputStream {
+
+        private final int chunkSize;
+        private int chunksLeft;
+
+        ChunkedInputStream(int chunks, int chunkSize) {
+            this.chunksLeft = chunks;
+            this.chunkSize = chunkSize;
+        }
+
+        @Override public boolean isFinished() { return chunksLeft == 0; }
+        @Override public boolean isReady() { return chunksLeft > 0; }
+        @Override public void setReadListener(ReadListener readListener) { throw new UnsupportedOperationException(); }
+        @Override public int available() { return chunksLeft > 0 ? chunkSize : 0; }
+        @Override public int read() { throw new UnsupportedOperationException(); }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (chunksLeft == 0) return -1;
+            chunksLeft--;
+            return Math.min(len, chunkSize);
+        }
+
+    }
+
+    private static class RecordingContentChannel implements ContentChannel {
+
+        private final List<ByteBuffer> buffers = new ArrayList<>();
+        private final Queue<CompletionHandler> handlers = new ArrayDeque<>();
+        private boolean closed = false;
+
+        @Override
+        public void write(ByteBuffer buf, CompletionHandler handler) {
+            buffers.add(buf);
+            handlers.add(handler);
+        }
+
+        @Override
+        public void close(CompletionHandler handler) {
+            closed = true;
+            handler.completed();
+        }
+
+        void completeNext() {
+            handlers.remove().completed();
+        }
+
+    }
+
+}
@@ -5,10 +5,16 @@ package com.yahoo.jrt;
 import java.nio.ByteBuffer;
 
 
+/**
+ * A growable byte buffer, which alternates between being written to and
+ * read from. Backing buffers are taken from, and returned to, a {@link
+ * BufferPool}, and growth is rounded up to the size classes of this.
+ **/
 class Buffer {
 
     static final int MAX_IO = 65000;
 
+    private final BufferPool pool;
     private ByteBuffer buf;
     private int        readPos;
     private int        writePos;
@@ -58,18 +64,24 @@ class Buffer {
             if (buf.capacity() + free < minFree) {
                 size = buf.capacity() + minFree;
             }
-            ByteBuffer tmp = ByteBuffer.allocate(size);
+            ByteBuffer tmp = pool.acquire(BufferPool.sizeClass(size));
             tmp.order(buf.order());
             buf.position(readPos);
             buf.limit(writePos);
             tmp.put(buf);
+            pool.release(buf);
             buf = tmp;
             readPos = 0;
         }
     }
 
     public Buffer(int size) {
-        buf = ByteBuffer.allocate(size);
+        this(size, BufferPool.shared());
+    }
+
+    Buffer(int size, BufferPool pool) {
+        this.pool = pool;
+        buf = pool.acquire(size);
         readPos = 0;
         writePos = 0;
         readMode = false;
@@ -82,11 +94,12 @@ class Buffer {
         if (used > size || buf.capacity() <= size) {
             return false;
         }
-        ByteBuffer tmp = ByteBuffer.allocate(size);
+        ByteBuffer tmp = pool.acquire(size);
         tmp.order(buf.order());
         buf.position(rpos);
         buf.limit(wpos);
         tmp.put(buf);
+        pool.release(buf);
         buf = tmp;
         readPos = 0;
         writePos = used;
@@ -95,6 +108,20 @@ class Buffer {
         return true;
     }
 
+    /**
+     * Returns the backing buffer to the pool, discarding any content.
+     * The buffer may still be used after this, but will then allocate
+     * a new backing buffer.
+     **/
+    public void release() {
+        ByteBuffer released = buf;
+        buf = ByteBuffer.allocate(0);
+        readPos = 0;
+        writePos = 0;
+        readMode = false;
+        pool.release(released);
+    }
+
     public int bytes() {
         return (readMode)
             ? (writePos - buf.position())
@@ -0,0 +1,139 @@
+// Copyright Verizon Media. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.jrt;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A pool of heap byte buffers, in size classes of powers of two.
+ * Connections repeatedly grow their buffers to fit large packets, and
+ * shrink them back afterwards; with this pool, the same few backing
+ * buffers are reused rather than allocated anew each time.
+ *
+ * Buffers with a capacity which is not a size class are never pooled.
+ * The pool keeps at most {@link #maxIdleBytes} bytes of idle buffers in
+ * total, and each size class at most a quarter of this, so the largest
+ * classes are pooled only when the limit is high. The limit of the shared
+ * pool is set with the system property {@value #MAX_IDLE_BYTES_PROPERTY}.
+ * A buffer must only be released by its single owner, once it is no
+ * longer in use.
+ **/
+class BufferPool {
+
+    static final int MIN_CLASS_BITS = 12; // 4 KiB
+    static final int MAX_CLASS_BITS = 24; // 16 MiB
+    static final String MAX_IDLE_BYTES_PROPERTY = "jrt.buffer.pool.max.idle.bytes";
+    static final long DEFAULT_MAX_IDLE_BYTES = 32 << 20;
+
+    private static final BufferPool shared = new BufferPool(Long.getLong(MAX_IDLE_BYTES_PROPERTY, DEFAULT_MAX_IDLE_BYTES));
+
+    private final long maxIdleBytes;
+    private final long maxIdleBytesPerClass;
+    private final ConcurrentLinkedQueue<ByteBuffer>[] idle;
+    private final AtomicLong[] idleBytesPerClass;
+    private final AtomicLong idleBytes = new AtomicLong(0);
+    private final AtomicLong allocated = new AtomicLong(0);
+    private final AtomicLong reused = new AtomicLong(0);
+
+    /**
+     * Creates a new buffer pool.
+     *
+     * @param maxIdleBytes max number of idle bytes to keep in total
+     **/
+    @SuppressWarnings("unchecked")
+    BufferPool(long maxIdleBytes) {
+        this.maxIdleBytes = Math.max(0, maxIdleBytes);
+        this.maxIdleBytesPerClass = this.maxIdleBytes / 4;
+        int numClasses = MAX_CLASS_BITS - MIN_CLASS_BITS + 1;
+        idle = new ConcurrentLinkedQueue[numClasses];
+        idleBytesPerClass = new AtomicLong[numClasses];
+        for (int i = 0; i < numClasses; i++) {
+            idle[i] = new ConcurrentLinkedQueue<>();
+            idleBytesPerClass[i] = new AtomicLong(0);
+        }
+    }
+
+    /** Returns the pool used by default by {@link Buffer}. */
+    static BufferPool shared() { return shared; }
+
+    /**
+     * Returns the capacity to use for a buffer of at least the given
+     * size: the smallest size class which fits it, or the size itself if
+     * it is outside the range of size classes.
+     **/
+    static int sizeClass(int size) {
+        if (size <= (1 << MIN_CLASS_BITS) || size > (1 << MAX_CLASS_BITS)) {
+            return size;
+        }
+        return Integer.highestOneBit(size - 1) << 1;
+    }
+
+    private static int classIndex(int capacity) {
+        if (   capacity < (1 << MIN_CLASS_BITS)
+            || capacity > (1 << MAX_CLASS_BITS)
+            || Integer.bitCount(capacity) != 1) {
+            return -1;
+        }
+        return Integer.numberOfTrailingZeros(capacity) - MIN_CLASS_BITS;
+    }
+
+    /**
+     * Returns a cleared buffer with exactly the given capacity, and big
+     * endian byte order, reusing a pooled one if possible.
+     *
+     * @param capacity the capacity of the buffer
+     **/
+    ByteBuffer acquire(int capacity) {
+        int index = classIndex(capacity);
+        if (index >= 0) {
+            ByteBuffer buf = idle[index].poll();
+            if (buf != null) {
+                idleBytesPerClass[index].addAndGet(-capacity);
+                idleBytes.addAndGet(-capacity);
+                reused.incrementAndGet();
+                return buf;
+            }
+        }
+        allocated.incrementAndGet();
+        return ByteBuffer.allocate(capacity);
+    }
+
+    /**
+     * Returns the given buffer to this pool, if it is a heap buffer whose
+     * capacity is a size class, and there is room for it. The caller must
+     * not use the buffer after this.
+     *
+     * @param buf the buffer to release
+     **/
+    void release(ByteBuffer buf) {
+        int capacity = buf.capacity();
+        int index = classIndex(capacity);
+        if (index < 0 || buf.isDirect()) {
+            return;
+        }
+        if (idleBytesPerClass[index].addAndGet(capacity) > maxIdleBytesPerClass) {
+            idleBytesPerClass[index].addAndGet(-capacity);
+            return;
+        }
+        if (idleBytes.addAndGet(capacity) > maxIdleBytes) {
+            idleBytes.addAndGet(-capacity);
+            idleBytesPerClass[index].addAndGet(-capacity);
+            return;
+        }
+        buf.clear();
+        buf.order(ByteOrder.BIG_ENDIAN);
+        idle[index].offer(buf);
+    }
+
+    /** Returns the number of buffers allocated by this pool. */
+    long allocated() { return allocated.get(); }
+
+    /** Returns the number of times a pooled buffer was reused. */
+    long reused() { return reused.get(); }
+
+    /** Returns the number of bytes in idle, pooled buffers. */
+    long idleBytes() { return idleBytes.get(); }
+
+}
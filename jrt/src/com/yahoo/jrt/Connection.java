@@ -6,15 +6,25 @@ import java.nio.ByteBuffer;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.Selector;
 import java.nio.channels.SocketChannel;
-import java.util.HashMap;
 import java.util.IdentityHashMap;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 
+/**
+ * A connection to a peer, owned by a single {@link TransportThread}.
+ *
+ * Packets may be posted by any thread; these are put on a lock-free queue, and the number of packets posted, but not
+ * yet written, is kept in an atomic counter, so only the thread which posts to an idle connection needs to ask the
+ * transport thread to enable write events. The transport thread drains the queue, and encodes as many packets as
+ * fit in one output buffer before writing it to the socket.
+ **/
 class Connection extends Target {
 
     private static final Logger log = Logger.getLogger(Connection.class.getName());
@@ -29,18 +39,18 @@ class Connection extends Target {
     private static final int CONNECTED  = 2;
     private static final int CLOSED     = 3;
 
-    private int state = INITIAL;
-    private final Queue  queue   = new Queue();
-    private final Queue  myQueue = new Queue();
+    private volatile int state = INITIAL;
+    private final ConcurrentLinkedQueue<Packet> queue = new ConcurrentLinkedQueue<>();
     private final Buffer input   = new Buffer(READ_SIZE * 2);
     private final Buffer output  = new Buffer(WRITE_SIZE * 2);
     private int maxInputSize  = 64*1024;
     private int maxOutputSize = 64*1024;
     private final boolean tcpNoDelay;
-    private final Map<Integer, ReplyHandler> replyMap = new HashMap<>();
+    private final Map<Integer, ReplyHandler> replyMap = new ConcurrentHashMap<>();
     private final Map<TargetWatcher, TargetWatcher> watchers = new IdentityHashMap<>();
     private int activeReqs = 0;
-    private int writeWork  = 0;
+    private final AtomicInteger writeWork = new AtomicInteger(0); // posted packets, plus work held by the transport thread
+    private int heldWriteWork = 0; // part of writeWork which is unwritten output, or a pending flush
     private boolean pendingHandshakeWork = false;
     private final TransportThread parent;
     private final Supervisor owner;
@@ -64,8 +74,8 @@ class Connection extends Target {
         synchronized (this) {
             this.state = state;
             fini = down && (activeReqs == 0);
-            pendingWrite = (writeWork > 0);
         }
+        pendingWrite = (writeWork.get() > 0);
         if (live) {
             enableRead();
             if (pendingWrite) {
@@ -76,8 +86,11 @@ class Connection extends Target {
             owner.sessionLive(this);
         }
         if (down) {
-            for (ReplyHandler rh : replyMap.values()) {
-                rh.handleConnectionDown();
+            for (Integer key : replyMap.keySet()) {
+                ReplyHandler rh = replyMap.remove(key);
+                if (rh != null) {
+                    rh.handleConnectionDown();
+                }
             }
             for (TargetWatcher watcher : watchers.values()) {
                 watcher.notifyTargetInvalid(this);
@@ -130,38 +143,29 @@ class Connection extends Target {
         return i;
     }
 
-    public synchronized boolean cancelReply(ReplyHandler handler) {
+    public boolean cancelReply(ReplyHandler handler) {
         if (state == CLOSED) {
             return false;
         }
-        ReplyHandler stored = replyMap.remove(handler.key());
-        if (stored != handler) {
-            if (stored != null) {
-                replyMap.put(handler.key(), stored);
-            }
-            return false;
-        }
-        return true;
+        return replyMap.remove(handler.key(), handler);
     }
 
     public boolean postPacket(Packet packet, ReplyHandler handler) {
-        boolean accepted = false;
-        boolean enableWrite = false;
-        synchronized (this) {
-            if (state <= CONNECTED) {
-                enableWrite = (writeWork == 0 && state == CONNECTED);
-                queue.enqueue(packet);
-                writeWork++;
-                accepted = true;
-                if (handler != null) {
-                    replyMap.put(handler.key(), handler);
-                }
-            }
+        if (state > CONNECTED) {
+            return false;
         }
-        if (enableWrite) {
+        if (handler != null) {
+            replyMap.put(handler.key(), handler);
+        }
+        queue.add(packet);
+        if (writeWork.getAndIncrement() == 0 && state == CONNECTED) {
             parent.enableWrite(this);
         }
-        return accepted;
+        // If the connection went down after the check above, the handler is notified by whoever removes it first.
+        if (handler != null && state == CLOSED && replyMap.remove(handler.key(), handler)) {
+            return false;
+        }
+        return true;
     }
 
     public boolean postPacket(Packet packet) {
@@ -282,10 +286,7 @@ class Connection extends Target {
                 log.log(Level.WARNING, "got garbage; closing connection: " + toString());
                 throw new IOException("jrt: decode error", e);
             }
-            ReplyHandler handler;
-            synchronized (this) {
-                handler = replyMap.remove(packet.requestId());
-            }
+            ReplyHandler handler = replyMap.remove(packet.requestId());
             if (handler != null) {
                 handler.handleReply(packet);
             } else {
@@ -323,15 +324,14 @@ class Connection extends Target {
     }
 
     private void write() throws IOException {
-        synchronized (this) {
-            queue.flush(myQueue);
-        }
+        int packets = 0;
         for (int i = 0; i < WRITE_REDO; i++) {
             while (output.bytes() < WRITE_SIZE) {
-                Packet packet = (Packet) myQueue.dequeue();
+                Packet packet = queue.poll();
                 if (packet == null) {
                     break;
                 }
+                packets++;
                 PacketInfo info = packet.getPacketInfo();
                 ByteBuffer wb = output.getWritable(info.packetLength());
                 owner.writePacket(info);
@@ -353,14 +353,10 @@ class Connection extends Target {
         if (socket.flush() == CryptoSocket.FlushResult.NEED_WRITE) {
             myWriteWork++;
         }
-        boolean disableWrite;
-        synchronized (this) {
-            writeWork = queue.size()
-                        + myQueue.size()
-                        + myWriteWork;
-            disableWrite = (writeWork == 0);
-        }
-        if (disableWrite) {
+        int remaining = writeWork.addAndGet(myWriteWork - heldWriteWork - packets);
+        heldWriteWork = myWriteWork;
+        parent.countWrite(packets);
+        if (remaining == 0) {
             disableWrite();
         }
         if (maxOutputSize > 0) {
@@ -383,6 +379,8 @@ class Connection extends Target {
         if (selectionKey != null) {
             selectionKey.cancel();
         }
+        input.release();
+        output.release();
     }
 
     public boolean isClosed() {
@@ -11,13 +11,35 @@ import java.nio.ByteBuffer;
 public class DataValue extends Value
 {
     private byte[] value;
+    private final ByteBuffer buffer;
 
     /**
      * Create from a Java-type value
      *
      * @param value the value
      **/
-    public DataValue(byte[] value) { this.value = value; }
+    public DataValue(byte[] value) {
+        this(value, null);
+    }
+
+    private DataValue(byte[] value, ByteBuffer buffer) {
+        this.value = value;
+        this.buffer = buffer;
+    }
+
+    /**
+     * Create a value which holds the remaining bytes of the given
+     * buffer, without copying them. This lets data be encoded
+     * directly from, e.g., a slice of a memory mapped file, instead
+     * of from a copy on the heap. The buffer must not be modified
+     * after this.
+     *
+     * @param buffer buffer with the bytes of this value
+     * @return a value which wraps the given buffer
+     **/
+    public static DataValue wrap(ByteBuffer buffer) {
+        return new DataValue(null, buffer.slice());
+    }
 
     /**
      * Create by decoding the value from the given buffer
@@ -28,6 +50,7 @@ public class DataValue extends Value
         int size = src.getInt();
         value = new byte[size];
         src.get(value);
+        buffer = null;
     }
 
     /**
@@ -36,17 +59,28 @@ public class DataValue extends Value
     public byte type() { return DATA; }
     public int count() { return 1; }
 
-    int bytes() { return 4 + value.length; }
+    int bytes() { return 4 + (buffer != null ? buffer.remaining() : value.length); }
     void encode(ByteBuffer dst) {
-        dst.putInt(value.length);
-        dst.put(value);
+        if (buffer != null) {
+            dst.putInt(buffer.remaining());
+            dst.put(buffer.duplicate());
+        } else {
+            dst.putInt(value.length);
+            dst.put(value);
+        }
     }
 
-    public byte[] asData() { return value; }
+    public byte[] asData() {
+        if (value == null) {
+            value = new byte[buffer.remaining()];
+            buffer.duplicate().get(value);
+        }
+        return value;
+    }
 
     @Override
     public String toString() {
-        return String.valueOf(value);
+        return String.valueOf(asData());
     }
 
 }
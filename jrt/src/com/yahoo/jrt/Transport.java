@@ -4,6 +4,8 @@ package com.yahoo.jrt;
 
 import java.nio.channels.SocketChannel;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Random;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
@@ -87,6 +89,15 @@ public class Transport {
         return threads.get(rnd.nextInt(threads.size()));
     }
 
+    /**
+     * Returns the transport threads of this, e.g., to inspect their load.
+     *
+     * @return an unmodifiable list of all transport threads
+     **/
+    public List<TransportThread> threads() {
+        return Collections.unmodifiableList(threads);
+    }
+
     boolean getTcpNoDelay() { return tcpNoDelay; }
     int getEventsBeforeWakeup() { return eventsBeforeWakeup; }
 
@@ -6,6 +6,7 @@ import java.io.IOException;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.Selector;
 import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -76,6 +77,10 @@ public class TransportThread {
     private final Scheduler scheduler;
     private int             state;
     private final Selector  selector;
+    private final AtomicLong wakeups = new AtomicLong(0);
+    private volatile long   selects = 0;
+    private volatile long   writeEvents = 0;
+    private volatile long   packetsWritten = 0;
 
     private void handleAddConnection(Connection conn) {
         if (conn.isClosed()) {
@@ -128,6 +133,7 @@ public class TransportThread {
             qlen = queue.size();
         }
         if (qlen == parent.getEventsBeforeWakeup()) {
+            wakeups.incrementAndGet();
             selector.wakeup();
         }
         return true;
@@ -232,6 +238,30 @@ public class TransportThread {
         }
     }
 
+    /**
+     * Records that a connection handled a write event, in which the given number of packets were written.
+     * Invoked by the transport thread only.
+     **/
+    void countWrite(int packets) {
+        writeEvents++;
+        packetsWritten += packets;
+    }
+
+    /** Returns the number of times other threads have woken this thread up, to handle posted commands. */
+    public long wakeups() { return wakeups.get(); }
+
+    /** Returns the number of times this thread has returned from selecting I/O events. */
+    public long selects() { return selects; }
+
+    /** Returns the number of write events handled by this thread, each of which write a batch of packets. */
+    public long writeEvents() { return writeEvents; }
+
+    /** Returns the number of packets written by this thread. */
+    public long packetsWritten() { return packetsWritten; }
+
+    /** Returns the number of commands currently waiting to be handled by this thread. */
+    public synchronized int queuedCommands() { return queue.size(); }
+
     void handshakeWorkDone(Connection conn) {
         postCommand(new HandshakeWorkDoneCmd(conn));
     }
@@ -298,6 +328,7 @@ public class TransportThread {
             } catch (IOException e) {
                 log.log(Level.WARNING, "error during select", e);
             }
+            selects++;
 
             // handle internal events
             handleEvents();
@@ -0,0 +1,143 @@
+// Copyright Verizon Media. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.jrt.slobrok.api;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * An immutable index of one generation of {@link Mirror.Entry} objects, for fast pattern lookups.
+ *
+ * The entries are kept in a trie on the '/'-separated components of their names. A pattern component without
+ * wildcards selects a single child, a component with '*' is matched against the name component of each child, and
+ * a component with '**' selects all entries below. Candidates are finally checked against the full pattern, with
+ * {@link Mirror#match(char[], char[])}, so results are exactly those of a linear scan, and in the same order.
+ *
+ * Results are also cached per pattern, for the lifetime of the index, i.e., until the mirror is updated.
+ *
+ * @author agent
+ */
+class MirrorIndex {
+
+    /** Cap on the number of cached patterns, to protect against clients which look up ever new patterns. */
+    static final int maxCachedPatterns = 4096;
+
+    static final MirrorIndex empty = new MirrorIndex(new Mirror.Entry[0]);
+
+    private final Mirror.Entry[] entries;
+    private final Node root = new Node();
+    private final Map<String, Mirror.Entry[]> cache = new ConcurrentHashMap<>();
+
+    MirrorIndex(Mirror.Entry[] entries) {
+        this.entries = entries;
+        for (int i = 0; i < entries.length; i++) {
+            Node node = root;
+            for (String component : entries[i].getName().split("/", -1))
+                node = node.children.computeIfAbsent(component, __ -> new Node());
+
+            node.add(i);
+        }
+    }
+
+    /** Returns the entries of this index, in the order given by slobrok. */
+    Mirror.Entry[] entries() { return entries; }
+
+    /** Returns a new list with all entries whose name match the given pattern, in the order of {@link #entries()}. */
+    List<Mirror.Entry> lookup(String pattern) {
+        Mirror.Entry[] found = cache.get(pattern);
+        if (found == null) {
+            found = find(pattern);
+            if (cache.size() < maxCachedPatterns)
+                cache.put(pattern, found);
+        }
+        return new ArrayList<>(Arrays.asList(found));
+    }
+
+    private Mirror.Entry[] find(String pattern) {
+        Positions candidates = new Positions();
+        collect(root, pattern.split("/", -1), 0, candidates);
+        int[] positions = candidates.sorted();
+        char[] p = pattern.toCharArray();
+        List<Mirror.Entry> found = new ArrayList<>(positions.length);
+        for (int position : positions)
+            if (Mirror.match(entries[position].getNameArray(), p))
+                found.add(entries[position]);
+
+        return found.toArray(new Mirror.Entry[0]);
+    }
+
+    private static void collect(Node node, String[] components, int depth, Positions candidates) {
+        String component = components[depth];
+        boolean last = depth + 1 == components.length;
+        if (component.contains("**")) {
+            for (Node child : node.children.values())
+                child.addAll(candidates);
+        }
+        else if (component.indexOf('*') >= 0) {
+            char[] p = component.toCharArray();
+            for (Map.Entry<String, Node> child : node.children.entrySet())
+                if (Mirror.match(child.getKey().toCharArray(), p))
+                    visit(child.getValue(), components, depth, last, candidates);
+        }
+        else {
+            Node child = node.children.get(component);
+            if (child != null)
+                visit(child, components, depth, last, candidates);
+        }
+    }
+
+    private static void visit(Node child, String[] components, int depth, boolean last, Positions candidates) {
+        if (last)
+            candidates.add(child.positions, child.size);
+        else
+            collect(child, components, depth + 1, candidates);
+    }
+
+
+    private static class Node {
+
+        private final Map<String, Node> children = new HashMap<>();
+        private int[] positions = new int[0];
+        private int size = 0;
+
+        void add(int position) {
+            if (size == positions.length)
+                positions = Arrays.copyOf(positions, Math.max(1, 2 * size));
+
+            positions[size++] = position;
+        }
+
+        void addAll(Positions candidates) {
+            candidates.add(positions, size);
+            for (Node child : children.values())
+                child.addAll(candidates);
+        }
+
+    }
+
+
+    private static class Positions {
+
+        private int[] positions = new int[8];
+        private int size = 0;
+
+        void add(int[] more, int count) {
+            if (size + count > positions.length)
+                positions = Arrays.copyOf(positions, Math.max(size + count, 2 * positions.length));
+
+            System.arraycopy(more, 0, positions, size, count);
+            size += count;
+        }
+
+        int[] sorted() {
+            int[] sorted = Arrays.copyOf(positions, size);
+            Arrays.sort(sorted);
+            return sorted;
+        }
+
+    }
+
+}
@@ -0,0 +1,106 @@
+// Copyright Verizon Media. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.jrt;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+public class BufferPoolTest {
+
+    @org.junit.Test
+    public void testSizeClasses() {
+        assertEquals(10, BufferPool.sizeClass(10));
+        assertEquals(4096, BufferPool.sizeClass(4096));
+        assertEquals(8192, BufferPool.sizeClass(4097));
+        assertEquals(65536, BufferPool.sizeClass(65536));
+        assertEquals(131072, BufferPool.sizeClass(65537));
+        assertEquals((1 << 24) + 1, BufferPool.sizeClass((1 << 24) + 1));
+    }
+
+    @org.junit.Test
+    public void testReuse() {
+        BufferPool pool = new BufferPool(4 * 16384); // 16 KiB per class.
+        ByteBuffer a = pool.acquire(8192);
+        a.put((byte) 1).order(ByteOrder.LITTLE_ENDIAN);
+        pool.release(a);
+        ByteBuffer b = pool.acquire(8192);
+        assertSame(a, b);
+        assertEquals(0, b.position());
+        assertEquals(8192, b.limit());
+        assertEquals(ByteOrder.BIG_ENDIAN, b.order());
+        assertEquals(1, pool.allocated());
+        assertEquals(1, pool.reused());
+
+        ByteBuffer c = pool.acquire(100);
+        pool.release(c);
+        assertNotSame(c, pool.acquire(100));
+
+        ByteBuffer d = pool.acquire(8192);
+        ByteBuffer e = pool.acquire(8192);
+        ByteBuffer f = pool.acquire(8192);
+        assertEquals(6, pool.allocated());
+        pool.release(d);
+        pool.release(e);
+        pool.release(f); // Only two fit in the pool.
+        assertSame(d, pool.acquire(8192));
+        assertSame(e, pool.acquire(8192));
+        assertNotSame(f, pool.acquire(8192));
+        assertEquals(7, pool.allocated());
+    }
+
+    @org.junit.Test
+    public void testIdleBytesAreCappedInTotalAndPerClass() {
+        BufferPool pool = new BufferPool(1 << 16); // 64 KiB in total, and 16 KiB per class.
+        ByteBuffer large = pool.acquire(1 << 15);
+        pool.release(large); // Larger than a quarter of the total.
+        assertNotSame(large, pool.acquire(1 << 15));
+        assertEquals(0, pool.idleBytes());
+
+        for (int bits = 12; bits <= 14; bits++) {
+            ByteBuffer a = pool.acquire(1 << bits);
+            ByteBuffer b = pool.acquire(1 << bits);
+            pool.release(a);
+            pool.release(b);
+        }
+        assertEquals(2 * 4096 + 2 * 8192 + 16384, pool.idleBytes());
+
+        pool.release(pool.acquire(4096)); // Reused, and returned.
+        assertEquals(2 * 4096 + 2 * 8192 + 16384, pool.idleBytes());
+
+        pool.release(ByteBuffer.allocateDirect(4096)); // Direct buffers are never pooled.
+        assertEquals(2 * 4096 + 2 * 8192 + 16384, pool.idleBytes());
+
+        pool = new BufferPool(1 << 20); // 1 MiB in total, and 256 KiB per class.
+        for (int bits = 12; bits <= 18; bits++)
+            for (int i = 0; i < 1 << (18 - bits); i++)
+                pool.release(ByteBuffer.allocate(1 << bits));
+        assertEquals(1 << 20, pool.idleBytes()); // Only the four smallest classes fit.
+        assertNotSame(pool.acquire(1 << 16), pool.acquire(1 << 16));
+        assertEquals(1 << 20, pool.idleBytes()); // Both were allocated anew.
+    }
+
+    @org.junit.Test
+    public void testSharedPoolDoesNotPoolLargestClassesByDefault() {
+        BufferPool pool = new BufferPool(BufferPool.DEFAULT_MAX_IDLE_BYTES);
+        pool.release(ByteBuffer.allocate(1 << BufferPool.MAX_CLASS_BITS));
+        assertEquals(0, pool.idleBytes());
+        pool.release(ByteBuffer.allocate(1 << (BufferPool.MAX_CLASS_BITS - 1)));
+        assertEquals(1 << (BufferPool.MAX_CLASS_BITS - 1), pool.idleBytes());
+    }
+
+    @org.junit.Test
+    public void testReleasedBufferIsEmptyAndUsable() {
+        BufferPool pool = new BufferPool(1 << 20);
+        Buffer buffer = new Buffer(4096, pool);
+        buffer.getWritable(100).put(new byte[100]);
+        buffer.release();
+        assertEquals(0, buffer.bytes());
+        assertEquals(1, pool.allocated());
+        buffer.getWritable(100).put((byte) 7);
+        assertEquals(7, buffer.getReadable().get());
+    }
+
+}
@@ -5,6 +5,12 @@ package com.yahoo.jrt;
 import org.junit.After;
 import org.junit.Before;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
@@ -65,4 +71,45 @@ public class InvokeAsyncTest {
         assertEquals("abcdef", req.returnValues().get(0).asString());
     }
 
+    @org.junit.Test
+    public void testConcurrentAsync() throws InterruptedException {
+        barrier.breakIt();
+        int numThreads = 8;
+        int numRequests = 500;
+        CountDownLatch done = new CountDownLatch(numThreads * numRequests);
+        AtomicInteger errors = new AtomicInteger();
+        RequestWaiter waiter = req -> {
+            if (req.isError() || ! req.returnValues().get(0).asString().equals(req.parameters().get(0).asString() + "def"))
+                errors.incrementAndGet();
+            done.countDown();
+        };
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < numThreads; i++) {
+            int thread = i;
+            threads.add(new Thread(() -> {
+                for (int j = 0; j < numRequests; j++) {
+                    Request req = new Request("concat");
+                    req.parameters().add(new StringValue(thread + ":" + j));
+                    req.parameters().add(new StringValue("def"));
+                    target.invokeAsync(req, 60.0, waiter);
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        for (Thread thread : threads)
+            thread.join();
+
+        assertTrue(done.await(60, TimeUnit.SECONDS));
+        assertEquals(0, errors.get());
+
+        long packetsWritten = 0;
+        long writeEvents = 0;
+        for (TransportThread thread : client.transport().threads()) {
+            packetsWritten += thread.packetsWritten();
+            writeEvents += thread.writeEvents();
+        }
+        assertTrue(packetsWritten >= numThreads * numRequests);
+        assertTrue(writeEvents > 0 && writeEvents <= packetsWritten);
+    }
+
 }
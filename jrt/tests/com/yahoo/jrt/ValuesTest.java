@@ -271,6 +271,29 @@ public class ValuesTest {
         assertTrue(Arrays.equals(dst.get(0).asData(), val));
     }
 
+    @org.junit.Test
+    public void testWrappedData() {
+        int byteSize = 4 + 1 + 4 + 4;
+        Values src = new Values();
+        byte[] val = { 1, 2, 3, 4 };
+        ByteBuffer wrapped = ByteBuffer.allocateDirect(6);
+        wrapped.put((byte) 0).put(val).put((byte) 5).flip().position(1).limit(5);
+        src.add(DataValue.wrap(wrapped));
+        checkSingleValue(src, Value.DATA, byteSize);
+        assertTrue(Arrays.equals(src.get(0).asData(), val));
+
+        ByteBuffer buf = ByteBuffer.allocate(src.bytes());
+        src.encode(buf);
+        buf.flip();
+        assertEquals(buf.remaining(), byteSize);
+        assertEquals(wrapped.position(), 1);
+
+        Values dst = new Values();
+        dst.decode(buf);
+        checkSingleValue(src, Value.DATA, byteSize);
+        assertTrue(Arrays.equals(dst.get(0).asData(), val));
+    }
+
     @org.junit.Test
     public void testDataArray() {
         int byteSize = 4 + 1 + 4 + 4 * (4 + 4);
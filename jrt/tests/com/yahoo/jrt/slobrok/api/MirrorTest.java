@@ -2,6 +2,11 @@
 package com.yahoo.jrt.slobrok.api;
 
 import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.assertFalse;
 
@@ -86,4 +91,42 @@ public class MirrorTest {
         mustNotMatch(nomatch, pattern);
     }
 
+    @Test public void requireThatIndexLookupEqualsLinearScan() {
+        List<Mirror.Entry> entries = new ArrayList<>();
+        for (String cluster : new String[]{ "foo", "bar", "f*o" })
+            for (String type : new String[]{ "distributor", "storage", "search" })
+                for (int i = 0; i < 10; i++)
+                    entries.add(new Mirror.Entry("storage/cluster." + cluster + "/" + type + "/" + i + "/default", "tcp/host" + i + ":" + (19000 + i)));
+        entries.add(new Mirror.Entry("storage", "tcp/host:1"));
+        entries.add(new Mirror.Entry("storage/", "tcp/host:2"));
+        entries.add(new Mirror.Entry("storage//default", "tcp/host:3"));
+        entries.add(new Mirror.Entry("A", "tcp/host:4"));
+        entries.add(new Mirror.Entry("foo/**/suffix", "tcp/host:5"));
+        MirrorIndex index = new MirrorIndex(entries.toArray(new Mirror.Entry[0]));
+
+        String[] patterns = { "storage/cluster.foo/distributor/3/default", "storage/cluster.foo/distributor/*/default",
+                              "storage/cluster.*/*/1/default", "storage/cluster.*/storage/1*", "storage/*/*/*/*",
+                              "storage/cluster.f*o/search/0/default", "storage/cluster.f*/search/0/default",
+                              "storage/**", "storage**", "**", "*", "storage/*", "storage//*", "A**", "foo/**/suffix",
+                              "storage/cluster.foo/**/default", "storage/cluster.bar/distributor/10/default", "" };
+        for (String pattern : patterns) {
+            List<Mirror.Entry> expected = new ArrayList<>();
+            for (Mirror.Entry entry : entries)
+                if (Mirror.match(entry.getNameArray(), pattern.toCharArray()))
+                    expected.add(entry);
+
+            assertEquals(pattern, expected, index.lookup(pattern));
+            assertEquals(pattern, expected, index.lookup(pattern)); // Cached.
+        }
+    }
+
+    @Test public void requireThatIndexReturnsIndependentLists() {
+        MirrorIndex index = new MirrorIndex(new Mirror.Entry[]{ new Mirror.Entry("foo/bar", "tcp/host:1") });
+        List<Mirror.Entry> found = index.lookup("foo/*");
+        assertEquals(1, found.size());
+        found.clear();
+        assertEquals(1, index.lookup("foo/*").size());
+        assertEquals(0, MirrorIndex.empty.lookup("foo/*").size());
+    }
+
 }
@@ -1,9 +1,11 @@
 // Copyright 2017 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
 package com.yahoo.logserver.handlers.archive;
 
+import java.time.Duration;
 import java.util.logging.Logger;
 
 import com.yahoo.logserver.Server;
+import com.yahoo.logserver.handlers.AbstractLogHandler;
 import com.yahoo.plugin.Config;
 import com.yahoo.plugin.Plugin;
 
@@ -20,9 +22,16 @@ public class ArchiverPlugin implements Plugin {
      */
     private static final String DEFAULT_MAXFILESIZE = "20971520";
 
+    /**
+     * Default number of messages per block, and seconds before a partial block is written, in the blocks format.
+     */
+    private static final String DEFAULT_BLOCKSIZE = "8192";
+    private static final String DEFAULT_MAXBLOCKAGE = "30";
+    private static final String DEFAULT_COMPRESSIONLEVEL = "6";
+
     private final Server server = Server.getInstance();
     private static final Logger log = Logger.getLogger(ArchiverPlugin.class.getName());
-    private ArchiverHandler archiver;
+    private AbstractLogHandler archiver;
 
     /**
      * @return the name of this plugin
@@ -39,6 +48,11 @@ public class ArchiverPlugin implements Plugin {
      * maxfilesize
      * dir            The root of the logarchive, make sure this does
      * <b>not</b> end with a '/' character.
+     * format         "text" for lines of text, or "blocks" for compressed,
+     *                columnar blocks, see {@link BlockArchiverHandler}.
+     * blocksize      The number of messages per block, for "blocks".
+     * maxblockage    Seconds a partial block is buffered, for "blocks".
+     * compressionlevel  Deflate level from 1 to 9, for "blocks".
      */
     public void initPlugin(Config config) {
 
@@ -53,8 +67,22 @@ public class ArchiverPlugin implements Plugin {
         int maxFileSize = config.getInt("maxfilesize", DEFAULT_MAXFILESIZE);
         String threadName = config.get("thread", getPluginName());
 
+        String format = config.get("format", "text");
+
         // register log handler and flusher
-        archiver = new ArchiverHandler(rootDir, maxFileSize);
+        switch (format) {
+            case "text":
+                archiver = new ArchiverHandler(rootDir, maxFileSize);
+                break;
+            case "blocks":
+                archiver = new BlockArchiverHandler(rootDir, maxFileSize,
+                                                   config.getInt("blocksize", DEFAULT_BLOCKSIZE),
+                                                   config.getInt("compressionlevel", DEFAULT_COMPRESSIONLEVEL),
+                                                   Duration.ofSeconds(config.getInt("maxblockage", DEFAULT_MAXBLOCKAGE)));
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown archive format '" + format + "'");
+        }
         server.registerLogHandler(archiver, threadName);
         server.registerFlusher(archiver);
     }
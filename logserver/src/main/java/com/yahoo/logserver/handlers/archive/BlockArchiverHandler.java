@@ -0,0 +1,178 @@
+// Copyright Verizon Media. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.logserver.handlers.archive;
+
+import com.yahoo.log.LogMessage;
+import com.yahoo.logserver.filter.LogFilterManager;
+import com.yahoo.logserver.handlers.AbstractLogHandler;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * An alternative to {@link ArchiverHandler}, which buffers messages and writes them as compressed,
+ * columnar {@link LogBlock}s, instead of as lines of text. Files are partitioned by hour, like for the
+ * text archive, and can be searched efficiently with a {@link LogArchiveScanner}.
+ * <p>
+ * A block is written when it is full, or when it has been pending for more than the max block age,
+ * as checked when this is flushed. Messages in pending blocks are lost if the process dies.
+ *
+ * @author agent
+ */
+public class BlockArchiverHandler extends AbstractLogHandler {
+
+    private static final Logger log = Logger.getLogger(BlockArchiverHandler.class.getName());
+
+    static final DateTimeFormatter hourFormat = DateTimeFormatter.ofPattern("yyyy/MM/dd/HH").withZone(ZoneOffset.UTC);
+    private static final long millisPerHour = Duration.ofHours(1).toMillis();
+    private static final int maxWritersOpen = 5;
+
+    private final String absoluteRootDir;
+    private final int maxFileSize;
+    private final int blockSize;
+    private final int compressionLevel;
+    private final Duration maxBlockAge;
+    private final FilesArchived filesArchived;
+
+    /** Messages not yet written, and when the first of them arrived, per hour */
+    private final Map<Long, Pending> pending = new HashMap<>();
+
+    /** Writers for the most recently written hours, with the least recently used first */
+    private final LinkedHashMap<Long, BlockLogWriter> writers = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override protected boolean removeEldestEntry(Map.Entry<Long, BlockLogWriter> eldest) {
+            if (size() <= maxWritersOpen) return false;
+            close(eldest.getValue());
+            return true;
+        }
+    };
+
+    /**
+     * Creates a BlockArchiverHandler which puts files under the given root directory.
+     *
+     * @param rootDir the root of the archive
+     * @param maxFileSize the size after which a file is rotated
+     * @param blockSize the number of messages in a full block
+     * @param compressionLevel the deflate compression level, from 1 to 9
+     * @param maxBlockAge the longest time a message is buffered before written on flush
+     */
+    public BlockArchiverHandler(String rootDir, int maxFileSize, int blockSize, int compressionLevel, Duration maxBlockAge) {
+        if ("off".equals(System.getProperty("vespa_log_server__archive_metric"))) {
+            setLogFilter(LogFilterManager.getLogFilter("system.nometricsevents"));
+        }
+
+        this.absoluteRootDir = new File(rootDir).getAbsolutePath();
+        this.maxFileSize = maxFileSize;
+        this.blockSize = blockSize;
+        this.compressionLevel = compressionLevel;
+        this.maxBlockAge = maxBlockAge;
+
+        File root = new File(absoluteRootDir);
+        if ( ! root.isDirectory() && ! root.mkdirs()) {
+            log.log(Level.SEVERE, "Unable to create directory " + absoluteRootDir);
+        }
+        this.filesArchived = new FilesArchived(root);
+    }
+
+    @Override
+    public synchronized boolean doHandle(LogMessage msg) {
+        long hour = msg.getTimestamp().toEpochMilli() / millisPerHour;
+        Pending block = pending.computeIfAbsent(hour, __ -> new Pending(blockSize));
+        block.messages.add(msg);
+        if (block.messages.size() >= blockSize) {
+            pending.remove(hour);
+            try {
+                write(hour, block.messages);
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
+        return true;
+    }
+
+    /** Writes blocks which have been pending for longer than the max block age, and flushes all open files. */
+    @Override
+    public synchronized void flush() {
+        writePending(maxBlockAge);
+        for (BlockLogWriter writer : writers.values()) {
+            try {
+                writer.flush();
+            } catch (IOException e) {
+                log.log(Level.WARNING, "Flushing failed", e);
+            }
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        writePending(Duration.ZERO);
+        for (Iterator<BlockLogWriter> it = writers.values().iterator(); it.hasNext(); ) {
+            close(it.next());
+            it.remove();
+        }
+    }
+
+    private void writePending(Duration minAge) {
+        long now = System.nanoTime();
+        for (Iterator<Map.Entry<Long, Pending>> it = pending.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<Long, Pending> entry = it.next();
+            if (now - entry.getValue().createdNanos >= minAge.toNanos()) {
+                it.remove();
+                try {
+                    write(entry.getKey(), entry.getValue().messages);
+                } catch (IOException e) {
+                    log.log(Level.WARNING, "Writing block failed", e);
+                }
+            }
+        }
+    }
+
+    private void write(long hour, List<LogMessage> messages) throws IOException {
+        BlockLogWriter writer = writers.get(hour);
+        if (writer == null) {
+            writer = new BlockLogWriter(getPrefix(hour), maxFileSize, compressionLevel, filesArchived);
+            writers.put(hour, writer);
+        }
+        writer.write(messages);
+    }
+
+    private String getPrefix(long hour) {
+        return absoluteRootDir + "/" + hourFormat.format(Instant.ofEpochMilli(hour * millisPerHour));
+    }
+
+    private static void close(BlockLogWriter writer) {
+        try {
+            writer.close();
+        } catch (IOException e) {
+            log.log(Level.WARNING, "Closing failed", e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return BlockArchiverHandler.class.getName() + ": root=" + absoluteRootDir;
+    }
+
+
+    private static class Pending {
+
+        private final long createdNanos = System.nanoTime();
+        private final List<LogMessage> messages;
+
+        private Pending(int blockSize) {
+            this.messages = new ArrayList<>(blockSize);
+        }
+
+    }
+
+}
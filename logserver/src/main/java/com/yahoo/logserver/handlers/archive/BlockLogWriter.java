@@ -0,0 +1,115 @@
+// Copyright Verizon Media. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.logserver.handlers.archive;
+
+import com.yahoo.log.LogMessage;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Writes {@link LogBlock}s to a sequence of files with a common prefix, much like {@link LogWriter}
+ * does for text lines. Each file is named prefix-generation.blocks, and is rotated when it exceeds
+ * the maximum size. Since each block is self-contained, files below the resume limit are appended to.
+ * <p>
+ * This class is not thread-safe.
+ *
+ * @author agent
+ */
+public class BlockLogWriter {
+
+    private static final Logger log = Logger.getLogger(BlockLogWriter.class.getName());
+
+    static final String SUFFIX = ".blocks";
+    private static final int resumeLimit = 95;
+
+    private final String prefix;
+    private final long maxSize;
+    private final int compressionLevel;
+    private final FilesArchived archive;
+    private int generation;
+    private File currentFile;
+    private DataOutputStream out;
+    private long bytesWritten = 0;
+
+    public BlockLogWriter(String prefix, long maxSize, int compressionLevel, FilesArchived archive) {
+        this.prefix = prefix;
+        this.maxSize = maxSize;
+        this.compressionLevel = compressionLevel;
+        this.archive = archive;
+        this.generation = archive.highestGen(prefix);
+    }
+
+    /** Writes the given messages as one block, rotating to the next file first if the current one is full. */
+    public void write(List<LogMessage> messages) throws IOException {
+        if (messages.isEmpty()) return;
+
+        if (out == null || bytesWritten >= maxSize) {
+            if (out != null)
+                log.fine("logfile '" + currentFile.getAbsolutePath() + "' full, rotating");
+            out = nextOutput();
+            archive.triggerMaintenance();
+        }
+        int sizeBefore = out.size();
+        LogBlock.write(messages, out, compressionLevel);
+        bytesWritten += out.size() - sizeBefore;
+    }
+
+    private DataOutputStream nextOutput() throws IOException {
+        boolean resume = out == null;
+        close();
+        int maxAttempts = 1000;
+        while (maxAttempts-- > 0) {
+            File f = new File(prefix + "-" + generation + SUFFIX);
+            File dir = f.getParentFile();
+            if ( ! dir.exists()) {
+                dir.mkdirs();
+            }
+
+            if ( ! f.exists() || (resume && f.isFile() && f.length() < maxSize * resumeLimit / 100)) {
+                log.log(Level.FINE, () -> "nextOutput, " + (f.exists() ? "resuming " : "new file: ") + f);
+                currentFile = f;
+                bytesWritten = truncateIncompleteBlock(f);
+                return new DataOutputStream(new BufferedOutputStream(new FileOutputStream(f, true), 0x10000));
+            }
+            resume = false;
+            generation++;
+        }
+        throw new RuntimeException("Unable to create next log file");
+    }
+
+    /** Cuts off any partially written block at the end of the given file, e.g., after a crash, and returns the new length. */
+    private static long truncateIncompleteBlock(File f) throws IOException {
+        if ( ! f.exists()) return 0;
+
+        long complete = LogBlock.completeLength(f);
+        if (complete < f.length()) {
+            log.log(Level.WARNING, "Truncating incomplete block at the end of " + f + " from " + f.length() + " to " + complete + " bytes");
+            try (FileChannel channel = FileChannel.open(f.toPath(), StandardOpenOption.WRITE)) {
+                channel.truncate(complete);
+            }
+        }
+        return complete;
+    }
+
+    public void flush() throws IOException {
+        if (out != null) {
+            out.flush();
+        }
+    }
+
+    public void close() throws IOException {
+        if (out != null) {
+            out.close();
+            out = null;
+        }
+    }
+
+}
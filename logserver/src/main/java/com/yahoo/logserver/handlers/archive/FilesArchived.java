@@ -245,6 +245,7 @@ public class FilesArchived {
         }
         private static boolean zSuffix(String name) {
             if (name.endsWith(".gz")) return true;
+            if (name.endsWith(BlockLogWriter.SUFFIX)) return true; // blocks are compressed as they are written
             // add other compression suffixes here
             return false;
         }
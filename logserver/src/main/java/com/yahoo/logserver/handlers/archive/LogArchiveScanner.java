@@ -0,0 +1,139 @@
+// Copyright Verizon Media. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.logserver.handlers.archive;
+
+import com.yahoo.log.LogMessage;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toUnmodifiableSet;
+
+/**
+ * Searches a log archive written by a {@link BlockArchiverHandler} for messages in a time range,
+ * optionally with given levels or from given services.
+ * <p>
+ * Only the hourly files which overlap the time range are opened, and blocks whose index shows they
+ * contain no matching messages are skipped without being decompressed. Messages are passed to the
+ * consumer in the order they were written, which is time order only within each hour.
+ *
+ * @author agent
+ */
+public class LogArchiveScanner {
+
+    private static final Logger log = Logger.getLogger(LogArchiveScanner.class.getName());
+
+    private static final Duration hour = Duration.ofHours(1);
+    private static final Pattern fileName = Pattern.compile("(\\d{2})-(\\d+)" + Pattern.quote(BlockLogWriter.SUFFIX));
+
+    private final File root;
+
+    public LogArchiveScanner(String rootDir) {
+        this.root = new File(rootDir).getAbsoluteFile();
+    }
+
+    /**
+     * Passes all archived messages with timestamp in [from, to), with one of the given levels, and from one
+     * of the given services, to the given consumer. An empty collection of levels or services matches all.
+     *
+     * @return the number of messages passed to the consumer
+     */
+    public long scan(Instant from, Instant to, Collection<Level> levels, Collection<String> services,
+                     Consumer<LogMessage> consumer) throws IOException {
+        long fromMicros = LogBlock.toMicros(from);
+        long toMicros = LogBlock.toMicros(to);
+        Set<String> levelNames = levels.stream().map(Level::getName).collect(toUnmodifiableSet());
+        Set<String> serviceNames = Set.copyOf(services);
+        long[] count = { 0 };
+        Consumer<LogMessage> counting = message -> { count[0]++; consumer.accept(message); };
+        for (File file : filesFor(from, to))
+            scan(file, fromMicros, toMicros, levelNames, serviceNames, counting);
+
+        return count[0];
+    }
+
+    private static void scan(File file, long fromMicros, long toMicros, Set<String> levels, Set<String> services,
+                             Consumer<LogMessage> consumer) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 0x10000))) {
+            while (true) {
+                LogBlock.Header header;
+                try {
+                    header = LogBlock.Header.read(in);
+                }
+                catch (EOFException e) {
+                    return; // Either the end of the file, or a block which is still being written
+                }
+                if (header.mayMatch(fromMicros, toMicros, levels, services))
+                    LogBlock.read(header, in, fromMicros, toMicros, levels, services, consumer);
+                else
+                    skipFully(in, header.compressedLength);
+            }
+        }
+        catch (EOFException e) {
+            log.log(Level.FINE, () -> "Incomplete block at the end of " + file);
+        }
+    }
+
+    private static void skipFully(DataInputStream in, int length) throws IOException {
+        while (length > 0) {
+            int skipped = in.skipBytes(length);
+            if (skipped <= 0) throw new EOFException();
+            length -= skipped;
+        }
+    }
+
+    /** Returns the block files for all hours overlapping the given range, in order. */
+    List<File> filesFor(Instant from, Instant to) {
+        List<HourFile> files = new ArrayList<>();
+        for (File year : list(root, "\\d{4}"))
+            for (File month : list(year, "\\d{2}"))
+                for (File day : list(month, "\\d{2}"))
+                    for (File file : list(day, fileName.pattern())) {
+                        Matcher matcher = fileName.matcher(file.getName());
+                        if ( ! matcher.matches()) continue;
+                        Instant start = Instant.parse(year.getName() + "-" + month.getName() + "-" + day.getName() + "T" +
+                                                      matcher.group(1) + ":00:00Z");
+                        if (start.isBefore(to) && start.plus(hour).isAfter(from))
+                            files.add(new HourFile(start, Integer.parseInt(matcher.group(2)), file));
+                    }
+
+        files.sort(Comparator.comparing((HourFile file) -> file.start).thenComparingInt(file -> file.generation));
+        return files.stream().map(file -> file.file).collect(toList());
+    }
+
+    private static List<File> list(File dir, String regex) {
+        File[] files = dir.listFiles((parent, name) -> name.matches(regex));
+        return files == null ? List.of() : List.of(files);
+    }
+
+    private static class HourFile {
+
+        private final Instant start;
+        private final int generation;
+        private final File file;
+
+        private HourFile(Instant start, int generation, File file) {
+            this.start = start;
+            this.generation = generation;
+            this.file = file;
+        }
+
+    }
+
+}
@@ -0,0 +1,360 @@
+// Copyright Verizon Media. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.logserver.handlers.archive;
+
+import com.yahoo.log.LogLevel;
+import com.yahoo.log.LogMessage;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * A block of log messages, stored column by column and deflated, behind a small uncompressed index.
+ * <p>
+ * The index holds the number of messages, their time range, and the distinct levels and services
+ * in the block, so a scan can skip blocks that cannot match without decompressing them. The body
+ * holds one column per message field: timestamps as deltas, host, service, component and level as
+ * indices into per-block dictionaries, process and thread ids as variable length numbers, and
+ * finally all payload lengths followed by all payload bytes. Values of the same kind are thus stored
+ * next to each other, which compresses much better than the same messages on the text format.
+ * <pre>
+ * block  := MAGIC VERSION count:int from:long to:long levels:dict services:dict
+ *           rawLength:int compressedLength:int body:byte[compressedLength]
+ * body   := timestamps hosts:dict hostIndices pids tids serviceIndices components:dict componentIndices
+ *           levelIndices payloadLengths payloadBytes
+ * dict   := size:short UTF{size}
+ * </pre>
+ *
+ * @author agent
+ */
+class LogBlock {
+
+    static final int MAGIC = 0x4c6f6742; // "LogB"
+    static final byte VERSION = 1;
+
+    private LogBlock() { }
+
+    /** Writes the given messages as a single block to the given output. */
+    static void write(List<LogMessage> messages, DataOutputStream out, int compressionLevel) throws IOException {
+        long from = Long.MAX_VALUE, to = Long.MIN_VALUE;
+        Dictionary levels = new Dictionary(), services = new Dictionary(), hosts = new Dictionary(), components = new Dictionary();
+        for (LogMessage message : messages) {
+            long micros = toMicros(message.getTimestamp());
+            from = Math.min(from, micros);
+            to = Math.max(to, micros);
+            levels.indexOf(message.getLevel().getName());
+            services.indexOf(message.getService());
+            hosts.indexOf(message.getHost());
+            components.indexOf(message.getComponent());
+        }
+
+        ByteArrayOutputStream rawBytes = new ByteArrayOutputStream(messages.size() * 128);
+        DataOutputStream raw = new DataOutputStream(rawBytes);
+        long previous = from;
+        for (LogMessage message : messages) {
+            long micros = toMicros(message.getTimestamp());
+            writeVarLong(raw, zigZag(micros - previous));
+            previous = micros;
+        }
+        hosts.writeTo(raw);
+        for (LogMessage message : messages) writeVarLong(raw, hosts.indexOf(message.getHost()));
+        for (LogMessage message : messages) writeVarLong(raw, message.getProcessId());
+        for (LogMessage message : messages) writeVarLong(raw, message.getThreadId().orElse(0));
+        for (LogMessage message : messages) writeVarLong(raw, services.indexOf(message.getService()));
+        components.writeTo(raw);
+        for (LogMessage message : messages) writeVarLong(raw, components.indexOf(message.getComponent()));
+        for (LogMessage message : messages) writeVarLong(raw, levels.indexOf(message.getLevel().getName()));
+        List<byte[]> payloads = new ArrayList<>(messages.size());
+        for (LogMessage message : messages) {
+            byte[] payload = message.getPayload().getBytes(StandardCharsets.UTF_8);
+            payloads.add(payload);
+            writeVarLong(raw, payload.length);
+        }
+        for (byte[] payload : payloads) raw.write(payload);
+        raw.flush();
+
+        byte[] body = rawBytes.toByteArray();
+        Deflater deflater = new Deflater(compressionLevel);
+        try {
+            deflater.setInput(body);
+            deflater.finish();
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream(body.length / 4 + 64);
+            byte[] buffer = new byte[0x10000];
+            while ( ! deflater.finished())
+                compressed.write(buffer, 0, deflater.deflate(buffer));
+
+            out.writeInt(MAGIC);
+            out.writeByte(VERSION);
+            out.writeInt(messages.size());
+            out.writeLong(from);
+            out.writeLong(to);
+            levels.writeTo(out);
+            services.writeTo(out);
+            out.writeInt(body.length);
+            out.writeInt(compressed.size());
+            compressed.writeTo(out);
+        }
+        finally {
+            deflater.end();
+        }
+    }
+
+    /** The uncompressed index at the start of each block. */
+    static class Header {
+
+        final int count;
+        final long fromMicros;
+        final long toMicros;
+        final String[] levels;
+        final String[] services;
+        final int rawLength;
+        final int compressedLength;
+
+        private Header(int count, long fromMicros, long toMicros, String[] levels, String[] services,
+                       int rawLength, int compressedLength) {
+            this.count = count;
+            this.fromMicros = fromMicros;
+            this.toMicros = toMicros;
+            this.levels = levels;
+            this.services = services;
+            this.rawLength = rawLength;
+            this.compressedLength = compressedLength;
+        }
+
+        /** Reads the next header from the given input, which must be positioned at the start of a block. */
+        static Header read(DataInput in) throws IOException {
+            int magic = in.readInt();
+            if (magic != MAGIC)
+                throw new IOException("Bad block magic " + Integer.toHexString(magic));
+            byte version = in.readByte();
+            if (version != VERSION)
+                throw new IOException("Unsupported block version " + version);
+
+            int count = in.readInt();
+            long from = in.readLong();
+            long to = in.readLong();
+            String[] levels = Dictionary.read(in);
+            String[] services = Dictionary.read(in);
+            int rawLength = in.readInt();
+            int compressedLength = in.readInt();
+            return new Header(count, from, to, levels, services, rawLength, compressedLength);
+        }
+
+        /** Returns whether any message in this block may be in the given time range, with one of the given levels and services. */
+        boolean mayMatch(long fromMicros, long toMicros, Collection<String> levels, Collection<String> services) {
+            return    this.toMicros >= fromMicros
+                   && this.fromMicros < toMicros
+                   && (levels.isEmpty() || Arrays.stream(this.levels).anyMatch(levels::contains))
+                   && (services.isEmpty() || Arrays.stream(this.services).anyMatch(services::contains));
+        }
+
+    }
+
+    /**
+     * Reads the body of the block with the given header, and passes the messages which are in the given
+     * time range, and have one of the given levels and services, to the given consumer. Payloads are only
+     * decoded for messages that match.
+     */
+    static void read(Header header, DataInput in, long fromMicros, long toMicros,
+                     Collection<String> levels, Collection<String> services,
+                     Consumer<LogMessage> consumer) throws IOException {
+        byte[] compressed = new byte[header.compressedLength];
+        in.readFully(compressed);
+        byte[] body = new byte[header.rawLength];
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressed);
+            int inflated = 0;
+            while (inflated < body.length && ! inflater.finished() && ! inflater.needsInput())
+                inflated += inflater.inflate(body, inflated, body.length - inflated);
+            if (inflated != body.length)
+                throw new IOException("Block body does not match its declared length");
+        }
+        catch (DataFormatException e) {
+            throw new IOException("Corrupt block body", e);
+        }
+        finally {
+            inflater.end();
+        }
+
+        Reader raw = new Reader(body);
+        int count = header.count;
+        long[] timestamps = new long[count];
+        long previous = header.fromMicros;
+        for (int i = 0; i < count; i++)
+            timestamps[i] = previous += unZigZag(raw.varLong());
+        String[] hosts = raw.dictionary();
+        int[] hostIndices = raw.varInts(count);
+        long[] pids = raw.varLongs(count);
+        long[] tids = raw.varLongs(count);
+        int[] serviceIndices = raw.varInts(count);
+        String[] components = raw.dictionary();
+        int[] componentIndices = raw.varInts(count);
+        int[] levelIndices = raw.varInts(count);
+        int[] payloadLengths = raw.varInts(count);
+
+        Level[] parsedLevels = new Level[header.levels.length];
+        for (int i = 0; i < parsedLevels.length; i++)
+            parsedLevels[i] = LogLevel.parse(header.levels[i]);
+
+        boolean[] levelMatches = matches(header.levels, levels);
+        boolean[] serviceMatches = matches(header.services, services);
+        int offset = raw.position;
+        for (int i = 0; i < count; i++) {
+            if (   timestamps[i] >= fromMicros && timestamps[i] < toMicros
+                && levelMatches[levelIndices[i]] && serviceMatches[serviceIndices[i]]) {
+                consumer.accept(LogMessage.of(Instant.ofEpochSecond(timestamps[i] / 1_000_000, timestamps[i] % 1_000_000 * 1000),
+                                              hosts[hostIndices[i]],
+                                              pids[i],
+                                              tids[i],
+                                              header.services[serviceIndices[i]],
+                                              components[componentIndices[i]],
+                                              parsedLevels[levelIndices[i]],
+                                              new String(body, offset, payloadLengths[i], StandardCharsets.UTF_8)));
+            }
+            offset += payloadLengths[i];
+        }
+    }
+
+    /** Returns the length of the sequence of complete blocks at the start of the given file. */
+    static long completeLength(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            // Unbuffered, so the channel position is always at the end of what was read
+            DataInputStream in = new DataInputStream(Channels.newInputStream(channel));
+            long length = channel.size();
+            long complete = 0;
+            try {
+                while (complete < length) {
+                    long end = Header.read(in).compressedLength + channel.position();
+                    if (end > length) break;
+                    channel.position(end);
+                    complete = end;
+                }
+            }
+            catch (IOException e) { /* Truncated or corrupt header; keep what was complete before it */ }
+            return complete;
+        }
+    }
+
+    private static boolean[] matches(String[] dictionary, Collection<String> wanted) {
+        boolean[] matches = new boolean[dictionary.length];
+        for (int i = 0; i < dictionary.length; i++)
+            matches[i] = wanted.isEmpty() || wanted.contains(dictionary[i]);
+        return matches;
+    }
+
+    /** Returns the given instant as microseconds since epoch, saturated to the range of a long. */
+    static long toMicros(Instant instant) {
+        if (instant.getEpochSecond() >= Long.MAX_VALUE / 1_000_000) return Long.MAX_VALUE;
+        if (instant.getEpochSecond() <= Long.MIN_VALUE / 1_000_000) return Long.MIN_VALUE;
+        return instant.getEpochSecond() * 1_000_000 + instant.getNano() / 1000;
+    }
+
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static void writeVarLong(DataOutputStream out, long value) throws IOException {
+        while ((value & ~0x7fL) != 0) {
+            out.writeByte((int) (value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+
+    /** Assigns consecutive indices to distinct strings, in order of first appearance. */
+    private static class Dictionary {
+
+        private final Map<String, Integer> indices = new HashMap<>();
+        private final List<String> values = new ArrayList<>();
+
+        int indexOf(String value) {
+            return indices.computeIfAbsent(value, __ -> { values.add(value); return values.size() - 1; });
+        }
+
+        void writeTo(DataOutputStream out) throws IOException {
+            out.writeShort(values.size());
+            for (String value : values)
+                out.writeUTF(value);
+        }
+
+        static String[] read(DataInput in) throws IOException {
+            String[] values = new String[in.readUnsignedShort()];
+            for (int i = 0; i < values.length; i++)
+                values[i] = in.readUTF();
+            return values;
+        }
+
+    }
+
+
+    /** Reads the variable length numbers and dictionaries of an inflated body. */
+    private static class Reader {
+
+        private final byte[] data;
+        private int position = 0;
+
+        Reader(byte[] data) {
+            this.data = data;
+        }
+
+        long varLong() throws IOException {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                if (position == data.length) throw new IOException("Truncated block body");
+                byte b = data[position++];
+                value |= (long) (b & 0x7f) << shift;
+                if (b >= 0) return value;
+            }
+            throw new IOException("Malformed variable length number in block body");
+        }
+
+        long[] varLongs(int count) throws IOException {
+            long[] values = new long[count];
+            for (int i = 0; i < count; i++)
+                values[i] = varLong();
+            return values;
+        }
+
+        int[] varInts(int count) throws IOException {
+            int[] values = new int[count];
+            for (int i = 0; i < count; i++)
+                values[i] = Math.toIntExact(varLong());
+            return values;
+        }
+
+        String[] dictionary() throws IOException {
+            ByteArrayInputStream bytes = new ByteArrayInputStream(data, position, data.length - position);
+            String[] values = Dictionary.read(new DataInputStream(bytes));
+            position = data.length - bytes.available();
+            return values;
+        }
+
+    }
+
+}
@@ -0,0 +1,139 @@
+// Copyright Verizon Media. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.logserver.handlers.archive;
+
+import com.yahoo.log.LogLevel;
+import com.yahoo.log.LogMessage;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author agent
+ */
+public class BlockArchiverHandlerTestCase {
+
+    private static final Instant start = Instant.parse("2004-09-14T10:54:04.095123Z");
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void messagesAreScannedWithFilters() throws IOException {
+        File root = temporaryFolder.newFolder();
+        List<LogMessage> messages = messages(3000, Duration.ofSeconds(3)); // Spans three hours
+        BlockArchiverHandler handler = new BlockArchiverHandler(root.getPath(), 1 << 20, 100, 6, Duration.ofSeconds(30));
+        handler.handle(messages);
+        handler.close();
+
+        assertTrue(new File(root, "2004/09/14/10-0.blocks").isFile());
+        assertTrue(new File(root, "2004/09/14/12-0.blocks").isFile());
+
+        LogArchiveScanner scanner = new LogArchiveScanner(root.getPath());
+        assertEquals(messages, scan(scanner, Instant.EPOCH, Instant.MAX, Set.of(), Set.of()));
+
+        Instant from = start.plus(Duration.ofMinutes(30)), to = start.plus(Duration.ofMinutes(90));
+        assertEquals(messages.stream()
+                             .filter(m -> ! m.getTimestamp().isBefore(from) && m.getTimestamp().isBefore(to))
+                             .filter(m -> m.getLevel() == Level.WARNING)
+                             .filter(m -> m.getService().equals("searchnode"))
+                             .collect(Collectors.toList()),
+                     scan(scanner, from, to, Set.of(Level.WARNING), Set.of("searchnode")));
+
+        assertEquals(List.of(), scan(scanner, start, start.plusSeconds(3600), Set.of(LogLevel.FATAL), Set.of()));
+        assertEquals(List.of(), scan(scanner, start, start.plusSeconds(3600), Set.of(), Set.of("nonexistent")));
+    }
+
+    @Test
+    public void partialBlocksAreWrittenWhenOldEnoughOrOnClose() throws IOException {
+        File root = temporaryFolder.newFolder();
+        List<LogMessage> messages = messages(10, Duration.ofSeconds(1));
+        LogArchiveScanner scanner = new LogArchiveScanner(root.getPath());
+
+        BlockArchiverHandler handler = new BlockArchiverHandler(root.getPath(), 1 << 20, 100, 6, Duration.ofDays(1));
+        handler.handle(messages.subList(0, 5));
+        handler.flush();
+        assertEquals(List.of(), scan(scanner, Instant.EPOCH, Instant.MAX, Set.of(), Set.of()));
+        handler.close();
+        assertEquals(messages.subList(0, 5), scan(scanner, Instant.EPOCH, Instant.MAX, Set.of(), Set.of()));
+
+        handler = new BlockArchiverHandler(root.getPath(), 1 << 20, 100, 6, Duration.ZERO);
+        handler.handle(messages.subList(5, 10));
+        handler.flush();
+        assertEquals(messages, scan(scanner, Instant.EPOCH, Instant.MAX, Set.of(), Set.of()));
+        handler.close();
+    }
+
+    @Test
+    public void incompleteBlockIsTruncatedWhenResuming() throws IOException {
+        File root = temporaryFolder.newFolder();
+        List<LogMessage> messages = messages(20, Duration.ofSeconds(1));
+        BlockArchiverHandler handler = new BlockArchiverHandler(root.getPath(), 1 << 20, 10, 6, Duration.ofSeconds(30));
+        handler.handle(messages.subList(0, 10));
+        handler.close();
+
+        File file = new File(root, "2004/09/14/10-0.blocks");
+        long complete = file.length();
+        try (FileOutputStream out = new FileOutputStream(file, true)) {
+            out.write(new byte[]{ 0x4c, 0x6f, 0x67, 0x42, 1, 0, 0 }); // Crashed in the middle of a header
+        }
+        LogArchiveScanner scanner = new LogArchiveScanner(root.getPath());
+        assertEquals(messages.subList(0, 10), scan(scanner, Instant.EPOCH, Instant.MAX, Set.of(), Set.of()));
+
+        handler = new BlockArchiverHandler(root.getPath(), 1 << 20, 10, 6, Duration.ofSeconds(30));
+        handler.handle(messages.subList(10, 20));
+        handler.close();
+        assertTrue(file.length() > complete);
+        assertEquals(messages, scan(scanner, Instant.EPOCH, Instant.MAX, Set.of(), Set.of()));
+    }
+
+    @Test
+    public void blocksAreMuchSmallerThanText() throws IOException {
+        File root = temporaryFolder.newFolder();
+        List<LogMessage> messages = messages(10000, Duration.ofMillis(100));
+        BlockArchiverHandler handler = new BlockArchiverHandler(root.getPath(), 1 << 24, 8192, 6, Duration.ofSeconds(30));
+        handler.handle(messages);
+        handler.close();
+
+        long textSize = messages.stream().mapToLong(m -> m.toString().length()).sum();
+        long blockSize = new File(root, "2004/09/14/10-0.blocks").length();
+        assertTrue("Block size " + blockSize + " should be less than a tenth of text size " + textSize,
+                   blockSize * 10 < textSize);
+    }
+
+    private static List<LogMessage> scan(LogArchiveScanner scanner, Instant from, Instant to, Set<Level> levels, Set<String> services) throws IOException {
+        List<LogMessage> result = new ArrayList<>();
+        assertEquals(scanner.scan(from, to, levels, services, result::add), result.size());
+        return result;
+    }
+
+    private static List<LogMessage> messages(int count, Duration interval) {
+        String[] services = { "container", "searchnode", "distributor", "configserver" };
+        Level[] levels = { Level.INFO, Level.INFO, Level.WARNING, LogLevel.DEBUG, LogLevel.ERROR };
+        List<LogMessage> messages = new ArrayList<>(count);
+        for (int i = 0; i < count; i++)
+            messages.add(LogMessage.of(start.plus(interval.multipliedBy(i)),
+                                       "host" + (i % 3) + ".example.com",
+                                       1000 + i % 3,
+                                       i % 7 == 0 ? 0 : 2000 + i % 5,
+                                       services[i % services.length],
+                                       "com.yahoo.component" + (i % 11),
+                                       levels[i % levels.length],
+                                       "Message number " + i + " with some text: ünïcødé \t and a value of " + (i * 37 % 1000)));
+        return messages;
+    }
+
+}
@@ -0,0 +1,277 @@
+// Copyright Verizon Media. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.messagebus;
+
+import com.yahoo.concurrent.SystemTimer;
+import com.yahoo.concurrent.Timer;
+
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * This is an implementation of the {@link ThrottlePolicy} that offers dynamic limits to the number of pending messages a
+ * {@link SourceSession} is allowed to have, based on the latency of replies rather than on throughput alone.
+ * <p>
+ * The policy measures the average latency of each resize period, using the time-weighted number of pending messages,
+ * and the number of replies received (Little's law). The lowest latency seen is the <em>base latency</em>, the latency
+ * of messages which are not queued at the receiver; this is reset to the measured latency whenever the window size is
+ * at its minimum, so the policy adapts to receivers which become permanently slower. The <em>gradient</em> is the
+ * ratio between the base latency, inflated by a tolerance factor, and the measured latency, capped to [0.5, 1].
+ * Each resize period, the window size is set to <code>gradient * windowSize + windowSizeIncrement</code>, smoothed.
+ * While latency stays within the tolerance of the base latency, the window grows additively; as latency inflates
+ * past this, because messages start to queue up at the receiver, the window shrinks proportionally.
+ * </p><p>
+ * Replies with transient errors, e.g., because the receiver is busy, signal overload directly, and cause the window
+ * size to be multiplied by the back off factor, regardless of latency.
+ * </p><p>
+ * The decisions of the policy, and the measurements they are based on, are exposed through getters, for metrics.
+ * </p>
+ *
+ * @author agent
+ */
+public class LatencyThrottlePolicy extends StaticThrottlePolicy {
+
+    private static final Logger log = Logger.getLogger(LatencyThrottlePolicy.class.getName());
+
+    private final Timer timer;
+    private double resizeRate = 3;
+    private double latencyTolerance = 1.5;
+    private double smoothing = 0.5;
+    private double windowSizeIncrement = 20;
+    private double windowSizeBackOff = 0.7;
+    private double minWindowSize = windowSizeIncrement;
+    private double maxWindowSize = Integer.MAX_VALUE;
+    private double windowSize = windowSizeIncrement;
+
+    private int pending = 0;
+    private int numSent = 0;
+    private int numReplies = 0;
+    private int numErrors = 0;
+    private long lastTime;
+    private long resizeTime;
+    private double pendingIntegral = 0;
+
+    private double latency = 0;
+    private double baseLatency = Double.MAX_VALUE;
+    private double throughput = 0;
+    private long numIncreases = 0;
+    private long numDecreases = 0;
+    private long numBackOffs = 0;
+
+    /**
+     * Constructs a new instance of this policy and sets the appropriate default values of member data.
+     */
+    public LatencyThrottlePolicy() {
+        this(SystemTimer.INSTANCE);
+    }
+
+    /**
+     * Constructs a new instance of this class using the given clock to measure latency.
+     *
+     * @param timer the timer to use
+     */
+    public LatencyThrottlePolicy(Timer timer) {
+        this.timer = timer;
+        this.lastTime = timer.milliTime();
+        this.resizeTime = lastTime;
+    }
+
+    @Override
+    public boolean canSend(Message message, int pendingCount) {
+        if ( ! super.canSend(message, pendingCount)) {
+            return false;
+        }
+        return pendingCount < Math.max(1, (int) windowSize);
+    }
+
+    @Override
+    public void processMessage(Message message) {
+        super.processMessage(message);
+        updatePending(+1);
+        if (++numSent < windowSize * resizeRate || numReplies == 0) {
+            return;
+        }
+
+        long time = timer.milliTime();
+        double elapsed = Math.max(1, time - resizeTime);
+        double oldWindowSize = windowSize;
+        resizeTime = time;
+        throughput = numReplies / elapsed;
+        latency = Math.max(1, pendingIntegral) / numReplies;
+        if (latency < baseLatency || windowSize <= minWindowSize)
+            baseLatency = latency;
+
+        if (numErrors > 0) {
+            windowSize *= windowSizeBackOff;
+            ++numBackOffs;
+        }
+        else {
+            double gradient = Math.max(0.5, Math.min(1.0, latencyTolerance * baseLatency / latency));
+            double newWindowSize = gradient * windowSize + windowSizeIncrement;
+            windowSize = (1 - smoothing) * windowSize + smoothing * newWindowSize;
+        }
+        windowSize = Math.max(minWindowSize, windowSize);
+        windowSize = Math.min(maxWindowSize, windowSize);
+
+        if (windowSize > oldWindowSize) ++numIncreases;
+        if (windowSize < oldWindowSize) ++numDecreases;
+        if (log.isLoggable(Level.FINE)) {
+            log.log(Level.FINE, "windowSize " + windowSize + " throughput " + throughput + " latency " + latency +
+                                " base latency " + baseLatency + " errors " + numErrors);
+        }
+        numSent = 0;
+        numReplies = 0;
+        numErrors = 0;
+        pendingIntegral = 0;
+    }
+
+    @Override
+    public void processReply(Reply reply) {
+        super.processReply(reply);
+        updatePending(-1);
+        ++numReplies;
+        for (int i = 0; i < reply.getNumErrors(); i++) {
+            if (ErrorCode.isTransient(reply.getError(i).getCode())) {
+                ++numErrors;
+                break;
+            }
+        }
+    }
+
+    private void updatePending(int delta) {
+        long time = timer.milliTime();
+        pendingIntegral += pending * (double) (time - lastTime);
+        lastTime = time;
+        pending += delta;
+    }
+
+    /**
+     * Sets the factor by which latency may exceed the base latency before the window size is reduced. Capped to [1, ).
+     *
+     * @param latencyTolerance the tolerance to set
+     * @return this, to allow chaining
+     */
+    public LatencyThrottlePolicy setLatencyTolerance(double latencyTolerance) {
+        this.latencyTolerance = Math.max(1, latencyTolerance);
+        return this;
+    }
+
+    /**
+     * Sets how much of each computed window size change is applied. Capped to (0, 1].
+     *
+     * @param smoothing the smoothing factor to set
+     * @return this, to allow chaining
+     */
+    public LatencyThrottlePolicy setSmoothing(double smoothing) {
+        this.smoothing = Math.max(0.01, Math.min(1, smoothing));
+        return this;
+    }
+
+    /**
+     * Sets the step size used when increasing window size.
+     *
+     * @param windowSizeIncrement the step size to set
+     * @return this, to allow chaining
+     */
+    public LatencyThrottlePolicy setWindowSizeIncrement(double windowSizeIncrement) {
+        this.windowSizeIncrement = windowSizeIncrement;
+        this.windowSize = Math.max(this.minWindowSize, this.windowSizeIncrement);
+        return this;
+    }
+
+    /**
+     * Sets the factor of window size to back off to when replies signal overload. Capped to [0, 1].
+     *
+     * @param windowSizeBackOff the back off to set
+     * @return this, to allow chaining
+     */
+    public LatencyThrottlePolicy setWindowSizeBackOff(double windowSizeBackOff) {
+        this.windowSizeBackOff = Math.max(0, Math.min(1, windowSizeBackOff));
+        return this;
+    }
+
+    /**
+     * Sets the rate at which the window size is updated. The larger the value, the less responsive the resizing
+     * becomes. However, the smaller the value, the less accurate the measurements become. Capped to [1, )
+     *
+     * @param resizeRate the rate to set
+     * @return this, to allow chaining
+     */
+    public LatencyThrottlePolicy setResizeRate(double resizeRate) {
+        this.resizeRate = Math.max(1, resizeRate);
+        return this;
+    }
+
+    /**
+     * Sets the minimum number of pending operations allowed at any time, in
+     * order to keep a level of performance.
+     *
+     * @param min the min to set
+     * @return this, to allow chaining
+     */
+    public LatencyThrottlePolicy setMinWindowSize(double min) {
+        this.minWindowSize = min;
+        this.windowSize = Math.max(this.minWindowSize, this.windowSizeIncrement);
+        return this;
+    }
+
+    /**
+     * Sets the maximum number of pending operations allowed at any time, in
+     * order to avoid using too much resources.
+     *
+     * @param max the max to set
+     * @return this, to allow chaining
+     */
+    public LatencyThrottlePolicy setMaxWindowSize(double max) {
+        this.maxWindowSize = max;
+        return this;
+    }
+
+    /**
+     * Sets the maximum number of pending messages allowed, which also caps the window size.
+     *
+     * @param maxCount the max count to set
+     * @return this, to allow chaining
+     */
+    @Override
+    public LatencyThrottlePolicy setMaxPendingCount(int maxCount) {
+        super.setMaxPendingCount(maxCount);
+        maxWindowSize = maxCount;
+        return this;
+    }
+
+    /**
+     * Returns the maximum number of pending messages allowed.
+     *
+     * @return the max limit
+     */
+    @Override
+    public int getMaxPendingCount() {
+        return (int) windowSize;
+    }
+
+    public double getMinWindowSize() { return minWindowSize; }
+
+    public double getMaxWindowSize() { return maxWindowSize; }
+
+    /** Returns the current window size. */
+    public double getWindowSize() { return windowSize; }
+
+    /** Returns the average latency, in milliseconds, measured over the last resize period. */
+    public double getLatency() { return latency; }
+
+    /** Returns the current base latency, in milliseconds, i.e., the estimated latency of messages which are not queued. */
+    public double getBaseLatency() { return baseLatency == Double.MAX_VALUE ? 0 : baseLatency; }
+
+    /** Returns the number of replies per millisecond, measured over the last resize period. */
+    public double getThroughput() { return throughput; }
+
+    /** Returns the number of resize periods which increased the window size. */
+    public long getNumIncreases() { return numIncreases; }
+
+    /** Returns the number of resize periods which decreased the window size. */
+    public long getNumDecreases() { return numDecreases; }
+
+    /** Returns the number of resize periods where replies signalled overload, and the window size was backed off. */
+    public long getNumBackOffs() { return numBackOffs; }
+
+}
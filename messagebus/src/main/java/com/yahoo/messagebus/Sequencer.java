@@ -1,10 +1,10 @@
 // Copyright 2017 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
 package com.yahoo.messagebus;
 
-import java.util.HashMap;
-import java.util.LinkedList;
-import java.util.Map;
+import java.util.ArrayDeque;
 import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
@@ -12,14 +12,21 @@ import java.util.concurrent.atomic.AtomicBoolean;
  * linked message handlers. Each message that carries a sequencing id is queued in an internal list of messages for that
  * id, and messages are only sent when they are at the front of their list. When a reply arrives, the current front of
  * the list is removed and the next message, if any, is sent.
+ * <p>
+ * The state for each sequence id is updated atomically through a concurrent map, so that threads sending messages
+ * with different sequence ids do not contend on a common lock. Ownership of a sequence id is held by the sender of
+ * the message in flight, and is handed over to the next queued message when its reply arrives.
  *
  * @author Simon Thoresen Hult
  */
 public class Sequencer implements MessageHandler, ReplyHandler {
 
+    /** Marks a sequence id which has a message in flight, but no queued messages. Never modified. */
+    private static final Queue<Message> EMPTY = new ArrayDeque<>(0);
+
     private final AtomicBoolean destroyed = new AtomicBoolean(false);
     private final MessageHandler sender;
-    private final Map<Long, Queue<Message>> seqMap = new HashMap<>();
+    private final ConcurrentMap<Long, Queue<Message>> seqMap = new ConcurrentHashMap<>();
 
     /**
      * Constructs a new sequencer on top of the given async sender.
@@ -38,15 +45,13 @@ public class Sequencer implements MessageHandler, ReplyHandler {
      */
     public boolean destroy() {
         if (!destroyed.getAndSet(true)) {
-            synchronized (this) {
-                for (Queue<Message> queue : seqMap.values()) {
-                    if (queue != null) {
-                        for (Message msg : queue) {
-                            msg.discard();
-                        }
+            for (Long seqId : seqMap.keySet()) {
+                Queue<Message> queue = seqMap.remove(seqId);
+                if (queue != null) {
+                    for (Message msg : queue) {
+                        msg.discard();
                     }
                 }
-                seqMap.clear();
             }
             return true;
         }
@@ -65,23 +70,26 @@ public class Sequencer implements MessageHandler, ReplyHandler {
     private boolean filter(Message msg) {
         long seqId = msg.getSequenceId();
         msg.setContext(seqId);
-        synchronized (this) {
-            if (seqMap.containsKey(seqId)) {
-                Queue<Message> queue = seqMap.get(seqId);
-                if (queue == null) {
-                    queue = new LinkedList<>();
-                    seqMap.put(seqId, queue);
-                }
-                if (msg.getTrace().shouldTrace(TraceLevel.COMPONENT)) {
-                    msg.getTrace().trace(TraceLevel.COMPONENT,
-                                         "Sequencer queued message with sequence id '" + seqId + "'.");
-                }
-                queue.add(msg);
-                return false;
-            }
-            seqMap.put(seqId, null);
+        if (seqMap.putIfAbsent(seqId, EMPTY) == null) {
+            return true; // no message in flight for this id, so we now own it
         }
-        return true;
+        boolean[] owner = { false };
+        seqMap.compute(seqId, (id, queue) -> {
+            if (queue == null) { // the message in flight got its reply after our first attempt
+                owner[0] = true;
+                return EMPTY;
+            }
+            if (queue == EMPTY) {
+                queue = new ArrayDeque<>();
+            }
+            if (msg.getTrace().shouldTrace(TraceLevel.COMPONENT)) {
+                msg.getTrace().trace(TraceLevel.COMPONENT,
+                                     "Sequencer queued message with sequence id '" + seqId + "'.");
+            }
+            queue.add(msg);
+            return queue;
+        });
+        return owner[0];
     }
 
     /**
@@ -137,17 +145,16 @@ public class Sequencer implements MessageHandler, ReplyHandler {
             reply.getTrace().trace(TraceLevel.COMPONENT,
                                    "Sequencer received reply with sequence id '" + seqId + "'.");
         }
-        Message msg = null;
-        synchronized (this) {
-            Queue<Message> queue = seqMap.get(seqId);
-            if (queue == null || queue.isEmpty()) {
-                seqMap.remove(seqId);
-            } else {
-                msg = queue.remove();
+        Message[] next = { null };
+        seqMap.computeIfPresent(seqId, (id, queue) -> {
+            if (queue.isEmpty()) {
+                return null; // releases ownership of this id
             }
-        }
-        if (msg != null) {
-            sequencedSend(msg);
+            next[0] = queue.remove(); // hands ownership of this id over to the next message
+            return queue;
+        });
+        if (next[0] != null) {
+            sequencedSend(next[0]);
         }
         ReplyHandler handler = reply.popHandler();
         handler.handleReply(reply);
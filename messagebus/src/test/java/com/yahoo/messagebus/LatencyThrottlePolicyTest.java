@@ -0,0 +1,81 @@
+// Copyright Verizon Media. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.messagebus;
+
+import com.yahoo.messagebus.DynamicThrottlePolicyTest.Summary;
+import org.junit.Test;
+
+import java.util.List;
+
+import static com.yahoo.messagebus.DynamicThrottlePolicyTest.assertInRange;
+import static com.yahoo.messagebus.ThrottlePolicySimulation.busy;
+import static com.yahoo.messagebus.ThrottlePolicySimulation.message;
+import static com.yahoo.messagebus.ThrottlePolicySimulation.simulate;
+import static com.yahoo.messagebus.ThrottlePolicySimulation.success;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Runs the {@link LatencyThrottlePolicy} against the simulated server of {@link DynamicThrottlePolicyTest}, using
+ * the {@link ThrottlePolicySimulation}.
+ *
+ * @author agent
+ */
+public class LatencyThrottlePolicyTest {
+
+    @Test
+    public void singlePolicyFindsSaturationWithoutOverload() {
+        for (int parallelism : new int[]{ 10, 100, 1000 }) {
+            long operations = 1000 * parallelism;
+            int workPerSuccess = 8;
+            int numberOfWorkers = 1;
+            int maximumTasksPerWorker = 10 * parallelism;
+            CustomTimer timer = new CustomTimer();
+            LatencyThrottlePolicy policy = new LatencyThrottlePolicy(timer).setMinWindowSize(1)
+                                                                           .setWindowSizeIncrement(Math.sqrt(parallelism));
+            Summary summary = simulate(operations, workPerSuccess, numberOfWorkers, maximumTasksPerWorker, parallelism, timer,
+                                       LatencyThrottlePolicy::getWindowSize, List.of(policy));
+
+            assertInRange(0.5 * parallelism, summary.averageWindows[0], 2 * parallelism);
+            assertInRange(1, summary.inefficiency, 1.3);
+            assertInRange(0, summary.waste, 0);
+            assertInRange(workPerSuccess - 1, policy.getBaseLatency(), workPerSuccess + 1);
+        }
+    }
+
+    @Test
+    public void twoPoliciesShareServer() {
+        long operations = 1_000_000;
+        int workPerSuccess = 6;
+        int numberOfWorkers = 4;
+        int maximumTasksPerWorker = 1000;
+        int workerParallelism = 32;
+        CustomTimer timer = new CustomTimer();
+        LatencyThrottlePolicy policy1 = new LatencyThrottlePolicy(timer);
+        LatencyThrottlePolicy policy2 = new LatencyThrottlePolicy(timer);
+        Summary summary = simulate(operations, workPerSuccess, numberOfWorkers, maximumTasksPerWorker, workerParallelism, timer,
+                                   LatencyThrottlePolicy::getWindowSize, List.of(policy1, policy2));
+
+        double minMaxPending = numberOfWorkers * workerParallelism;
+        assertInRange(minMaxPending, summary.averagePending, 3 * minMaxPending);
+        assertInRange(1, summary.inefficiency, 1.1);
+        assertInRange(0, summary.waste, 0);
+    }
+
+    @Test
+    public void busyRepliesBackOffWindow() {
+        CustomTimer timer = new CustomTimer();
+        LatencyThrottlePolicy policy = new LatencyThrottlePolicy(timer).setWindowSizeIncrement(10)
+                                                                       .setMinWindowSize(1)
+                                                                       .setWindowSizeBackOff(0.5);
+        assertEquals(10, policy.getWindowSize(), 1e-9);
+        for (int i = 0; i < 30; i++) {
+            policy.processMessage(message);
+            ++timer.millis;
+            policy.processReply(i == 0 ? busy : success);
+        }
+        assertEquals(5, policy.getWindowSize(), 1e-9);
+        assertEquals(1, policy.getNumBackOffs());
+        assertEquals(1, policy.getNumDecreases());
+        assertEquals(0, policy.getNumIncreases());
+    }
+
+}
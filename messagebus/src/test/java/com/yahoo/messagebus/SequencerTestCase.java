@@ -4,10 +4,20 @@ package com.yahoo.messagebus;
 import com.yahoo.messagebus.test.SimpleMessage;
 import org.junit.Test;
 
+import java.util.ArrayList;
 import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
 import java.util.Queue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 
@@ -104,6 +114,82 @@ public class SequencerTestCase {
         assertEquals(0, dst.size());
     }
 
+    @Test
+    public void testConcurrentSendersKeepOrderPerId() throws InterruptedException {
+        int numThreads = 8, numMessages = 2000, numIds = 5;
+        BlockingQueue<Message> inFlight = new LinkedBlockingQueue<>();
+        Map<Long, AtomicInteger> pending = new ConcurrentHashMap<>();
+        Map<Long, Integer> lastSent = new ConcurrentHashMap<>();
+        List<String> errors = new ArrayList<>();
+        CountDownLatch replies = new CountDownLatch(numThreads * numMessages);
+        Sequencer seq = new Sequencer(msg -> {
+            if (pending.computeIfAbsent(msg.getSequenceId(), __ -> new AtomicInteger()).incrementAndGet() != 1) {
+                synchronized (errors) { errors.add("Multiple messages in flight for id " + msg.getSequenceId()); }
+            }
+            inFlight.add(msg);
+        });
+
+        Thread replier = new Thread(() -> {
+            try {
+                for (int i = 0; i < numThreads * numMessages; i++) {
+                    Message msg = inFlight.take();
+                    pending.get(msg.getSequenceId()).decrementAndGet();
+                    Reply reply = new EmptyReply();
+                    reply.swapState(msg);
+                    reply.setMessage(msg);
+                    reply.popHandler().handleReply(reply);
+                }
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        replier.start();
+
+        List<Thread> senders = new ArrayList<>();
+        for (int t = 0; t < numThreads; t++) {
+            long seqId = t % numIds;
+            int sender = t;
+            senders.add(new Thread(() -> {
+                for (int i = 0; i < numMessages; i++) {
+                    Message msg = new MyMessage(true, seqId);
+                    int index = i;
+                    msg.pushHandler(reply -> {
+                        Integer previous = lastSent.put((long) sender, index);
+                        if (previous != null && previous != index - 1) {
+                            synchronized (errors) { errors.add("Reply " + index + " for sender " + sender + " after " + previous); }
+                        }
+                        replies.countDown();
+                    });
+                    seq.handleMessage(msg);
+                }
+            }));
+        }
+        senders.forEach(Thread::start);
+        for (Thread sender : senders) sender.join();
+        assertTrue(replies.await(60, TimeUnit.SECONDS));
+        replier.join();
+        assertEquals(List.of(), errors);
+        assertTrue(inFlight.isEmpty());
+    }
+
+    @Test
+    public void testDestroyDiscardsQueuedMessages() {
+        TestQueue src = new TestQueue();
+        TestQueue dst = new TestQueue();
+        Sequencer seq = new Sequencer(new QueueSender(dst));
+
+        seq.handleMessage(src.createMessage(true, 1L));
+        seq.handleMessage(src.createMessage(true, 1L));
+        seq.handleMessage(src.createMessage(true, 1L));
+        assertEquals(1, dst.size());
+
+        assertTrue(seq.destroy());
+        assertFalse(seq.destroy());
+        seq.handleMessage(src.createMessage(true, 2L));
+        assertEquals(1, dst.size());
+        assertEquals(0, src.size());
+    }
+
     @SuppressWarnings("serial")
     private static class TestQueue extends LinkedList<Routable> implements ReplyHandler {
 
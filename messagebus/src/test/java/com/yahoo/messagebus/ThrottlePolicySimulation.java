@@ -0,0 +1,88 @@
+// Copyright Verizon Media. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.messagebus;
+
+import com.yahoo.messagebus.DynamicThrottlePolicyTest.MockServer;
+import com.yahoo.messagebus.DynamicThrottlePolicyTest.Summary;
+import com.yahoo.messagebus.test.SimpleMessage;
+import com.yahoo.messagebus.test.SimpleReply;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.ToDoubleFunction;
+import java.util.stream.IntStream;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Runs any kind of {@link ThrottlePolicy} against the {@link MockServer} of {@link DynamicThrottlePolicyTest}.
+ * Overload is signalled with {@link ErrorCode#SESSION_BUSY}, which is transient, like a real server would.
+ *
+ * @author agent
+ */
+class ThrottlePolicySimulation {
+
+    static final Message message = new SimpleMessage("message");
+    static final Reply success = new SimpleReply("success");
+    static final Reply busy = new SimpleReply("busy");
+    static {
+        success.setContext(message.getApproxSize());
+        busy.setContext(message.getApproxSize());
+        busy.addError(new Error(ErrorCode.SESSION_BUSY, "overload"));
+    }
+
+    private ThrottlePolicySimulation() { }
+
+    /**
+     * Lets the given policies send the given number of operations to a {@link MockServer} with the given properties,
+     * until all have received a successful reply, and returns a summary of how well they did.
+     */
+    static <P extends ThrottlePolicy> Summary simulate(long operations, int workPerSuccess, int numberOfWorkers, int maximumTasksPerWorker,
+                                                       int workerParallelism, CustomTimer timer, ToDoubleFunction<P> windowSize,
+                                                       List<P> policies) {
+        List<Integer> order = IntStream.range(0, policies.size()).boxed().collect(toList());
+        MockServer resource = new MockServer(workPerSuccess, numberOfWorkers, maximumTasksPerWorker, workerParallelism);
+        AtomicLong outstanding = new AtomicLong(operations);
+        AtomicLong errors = new AtomicLong(0);
+        long ticks = 0;
+        long totalPending = 0;
+        double[] windows = new double[policies.size()];
+        int[] pending = new int[policies.size()];
+        while (outstanding.get() + resource.pending() > 0) {
+            Collections.shuffle(order);
+            for (int j = 0; j < policies.size(); j++) {
+                int i = order.get(j);
+                P policy = policies.get(i);
+                windows[i] += windowSize.applyAsDouble(policy);
+                while (policy.canSend(message, pending[i])) {
+                    outstanding.decrementAndGet();
+                    policy.processMessage(message);
+                    ++pending[i];
+                    resource.send(successful -> {
+                        --pending[i];
+                        if (successful)
+                            policy.processReply(success);
+                        else {
+                            errors.incrementAndGet();
+                            outstanding.incrementAndGet();
+                            policy.processReply(busy);
+                        }
+                    });
+                }
+            }
+            ++ticks;
+            totalPending += resource.pending();
+            resource.tick();
+            ++timer.millis;
+        }
+
+        for (int i = 0; i < windows.length; i++)
+            windows[i] /= ticks;
+
+        return new Summary(timer.milliTime() / (workPerSuccess * operations / (double) numberOfWorkers) * workerParallelism,
+                           errors.get() / (double) operations,
+                           totalPending / (double) ticks,
+                           windows);
+    }
+
+}
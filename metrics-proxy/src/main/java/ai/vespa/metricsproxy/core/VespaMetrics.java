@@ -11,7 +11,11 @@ import ai.vespa.metricsproxy.metric.model.ConsumerId;
 import ai.vespa.metricsproxy.metric.model.DimensionId;
 import ai.vespa.metricsproxy.metric.model.MetricsPacket;
 import ai.vespa.metricsproxy.service.VespaService;
+import com.google.inject.Inject;
+import com.yahoo.component.AbstractComponent;
+import com.yahoo.concurrent.DaemonThreadFactory;
 
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
@@ -21,6 +25,12 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeoutException;
+import java.util.logging.Logger;
 import java.util.stream.Collectors;
 
 import static ai.vespa.metricsproxy.metric.dimensions.PublicDimensions.INTERNAL_SERVICE_ID;
@@ -28,23 +38,51 @@ import static ai.vespa.metricsproxy.metric.model.ConsumerId.toConsumerId;
 import static ai.vespa.metricsproxy.metric.model.DimensionId.toDimensionId;
 import static ai.vespa.metricsproxy.metric.model.ServiceId.toServiceId;
 import static com.google.common.base.Strings.isNullOrEmpty;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static java.util.logging.Level.FINE;
+import static java.util.logging.Level.WARNING;
 
 /**
+ * Fetches metrics from the given services in parallel, and converts them to metrics packets.
+ * Services that fail to respond within the fetch timeout are represented by their last good snapshot,
+ * so a single slow service does not delay the metrics for the whole node.
+ *
  * @author gjoranv
  */
-public class VespaMetrics {
+public class VespaMetrics extends AbstractComponent {
+
+    private static final Logger log = Logger.getLogger(VespaMetrics.class.getName());
 
     public static final ConsumerId vespaMetricsConsumerId = toConsumerId("Vespa");
 
     public static final DimensionId METRIC_TYPE_DIMENSION_ID = toDimensionId("metrictype");
     public static final DimensionId INSTANCE_DIMENSION_ID = toDimensionId(INTERNAL_SERVICE_ID);
 
+    static final int FETCH_THREADS = 16;
+    static final Duration FETCH_TIMEOUT = Duration.ofSeconds(20);
+    static final Duration MAX_SNAPSHOT_AGE = Duration.ofMinutes(5);
+
     private final MetricsConsumers metricsConsumers;
+    private final ExecutorService fetchExecutor;
+    private final Duration fetchTimeout;
 
     private static final MetricsFormatter formatter = new MetricsFormatter(false, false);
 
+    @Inject
     public VespaMetrics(MetricsConsumers metricsConsumers) {
+        this(metricsConsumers, FETCH_TIMEOUT);
+    }
+
+    VespaMetrics(MetricsConsumers metricsConsumers, Duration fetchTimeout) {
         this.metricsConsumers = metricsConsumers;
+        this.fetchTimeout = fetchTimeout;
+        this.fetchExecutor = Executors.newFixedThreadPool(FETCH_THREADS, new DaemonThreadFactory("metrics-fetcher-"));
+    }
+
+    @Override
+    public void deconstruct() {
+        fetchExecutor.shutdownNow();
+        super.deconstruct();
     }
 
     public List<MetricsPacket> getHealthMetrics(List<VespaService> services) {
@@ -72,12 +110,14 @@ public class VespaMetrics {
 
         Map<ConsumersConfig.Consumer.Metric, List<ConsumerId>> consumersByMetric = metricsConsumers.getConsumersByMetric();
 
-        for (VespaService service : services) {
+        List<Metrics> fetched = fetchMetrics(services);
+        for (int i = 0; i < services.size(); i++) {
+            VespaService service = services.get(i);
             // One metrics packet for system metrics
             Optional<MetricsPacket.Builder> systemCheck = getSystemMetrics(service);
             systemCheck.ifPresent(metricsPackets::add);
 
-            Metrics allServiceMetrics = service.getMetrics();
+            Metrics allServiceMetrics = fetched.get(i);
 
             if (! allServiceMetrics.getMetrics().isEmpty()) {
                 Metrics serviceMetrics = getServiceMetrics(allServiceMetrics, consumersByMetric);
@@ -105,6 +145,49 @@ public class VespaMetrics {
         return metricsPackets;
     }
 
+    /**
+     * Fetches metrics from all the given services in parallel, and waits for them until the fetch timeout
+     * has passed, after which the last good snapshot is used for each service that has not yet responded.
+     *
+     * @return the metrics for each of the given services, in the same order
+     */
+    private List<Metrics> fetchMetrics(List<VespaService> services) {
+        List<CompletableFuture<Metrics>> pending = new ArrayList<>(services.size());
+        for (VespaService service : services)
+            pending.add(service.fetchMetrics(fetchExecutor));
+
+        long deadline = System.nanoTime() + fetchTimeout.toNanos();
+        List<Metrics> fetched = new ArrayList<>(services.size());
+        for (int i = 0; i < services.size(); i++)
+            fetched.add(awaitMetrics(services.get(i), pending.get(i), deadline));
+
+        return fetched;
+    }
+
+    private static Metrics awaitMetrics(VespaService service, CompletableFuture<Metrics> pending, long deadline) {
+        try {
+            return pending.get(Math.max(0, deadline - System.nanoTime()), NANOSECONDS);
+        }
+        catch (TimeoutException e) {
+            log.log(FINE, () -> "Timed out fetching metrics from " + service + ", using last snapshot");
+            return lastSnapshot(service);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return lastSnapshot(service);
+        }
+        catch (ExecutionException e) {
+            log.log(WARNING, "Failed fetching metrics from " + service, e.getCause());
+            return new Metrics();
+        }
+    }
+
+    private static Metrics lastSnapshot(VespaService service) {
+        Metrics last = service.getLastMetrics();
+        long ageSeconds = System.currentTimeMillis() / 1000 - last.getTimeStamp();
+        return ageSeconds > MAX_SNAPSHOT_AGE.toSeconds() ? new Metrics() : last;
+    }
+
     private MetricsPacket.Builder getHealth(VespaService service) {
         HealthMetric health = service.getHealth();
         return new MetricsPacket.Builder(toServiceId(service.getMonitoringName()))
@@ -243,8 +326,10 @@ public class VespaMetrics {
      */
     public String getMetricsAsString(List<VespaService> services) {
         StringBuilder b = new StringBuilder();
-        for (VespaService s : services) {
-            for (Metric metric : s.getMetrics().getMetrics()) {
+        List<Metrics> fetched = fetchMetrics(services);
+        for (int i = 0; i < services.size(); i++) {
+            VespaService s = services.get(i);
+            for (Metric metric : fetched.get(i).getMetrics()) {
                 String key = metric.getName();
                 String alias = key;
 
@@ -272,9 +357,9 @@ public class VespaMetrics {
     public String getMetricNames(List<VespaService> services, ConsumerId consumer) {
         StringBuilder bufferOn = new StringBuilder();
         StringBuilder bufferOff = new StringBuilder();
-        for (VespaService s : services) {
+        for (Metrics metrics : fetchMetrics(services)) {
 
-            for (Metric m : s.getMetrics().getMetrics()) {
+            for (Metric m : metrics.getMetrics()) {
                 String description = m.getDescription();
                 String alias = "";
                 boolean isForwarded = false;
@@ -0,0 +1,43 @@
+// Copyright Verizon Media. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package ai.vespa.metricsproxy.http;
+
+import com.yahoo.container.jdisc.HttpResponse;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * A response whose content is rendered straight to the output stream when the response is written,
+ * rather than to a string or byte array first.
+ *
+ * @author agent
+ */
+public class StreamingResponse extends HttpResponse {
+
+    private final String contentType;
+    private final Renderer renderer;
+
+    public StreamingResponse(int code, String contentType, Renderer renderer) {
+        super(code);
+        this.contentType = contentType;
+        this.renderer = renderer;
+    }
+
+    @Override
+    public String getContentType() {
+        return contentType;
+    }
+
+    @Override
+    public void render(OutputStream outputStream) throws IOException {
+        renderer.render(outputStream);
+    }
+
+    @FunctionalInterface
+    public interface Renderer {
+
+        void render(OutputStream outputStream) throws IOException;
+
+    }
+
+}
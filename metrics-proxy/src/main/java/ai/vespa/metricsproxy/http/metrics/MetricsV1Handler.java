@@ -3,13 +3,14 @@ package ai.vespa.metricsproxy.http.metrics;
 
 import ai.vespa.metricsproxy.core.MetricsConsumers;
 import ai.vespa.metricsproxy.core.MetricsManager;
+import ai.vespa.metricsproxy.http.StreamingResponse;
 import ai.vespa.metricsproxy.http.ValuesFetcher;
 import ai.vespa.metricsproxy.metric.model.MetricsPacket;
+import ai.vespa.metricsproxy.metric.model.json.GenericJsonRenderer;
 import ai.vespa.metricsproxy.service.VespaServices;
 import com.google.inject.Inject;
 import com.yahoo.container.handler.metrics.ErrorResponse;
 import com.yahoo.container.handler.metrics.HttpHandlerBase;
-import com.yahoo.container.handler.metrics.JsonResponse;
 import com.yahoo.container.jdisc.HttpResponse;
 import com.yahoo.restapi.Path;
 
@@ -19,7 +20,6 @@ import java.util.Optional;
 import java.util.concurrent.Executor;
 import java.util.logging.Level;
 
-import static ai.vespa.metricsproxy.metric.model.json.GenericJsonUtil.toGenericJsonModel;
 import static com.yahoo.jdisc.Response.Status.INTERNAL_SERVER_ERROR;
 import static com.yahoo.jdisc.Response.Status.OK;
 
@@ -34,6 +34,7 @@ public class MetricsV1Handler extends HttpHandlerBase {
     public static final String VALUES_PATH = V1_PATH + "/values";
 
     private final ValuesFetcher valuesFetcher;
+    private final GenericJsonRenderer renderer = new GenericJsonRenderer();
 
     @Inject
     public MetricsV1Handler(Executor executor,
@@ -51,10 +52,10 @@ public class MetricsV1Handler extends HttpHandlerBase {
         return Optional.empty();
     }
 
-    private JsonResponse valuesResponse(String consumer) {
+    private HttpResponse valuesResponse(String consumer) {
         try {
             List<MetricsPacket> metrics =  valuesFetcher.fetch(consumer);
-            return new JsonResponse(OK, toGenericJsonModel(metrics).serialize());
+            return new StreamingResponse(OK, "application/json", out -> renderer.render(metrics, out));
         } catch (Exception e) {
             log.log(Level.WARNING, "Got exception when rendering metrics:", e);
             return new ErrorResponse(INTERNAL_SERVER_ERROR, e.getMessage());
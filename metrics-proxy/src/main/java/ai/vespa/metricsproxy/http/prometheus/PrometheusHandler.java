@@ -3,24 +3,29 @@ package ai.vespa.metricsproxy.http.prometheus;
 
 import ai.vespa.metricsproxy.core.MetricsConsumers;
 import ai.vespa.metricsproxy.core.MetricsManager;
+import ai.vespa.metricsproxy.http.StreamingResponse;
 import ai.vespa.metricsproxy.http.TextResponse;
 import ai.vespa.metricsproxy.http.ValuesFetcher;
 import ai.vespa.metricsproxy.metric.model.MetricsPacket;
+import ai.vespa.metricsproxy.metric.model.prometheus.PrometheusRenderer;
 import ai.vespa.metricsproxy.service.VespaServices;
 import com.google.inject.Inject;
 import com.yahoo.container.handler.metrics.HttpHandlerBase;
 import com.yahoo.container.jdisc.HttpResponse;
 import com.yahoo.restapi.Path;
 
+import java.io.BufferedWriter;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.net.URI;
 import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.Executor;
 import java.util.logging.Level;
 
-import static ai.vespa.metricsproxy.metric.model.prometheus.PrometheusUtil.toPrometheusModel;
 import static com.yahoo.jdisc.Response.Status.INTERNAL_SERVER_ERROR;
 import static com.yahoo.jdisc.Response.Status.OK;
+import static java.nio.charset.StandardCharsets.UTF_8;
 
 /**
  * @author gjoranv
@@ -31,6 +36,7 @@ public class PrometheusHandler extends HttpHandlerBase {
     static final String VALUES_PATH = V1_PATH + "/values";
 
     private final ValuesFetcher valuesFetcher;
+    private final PrometheusRenderer renderer = new PrometheusRenderer();
 
     @Inject
     public PrometheusHandler(Executor executor,
@@ -48,10 +54,14 @@ public class PrometheusHandler extends HttpHandlerBase {
         return Optional.empty();
     }
 
-    private TextResponse valuesResponse(String consumer) {
+    private HttpResponse valuesResponse(String consumer) {
         try {
             List<MetricsPacket> metrics =  valuesFetcher.fetch(consumer);
-            return new TextResponse(OK, toPrometheusModel(metrics).serialize());
+            return new StreamingResponse(OK, HttpResponse.DEFAULT_MIME_TYPE, out -> {
+                Writer writer = new BufferedWriter(new OutputStreamWriter(out, UTF_8));
+                renderer.render(metrics, writer);
+                writer.flush();
+            });
         } catch (Exception e) {
             log.log(Level.WARNING, "Got exception when rendering metrics:", e);
             return new TextResponse(INTERNAL_SERVER_ERROR, e.getMessage());
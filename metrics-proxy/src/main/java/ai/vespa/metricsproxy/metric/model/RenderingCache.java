@@ -0,0 +1,52 @@
+// Copyright Verizon Media. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package ai.vespa.metricsproxy.metric.model;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+
+/**
+ * Caches the rendered form of keys, such as sets of dimensions or metric ids, which mostly recur from one scrape to
+ * the next. A key is copied only when it is added, so lookups allocate nothing. If the cache grows too large, e.g.,
+ * because dimension values churn, it is cleared.
+ *
+ * @author agent
+ */
+public class RenderingCache<K> {
+
+    private final Map<K, String> rendered = new ConcurrentHashMap<>();
+    private final int maxSize;
+    private final UnaryOperator<K> copier;
+    private final Function<K, String> renderer;
+
+    public RenderingCache(int maxSize, UnaryOperator<K> copier, Function<K, String> renderer) {
+        this.maxSize = maxSize;
+        this.copier = copier;
+        this.renderer = renderer;
+    }
+
+    /** Returns a cache of the rendered form of dimension sets, which are interned as immutable copies. */
+    public static RenderingCache<Map<DimensionId, String>> forDimensions(int maxSize, Function<Map<DimensionId, String>, String> renderer) {
+        return new RenderingCache<>(maxSize, dimensions -> Collections.unmodifiableMap(new LinkedHashMap<>(dimensions)), renderer);
+    }
+
+    /** Returns the rendered form of the given key. */
+    public String get(K key) {
+        String cached = rendered.get(key);
+        if (cached != null) return cached;
+
+        if (rendered.size() >= maxSize) rendered.clear();
+        String computed = renderer.apply(key);
+        rendered.put(copier.apply(key), computed);
+        return computed;
+    }
+
+    /** Returns the number of keys in this. */
+    public int size() {
+        return rendered.size();
+    }
+
+}
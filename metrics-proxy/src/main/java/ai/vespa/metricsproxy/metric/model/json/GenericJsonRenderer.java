@@ -0,0 +1,117 @@
+// Copyright Verizon Media. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package ai.vespa.metricsproxy.metric.model.json;
+
+import ai.vespa.metricsproxy.metric.model.DimensionId;
+import ai.vespa.metricsproxy.metric.model.MetricId;
+import ai.vespa.metricsproxy.metric.model.MetricsPacket;
+import ai.vespa.metricsproxy.metric.model.RenderingCache;
+import ai.vespa.metricsproxy.metric.model.ServiceId;
+import ai.vespa.metricsproxy.metric.model.StatusCode;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import static ai.vespa.metricsproxy.metric.ExternalMetrics.VESPA_NODE_SERVICE_ID;
+import static java.util.stream.Collectors.groupingBy;
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Writes metrics packets in the generic json format, straight to the output, with the same content as
+ * {@link GenericJsonUtil#toGenericJsonModel(List)} and {@link GenericJsonModel#serialize()}. Dimension sets are
+ * rendered once, and cached across scrapes, instead of being copied to string maps for each packet.
+ *
+ * @author agent
+ */
+public class GenericJsonRenderer {
+
+    private static final int maxCachedDimensions = 1 << 16;
+    private static final JsonFactory factory = new JsonFactory().disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+
+    private final RenderingCache<Map<DimensionId, String>> dimensions = RenderingCache.forDimensions(maxCachedDimensions, GenericJsonRenderer::renderDimensions);
+
+    /** Writes the given metrics packets to the given stream, which is flushed, but not closed. */
+    public void render(List<MetricsPacket> metricsPackets, OutputStream out) throws IOException {
+        Map<ServiceId, List<MetricsPacket>> packetsByService = metricsPackets.stream()
+                .collect(groupingBy(packet -> packet.service, LinkedHashMap::new, toList()));
+
+        // Same as JacksonUtil.DoubleSerializer, but created once per rendering, rather than once per value
+        DecimalFormat format = new DecimalFormat("#.####", new DecimalFormatSymbols(Locale.ENGLISH));
+        format.setMaximumFractionDigits(13);
+
+        try (JsonGenerator generator = factory.createGenerator(out, JsonEncoding.UTF8)) {
+            generator.writeStartObject();
+            List<MetricsPacket> nodePackets = packetsByService.get(VESPA_NODE_SERVICE_ID);
+            if (nodePackets != null) {
+                generator.writeObjectFieldStart("node");
+                generator.writeNumberField("timestamp", nodePackets.get(0).timestamp);
+                writeMetrics(nodePackets, generator, format);
+                generator.writeEndObject();
+            }
+            generator.writeArrayFieldStart("services");
+            for (Map.Entry<ServiceId, List<MetricsPacket>> service : packetsByService.entrySet()) {
+                if (VESPA_NODE_SERVICE_ID.equals(service.getKey())) continue;
+
+                MetricsPacket firstPacket = service.getValue().get(0);
+                generator.writeStartObject();
+                generator.writeStringField("name", service.getKey().id);
+                generator.writeNumberField("timestamp", firstPacket.timestamp);
+                generator.writeObjectFieldStart("status");
+                generator.writeStringField("code", StatusCode.values()[firstPacket.statusCode].status);
+                if (firstPacket.statusMessage != null && ! firstPacket.statusMessage.isEmpty())
+                    generator.writeStringField("description", firstPacket.statusMessage);
+                generator.writeEndObject();
+                writeMetrics(service.getValue(), generator, format);
+                generator.writeEndObject();
+            }
+            generator.writeEndArray();
+            generator.writeEndObject();
+        }
+    }
+
+    private void writeMetrics(List<MetricsPacket> packets, JsonGenerator generator, DecimalFormat format) throws IOException {
+        generator.writeArrayFieldStart("metrics");
+        for (MetricsPacket packet : packets) {
+            Map<MetricId, Number> values = packet.metrics();
+            Map<DimensionId, String> packetDimensions = packet.dimensions();
+            if (values.isEmpty() && packetDimensions.isEmpty()) continue;
+
+            generator.writeStartObject();
+            generator.writeObjectFieldStart("values");
+            for (Map.Entry<MetricId, Number> value : values.entrySet()) {
+                generator.writeFieldName(value.getKey().id);
+                generator.writeNumber(format.format(value.getValue().doubleValue()));
+            }
+            generator.writeEndObject();
+            generator.writeFieldName("dimensions");
+            generator.writeRawValue(dimensions.get(packetDimensions));
+            generator.writeEndObject();
+        }
+        generator.writeEndArray();
+    }
+
+    private static String renderDimensions(Map<DimensionId, String> dimensions) {
+        StringWriter rendered = new StringWriter();
+        try (JsonGenerator generator = factory.createGenerator(rendered)) {
+            generator.writeStartObject();
+            for (Map.Entry<DimensionId, String> dimension : dimensions.entrySet())
+                generator.writeStringField(dimension.getKey().id, dimension.getValue());
+            generator.writeEndObject();
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return rendered.toString();
+    }
+
+}
@@ -0,0 +1,160 @@
+// Copyright Verizon Media. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package ai.vespa.metricsproxy.metric.model.prometheus;
+
+import ai.vespa.metricsproxy.metric.model.DimensionId;
+import ai.vespa.metricsproxy.metric.model.MetricId;
+import ai.vespa.metricsproxy.metric.model.MetricsPacket;
+import ai.vespa.metricsproxy.metric.model.RenderingCache;
+import ai.vespa.metricsproxy.metric.model.ServiceId;
+import io.prometheus.client.Collector;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
+
+/**
+ * Writes metrics packets in the Prometheus text format, straight to the output, with the same content as
+ * {@link PrometheusUtil#toPrometheusModel(List)} and {@link PrometheusModel#serialize()}. Sanitized metric names
+ * and rendered labels are cached across scrapes, so each sample costs only a few array slots, instead of a
+ * {@link Collector.MetricFamilySamples.Sample} with lists of label names and values.
+ *
+ * @author agent
+ */
+public class PrometheusRenderer {
+
+    private static final int maxCachedNames = 1 << 14;
+    private static final int maxCachedDimensions = 1 << 16;
+
+    private final RenderingCache<String> names = new RenderingCache<>(maxCachedNames, UnaryOperator.identity(), Collector::sanitizeMetricName);
+    private final RenderingCache<Map<DimensionId, String>> labels = RenderingCache.forDimensions(maxCachedDimensions, this::renderLabels);
+    private final RenderingCache<String> serviceLabels = new RenderingCache<>(maxCachedNames, UnaryOperator.identity(),
+                                                                              service -> renderLabel("vespa_service", names.get(service)));
+
+    /** Writes the given metrics packets to the given writer, which is neither flushed nor closed. */
+    public void render(List<MetricsPacket> metricsPackets, Writer out) throws IOException {
+        Map<ServiceId, List<MetricsPacket>> packetsByService = metricsPackets.stream()
+                .collect(Collectors.groupingBy(packet -> packet.service));
+
+        List<Family> families = new ArrayList<>();
+        Map<String, Family> familiesByName = new HashMap<>();
+        packetsByService.forEach((serviceId, packets) -> {
+            String serviceName = names.get(serviceId.id);
+            String serviceLabel = serviceLabels.get(serviceId.id);
+            for (MetricsPacket packet : packets) {
+                String packetLabels = labels.get(packet.dimensions());
+                for (Map.Entry<MetricId, Number> metric : packet.metrics().entrySet()) {
+                    String metricName = names.get(metric.getKey().id);
+                    Family family = familiesByName.get(metricName);
+                    if (family == null) {
+                        family = new Family(metricName, "");
+                        familiesByName.put(metricName, family);
+                        families.add(family);
+                    }
+                    family.add(packetLabels, serviceLabel, metric.getValue().doubleValue(), packet.timestamp * 1000);
+                }
+            }
+            // convert status message to 0,1 metric
+            MetricsPacket firstPacket = packets.get(0);
+            Family status = new Family(serviceName + "_status", "status of service");
+            // MetricsPacket status 0 means OK, but it's the opposite in Prometheus.
+            status.add("", "", firstPacket.statusCode == 0 ? 1.0 : 0.0, firstPacket.timestamp * 1000);
+            families.add(status);
+        });
+
+        for (Family family : families)
+            family.write(out);
+    }
+
+    private String renderLabels(Map<DimensionId, String> dimensions) {
+        StringBuilder rendered = new StringBuilder();
+        dimensions.forEach((id, value) -> rendered.append(renderLabel(names.get(id.id), value)));
+        return rendered.toString();
+    }
+
+    private static String renderLabel(String name, String value) {
+        StringBuilder rendered = new StringBuilder(name).append("=\"");
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '\\': rendered.append("\\\\"); break;
+                case '\"': rendered.append("\\\""); break;
+                case '\n': rendered.append("\\n"); break;
+                default: rendered.append(c);
+            }
+        }
+        return rendered.append("\",").toString();
+    }
+
+    /** The samples of a metric family, with the labels of each sample split in the cached labels of its packet and service. */
+    private static class Family {
+
+        private final String name;
+        private final String help;
+        private String[] labels = new String[4];
+        private String[] serviceLabels = new String[4];
+        private double[] values = new double[4];
+        private long[] timestamps = new long[4];
+        private int size = 0;
+
+        Family(String name, String help) {
+            this.name = name;
+            this.help = help;
+        }
+
+        void add(String labels, String serviceLabel, double value, long timestampMillis) {
+            if (size == values.length) {
+                this.labels = Arrays.copyOf(this.labels, 2 * size);
+                serviceLabels = Arrays.copyOf(serviceLabels, 2 * size);
+                values = Arrays.copyOf(values, 2 * size);
+                timestamps = Arrays.copyOf(timestamps, 2 * size);
+            }
+            this.labels[size] = labels;
+            serviceLabels[size] = serviceLabel;
+            values[size] = value;
+            timestamps[size] = timestampMillis;
+            size++;
+        }
+
+        void write(Writer out) throws IOException {
+            out.write("# HELP ");
+            out.write(name);
+            out.write(' ');
+            for (int i = 0; i < help.length(); i++) {
+                char c = help.charAt(i);
+                switch (c) {
+                    case '\\': out.write("\\\\"); break;
+                    case '\n': out.write("\\n"); break;
+                    default: out.write(c);
+                }
+            }
+            out.write('\n');
+
+            out.write("# TYPE ");
+            out.write(name);
+            out.write(" untyped\n");
+
+            for (int i = 0; i < size; i++) {
+                out.write(name);
+                if ( ! labels[i].isEmpty() || ! serviceLabels[i].isEmpty()) {
+                    out.write('{');
+                    out.write(labels[i]);
+                    out.write(serviceLabels[i]);
+                    out.write('}');
+                }
+                out.write(' ');
+                out.write(Collector.doubleToGoString(values[i]));
+                out.write(' ');
+                out.write(Long.toString(timestamps[i]));
+                out.write('\n');
+            }
+        }
+
+    }
+
+}
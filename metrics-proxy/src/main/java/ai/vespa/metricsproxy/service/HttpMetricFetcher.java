@@ -4,12 +4,17 @@ package ai.vespa.metricsproxy.service;
 import ai.vespa.util.http.VespaHttpClientBuilder;
 import java.util.logging.Level;
 import com.yahoo.yolean.Exceptions;
+import org.apache.http.HttpEntity;
+import org.apache.http.StatusLine;
+import org.apache.http.client.HttpResponseException;
 import org.apache.http.client.config.RequestConfig;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.impl.client.BasicResponseHandler;
 import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.util.EntityUtils;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
 import java.util.logging.Logger;
 
@@ -23,7 +28,8 @@ public abstract class HttpMetricFetcher {
 
     private final static Logger log = Logger.getLogger(HttpMetricFetcher.class.getPackage().getName());
     public final static String STATE_PATH = "/state/v1/";
-    // The call to apache will do 3 retries. As long as we check the services in series, we can't have this too high.
+    // The call to apache will do 3 retries. Services are checked in parallel, and slow ones are replaced by their
+    // last snapshot when the caller's deadline passes, so this only bounds how long a fetcher thread is tied up.
     public static int CONNECTION_TIMEOUT = 5000;
     private final static int SOCKET_TIMEOUT = 60000;
     private final URI url;
@@ -48,6 +54,28 @@ public abstract class HttpMetricFetcher {
         return httpClient.execute(new HttpGet(url), new BasicResponseHandler());
     }
 
+    /**
+     * Fetches the json from the service, and hands the response body to the given parser as it arrives,
+     * instead of first reading it into a string.
+     */
+    <T> T getJson(StreamParser<T> parser) throws IOException {
+        log.log(Level.FINE, "Connecting to url " + url + " for service '" + service + "'");
+        return httpClient.execute(new HttpGet(url), response -> {
+            StatusLine status = response.getStatusLine();
+            HttpEntity entity = response.getEntity();
+            if (status.getStatusCode() >= 300) {
+                EntityUtils.consume(entity);
+                throw new HttpResponseException(status.getStatusCode(), status.getReasonPhrase());
+            }
+            if (entity == null)
+                throw new HttpResponseException(status.getStatusCode(), "Empty response");
+
+            try (InputStream in = entity.getContent()) {
+                return parser.parse(in);
+            }
+        });
+    }
+
     public String toString() {
         return this.getClass().getSimpleName() + " using " + url;
     }
@@ -62,6 +90,11 @@ public abstract class HttpMetricFetcher {
                            Exceptions.toMessageString(e), timesFetched);
     }
 
+    void handleException(Exception e, int timesFetched) {
+        logMessage("Unable to parse json for service '" + service + "': " +
+                           Exceptions.toMessageString(e), timesFetched);
+    }
+
     private void logMessage(String message, int timesFetched) {
         if (service.isAlive() && timesFetched > 5) {
             log.log(Level.INFO, message);
@@ -78,6 +111,11 @@ public abstract class HttpMetricFetcher {
         }
     }
 
+    @FunctionalInterface
+    interface StreamParser<T> {
+        T parse(InputStream in) throws IOException;
+    }
+
     private static CloseableHttpClient createHttpClient() {
         return VespaHttpClientBuilder.create()
                 .setUserAgent("metrics-proxy-http-client")
@@ -4,20 +4,24 @@ package ai.vespa.metricsproxy.service;
 import ai.vespa.metricsproxy.metric.Metric;
 import ai.vespa.metricsproxy.metric.Metrics;
 import ai.vespa.metricsproxy.metric.model.DimensionId;
-import org.json.JSONArray;
-import org.json.JSONException;
-import org.json.JSONObject;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 
 import static ai.vespa.metricsproxy.metric.model.DimensionId.toDimensionId;
 
 /**
- * Fetch metrics for a given vespa service
+ * Fetch metrics for a given vespa service. The response is parsed as it is streamed from the
+ * service, directly into {@link Metric} instances, without building an intermediate json tree.
  *
  * @author Jo Kristian Bergum
  */
@@ -25,6 +29,8 @@ public class RemoteMetricsFetcher extends HttpMetricFetcher {
 
     final static String METRICS_PATH = STATE_PATH + "metrics";
 
+    private static final JsonFactory jsonFactory = new JsonFactory();
+
     RemoteMetricsFetcher(VespaService service, int port) {
         super(service, port, METRICS_PATH);
     }
@@ -33,23 +39,23 @@ public class RemoteMetricsFetcher extends HttpMetricFetcher {
      * Connect to remote service over http and fetch metrics
      */
     public Metrics getMetrics(int fetchCount) {
-        String data = "{}";
         try {
-            data = getJson();
+            return getJson(this::parse);
+        } catch (InvalidJsonException e) {
+            handleException(e.getCause(), fetchCount);
         } catch (IOException e) {
             logMessageNoResponse(errMsgNoResponse(e), fetchCount);
         }
-
-        return createMetrics(data, fetchCount);
+        return new Metrics();
     }
 
     /**
-     * Connect to remote service over http and fetch metrics
+     * Parse the given metrics json
      */
     Metrics createMetrics(String data, int fetchCount) {
         Metrics remoteMetrics = new Metrics();
-        try {
-            remoteMetrics = parse(data);
+        try (JsonParser parser = jsonFactory.createParser(data)) {
+            remoteMetrics = parse(parser);
         } catch (Exception e) {
             handleException(e, data, fetchCount);
         }
@@ -57,69 +63,137 @@ public class RemoteMetricsFetcher extends HttpMetricFetcher {
         return remoteMetrics;
     }
 
-    private Metrics parse(String data) throws JSONException {
-        JSONObject o = new JSONObject(data);
-        if (!(o.has("metrics"))) {
-            return new Metrics(); //empty
+    private Metrics parse(InputStream data) throws IOException {
+        try (JsonParser parser = jsonFactory.createParser(data)) {
+            return parse(parser);
+        } catch (JsonProcessingException | RuntimeException e) {
+            throw new InvalidJsonException(e);
         }
+    }
 
-        JSONObject metrics = o.getJSONObject("metrics");
-        JSONArray values;
-        long timestamp;
+    private Metrics parse(JsonParser parser) throws IOException {
+        if (parser.nextToken() != JsonToken.START_OBJECT)
+            throw new IllegalArgumentException("Expected a json object");
 
-        try {
-            JSONObject snapshot = metrics.getJSONObject("snapshot");
-            timestamp = (long) snapshot.getDouble("to");
-            values = metrics.getJSONArray("values");
-        } catch (JSONException e) {
-            // snapshot might not have been produced. Do not throw exception into log
-            return new Metrics();
+        Metrics metrics = new Metrics();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            parser.nextToken();
+            if ("metrics".equals(field)) metrics = parseMetrics(parser);
+            else parser.skipChildren();
         }
+        return metrics;
+    }
+
+    private Metrics parseMetrics(JsonParser parser) throws IOException {
+        expect(parser, JsonToken.START_OBJECT);
+        Long timestamp = null;
+        List<Metric> values = null;
+        Map<Map<DimensionId, String>, Map<DimensionId, String>> uniqueDimensions = new HashMap<>();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            parser.nextToken();
+            if ("snapshot".equals(field)) timestamp = parseSnapshotEnd(parser);
+            else if ("values".equals(field)) values = parseValues(parser, timestamp, uniqueDimensions);
+            else parser.skipChildren();
+        }
+
+        // Snapshot might not have been produced. Do not throw exception into log
+        if (timestamp == null || values == null) return new Metrics();
+
         long now = System.currentTimeMillis() / 1000;
-        timestamp = Metric.adjustTime(timestamp, now);
-        Metrics m = new Metrics(timestamp);
-
-        Map<DimensionId, String> noDims = Collections.emptyMap();
-        Map<String, Map<DimensionId, String>> uniqueDimensions = new HashMap<>();
-        for (int i = 0; i < values.length(); i++) {
-            JSONObject metric = values.getJSONObject(i);
-            String name = metric.getString("name");
-            String description = "";
+        long adjusted = Metric.adjustTime(timestamp, now);
+        Metrics metrics = new Metrics(adjusted);
+        for (Metric metric : values)
+            metrics.add(metric.getTimeStamp() == adjusted ? metric
+                                                          : new Metric(metric.getName(), metric.getValue(), adjusted,
+                                                                       metric.getDimensions(), metric.getDescription()));
+        return metrics;
+    }
 
-            if (metric.has("description")) {
-                description = metric.getString("description");
-            }
+    private static Long parseSnapshotEnd(JsonParser parser) throws IOException {
+        expect(parser, JsonToken.START_OBJECT);
+        Long to = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            JsonToken token = parser.nextToken();
+            if ("to".equals(field) && token.isNumeric()) to = (long) parser.getDoubleValue();
+            else parser.skipChildren();
+        }
+        return to;
+    }
 
-            Map<DimensionId, String> dim = noDims;
-            if (metric.has("dimensions")) {
-                JSONObject dimensions = metric.getJSONObject("dimensions");
-                StringBuilder sb = new StringBuilder();
-                for (Iterator<?> it = dimensions.keys(); it.hasNext(); ) {
-                    String k = (String) it.next();
-                    String v = dimensions.getString(k);
-                    sb.append(toDimensionId(k)).append(v);
-                }
-                if ( ! uniqueDimensions.containsKey(sb.toString())) {
-                    dim = new HashMap<>();
-                    for (Iterator<?> it = dimensions.keys(); it.hasNext(); ) {
-                        String k = (String) it.next();
-                        String v = dimensions.getString(k);
-                        dim.put(toDimensionId(k), v);
-                    }
-                    uniqueDimensions.put(sb.toString(), Collections.unmodifiableMap(dim));
+    /** Parses the metric values, using the given timestamp if already known, and 0 otherwise. */
+    private static List<Metric> parseValues(JsonParser parser, Long snapshotEnd,
+                                            Map<Map<DimensionId, String>, Map<DimensionId, String>> uniqueDimensions) throws IOException {
+        expect(parser, JsonToken.START_ARRAY);
+        long timestamp = snapshotEnd == null ? 0 : Metric.adjustTime(snapshotEnd, System.currentTimeMillis() / 1000);
+        List<Metric> metrics = new ArrayList<>();
+        List<String> aggregators = new ArrayList<>();
+        List<Number> aggregates = new ArrayList<>();
+        while (parser.nextToken() == JsonToken.START_OBJECT) {
+            String name = null;
+            String description = "";
+            Map<DimensionId, String> dimensions = Collections.emptyMap();
+            aggregators.clear();
+            aggregates.clear();
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                parser.nextToken();
+                switch (field) {
+                    case "name":        name = textValue(parser); break;
+                    case "description": description = textValue(parser); break;
+                    case "dimensions":  dimensions = uniqueDimensions.computeIfAbsent(parseDimensions(parser),
+                                                                                      Collections::unmodifiableMap); break;
+                    case "values":      parseAggregates(parser, aggregators, aggregates); break;
+                    default:            parser.skipChildren();
                 }
-                dim = uniqueDimensions.get(sb.toString());
             }
+            if (name == null) throw new IllegalArgumentException("Metric without name");
+            for (int i = 0; i < aggregators.size(); i++)
+                metrics.add(new Metric(name + "." + aggregators.get(i), aggregates.get(i), timestamp, dimensions, description));
+        }
+        expect(parser, JsonToken.END_ARRAY);
+        return metrics;
+    }
 
-            JSONObject aggregates = metric.getJSONObject("values");
-            for (Iterator<?> it = aggregates.keys(); it.hasNext(); ) {
-                String aggregator = (String) it.next();
-                Number value = (Number) aggregates.get(aggregator);
-                StringBuilder metricName = (new StringBuilder()).append(name).append(".").append(aggregator);
-                m.add(new Metric(metricName.toString(), value, timestamp, dim, description));
-            }
+    private static Map<DimensionId, String> parseDimensions(JsonParser parser) throws IOException {
+        expect(parser, JsonToken.START_OBJECT);
+        Map<DimensionId, String> dimensions = new HashMap<>();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            DimensionId key = toDimensionId(parser.getCurrentName());
+            parser.nextToken();
+            dimensions.put(key, textValue(parser));
         }
+        return dimensions;
+    }
 
-        return m;
+    private static void parseAggregates(JsonParser parser, List<String> aggregators, List<Number> aggregates) throws IOException {
+        expect(parser, JsonToken.START_OBJECT);
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            aggregators.add(parser.getCurrentName());
+            if ( ! parser.nextToken().isNumeric())
+                throw new IllegalArgumentException("Value of '" + parser.getCurrentName() + "' is not a number");
+            aggregates.add(parser.getNumberValue());
+        }
     }
+
+    private static String textValue(JsonParser parser) throws IOException {
+        if ( ! parser.currentToken().isScalarValue() || parser.currentToken() == JsonToken.VALUE_NULL)
+            throw new IllegalArgumentException("Value of '" + parser.getCurrentName() + "' is not a string");
+        return parser.getValueAsString();
+    }
+
+    private static void expect(JsonParser parser, JsonToken token) {
+        if (parser.currentToken() != token)
+            throw new IllegalArgumentException("Expected " + token + " but got " + parser.currentToken() +
+                                               " at " + parser.getCurrentLocation());
+    }
+
+    /** Wraps errors in the json structure, to tell them apart from failures to get a response from the service. */
+    private static class InvalidJsonException extends IOException {
+        InvalidJsonException(Exception cause) { super(cause); }
+        @Override public Exception getCause() { return (Exception) super.getCause(); }
+    }
+
 }
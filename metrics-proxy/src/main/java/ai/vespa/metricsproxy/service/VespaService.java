@@ -7,6 +7,8 @@ import ai.vespa.metricsproxy.metric.model.DimensionId;
 
 import java.util.Collections;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 import java.util.concurrent.atomic.AtomicInteger;
 
 
@@ -35,6 +37,10 @@ public class VespaService implements Comparable<VespaService> {
     // Used to keep the last polled system metrics for service
     private Metrics systemMetrics;
 
+    // The last non-empty metrics fetched from the service, and the fetch in progress, if any
+    private volatile Metrics lastMetrics = null;
+    private CompletableFuture<Metrics> pendingMetrics = null;
+
     private final int statePort;
 
     private final RemoteHealthMetricFetcher remoteHealthMetricFetcher;
@@ -143,6 +149,33 @@ public class VespaService implements Comparable<VespaService> {
         return remoteMetrics;
     }
 
+    /**
+     * Fetches the metrics for this service using the given executor. If a fetch is already in progress,
+     * e.g., because the service was too slow to respond to the previous request, that fetch is returned
+     * instead of starting a new one.
+     *
+     * @return the pending metrics, which are also remembered as the last good snapshot if not empty
+     */
+    public synchronized CompletableFuture<Metrics> fetchMetrics(Executor executor) {
+        if (pendingMetrics == null || pendingMetrics.isDone())
+            pendingMetrics = CompletableFuture.supplyAsync(() -> {
+                Metrics metrics = getMetrics();
+                if (metrics.size() > 0) lastMetrics = metrics;
+                return metrics;
+            }, executor);
+
+        return pendingMetrics;
+    }
+
+    /**
+     * Returns the last non-empty metrics fetched with {@link #fetchMetrics(Executor)},
+     * or empty metrics if there are none.
+     */
+    public Metrics getLastMetrics() {
+        Metrics metrics = lastMetrics;
+        return metrics == null ? new Metrics() : metrics;
+    }
+
     /**
      * Gets the config id of this service
      *
@@ -3,6 +3,7 @@ package ai.vespa.metricsproxy.core;
 
 import ai.vespa.metricsproxy.TestUtil;
 import ai.vespa.metricsproxy.core.ConsumersConfig.Consumer;
+import ai.vespa.metricsproxy.metric.ExternalMetrics;
 import ai.vespa.metricsproxy.metric.HealthMetric;
 import ai.vespa.metricsproxy.metric.Metric;
 import ai.vespa.metricsproxy.metric.Metrics;
@@ -21,10 +22,13 @@ import com.google.common.collect.ImmutableList;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.time.Duration;
 import java.time.Instant;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static ai.vespa.metricsproxy.core.MetricsManager.VESPA_VERSION;
 import static ai.vespa.metricsproxy.core.VespaMetrics.METRIC_TYPE_DIMENSION_ID;
@@ -201,6 +205,43 @@ public class MetricsManagerTest {
         assertThat(packets.get(2).dimensions().get(METRIC_TYPE_DIMENSION_ID), is("from extraMetrics"));
     }
 
+    @Test
+    public void slow_service_is_represented_by_its_last_snapshot() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger fetches = new AtomicInteger();
+        VespaService slowService = new DummyService(1, SERVICE_1_ID) {
+            @Override public Metrics getMetrics() {
+                if (fetches.getAndIncrement() > 0) {
+                    try { release.await(); }
+                    catch (InterruptedException e) { throw new AssertionError(e); }
+                }
+                return super.getMetrics();
+            }
+        };
+        List<VespaService> services = ImmutableList.of(new DummyService(0, SERVICE_0_ID), slowService);
+        VespaMetrics vespaMetrics = new VespaMetrics(getMetricsConsumers(), Duration.ofMillis(100));
+        MetricsManager metricsManager = new MetricsManager(new VespaServices(services), vespaMetrics,
+                                                           new ExternalMetrics(getMetricsConsumers()),
+                                                           getApplicationDimensions(), getNodeDimensions());
+        try {
+            assertEquals(2, metricsManager.getMetrics(services, Instant.EPOCH).size());
+
+            // The second fetch blocks, so the first snapshot is used for the slow service
+            List<MetricsPacket> packets = metricsManager.getMetrics(services, Instant.EPOCH);
+            assertEquals(2, packets.size());
+            assertThat(packets.get(1).dimensions().get(toDimensionId("instance")), is("dummy1"));
+            assertThat(packets.get(1).metrics().get(toMetricId("c.test")), is(6.0));
+
+            // The pending fetch is reused, rather than a new one started
+            metricsManager.getMetrics(services, Instant.EPOCH);
+            assertEquals(2, fetches.get());
+        }
+        finally {
+            release.countDown();
+            vespaMetrics.deconstruct();
+        }
+    }
+
     @Test
     public void timestamp_is_adjusted_when_metric_is_less_than_one_minute_younger_than_start_time() {
         Instant START_TIME = Instant.ofEpochSecond(0);
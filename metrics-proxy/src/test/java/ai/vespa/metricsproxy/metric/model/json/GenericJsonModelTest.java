@@ -6,6 +6,7 @@ import ai.vespa.metricsproxy.metric.model.StatusCode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.Test;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.util.List;
 
@@ -15,6 +16,7 @@ import static ai.vespa.metricsproxy.metric.model.DimensionId.toDimensionId;
 import static ai.vespa.metricsproxy.metric.model.MetricId.toMetricId;
 import static ai.vespa.metricsproxy.metric.model.ServiceId.toServiceId;
 import static ai.vespa.metricsproxy.metric.model.json.JacksonUtil.createObjectMapper;
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.util.stream.Collectors.toList;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
@@ -130,6 +132,20 @@ public class GenericJsonModelTest {
         assertThatSerializedModelEqualsTestFile(modelFromPackets, TEST_FILE);
     }
 
+    @Test
+    public void metrics_packets_are_rendered_like_the_serialized_model() throws IOException {
+        GenericJsonRenderer renderer = new GenericJsonRenderer();
+        for (String testFile : List.of(TEST_FILE, TEST_FILE_WITHOUT_NODE, TEST_FILE)) {
+            List<MetricsPacket> metricsPackets = GenericJsonUtil.toMetricsPackets(getFileContents(testFile)).stream()
+                    .map(MetricsPacket.Builder::build)
+                    .collect(toList());
+
+            ByteArrayOutputStream rendered = new ByteArrayOutputStream();
+            renderer.render(metricsPackets, rendered);
+            assertEquals(GenericJsonUtil.toGenericJsonModel(metricsPackets).serialize(), rendered.toString(UTF_8));
+        }
+    }
+
     private void assertThatSerializedModelEqualsTestFile(GenericJsonModel modelFromPackets, String testFile) {
         String serialized = modelFromPackets.serialize();
         String trimmed = serialized.trim().replaceAll("\\s+", "");
@@ -0,0 +1,54 @@
+// Copyright Verizon Media. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package ai.vespa.metricsproxy.metric.model.prometheus;
+
+import ai.vespa.metricsproxy.metric.model.MetricsPacket;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.List;
+
+import static ai.vespa.metricsproxy.metric.ExternalMetrics.VESPA_NODE_SERVICE_ID;
+import static ai.vespa.metricsproxy.metric.model.DimensionId.toDimensionId;
+import static ai.vespa.metricsproxy.metric.model.MetricId.toMetricId;
+import static ai.vespa.metricsproxy.metric.model.ServiceId.toServiceId;
+import static ai.vespa.metricsproxy.metric.model.prometheus.PrometheusUtil.toPrometheusModel;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * @author agent
+ */
+public class PrometheusRendererTest {
+
+    @Test
+    public void metrics_packets_are_rendered_like_the_serialized_model() throws IOException {
+        List<MetricsPacket> packets = List.of(
+                new MetricsPacket.Builder(VESPA_NODE_SERVICE_ID)
+                        .timestamp(123456L)
+                        .putMetric(toMetricId("cpu.util"), 12.345)
+                        .putDimension(toDimensionId("vespaVersion"), "7.0.0")
+                        .build(),
+                new MetricsPacket.Builder(toServiceId("searchnode"))
+                        .timestamp(123457L)
+                        .putMetric(toMetricId("queries.rate"), 3)
+                        .putMetric(toMetricId("cpu.util"), Double.NaN)
+                        .putDimension(toDimensionId("cluster-id"), "music \"quoted\"\nand \\escaped")
+                        .build(),
+                new MetricsPacket.Builder(toServiceId("searchnode"))
+                        .timestamp(123457L)
+                        .putMetric(toMetricId("queries.rate"), 4)
+                        .build(),
+                new MetricsPacket.Builder(toServiceId("down-service"))
+                        .timestamp(123458L)
+                        .statusCode(1)
+                        .build());
+
+        PrometheusRenderer renderer = new PrometheusRenderer();
+        for (int i = 0; i < 2; i++) { // Second time with cached names and labels
+            StringWriter rendered = new StringWriter();
+            renderer.render(packets, rendered);
+            assertEquals(toPrometheusModel(packets).serialize(), rendered.toString());
+        }
+    }
+
+}
@@ -4,18 +4,39 @@ package ai.vespa.rankingexpression.importer.configmodelview;
 import com.yahoo.path.Path;
 
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.lang.ref.SoftReference;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Base64;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * All models imported from the models/ directory in the application package.
  * If this is empty it may be due to either not having any models in the application package,
  * or this being created for a ZooKeeper application package, which does not have imported models.
  *
+ * Models are imported in parallel, by a small pool of threads owned by each instance, and imported models are
+ * cached by the content of their source, so models which are unchanged between deployments are not imported again.
+ * Importers must therefore be able to import different models concurrently, see {@link MlModelImporter}.
+ *
  * @author bratseth
  */
 public class ImportedMlModels {
@@ -29,11 +50,50 @@ public class ImportedMlModels {
     }
 
     public ImportedMlModels(File modelsDirectory, Collection<MlModelImporter> importers) {
-        Map<String, ImportedMlModel> models = new HashMap<>();
+        Map<String, ModelSource> sources = new HashMap<>();
 
         // Find all subdirectories recursively which contains a model we can read
-        importRecursively(modelsDirectory, models, importers);
-        importedModels = Collections.unmodifiableMap(models);
+        findRecursively(modelsDirectory, sources, importers);
+        importedModels = Collections.unmodifiableMap(importAll(sources.values()));
+    }
+
+    private static Map<String, ImportedMlModel> importAll(Collection<ModelSource> sources) {
+        Map<String, ImportedMlModel> models = new HashMap<>();
+        if (sources.size() <= 1) {
+            sources.forEach(source -> models.put(source.name, cache.get(source)));
+            return models;
+        }
+
+        // Threads inherit the context class loader of the caller, as the importers may depend on it
+        ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+        int threads = Math.min(sources.size(), Math.min(maxImportThreads, Runtime.getRuntime().availableProcessors()));
+        ExecutorService executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "ml-model-importer");
+            thread.setDaemon(true);
+            thread.setContextClassLoader(classLoader);
+            return thread;
+        });
+        try {
+            Map<String, Future<ImportedMlModel>> futures = new HashMap<>();
+            for (ModelSource source : sources)
+                futures.put(source.name, executor.submit(() -> cache.get(source)));
+            for (Map.Entry<String, Future<ImportedMlModel>> future : futures.entrySet())
+                models.put(future.getKey(), future.getValue().get());
+
+            return models;
+        }
+        catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+            if (e.getCause() instanceof Error) throw (Error) e.getCause();
+            throw new IllegalStateException("Failed importing models", e.getCause());
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while importing models", e);
+        }
+        finally {
+            executor.shutdownNow();
+        }
     }
 
     /**
@@ -53,23 +113,23 @@ public class ImportedMlModels {
         return importedModels.values();
     }
 
-    private static void importRecursively(File dir,
-                                          Map<String, ImportedMlModel> models,
-                                          Collection<MlModelImporter> importers) {
+    private static void findRecursively(File dir,
+                                        Map<String, ModelSource> sources,
+                                        Collection<MlModelImporter> importers) {
         if ( ! dir.isDirectory()) return;
 
         Arrays.stream(dir.listFiles()).sorted().forEach(child -> {
             Optional<MlModelImporter> importer = findImporterOf(child, importers);
             if (importer.isPresent()) {
                 String name = toName(child);
-                ImportedMlModel existing = models.get(name);
+                ModelSource existing = sources.get(name);
                 if (existing != null)
-                    throw new IllegalArgumentException("The models in " + child + " and " + existing.source() +
+                    throw new IllegalArgumentException("The models in " + child + " and " + existing.path +
                                                        " both resolve to the model name '" + name + "'");
-                models.put(name, importer.get().importModel(name, child));
+                sources.put(name, new ModelSource(name, child, importer.get()));
             }
             else {
-                importRecursively(child, models, importers);
+                findRecursively(child, sources, importers);
             }
         });
     }
@@ -102,4 +162,153 @@ public class ImportedMlModels {
         return result.substring(0, result.length()-1);
     }
 
+    /** Max number of threads used to import the models of one application package */
+    private static final int maxImportThreads = 4;
+
+    /** Cache of imported models, shared by all model builds in this class loader */
+    private static final Cache cache = new Cache(100);
+
+    /** A model in the application package, with the importer to use for it */
+    private static class ModelSource {
+
+        private final String name;
+        private final File path;
+        private final MlModelImporter importer;
+
+        ModelSource(String name, File path, MlModelImporter importer) {
+            this.name = name;
+            this.path = path;
+            this.importer = importer;
+        }
+
+        ImportedMlModel importModel() { return importer.importModel(name, path); }
+
+        /** Returns a key which identifies the content of this, regardless of where it is located */
+        CacheKey key() {
+            try {
+                MessageDigest digest = MessageDigest.getInstance("SHA-256");
+                List<File> files = new ArrayList<>();
+                listFiles(path, files);
+                for (File file : files) {
+                    digest.update(path.toPath().relativize(file.toPath()).toString().getBytes());
+                    digest.update((byte) 0);
+                    digest(file, digest);
+                    digest.update((byte) 0);
+                }
+                return new CacheKey(name, importer.getClass().getName(), Base64.getEncoder().encodeToString(digest.digest()));
+            }
+            catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+            catch (IOException e) {
+                throw new UncheckedIOException("Failed reading model " + path, e);
+            }
+        }
+
+        /** Updates the given digest with the content of the given file, which may be larger than fits in memory */
+        private static void digest(File file, MessageDigest digest) throws IOException {
+            byte[] buffer = new byte[1 << 16];
+            try (InputStream in = new DigestInputStream(new FileInputStream(file), digest)) {
+                while (in.read(buffer) != -1) { }
+            }
+        }
+
+        private static void listFiles(File file, List<File> files) {
+            if (file.isDirectory())
+                Arrays.stream(file.listFiles()).sorted().forEach(child -> listFiles(child, files));
+            else
+                files.add(file);
+        }
+
+    }
+
+    private static class CacheKey {
+
+        private final String name;
+        private final String importer;
+        private final String contentHash;
+
+        CacheKey(String name, String importer, String contentHash) {
+            this.name = name;
+            this.importer = importer;
+            this.contentHash = contentHash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if ( ! (o instanceof CacheKey)) return false;
+            CacheKey other = (CacheKey) o;
+            return name.equals(other.name) && importer.equals(other.importer) && contentHash.equals(other.contentHash);
+        }
+
+        @Override
+        public int hashCode() { return Objects.hash(name, importer, contentHash); }
+
+    }
+
+    /**
+     * A bounded cache of imported models. Models may be large, so they are only softly referenced, to let
+     * the garbage collector reclaim them if memory runs short.
+     */
+    static class Cache {
+
+        private final Map<CacheKey, SoftReference<ImportedMlModel>> models;
+
+        Cache(int maxSize) {
+            models = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<CacheKey, SoftReference<ImportedMlModel>> eldest) {
+                    return size() > maxSize;
+                }
+            };
+        }
+
+        /** Returns the given model, imported now if it is not already cached, and located at the given source */
+        ImportedMlModel get(ModelSource source) {
+            CacheKey key = source.key();
+            ImportedMlModel model;
+            synchronized (models) {
+                SoftReference<ImportedMlModel> cached = models.get(key);
+                model = cached == null ? null : cached.get();
+            }
+            if (model == null) {
+                model = source.importModel();
+                synchronized (models) {
+                    models.put(key, new SoftReference<>(model));
+                }
+            }
+            return new Located(model, source.path.toString());
+        }
+
+        int size() {
+            synchronized (models) {
+                return models.size();
+            }
+        }
+
+    }
+
+    /** A cached model, with the source it has in the current application package */
+    private static class Located implements ImportedMlModel {
+
+        private final ImportedMlModel model;
+        private final String source;
+
+        Located(ImportedMlModel model, String source) {
+            this.model = model;
+            this.source = source;
+        }
+
+        @Override public String name() { return model.name(); }
+        @Override public String source() { return source; }
+        @Override public Optional<String> inputTypeSpec(String input) { return model.inputTypeSpec(input); }
+        @Override public Map<String, String> smallConstants() { return model.smallConstants(); }
+        @Override public Map<String, String> largeConstants() { return model.largeConstants(); }
+        @Override public Map<String, String> functions() { return model.functions(); }
+        @Override public List<ImportedMlFunction> outputExpressions() { return model.outputExpressions(); }
+        @Override public String toString() { return "imported model '" + name() + "' from " + source; }
+
+    }
+
 }
@@ -4,7 +4,8 @@ package ai.vespa.rankingexpression.importer.configmodelview;
 import java.io.File;
 
 /**
- * Config model view of a machine-learned model importer
+ * Config model view of a machine-learned model importer.
+ * Importers may be called from several threads at once, to import different models.
  *
  * @author bratseth
  */
@@ -0,0 +1,126 @@
+// Copyright Verizon Media. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package ai.vespa.rankingexpression.importer.configmodelview;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+/**
+ * @author agent
+ */
+public class ImportedMlModelsTest {
+
+    @Test
+    public void testModelsAreImportedOnceForSameContent() throws IOException {
+        String content = UUID.randomUUID().toString();
+        CountingImporter importer = new CountingImporter();
+
+        Path first = Files.createTempDirectory("app");
+        write(first, "models/a.fake", content + "a");
+        write(first, "models/sub/b.fake", content + "b");
+        ImportedMlModels models = new ImportedMlModels(first.resolve("models").toFile(), List.of(importer));
+        assertEquals(2, importer.imports.get());
+        assertEquals(2, models.all().size());
+        assertEquals(content + "a", models.get(new File("models/a")).functions().get("content"));
+        assertEquals(content + "b", models.get(new File("models/sub/b")).functions().get("content"));
+
+        // Same content in a new location is not imported again, but has the new source
+        Path second = Files.createTempDirectory("app");
+        write(second, "models/a.fake", content + "a");
+        write(second, "models/sub/b.fake", content + "changed");
+        models = new ImportedMlModels(second.resolve("models").toFile(), List.of(importer));
+        assertEquals(3, importer.imports.get());
+        assertEquals(second.resolve("models/a.fake").toString(), models.get(new File("models/a")).source());
+        assertEquals(content + "changed", models.get(new File("models/sub/b")).functions().get("content"));
+        assertNull(models.get(new File("models/c")));
+    }
+
+    @Test
+    public void testImportersRunWithContextClassLoaderOfCaller() throws IOException {
+        Path app = Files.createTempDirectory("app");
+        for (int i = 0; i < 8; i++)
+            write(app, "models/m" + i + ".fake", UUID.randomUUID().toString());
+
+        ClassLoader original = Thread.currentThread().getContextClassLoader();
+        ClassLoader custom = new ClassLoader(original) { };
+        CountingImporter importer = new CountingImporter();
+        Thread.currentThread().setContextClassLoader(custom);
+        try {
+            assertEquals(8, new ImportedMlModels(app.resolve("models").toFile(), List.of(importer)).all().size());
+        }
+        finally {
+            Thread.currentThread().setContextClassLoader(original);
+        }
+        assertEquals(Set.of(custom), importer.contextClassLoaders);
+    }
+
+    @Test
+    public void testConflictingModelNamesAreRejected() throws IOException {
+        Path app = Files.createTempDirectory("app");
+        write(app, "models/a.fake", "1");
+        write(app, "models/a.other.fake", "2");
+        write(app, "models/a_other.fake", "3");
+        try {
+            new ImportedMlModels(app.resolve("models").toFile(), List.of(new CountingImporter()));
+            fail("Expected exception");
+        }
+        catch (IllegalArgumentException e) {
+            assertEquals("The models in " + app.resolve("models/a_other.fake") + " and " + app.resolve("models/a.other.fake") +
+                         " both resolve to the model name 'a_other'",
+                         e.getMessage());
+        }
+    }
+
+    private static void write(Path root, String relativePath, String content) throws IOException {
+        Path file = root.resolve(relativePath);
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, content);
+    }
+
+    private static class CountingImporter implements MlModelImporter {
+
+        private final AtomicInteger imports = new AtomicInteger();
+        private final Set<ClassLoader> contextClassLoaders = ConcurrentHashMap.newKeySet();
+
+        @Override
+        public boolean canImport(String modelPath) { return modelPath.endsWith(".fake"); }
+
+        @Override
+        public ImportedMlModel importModel(String modelName, File modelPath) {
+            imports.incrementAndGet();
+            contextClassLoaders.add(Thread.currentThread().getContextClassLoader());
+            try {
+                String content = Files.readString(modelPath.toPath());
+                return new ImportedMlModel() {
+                    @Override public String name() { return modelName; }
+                    @Override public String source() { return modelPath.toString(); }
+                    @Override public Optional<String> inputTypeSpec(String input) { return Optional.empty(); }
+                    @Override public Map<String, String> smallConstants() { return Map.of(); }
+                    @Override public Map<String, String> largeConstants() { return Map.of(); }
+                    @Override public Map<String, String> functions() { return Map.of("content", content); }
+                    @Override public List<ImportedMlFunction> outputExpressions() { return Collections.emptyList(); }
+                };
+            }
+            catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+    }
+
+}
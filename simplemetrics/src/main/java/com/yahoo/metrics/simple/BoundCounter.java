@@ -0,0 +1,47 @@
+// Copyright Verizon Media. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.metrics.simple;
+
+import com.google.common.annotations.Beta;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A counter at a fixed point in the metric space, which is resolved once, when
+ * it is created with {@link Counter#bind()} or {@link Counter#bind(Point)}.
+ * Updates do not allocate, and contending threads update separate cells,
+ * which are summed by the metric aggregator.
+ *
+ * @author agent
+ */
+@Beta
+public class BoundCounter {
+
+    private final LongAdder count = new LongAdder();
+
+    BoundCounter() { }
+
+    /** Increase this counter by 1. */
+    public void add() {
+        count.increment();
+    }
+
+    /**
+     * Add to this counter.
+     *
+     * @param n the amount by which to increase this counter
+     */
+    public void add(long n) {
+        count.add(n);
+    }
+
+    /** Returns what was added since the last call, or null if nothing was. */
+    UntypedMetric harvest() {
+        long n = count.sumThenReset();
+        if (n == 0) return null;
+
+        UntypedMetric metric = new UntypedMetric(null);
+        metric.add(n);
+        return metric;
+    }
+
+}
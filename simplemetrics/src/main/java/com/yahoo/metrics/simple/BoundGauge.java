@@ -0,0 +1,68 @@
+// Copyright Verizon Media. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.metrics.simple;
+
+import com.google.common.annotations.Beta;
+import org.HdrHistogram.DoubleRecorder;
+
+import java.util.concurrent.atomic.DoubleAccumulator;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A gauge at a fixed point in the metric space, which is resolved once, when
+ * it is created with {@link Gauge#bind()} or {@link Gauge#bind(Point)}.
+ * Samples do not allocate, and contending threads update separate cells,
+ * which are combined by the metric aggregator.
+ *
+ * @author agent
+ */
+@Beta
+public class BoundGauge {
+
+    private final MetricSettings settings;
+    private final DoubleRecorder histogram;
+    private final LongAdder count = new LongAdder();
+    private final DoubleAdder sum = new DoubleAdder();
+    private final DoubleAccumulator min = new DoubleAccumulator(Math::min, Double.POSITIVE_INFINITY);
+    private final DoubleAccumulator max = new DoubleAccumulator(Math::max, Double.NEGATIVE_INFINITY);
+    private volatile double last;
+
+    BoundGauge(MetricSettings settings) {
+        this.settings = settings;
+        this.histogram = settings != null && settings.isHistogram() ? new DoubleRecorder(settings.getSignificantdigits()) : null;
+    }
+
+    /**
+     * Record a sample.
+     *
+     * @param x sample value
+     */
+    public void sample(double x) {
+        last = x;
+        sum.add(x);
+        min.accumulate(x);
+        max.accumulate(x);
+        if (histogram != null) histogram.recordValue(x);
+        // Counted last, so a harvest which sees this sample counted also sees its other effects
+        count.increment();
+    }
+
+    /** Returns the samples recorded since the last call, or null if there were none. */
+    UntypedMetric harvest() {
+        long n = count.sumThenReset();
+        if (n == 0) return null;
+
+        double current = last;
+        double lowest = min.getThenReset();
+        double highest = max.getThenReset();
+        UntypedMetric metric = new UntypedMetric(settings);
+        metric.putAggregate(n,
+                            sum.sumThenReset(),
+                            Double.isInfinite(lowest) ? current : lowest,
+                            Double.isInfinite(highest) ? current : highest,
+                            current,
+                            histogram != null ? histogram.getIntervalHistogram() : null);
+        return metric;
+    }
+
+}
@@ -0,0 +1,50 @@
+// Copyright Verizon Media. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.metrics.simple;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * The {@link BoundCounter}s and {@link BoundGauge}s of a {@link MetricReceiver}, by identifier.
+ * These live as long as the receiver, and what they record is moved into buckets by the {@link MetricAggregator}.
+ *
+ * @author agent
+ */
+class BoundMetrics {
+
+    private final Map<Identifier, BoundCounter> counters = new ConcurrentHashMap<>();
+    private final Map<Identifier, BoundGauge> gauges = new ConcurrentHashMap<>();
+
+    /** Returns the counter with the given identifier, which is created if it does not yet exist. */
+    BoundCounter counter(Identifier id) {
+        if (gauges.containsKey(id))
+            throw new IllegalArgumentException(id + " is already bound as a gauge");
+
+        return counters.computeIfAbsent(id, __ -> new BoundCounter());
+    }
+
+    /** Returns the gauge with the given identifier, which is created with the given settings if it does not yet exist. */
+    BoundGauge gauge(Identifier id, MetricSettings settings) {
+        if (counters.containsKey(id))
+            throw new IllegalArgumentException(id + " is already bound as a counter");
+
+        return gauges.computeIfAbsent(id, __ -> new BoundGauge(settings));
+    }
+
+    /** Returns a bucket with what was recorded since the last call. */
+    Bucket harvest() {
+        Bucket bucket = new Bucket();
+        harvest(counters, BoundCounter::harvest, bucket);
+        harvest(gauges, BoundGauge::harvest, bucket);
+        return bucket;
+    }
+
+    private static <T> void harvest(Map<Identifier, T> metrics, Function<T, UntypedMetric> harvester, Bucket bucket) {
+        metrics.forEach((id, metric) -> {
+            UntypedMetric value = harvester.apply(metric);
+            if (value != null) bucket.put(id, value);
+        });
+    }
+
+}
@@ -60,6 +60,27 @@ public class Counter {
         metricReceiver.update(new Sample(new Measurement(Long.valueOf(n)), new Identifier(name, p), AssumedType.COUNTER));
     }
 
+    /**
+     * Bind this counter to the default position given when it was declared.
+     *
+     * @return a counter which updates this metric at the default position, without allocating
+     */
+    public BoundCounter bind() {
+        return bind(defaultPosition);
+    }
+
+    /**
+     * Bind this counter to the given point. Use this for counters which are
+     * updated often, at a few, known points, as the point is resolved only
+     * once, here. Bound counters live as long as the metric receiver.
+     *
+     * @param p the point in the metric space which the returned counter updates
+     * @return a counter which updates this metric at the given point, without allocating
+     */
+    public BoundCounter bind(Point p) {
+        return metricReceiver.bindCounter(new Identifier(name, p));
+    }
+
     /**
      * Create a PointBuilder with default dimension values as given when this
      * counter was declared.
@@ -46,6 +46,27 @@ public class Gauge {
         receiver.update(new Sample(new Measurement(Double.valueOf(x)), new Identifier(name, p), AssumedType.GAUGE));
     }
 
+    /**
+     * Bind this gauge to the default position given when it was declared.
+     *
+     * @return a gauge which samples this metric at the default position, without allocating
+     */
+    public BoundGauge bind() {
+        return bind(defaultPosition);
+    }
+
+    /**
+     * Bind this gauge to the given point. Use this for gauges which are
+     * sampled often, at a few, known points, as the point is resolved only
+     * once, here. Bound gauges live as long as the metric receiver.
+     *
+     * @param p the point in the metric space which the returned gauge samples
+     * @return a gauge which samples this metric at the given point, without allocating
+     */
+    public BoundGauge bind(Point p) {
+        return receiver.bindGauge(new Identifier(name, p));
+    }
+
     /**
      * Create a PointBuilder with the default dimension values reflecting those
      * given when this gauge was declared.
@@ -17,14 +17,15 @@ import com.yahoo.metrics.ManagerConfig;
 class MetricAggregator implements Runnable {
 
     private final ThreadLocalDirectory<Bucket, Sample> metricsCollection;
+    private final BoundMetrics boundMetrics;
     private final AtomicReference<Bucket> currentSnapshot;
     private int generation = 0;
     private final Bucket[] buffer;
     private long fromMillis;
     private final DimensionCache dimensions;
 
-    MetricAggregator(ThreadLocalDirectory<Bucket, Sample> metricsCollection, AtomicReference<Bucket> currentSnapshot,
-            ManagerConfig settings) {
+    MetricAggregator(ThreadLocalDirectory<Bucket, Sample> metricsCollection, BoundMetrics boundMetrics,
+                     AtomicReference<Bucket> currentSnapshot, ManagerConfig settings) {
         if (settings.reportPeriodSeconds() < 10) {
             throw new IllegalArgumentException(
                     "Do not use this metrics implementation"
@@ -34,6 +35,7 @@ class MetricAggregator implements Runnable {
         dimensions = new DimensionCache(settings.pointsToKeepPerMetric());
         fromMillis = System.currentTimeMillis();
         this.metricsCollection = metricsCollection;
+        this.boundMetrics = boundMetrics;
         this.currentSnapshot = currentSnapshot;
     }
 
@@ -64,6 +66,7 @@ class MetricAggregator implements Runnable {
         for (Bucket b : buckets) {
             latest.merge(b, true);
         }
+        latest.merge(boundMetrics.harvest(), true);
         buffer[bucketIndex] = latest;
         this.fromMillis = toMillis;
         return bucketToDelete;
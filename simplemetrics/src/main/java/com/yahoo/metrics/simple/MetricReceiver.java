@@ -23,6 +23,7 @@ public class MetricReceiver {
     public static final MetricReceiver nullImplementation = new NullReceiver();
     private final ThreadLocalDirectory<Bucket, Sample> metricsCollection;
     private final AtomicReference<Bucket> currentSnapshot;
+    private final BoundMetrics boundMetrics;
 
     // metricSettings is volatile for reading, the lock is for updates
     private final Object histogramDefinitionsLock = new Object();
@@ -50,6 +51,11 @@ public class MetricReceiver {
         public void add(long n, Point p) {
         }
 
+        @Override
+        public BoundCounter bind(Point p) {
+            return new BoundCounter();
+        }
+
         @Override
         public PointBuilder builder() {
             return super.builder();
@@ -69,6 +75,11 @@ public class MetricReceiver {
         public void sample(double x, Point p) {
         }
 
+        @Override
+        public BoundGauge bind(Point p) {
+            return new BoundGauge(null);
+        }
+
         @Override
         public PointBuilder builder() {
             return super.builder();
@@ -79,14 +90,16 @@ public class MetricReceiver {
     public static final class MockReceiver extends MetricReceiver {
 
         private final ThreadLocalDirectory<Bucket, Sample> collection;
+        private final BoundMetrics boundMetrics;
 
-        private MockReceiver(ThreadLocalDirectory<Bucket, Sample> collection) {
-            super(collection, null);
+        private MockReceiver(ThreadLocalDirectory<Bucket, Sample> collection, BoundMetrics boundMetrics) {
+            super(collection, null, boundMetrics);
             this.collection = collection;
+            this.boundMetrics = boundMetrics;
         }
 
         public MockReceiver() {
-            this(new ThreadLocalDirectory<>(new MetricUpdater()));
+            this(new ThreadLocalDirectory<>(new MetricUpdater()), new BoundMetrics());
         }
 
         /** Gathers all data since last snapshot */
@@ -95,6 +108,7 @@ public class MetricReceiver {
             for (Bucket b : collection.fetch()) {
                 merged.merge(b, true);
             }
+            merged.merge(boundMetrics.harvest(), true);
             return merged;
         }
 
@@ -108,7 +122,7 @@ public class MetricReceiver {
     private static final class NullReceiver extends MetricReceiver {
 
         NullReceiver() {
-            super(null, null);
+            super(null, null, null);
         }
 
         @Override
@@ -158,11 +172,31 @@ public class MetricReceiver {
         MetricSettings getMetricDefinition(String metricName) {
             return null;
         }
+
+        @Override
+        BoundCounter bindCounter(Identifier id) {
+            return new BoundCounter();
+        }
+
+        @Override
+        BoundGauge bindGauge(Identifier id) {
+            return new BoundGauge(null);
+        }
     }
 
+    /**
+     * Creates a receiver whose {@link BoundCounter}s and {@link BoundGauge}s are not aggregated.
+     * Use {@link MetricManager} to get a receiver which aggregates all metrics.
+     */
     public MetricReceiver(ThreadLocalDirectory<Bucket, Sample> metricsCollection, AtomicReference<Bucket> currentSnapshot) {
+        this(metricsCollection, currentSnapshot, new BoundMetrics());
+    }
+
+    MetricReceiver(ThreadLocalDirectory<Bucket, Sample> metricsCollection, AtomicReference<Bucket> currentSnapshot,
+                   BoundMetrics boundMetrics) {
         this.metricsCollection = metricsCollection;
         this.currentSnapshot = currentSnapshot;
+        this.boundMetrics = boundMetrics;
         metricSettings = new ImmutableMap.Builder<String, MetricSettings>().build();
     }
 
@@ -286,6 +320,16 @@ public class MetricReceiver {
         }
     }
 
+    /** Returns the counter bound to the given identifier, which is created if it does not yet exist. */
+    BoundCounter bindCounter(Identifier id) {
+        return boundMetrics.counter(id);
+    }
+
+    /** Returns the gauge bound to the given identifier, which is created if it does not yet exist. */
+    BoundGauge bindGauge(Identifier id) {
+        return boundMetrics.gauge(id, getMetricDefinition(id.getName()));
+    }
+
     /**
      * Get how to build a histogram for a given metric, or null if no histogram should be created.
      *
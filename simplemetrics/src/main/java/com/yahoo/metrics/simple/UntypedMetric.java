@@ -60,6 +60,29 @@ public class UntypedMetric {
         ++count;
     }
 
+    /** Puts the aggregate of count gauge samples, as recorded by a {@link BoundGauge}. */
+    void putAggregate(long count, double sum, double min, double max, double last, DoubleHistogram values) {
+        outputFormat = AssumedType.GAUGE;
+        current = last;
+        if (histogram != null && values != null) {
+            try {
+                histogram.add(values);
+            } catch (ArrayIndexOutOfBoundsException e) {
+                log.log(Level.WARNING, "Had trouble merging histograms: " + e.getMessage());
+            }
+        }
+        if (this.count > 0) {
+            this.max = Math.max(max, this.max);
+            this.min = Math.min(min, this.min);
+            this.sum += sum;
+        } else {
+            this.max = max;
+            this.min = min;
+            this.sum = sum;
+        }
+        this.count += count;
+    }
+
     UntypedMetric pruneData() {
         UntypedMetric pruned = new UntypedMetric(null);
         pruned.outputFormat = this.outputFormat;
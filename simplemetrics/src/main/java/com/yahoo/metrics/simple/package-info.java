@@ -13,6 +13,9 @@
  * {@link com.yahoo.metrics.simple.MetricReceiver#declareGauge(String)},
  * {@link com.yahoo.metrics.simple.MetricReceiver#declareGauge(String, Point)}, or
  * {@link com.yahoo.metrics.simple.MetricReceiver#declareGauge(String, java.util.Optional, MetricSettings)}.
+ * Metrics which are updated often, at a few known points, may be bound to these
+ * points once, as {@link com.yahoo.metrics.simple.BoundCounter} and
+ * {@link com.yahoo.metrics.simple.BoundGauge}, which record without allocating.
  * </p>
  *
  * <p>
@@ -108,4 +108,27 @@ public class CounterTest {
         assertEquals(twoToThePowerOfFourtyeight, x.get(0).getValue().getCount());
     }
 
+    @Test
+    public final void testBound() {
+        final String metricName = "unitTestCounter";
+        Point p = receiver.pointBuilder().set("x", 2L).build();
+        Counter c = receiver.declareCounter(metricName, p);
+        BoundCounter bound = c.bind();
+        bound.add();
+        bound.add(2L);
+        c.bind(receiver.pointBuilder().set("x", 3L).build()).add(5L);
+        c.add(7L);
+        Map<Point, UntypedMetric> values = receiver.getSnapshot().getMapForMetric(metricName);
+        assertEquals(2, values.size());
+        assertEquals(10L, values.get(p).getCount());
+        assertTrue(values.get(p).isCounter());
+        assertEquals(5L, values.get(receiver.pointBuilder().set("x", 3L).build()).getCount());
+
+        assertSame(bound, c.bind(p));
+        assertEquals(0, receiver.getSnapshot().getMapForMetric(metricName).size());
+        try {
+            receiver.declareGauge(metricName, p).bind();
+            fail("Expected exception binding gauge with identifier of bound counter");
+        } catch (IllegalArgumentException expected) { }
+    }
 }
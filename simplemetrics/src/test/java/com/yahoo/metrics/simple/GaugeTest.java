@@ -80,4 +80,24 @@ public class GaugeTest {
         assertEquals(Math.E, x.get(0).getValue().getLast(), 1e-15);
     }
 
+    @Test
+    public final void testBound() {
+        final String metricName = "unitTestGauge";
+        receiver.addMetricDefinition(metricName, new MetricSettings.Builder().histogram(true).build());
+        BoundGauge g = receiver.declareGauge(metricName).bind();
+        g.sample(3.0d);
+        g.sample(1.0d);
+        g.sample(2.0d);
+        UntypedMetric value = receiver.getSnapshot().getMapForMetric(metricName).get(Point.emptyPoint());
+        assertFalse(value.isCounter());
+        assertEquals(3L, value.getCount());
+        assertEquals(1.0d, value.getMin(), 0.0d);
+        assertEquals(3.0d, value.getMax(), 0.0d);
+        assertEquals(6.0d, value.getSum(), 0.0d);
+        assertEquals(2.0d, value.getLast(), 0.0d);
+        assertEquals(3L, value.getHistogram().getTotalCount());
+
+        assertEquals(0, receiver.getSnapshot().getMapForMetric(metricName).size());
+        MetricReceiver.nullImplementation.declareGauge(metricName).bind().sample(1.0d);
+    }
 }
@@ -0,0 +1,44 @@
+// Copyright Verizon Media. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.vespa.http.client.core.communication;
+
+import java.util.Random;
+
+/**
+ * Decides how long an {@link IOThread} waits before polling again, when its in-flight window is full
+ * and the gateway returned no results. The wait doubles, from a minimum to a maximum, for each poll
+ * in a row without results, and is reset when results arrive. Each wait is drawn uniformly from the
+ * upper half of the current interval, so threads which filled up together do not poll together.
+ *
+ * @author agent
+ */
+class FullWindowBackoff {
+
+    private final long minWaitMs;
+    private final long maxWaitMs;
+    private final Random random;
+    private long intervalMs;
+
+    FullWindowBackoff(long minWaitMs, long maxWaitMs, Random random) {
+        if (minWaitMs <= 0 || maxWaitMs < minWaitMs)
+            throw new IllegalArgumentException("Must have 0 < minWaitMs <= maxWaitMs, but got " + minWaitMs + " and " + maxWaitMs);
+
+        this.minWaitMs = minWaitMs;
+        this.maxWaitMs = maxWaitMs;
+        this.random = random;
+        this.intervalMs = minWaitMs;
+    }
+
+    /** Returns the time to wait before the next poll, and grows the interval for the one after that. */
+    long nextWaitMs() {
+        long halfMs = intervalMs / 2;
+        long waitMs = halfMs + (long) (random.nextDouble() * (intervalMs - halfMs + 1));
+        intervalMs = Math.min(maxWaitMs, 2 * intervalMs);
+        return waitMs;
+    }
+
+    /** Resets the interval to its minimum, as results were returned. */
+    void reset() {
+        intervalMs = minWaitMs;
+    }
+
+}
@@ -38,6 +38,10 @@ public class IOThread implements Runnable, AutoCloseable {
 
     private static final Logger log = Logger.getLogger(IOThread.class.getName());
 
+    /** Bounds for how long to wait before polling again when the in-flight window is full and no results were returned */
+    private static final long minFullWindowWaitMs = 50;
+    private static final long maxFullWindowWaitMs = 300;
+
     private final Endpoint endpoint;
     private final GatewayConnectionFactory connectionFactory;
     private final DocumentQueue documentQueue;
@@ -58,6 +62,8 @@ public class IOThread implements Runnable, AutoCloseable {
     private final Random random = new Random();
     private final OldConnectionsDrainer oldConnectionsDrainer;
 
+    private final FullWindowBackoff fullWindowBackoff = new FullWindowBackoff(minFullWindowWaitMs, maxFullWindowWaitMs, random);
+
     private volatile GatewayConnection currentConnection;
     private volatile ConnectionState connectionState = ConnectionState.DISCONNECTED;
 
@@ -312,12 +318,16 @@ public class IOThread implements Runnable, AutoCloseable {
 
         if (pendingResultQueueSize > maxInFlightRequests && processResponse.processResultsCount == 0) {
             try {
-                // Max outstanding document operations, no more results on server side, wait a bit before asking again
-                Thread.sleep(300);
+                // Max outstanding document operations, no more results on server side, wait a bit before asking again.
+                // Back off exponentially while nothing completes, so a connection is not left idle longer than needed.
+                Thread.sleep(fullWindowBackoff.nextWaitMs());
             } catch (InterruptedException e) {
                 // Ignore
             }
         }
+        else if (processResponse.processResultsCount > 0) {
+            fullWindowBackoff.reset();
+        }
         return processResponse;
     }
 
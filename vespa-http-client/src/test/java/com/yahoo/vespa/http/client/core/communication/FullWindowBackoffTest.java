@@ -0,0 +1,54 @@
+// Copyright Verizon Media. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.vespa.http.client.core.communication;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author agent
+ */
+public class FullWindowBackoffTest {
+
+    @Test
+    public void waitGrowsExponentiallyToMaxWithJitterAndIsReset() {
+        FullWindowBackoff backoff = new FullWindowBackoff(50, 300, new Random(42));
+        for (int round = 0; round < 100; round++) {
+            assertWaitIn(backoff, 25, 50);
+            assertWaitIn(backoff, 50, 100);
+            assertWaitIn(backoff, 100, 200);
+            for (int i = 0; i < 10; i++)
+                assertWaitIn(backoff, 150, 300);
+
+            backoff.reset();
+        }
+    }
+
+    @Test
+    public void jitterSpansTheWholeUpperHalfOfTheInterval() {
+        long[] extremes = { Long.MAX_VALUE, Long.MIN_VALUE };
+        FullWindowBackoff backoff = new FullWindowBackoff(100, 100, new Random(42));
+        for (int i = 0; i < 10000; i++) {
+            long waitMs = backoff.nextWaitMs();
+            extremes[0] = Math.min(extremes[0], waitMs);
+            extremes[1] = Math.max(extremes[1], waitMs);
+        }
+        assertEquals(50, extremes[0]);
+        assertEquals(100, extremes[1]);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void minWaitMustBePositive() {
+        new FullWindowBackoff(0, 300, new Random());
+    }
+
+    private static void assertWaitIn(FullWindowBackoff backoff, long minMs, long maxMs) {
+        long waitMs = backoff.nextWaitMs();
+        assertTrue("Expected wait in [" + minMs + ", " + maxMs + "], but got " + waitMs,
+                   minMs <= waitMs && waitMs <= maxMs);
+    }
+
+}
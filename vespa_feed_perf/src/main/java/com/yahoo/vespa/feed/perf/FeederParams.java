@@ -32,6 +32,7 @@ class FeederParams {
     private OutputStream dumpStream = null;
     private DumpFormat dumpFormat = DumpFormat.JSON;
     private boolean benchmarkMode = false;
+    private boolean localMode = false;
     private int numDispatchThreads = 1;
     private int maxPending = 0;
     private double timeout = 180.0;
@@ -131,6 +132,12 @@ class FeederParams {
     int getNumDispatchThreads() { return numDispatchThreads; }
     int getMaxPending() { return maxPending; }
     boolean isBenchmarkMode() { return benchmarkMode; }
+    boolean isLocalMode() { return localMode; }
+
+    FeederParams setLocalMode() {
+        localMode = true;
+        return this;
+    }
 
     FeederParams parseArgs(String... args) throws ParseException, FileNotFoundException {
         Options opts = new Options();
@@ -139,6 +146,8 @@ class FeederParams {
         opts.addOption("m", "maxpending", true, "Max number of inflights messages. Default is auto.");
         opts.addOption("r", "route", true, "Route for sending messages. default is 'default'....");
         opts.addOption("b", "mode", true, "Mode for benchmarking.");
+        opts.addOption("L", "local", false, "Feed to an in-process destination which acks immediately, and report per stage cpu, allocation and latency.");
+        opts.addOption("i", "configid", true, "Config id used for document types and routing. default = " + configId);
         opts.addOption("o", "output", true, "File to write to. Extensions gives format (.xml, .json, .vespa) json will be produced if no extension.");
         opts.addOption("c", "numconnections", true, "Number of connections per host.");
         opts.addOption("t", "timeout", true, "Timeout for a message in seconds. default = " + timeout);
@@ -177,7 +186,11 @@ class FeederParams {
         if (cmd.hasOption("t")) {
             timeout = Double.valueOf(cmd.getOptionValue("t").trim());
         }
+        if (cmd.hasOption('i')) {
+            configId = cmd.getOptionValue('i').trim();
+        }
         benchmarkMode =  cmd.hasOption('b');
+        localMode = cmd.hasOption('L');
         if (cmd.hasOption('o')) {
             String fileName = cmd.getOptionValue('o').trim();
             dumpStream = new FileOutputStream(new File(fileName));
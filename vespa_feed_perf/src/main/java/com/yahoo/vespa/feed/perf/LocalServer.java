@@ -0,0 +1,56 @@
+// Copyright Verizon Media. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.vespa.feed.perf;
+
+import com.yahoo.document.DocumentTypeManager;
+import com.yahoo.documentapi.messagebus.protocol.DocumentMessage;
+import com.yahoo.documentapi.messagebus.protocol.DocumentProtocol;
+import com.yahoo.jrt.ListenFailedException;
+import com.yahoo.jrt.slobrok.server.Slobrok;
+import com.yahoo.messagebus.DestinationSession;
+import com.yahoo.messagebus.DestinationSessionParams;
+import com.yahoo.messagebus.MessageBus;
+import com.yahoo.messagebus.MessageBusParams;
+import com.yahoo.messagebus.Reply;
+import com.yahoo.messagebus.network.Identity;
+import com.yahoo.messagebus.network.rpc.RPCNetwork;
+import com.yahoo.messagebus.network.rpc.RPCNetworkParams;
+import com.yahoo.messagebus.routing.Route;
+
+/**
+ * An in-process stand-in for a content cluster: a slobrok, and a destination session on its own {@link RPCNetwork},
+ * which acknowledges all messages immediately. Feeding to this exercises the full client stack, including
+ * encoding and the network, without any server side work.
+ *
+ * @author agent
+ */
+class LocalServer {
+
+    private final Slobrok slobrok;
+    private final MessageBus mbus;
+    private final DestinationSession session;
+
+    LocalServer(DocumentTypeManager documentMgr) throws ListenFailedException {
+        slobrok = new Slobrok();
+        mbus = new MessageBus(new RPCNetwork(new RPCNetworkParams().setSlobrokConfigId(slobrok.configId())
+                                                                   .setIdentity(new Identity("local-server"))),
+                              new MessageBusParams().addProtocol(new DocumentProtocol(documentMgr)));
+        session = mbus.createDestinationSession(new DestinationSessionParams().setMessageHandler(message -> {
+            Reply reply = ((DocumentMessage) message).createReply();
+            reply.swapState(message);
+            reply.popHandler().handleReply(reply);
+        }));
+    }
+
+    /** Returns the config id clients should use to find this in slobrok. */
+    String slobrokConfigId() { return slobrok.configId(); }
+
+    /** Returns the route to the destination session of this. */
+    Route route() { return Route.parse(session.getConnectionSpec()); }
+
+    void close() {
+        session.destroy();
+        mbus.destroy();
+        slobrok.stop();
+    }
+
+}
@@ -20,11 +20,13 @@ import com.yahoo.documentapi.messagebus.protocol.PutDocumentMessage;
 import com.yahoo.documentapi.messagebus.protocol.RemoveDocumentMessage;
 import com.yahoo.documentapi.messagebus.protocol.UpdateDocumentMessage;
 import com.yahoo.io.GrowableByteBuffer;
+import com.yahoo.jrt.ListenFailedException;
 import com.yahoo.messagebus.DynamicThrottlePolicy;
 import com.yahoo.messagebus.Error;
 import com.yahoo.messagebus.Message;
 import com.yahoo.messagebus.MessageBusParams;
 import com.yahoo.messagebus.RPCMessageBus;
+import com.yahoo.messagebus.MessagebusConfig;
 import com.yahoo.messagebus.Reply;
 import com.yahoo.messagebus.ReplyHandler;
 import com.yahoo.messagebus.SourceSession;
@@ -32,6 +34,7 @@ import com.yahoo.messagebus.SourceSessionParams;
 import com.yahoo.messagebus.StaticThrottlePolicy;
 import com.yahoo.messagebus.network.rpc.RPCNetworkParams;
 import com.yahoo.messagebus.routing.Route;
+import com.yahoo.vespa.feed.perf.StageStats.Stage;
 import com.yahoo.vespaxmlparser.ConditionalFeedOperation;
 import com.yahoo.vespaxmlparser.FeedReader;
 import com.yahoo.vespaxmlparser.FeedOperation;
@@ -64,6 +67,8 @@ public class SimpleFeeder implements ReplyHandler {
     private final DocumentTypeManager docTypeMgr = new DocumentTypeManager();
     private final List<InputStream> inputStreams;
     private final PrintStream out;
+    private final LocalServer localServer;
+    private final StageStats stats;
     private final RPCMessageBus mbus;
     private final SourceSession session;
     private final int numThreads;
@@ -86,19 +91,22 @@ public class SimpleFeeder implements ReplyHandler {
         private final Executor executor;
         private final long messagesToSend;
         private final AtomicReference<Throwable> failure;
+        private final StageStats stats;
 
-        Metrics(Destination destination, FeedReader reader, Executor executor, AtomicReference<Throwable> failure, long messagesToSend) {
+        Metrics(Destination destination, FeedReader reader, Executor executor, AtomicReference<Throwable> failure,
+                long messagesToSend, StageStats stats) {
             this.destination = destination;
             this.reader = reader;
             this.executor = executor;
             this.messagesToSend = messagesToSend;
             this.failure = failure;
+            this.stats = stats;
         }
 
         long feed() throws Throwable {
             long numMessages = 0;
             while ((failure.get() == null) && (numMessages < messagesToSend)) {
-                FeedOperation op = reader.read();
+                FeedOperation op = read();
                 if (op.getType() == FeedOperation.Type.INVALID) {
                     break;
                 }
@@ -111,6 +119,17 @@ public class SimpleFeeder implements ReplyHandler {
             }
             return numMessages;
         }
+        private FeedOperation read() throws Exception {
+            if (stats == null) {
+                return reader.read();
+            }
+            long startNanos = System.nanoTime();
+            long startCpuNanos = StageStats.threadCpuNanos();
+            long startAllocatedBytes = StageStats.threadAllocatedBytes();
+            FeedOperation op = reader.read();
+            stats.record(Stage.PARSE, startNanos, startCpuNanos, startAllocatedBytes);
+            return op;
+        }
         private void sendOperation(FeedOperation op) {
             destination.send(op);
         }
@@ -132,21 +151,35 @@ public class SimpleFeeder implements ReplyHandler {
         private final SourceSession session;
         private final long timeoutMS;
         private final AtomicReference<Throwable> failure;
-        MbusDestination(SourceSession session, Route route, double timeoutS, AtomicReference<Throwable> failure, PrintStream err) {
+        private final StageStats stats;
+        MbusDestination(SourceSession session, Route route, double timeoutS, AtomicReference<Throwable> failure,
+                        PrintStream err, StageStats stats) {
             this.route = route;
             this.err = err;
             this.session = session;
             this.timeoutMS = (long)(timeoutS * 1000.0);
             this.failure = failure;
+            this.stats = stats;
         }
         public void send(FeedOperation op) {
+            if (stats == null) {
+                sendMessage(op);
+                return;
+            }
+            long startNanos = System.nanoTime();
+            long startCpuNanos = StageStats.threadCpuNanos();
+            long startAllocatedBytes = StageStats.threadAllocatedBytes();
+            sendMessage(op);
+            stats.record(Stage.SEND, startNanos, startCpuNanos, startAllocatedBytes);
+        }
+        private void sendMessage(FeedOperation op) {
             Message msg = newMessage(op);
             if (msg == null) {
                 err.println("ignoring operation; " + op.getType());
                 return;
             }
             msg.setTimeRemaining(timeoutMS);
-            msg.setContext(System.currentTimeMillis());
+            msg.setContext(System.nanoTime());
             msg.setRoute(route);
             try {
                 Error err = session.sendBlocking(msg).getError();
@@ -345,18 +378,21 @@ public class SimpleFeeder implements ReplyHandler {
         }
         return new JsonDestination(params.getDumpStream(), failure, numReplies);
     }
-    SimpleFeeder(FeederParams params) {
+    SimpleFeeder(FeederParams params) throws ListenFailedException {
         inputStreams = params.getInputStreams();
         out = params.getStdOut();
         numThreads = params.getNumDispatchThreads();
         numMessagesToSend = params.getNumMessagesToSend();
-        mbus = newMessageBus(docTypeMgr, params);
+        localServer = params.isLocalMode() ? new LocalServer(docTypeMgr) : null;
+        stats = params.isLocalMode() ? new StageStats() : null;
+        mbus = newMessageBus(docTypeMgr, params, localServer);
         session = newSession(mbus, this, params);
         docTypeMgr.configure(params.getConfigId());
         benchmarkMode = params.isBenchmarkMode();
+        Route route = (localServer != null) ? localServer.route() : params.getRoute();
         destination = (params.getDumpStream() != null)
                 ? createDumper(params)
-                : new MbusDestination(session, params.getRoute(), params.getTimeout(), failure, params.getStdErr());
+                : new MbusDestination(session, route, params.getTimeout(), failure, params.getStdErr(), stats);
     }
 
     SourceSession getSourceSession() { return session; }
@@ -398,7 +434,7 @@ public class SimpleFeeder implements ReplyHandler {
         printHeader(out);
         long numMessagesSent = 0;
         for (InputStream in : inputStreams) {
-            Metrics m = new Metrics(destination, createFeedReader(in), executor, failure, numMessagesToSend);
+            Metrics m = new Metrics(destination, createFeedReader(in), executor, failure, numMessagesToSend, stats);
             numMessagesSent += m.feed();
         }
         while (failure.get() == null && numReplies.get() < numMessagesSent) {
@@ -408,12 +444,18 @@ public class SimpleFeeder implements ReplyHandler {
             throw failure.get();
         }
         printReport(out);
+        if (stats != null) {
+            stats.printReport(out);
+        }
         return this;
     }
 
     void close() throws Exception {
         destination.close();
         mbus.destroy();
+        if (localServer != null) {
+            localServer.close();
+        }
     }
 
     private static Message newMessage(FeedOperation op) {
@@ -448,7 +490,10 @@ public class SimpleFeeder implements ReplyHandler {
             return;
         }
         long now = System.currentTimeMillis();
-        long latency = now - (long) reply.getContext();
+        long latency = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - (long) reply.getContext());
+        if (stats != null) {
+            stats.record(Stage.ROUNDTRIP, (long) reply.getContext());
+        }
         numReplies.incrementAndGet();
         accumulateReplies(now, latency);
     }
@@ -480,7 +525,13 @@ public class SimpleFeeder implements ReplyHandler {
         return out.toString();
     }
 
-    private static RPCMessageBus newMessageBus(DocumentTypeManager docTypeMgr, FeederParams params) {
+    private static RPCMessageBus newMessageBus(DocumentTypeManager docTypeMgr, FeederParams params, LocalServer localServer) {
+        if (localServer != null) {
+            return new RPCMessageBus(new MessageBusParams().addProtocol(new DocumentProtocol(docTypeMgr))
+                                                           .setMessageBusConfig(new MessagebusConfig(new MessagebusConfig.Builder())),
+                                     new RPCNetworkParams().setSlobrokConfigId(localServer.slobrokConfigId())
+                                                           .setNumTargetsPerSpec(params.getNumConnectionsPerTarget()));
+        }
         return new RPCMessageBus(new MessageBusParams().addProtocol(new DocumentProtocol(docTypeMgr)),
                                  new RPCNetworkParams().setSlobrokConfigId(params.getConfigId())
                                                        .setNumTargetsPerSpec(params.getNumConnectionsPerTarget()),
@@ -0,0 +1,150 @@
+// Copyright Verizon Media. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.vespa.feed.perf;
+
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.lang.management.ThreadMXBean;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per stage CPU time, allocation and latency histograms for a feed run. CPU time and allocation is measured for the
+ * calling thread, so stages must be recorded by the thread which did the work. Whatever is not accounted for by
+ * the stages, i.e., encoding and network in the messagebus threads, and the local destination, is reported as
+ * the remainder of the process totals.
+ *
+ * @author agent
+ */
+class StageStats {
+
+    enum Stage {
+        /** Reading and parsing operations from the input stream. */
+        PARSE,
+        /** Creating messages, and routing and sending them through the source session, including throttling. */
+        SEND,
+        /** Time from a message is sent until its reply is received. */
+        ROUNDTRIP
+    }
+
+    private static final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    private static final OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+
+    private final Map<Stage, Recorder> recorders = new EnumMap<>(Stage.class);
+    private final long startNanos = System.nanoTime();
+    private final long startProcessCpuNanos = processCpuNanos();
+    private final long startAllocatedBytes = totalAllocatedBytes();
+
+    StageStats() {
+        if (threads.isThreadCpuTimeSupported() && ! threads.isThreadCpuTimeEnabled())
+            threads.setThreadCpuTimeEnabled(true);
+
+        for (Stage stage : Stage.values())
+            recorders.put(stage, new Recorder());
+    }
+
+    /** Returns the CPU time used by the calling thread, or 0 if this is not supported. */
+    static long threadCpuNanos() {
+        return threads.isCurrentThreadCpuTimeSupported() ? threads.getCurrentThreadCpuTime() : 0;
+    }
+
+    /** Returns the number of bytes allocated by the calling thread, or 0 if this is not supported. */
+    static long threadAllocatedBytes() {
+        return threads instanceof com.sun.management.ThreadMXBean
+               ? ((com.sun.management.ThreadMXBean) threads).getThreadAllocatedBytes(Thread.currentThread().getId())
+               : 0;
+    }
+
+    /** Records the wall time of an operation in the given stage, which was not measured for CPU or allocation. */
+    void record(Stage stage, long startNanos) {
+        recorders.get(stage).record(System.nanoTime() - startNanos, 0, 0);
+    }
+
+    /** Records an operation in the given stage, with start values obtained from this thread, by the static methods. */
+    void record(Stage stage, long startNanos, long startCpuNanos, long startAllocatedBytes) {
+        recorders.get(stage).record(System.nanoTime() - startNanos,
+                                    threadCpuNanos() - startCpuNanos,
+                                    threadAllocatedBytes() - startAllocatedBytes);
+    }
+
+    void printReport(PrintStream out) {
+        double seconds = Math.max(1, System.nanoTime() - startNanos) * 1e-9;
+        long processCpuNanos = processCpuNanos() - startProcessCpuNanos;
+        long allocatedBytes = totalAllocatedBytes() - startAllocatedBytes;
+        out.println("# Stage, count, cpu us/op, alloc bytes/op, p50 us, p90 us, p99 us, p99.9 us, max us");
+        long stageCpuNanos = 0;
+        long stageAllocatedBytes = 0;
+        for (Stage stage : Stage.values()) {
+            Recorder recorder = recorders.get(stage);
+            long count = Math.max(1, recorder.count.sum());
+            stageCpuNanos += recorder.cpuNanos.sum();
+            stageAllocatedBytes += recorder.allocatedBytes.sum();
+            out.format("%-10s %12d, %11.2f, %14d, %8d, %8d, %8d, %8d, %8d\n",
+                       stage.name().toLowerCase() + ",", recorder.count.sum(),
+                       recorder.cpuNanos.sum() * 1e-3 / count, recorder.allocatedBytes.sum() / count,
+                       recorder.percentile(0.5), recorder.percentile(0.9), recorder.percentile(0.99),
+                       recorder.percentile(0.999), recorder.percentile(1));
+        }
+        long count = Math.max(1, recorders.get(Stage.ROUNDTRIP).count.sum());
+        out.format("# Process cpu %.2f s (%.2f cores), of which %.2f us/op outside the stages above\n",
+                   processCpuNanos * 1e-9, processCpuNanos * 1e-9 / seconds,
+                   Math.max(0, processCpuNanos - stageCpuNanos) * 1e-3 / count);
+        out.format("# Allocated %.2f MB/s, of which %d bytes/op outside the stages above\n",
+                   allocatedBytes / seconds / (1 << 20), Math.max(0, allocatedBytes - stageAllocatedBytes) / count);
+    }
+
+    private static long processCpuNanos() {
+        return os instanceof com.sun.management.OperatingSystemMXBean
+               ? ((com.sun.management.OperatingSystemMXBean) os).getProcessCpuTime()
+               : 0;
+    }
+
+    /** Returns the bytes allocated by all live threads; bytes allocated by threads which have since died are lost. */
+    private static long totalAllocatedBytes() {
+        if ( ! (threads instanceof com.sun.management.ThreadMXBean))
+            return 0;
+
+        long sum = 0;
+        for (long allocated : ((com.sun.management.ThreadMXBean) threads).getThreadAllocatedBytes(threads.getAllThreadIds()))
+            if (allocated > 0) sum += allocated;
+
+        return sum;
+    }
+
+    /** Sums of CPU and allocation, and a histogram of wall time in microseconds, with power of two buckets. */
+    private static class Recorder {
+
+        private final LongAdder count = new LongAdder();
+        private final LongAdder cpuNanos = new LongAdder();
+        private final LongAdder allocatedBytes = new LongAdder();
+        private final AtomicLongArray buckets = new AtomicLongArray(Long.SIZE);
+
+        void record(long wallNanos, long cpuNanos, long allocatedBytes) {
+            count.increment();
+            this.cpuNanos.add(cpuNanos);
+            this.allocatedBytes.add(allocatedBytes);
+            buckets.incrementAndGet(Long.SIZE - Long.numberOfLeadingZeros(TimeUnit.NANOSECONDS.toMicros(wallNanos)));
+        }
+
+        /** Returns the upper bound, in microseconds, of the bucket containing the given percentile. */
+        long percentile(double fraction) {
+            long total = 0;
+            for (int i = 0; i < buckets.length(); i++)
+                total += buckets.get(i);
+
+            long target = (long) Math.ceil(fraction * total);
+            long seen = 0;
+            for (int i = 0; i < buckets.length(); i++) {
+                seen += buckets.get(i);
+                if (seen >= target && seen > 0)
+                    return (1L << i) - 1;
+            }
+            return 0;
+        }
+
+    }
+
+}
@@ -133,6 +133,14 @@ public class FeederParamsTest {
         assertEquals(0.97, new FeederParams().parseArgs("--window_backoff", "0.97").getWindowSizeBackOff(), EPSILON);
     }
 
+    @Test
+    public void requireThatLocalModeAndConfigIdAreParsed() throws ParseException, FileNotFoundException {
+        assertFalse(new FeederParams().isLocalMode());
+        assertTrue(new FeederParams().parseArgs("--local").isLocalMode());
+        assertTrue(new FeederParams().parseArgs("-L").isLocalMode());
+        assertEquals("dir:my_dir", new FeederParams().parseArgs("--configid", "dir:my_dir").getConfigId());
+    }
+
     @Test
     public void requireThatDumpStreamAreParsed() throws ParseException, IOException {
         assertNull(new FeederParams().getDumpStream());
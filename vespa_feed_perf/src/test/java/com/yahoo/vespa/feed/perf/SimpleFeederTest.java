@@ -188,6 +188,32 @@ public class SimpleFeederTest {
                         "\\s*\\d+,\\s*3,.+\n");
     }
 
+    @Test
+    public void requireThatLocalModeFeedsInProcessAndReportsStages() throws Throwable {
+        assertFeed(new FeederParams().setLocalMode(),
+                   "[" +
+                   "  { \"put\": \"id:simple:simple::0\", \"fields\": { \"my_str\":\"foo\"}}," +
+                   "  { \"update\": \"id:simple:simple::1\", \"fields\": { \"my_str\": { \"assign\":\"bar\"}}}," +
+                   "  { \"remove\": \"id:simple:simple::2\"}" +
+                   "]",
+                   new MessageHandler() {
+
+                       @Override
+                       public void handleMessage(Message msg) {
+                           fail("Local mode should not send to the configured route");
+                       }
+                   },
+                   "",
+                   "(.+\n)+" +
+                   "\\s*\\d+,\\s*3,.+\n" +
+                   "# Stage, .+\n" +
+                   "parse,\\s+\\d+,.+\n" +
+                   "send,\\s+3,.+\n" +
+                   "roundtrip,\\s+3,.+\n" +
+                   "# Process cpu .+\n" +
+                   "# Allocated .+\n");
+    }
+
     @Test
     public void requireThatParseFailuresThrowInMainThread() throws Throwable {
         TestDriver driver = new TestDriver(new FeederParams(),
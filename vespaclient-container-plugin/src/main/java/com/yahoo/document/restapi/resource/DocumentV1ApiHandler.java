@@ -25,6 +25,7 @@ import com.yahoo.document.json.JsonReader;
 import com.yahoo.document.json.JsonWriter;
 import com.yahoo.document.restapi.DocumentOperationExecutorConfig;
 import com.yahoo.document.select.parser.ParseException;
+import com.yahoo.documentapi.AckToken;
 import com.yahoo.documentapi.AsyncParameters;
 import com.yahoo.documentapi.AsyncSession;
 import com.yahoo.documentapi.DocumentAccess;
@@ -34,9 +35,11 @@ import com.yahoo.documentapi.DumpVisitorDataHandler;
 import com.yahoo.documentapi.ProgressToken;
 import com.yahoo.documentapi.Result;
 import com.yahoo.documentapi.VisitorControlHandler;
+import com.yahoo.documentapi.VisitorDataHandler;
 import com.yahoo.documentapi.VisitorParameters;
 import com.yahoo.documentapi.VisitorSession;
 import com.yahoo.documentapi.messagebus.protocol.DocumentProtocol;
+import com.yahoo.documentapi.messagebus.protocol.PutDocumentMessage;
 import com.yahoo.documentapi.metrics.DocumentApiMetrics;
 import com.yahoo.documentapi.metrics.DocumentOperationStatus;
 import com.yahoo.jdisc.Metric;
@@ -51,6 +54,7 @@ import com.yahoo.jdisc.handler.ResponseHandler;
 import com.yahoo.jdisc.handler.UnsafeContentInputStream;
 import com.yahoo.jdisc.http.HttpRequest;
 import com.yahoo.jdisc.http.HttpRequest.Method;
+import com.yahoo.messagebus.Message;
 import com.yahoo.messagebus.StaticThrottlePolicy;
 import com.yahoo.messagebus.Trace;
 import com.yahoo.messagebus.TraceNode;
@@ -68,6 +72,7 @@ import java.nio.ByteBuffer;
 import java.time.Clock;
 import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Deque;
@@ -113,6 +118,7 @@ import static java.util.stream.Collectors.toUnmodifiableMap;
 public class DocumentV1ApiHandler extends AbstractRequestHandler {
 
     private static final Duration defaultTimeout = Duration.ofSeconds(175);
+    private static final long maxPendingStreamedBytes = 1 << 22;
 
     private static final Logger log = Logger.getLogger(DocumentV1ApiHandler.class.getName());
     private static final Parser<Integer> integerParser = Integer::parseInt;
@@ -145,6 +151,7 @@ public class DocumentV1ApiHandler extends AbstractRequestHandler {
     private static final String BUCKET_SPACE = "bucketSpace";
     private static final String TIMEOUT = "timeout";
     private static final String TRACELEVEL = "tracelevel";
+    private static final String STREAM = "stream";
 
     private final Clock clock;
     private final Metric metric;
@@ -301,8 +308,9 @@ public class DocumentV1ApiHandler extends AbstractRequestHandler {
     private ContentChannel getDocuments(HttpRequest request, DocumentPath path, ResponseHandler handler) {
         enqueueAndDispatch(request, handler, () -> {
             VisitorParameters parameters = parseParameters(request, path);
+            boolean streamed = getProperty(request, STREAM, booleanParser).orElse(false);
             return () -> {
-                visit(request, parameters, handler);
+                visit(request, parameters, streamed, handler);
                 return true; // VisitorSession has its own throttle handling.
             };
         });
@@ -442,7 +450,8 @@ public class DocumentV1ApiHandler extends AbstractRequestHandler {
     private static class JsonResponse implements AutoCloseable {
 
         private final BufferedContentChannel buffer = new BufferedContentChannel();
-        private final OutputStream out = new ContentChannelOutputStream(buffer);
+        private final PendingWritesContentChannel pending = new PendingWritesContentChannel(buffer);
+        private final OutputStream out = new ContentChannelOutputStream(pending);
         private final JsonGenerator json = jsonFactory.createGenerator(out);
         private final ResponseHandler handler;
         private ContentChannel channel;
@@ -488,10 +497,14 @@ public class DocumentV1ApiHandler extends AbstractRequestHandler {
             }
         }
 
-        /** Commits a response with the given status code and some default headers, writes buffered content, and closes this. */
+        /**
+         * Commits a response with the given status code and some default headers, writes buffered content, and closes this.
+         * If the response was already committed, e.g., for a streamed visit, this simply closes it.
+         */
         synchronized void respond(int status) throws IOException {
             try (this) {
-                commit(status);
+                if (channel == null)
+                    commit(status);
             }
         }
 
@@ -564,6 +577,80 @@ public class DocumentV1ApiHandler extends AbstractRequestHandler {
             json.writeStringField("continuation", token);
         }
 
+        /**
+         * Flushes all JSON written so far to the response content channel, and runs the given task once
+         * no more than the given number of bytes remain written, but not yet completed, by that channel.
+         */
+        void flush(long maxPendingBytes, Runnable task) throws IOException {
+            synchronized (this) {
+                json.flush(); // Also flushes the output stream.
+            }
+            pending.whenPendingAtMost(maxPendingBytes, task);
+        }
+
+    }
+
+    /** Content channel which keeps track of the number of bytes written to, but not yet completed by, its delegate. */
+    private static class PendingWritesContentChannel implements ContentChannel {
+
+        private final ContentChannel delegate;
+        private final List<Runnable> waiting = new ArrayList<>();
+        private long maxPendingBytes = Long.MAX_VALUE;
+        private long pendingBytes = 0;
+
+        PendingWritesContentChannel(ContentChannel delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void write(ByteBuffer buf, CompletionHandler handler) {
+            long size = buf.remaining();
+            synchronized (this) {
+                pendingBytes += size;
+            }
+            delegate.write(buf, new CompletionHandler() {
+                @Override public void completed() {
+                    written(size);
+                    handler.completed();
+                }
+                @Override public void failed(Throwable t) {
+                    written(size); // Don't hold back waiting tasks when the client is gone.
+                    handler.failed(t);
+                }
+            });
+        }
+
+        @Override
+        public void close(CompletionHandler handler) {
+            delegate.close(handler);
+        }
+
+        /** Runs the given task now, if few enough bytes are pending, or otherwise once enough writes have completed. */
+        void whenPendingAtMost(long maxPendingBytes, Runnable task) {
+            synchronized (this) {
+                if (pendingBytes > maxPendingBytes) {
+                    this.maxPendingBytes = Math.min(this.maxPendingBytes, maxPendingBytes);
+                    waiting.add(task);
+                    return;
+                }
+            }
+            task.run();
+        }
+
+        private void written(long size) {
+            List<Runnable> ready;
+            synchronized (this) {
+                pendingBytes -= size;
+                if (waiting.isEmpty() || pendingBytes > maxPendingBytes)
+                    return;
+
+                ready = new ArrayList<>(waiting);
+                waiting.clear();
+                maxPendingBytes = Long.MAX_VALUE;
+            }
+            ready.forEach(Runnable::run);
+        }
+
     }
 
     private static void options(Collection<Method> methods, ResponseHandler handler) {
@@ -816,7 +903,7 @@ public class DocumentV1ApiHandler extends AbstractRequestHandler {
 
         getProperty(request, CONTINUATION).map(ProgressToken::fromSerializedString).ifPresent(parameters::setResumeToken);
         parameters.setFieldSet(getProperty(request, FIELD_SET).orElse(path.documentType().map(type -> type + ":[document]").orElse(AllFields.NAME)));
-        parameters.setMaxTotalHits(wantedDocumentCount);
+        parameters.setMaxTotalHits(getProperty(request, STREAM, booleanParser).orElse(false) ? -1 : wantedDocumentCount);
         parameters.setThrottlePolicy(new StaticThrottlePolicy().setMaxPendingCount(concurrency));
         parameters.setSessionTimeoutMs(Math.max(1, request.getTimeout(TimeUnit.MILLISECONDS) - 5000));
         parameters.visitInconsistentBuckets(true);
@@ -831,19 +918,41 @@ public class DocumentV1ApiHandler extends AbstractRequestHandler {
         return parameters;
     }
 
-    private void visit(HttpRequest request, VisitorParameters parameters, ResponseHandler handler) {
+    private void visit(HttpRequest request, VisitorParameters parameters, boolean streamed, ResponseHandler handler) {
         try {
             JsonResponse response = JsonResponse.create(request, handler);
+            if (streamed)
+                response.commit(Response.Status.OK); // Documents are written to the client as they arrive; errors are reported in the message.
+
             response.writeDocumentsArrayStart();
             CountDownLatch latch = new CountDownLatch(1);
-            parameters.setLocalDataHandler(new DumpVisitorDataHandler() {
-                @Override public void onDocument(Document doc, long timeStamp) {
-                    loggingException(() -> {
-                        response.writeDocumentValue(doc);
-                    });
-                }
-                @Override public void onRemove(DocumentId id) { } // We don't visit removes.
-            });
+            if (streamed)
+                parameters.setLocalDataHandler(new VisitorDataHandler() {
+                    @Override public void onMessage(Message m, AckToken token) {
+                        if ( ! (m instanceof PutDocumentMessage)) {
+                            ack(token); // We don't visit removes.
+                            return;
+                        }
+                        try {
+                            response.writeDocumentValue(((PutDocumentMessage) m).getDocumentPut().getDocument());
+                            // Holding back the ack throttles the visitor until the client has caught up.
+                            response.flush(maxPendingStreamedBytes, () -> ack(token));
+                        }
+                        catch (IOException e) {
+                            log.log(FINE, "Failed writing response", e);
+                            ack(token);
+                        }
+                    }
+                });
+            else
+                parameters.setLocalDataHandler(new DumpVisitorDataHandler() {
+                    @Override public void onDocument(Document doc, long timeStamp) {
+                        loggingException(() -> {
+                            response.writeDocumentValue(doc);
+                        });
+                    }
+                    @Override public void onRemove(DocumentId id) { } // We don't visit removes.
+                });
             parameters.setControlHandler(new VisitorControlHandler() {
                 @Override public void onDone(CompletionCode code, String message) {
                     super.onDone(code, message);
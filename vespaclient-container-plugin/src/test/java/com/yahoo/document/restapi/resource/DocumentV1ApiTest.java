@@ -35,11 +35,15 @@ import com.yahoo.documentapi.SyncParameters;
 import com.yahoo.documentapi.SyncSession;
 import com.yahoo.documentapi.UpdateResponse;
 import com.yahoo.documentapi.VisitorControlHandler;
+import com.yahoo.documentapi.VisitorControlSession;
+import com.yahoo.documentapi.VisitorDataHandler;
 import com.yahoo.documentapi.VisitorDestinationParameters;
 import com.yahoo.documentapi.VisitorDestinationSession;
 import com.yahoo.documentapi.VisitorParameters;
 import com.yahoo.documentapi.VisitorResponse;
 import com.yahoo.documentapi.VisitorSession;
+import com.yahoo.documentapi.messagebus.protocol.PutDocumentMessage;
+import com.yahoo.documentapi.messagebus.protocol.RemoveDocumentMessage;
 import com.yahoo.jdisc.Metric;
 import com.yahoo.messagebus.StaticThrottlePolicy;
 import com.yahoo.messagebus.Trace;
@@ -59,6 +63,7 @@ import org.junit.Test;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.UncheckedIOException;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -172,6 +177,47 @@ public class DocumentV1ApiTest {
                      DocumentV1ApiHandler.resolveBucket(cluster, Optional.empty(), List.of(FixedBucketSpaces.globalSpace()), Optional.of("global")));
     }
 
+    @Test
+    public void testStreamedVisit() {
+        RequestHandlerTestDriver driver = new RequestHandlerTestDriver(handler);
+        List<AckToken> acked = new ArrayList<>();
+        access.expect(parameters -> {
+            assertEquals(-1, parameters.getMaxTotalHits());
+            VisitorDataHandler data = parameters.getLocalDataHandler();
+            data.setSession(new VisitorControlSession() {
+                @Override public void ack(AckToken token) { acked.add(token); }
+                @Override public void abort() { }
+                @Override public VisitorResponse getNext() { return null; }
+                @Override public VisitorResponse getNext(int timeoutMilliseconds) { return null; }
+                @Override public void destroy() { }
+            });
+            data.onMessage(new PutDocumentMessage(new DocumentPut(doc1)), new AckToken(1));
+            data.onMessage(new RemoveDocumentMessage(doc2.getId()), new AckToken(2));
+            data.onMessage(new PutDocumentMessage(new DocumentPut(doc3)), new AckToken(3));
+            parameters.getControlHandler().onDone(VisitorControlHandler.CompletionCode.FAILURE, "error");
+        });
+        var response = driver.sendRequest("http://localhost/document/v1/space/music/docid?stream=true&wantedDocumentCount=1");
+        assertSameJson("{" +
+                       "  \"pathId\": \"/document/v1/space/music/docid\"," +
+                       "  \"documents\": [" +
+                       "    {" +
+                       "      \"id\": \"id:space:music::one\"," +
+                       "      \"fields\": {" +
+                       "        \"artist\": \"Tom Waits\"" +
+                       "      }" +
+                       "    }," +
+                       "    {" +
+                       "     \"id\": \"id:space:music:g=a:three\"," +
+                       "     \"fields\": {}" +
+                       "    }" +
+                       "  ]," +
+                       "  \"message\": \"error\"" +
+                       "}", response.readAll());
+        assertEquals(200, response.getStatus()); // Committed before visiting started.
+        assertEquals(3, acked.size());
+        driver.close();
+    }
+
     @Test
     public void testResponses() throws ExecutionException, InterruptedException {
         RequestHandlerTestDriver driver = new RequestHandlerTestDriver(handler);